@@ -17,10 +17,16 @@
  */
 package edu.byu.chem.boltzmann.controller;
 
+import edu.byu.chem.boltzmann.model.io.EventLog;
+import edu.byu.chem.boltzmann.model.io.FrameExporter;
+import edu.byu.chem.boltzmann.model.io.TrajectoryPlayer;
+import edu.byu.chem.boltzmann.model.io.TrajectoryRecorder;
 import edu.byu.chem.boltzmann.model.physics.FrameInfo;
 import edu.byu.chem.boltzmann.model.physics.Physics;
 import edu.byu.chem.boltzmann.model.physics.Piston.PistonMode;
+import edu.byu.chem.boltzmann.model.statistics.AveragingMode;
 import edu.byu.chem.boltzmann.model.statistics.Formulas;
+import edu.byu.chem.boltzmann.model.statistics.StatisticsSnapshot;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithDistribution;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticID;
@@ -40,7 +46,11 @@ import edu.byu.chem.boltzmann.view.simulationsettings.SimSettingsController;
 import edu.byu.chem.boltzmann.view.simulationsettings.SimSettingsView;
 import edu.byu.chem.boltzmann.view.statisticsettings.StatSettingsController;
 import edu.byu.chem.boltzmann.view.statisticsettings.StatSettingsView;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import javax.swing.SwingUtilities;
 
@@ -165,6 +175,12 @@ public abstract class Controller {
     }
     
     private synchronized void setSimulationInfoWithThreadsStopped(final SimulationInfo simInfo) {   
+        // Recordings and replays are tied to the particles of the old simulation
+        stopRecording();
+        stopReplay();
+        stopExporting();
+        stopEventLog();
+
         this.simulationInfo = simInfo;
 
         simTime = 0;
@@ -197,6 +213,18 @@ public abstract class Controller {
         threadController.setPaused(paused);
     }
 
+    /**
+     * Runs the simulation as fast as possible rather than at the display's frame
+     * rate. The view then shows only some of the frames.
+     */
+    public void setTurboMode(boolean turbo) {
+        threadController.setTurbo(turbo);
+    }
+
+    public boolean isTurboMode() {
+        return threadController.isTurbo();
+    }
+
     public void setPhysicsFrameSpeedMultiplier(double multiplier) {
         if (physics != null) {
             physics.stopProcessingCurrentFrame();
@@ -213,6 +241,14 @@ public abstract class Controller {
         physics.setForgetMultiplier(mult);
     }  
     
+    public void setAveraging(AveragingMode mode, double halfLife) {
+        physics.setAveraging(mode, halfLife);
+    }
+    
+    public void setDetectEquilibration(boolean detect) {
+        physics.setDetectEquilibration(detect);
+    }
+    
     public void setFiniteSysCorrections(boolean corrections) {
         physics.setFiniteSysCorrections(corrections);
     }
@@ -243,6 +279,28 @@ public abstract class Controller {
         getPhysics().AdjustPistonLevel(pistonLevel); 
     }
 
+    /**
+     * Chooses the thermostat (a ThermostatFactory mode) and damp factor used by
+     * isothermal piston moves and startThermostat.
+     */
+    public void setThermostatSettings(int thermostatMode, double dampFactor) {
+        getPhysics().setThermostatSettings(thermostatMode, dampFactor);
+    }
+
+    /** Holds the gas at the given temperature (K) without moving the piston */
+    public void startThermostat(double targetTemperature) {
+        getPhysics().startThermostat(targetTemperature);
+    }
+
+    public void stopThermostat() {
+        getPhysics().stopThermostat();
+    }
+
+    /** Removes the centre-of-mass drift of a periodic box */
+    public void removeDrift() {
+        getPhysics().removeDrift();
+    }
+
     protected void enablePistonMovement() {
         pistonControls.setPistonMoveEnabled(true);
     }
@@ -266,6 +324,9 @@ public abstract class Controller {
     public void exitBoltzmann() {
         try {            
             stopSimulationThreads();
+            stopRecording();
+            stopExporting();
+            stopEventLog();
         } catch (ThreadController.CouldNotStopThreadsException e) {
             throw new RuntimeException("Boltzmann's threads were not all stopped on exit", e);
         }
@@ -278,6 +339,17 @@ public abstract class Controller {
     protected abstract void finishBoltzmannExit();
 
     protected void advancePhysicsToNextFrame() {
+        synchronized (trajectoryLock) {
+            if (trajectoryPlayer != null) {
+                try {
+                    replayFrame = trajectoryPlayer.nextFrame();
+                } catch (IOException e) {
+                    trajectoryPlayer = null;
+                    throw new RuntimeException("Unable to read trajectory file", e);
+                }
+                return;
+            }
+        }
         physics.advanceToNextFrame();
     }
 
@@ -296,6 +368,17 @@ public abstract class Controller {
         simTime = 0.0;        
         physics.reset();    
         pistonControls.setPistonPosInView(0.0);
+
+        File recordingFile;
+        double recordingInterval;
+        synchronized (trajectoryLock) {
+            recordingFile = pendingRecordingFile;
+            recordingInterval = pendingRecordingInterval;
+            pendingRecordingFile = null;
+        }
+        if (recordingFile != null) {
+            startRecording(recordingFile, recordingInterval);
+        }
         
         startSimulationSpecificThreads();
     }
@@ -319,16 +402,259 @@ public abstract class Controller {
         enablePistonMovement();        
     }
 
-    protected void giveFrameToViewForDisplaying() {
-        mainGUI.setNextFrameToDisplay(physics.getCurrentFrame());  
+    /**
+     * Called by the physics thread after every frame, whether or not it is
+     * displayed, to record and export it.
+     */
+    protected void finishFrame() {
+        synchronized (trajectoryLock) {
+            if (trajectoryPlayer != null) {
+                return;
+            }
+            FrameInfo frame = physics.getCurrentFrame();
+            if (trajectoryRecorder != null) {
+                trajectoryRecorder.record(frame);
+            }
+            for (FrameExporter exporter : frameExporters) {
+                exporter.export(frame);
+            }
+        }
+    }
+
+    /**
+     * @param copyFrame true if physics will carry on past this frame before the
+     * view is done with it, so the view needs its own copy of the particle states
+     */
+    protected void giveFrameToViewForDisplaying(boolean copyFrame) {
+        FrameInfo frame;
+        synchronized (trajectoryLock) {
+            if (trajectoryPlayer != null) {
+                frame = replayFrame;
+            } else {
+                frame = physics.getCurrentFrame();
+                if (copyFrame) {
+                    frame = frame.copy();
+                }
+            }
+        }
+        mainGUI.setNextFrameToDisplay(frame);  
+    }
+
+    private final Object trajectoryLock = new Object();
+    private TrajectoryRecorder trajectoryRecorder = null;
+    private TrajectoryPlayer trajectoryPlayer = null;
+    private FrameInfo replayFrame = null;
+    private final List<FrameExporter> frameExporters = new ArrayList<FrameExporter>();
+    private File pendingRecordingFile = null;
+    private double pendingRecordingInterval = 0.0;
+
+    /**
+     * Records each displayed frame to file until stopRecording() is called or
+     * the simulation settings change.
+     * @param recordingInterval simulation time in seconds between recorded frames
+     */
+    public void startRecording(File file, double recordingInterval) {
+        TrajectoryRecorder recorder;
+        try {
+            recorder = new TrajectoryRecorder(file, simulationInfo,
+                    physics.getParticles(), recordingInterval);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to start recording to " + file, e);
+        }
+        TrajectoryRecorder previous;
+        synchronized (trajectoryLock) {
+            pendingRecordingFile = null;
+            previous = trajectoryRecorder;
+            trajectoryRecorder = recorder;
+        }
+        finishRecording(previous);
+    }
+
+    /**
+     * Starts recording to file the next time the simulation is restarted.
+     */
+    public void startRecordingAfterRestart(File file, double recordingInterval) {
+        synchronized (trajectoryLock) {
+            pendingRecordingFile = file;
+            pendingRecordingInterval = recordingInterval;
+        }
+    }
+
+    public void stopRecording() {
+        TrajectoryRecorder recorder;
+        synchronized (trajectoryLock) {
+            pendingRecordingFile = null;
+            recorder = trajectoryRecorder;
+            trajectoryRecorder = null;
+        }
+        finishRecording(recorder);
+    }
+
+    /**
+     * Waits for the frames recorder has queued to be written. Called outside
+     * trajectoryLock, which the physics thread takes every frame, so the
+     * simulation isn't held up while they are.
+     */
+    private static void finishRecording(TrajectoryRecorder recorder) {
+        if (recorder == null) {
+            return;
+        }
+        try {
+            recorder.stop();
+        } catch (IOException e) {
+            throw new RuntimeException("Problem finishing trajectory recording", e);
+        }
+        if (recorder.getDroppedFrames() > 0) {
+            ErrorHandler.infoMessage(recorder.getDroppedFrames()
+                    + " frames could not be written fast enough and were left out of the recording.");
+        }
+    }
+
+    /**
+     * Displays the frames recorded in file instead of advancing the physics.
+     * The current simulation must have the same settings as the recorded one.
+     */
+    public void startReplay(File file) {
+        stopRecording();
+        synchronized (trajectoryLock) {
+            stopReplay();
+            try {
+                trajectoryPlayer = new TrajectoryPlayer(file, simulationInfo, physics.getParticles());
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to replay " + file, e);
+            }
+        }
+    }
+
+    public void stopReplay() {
+        synchronized (trajectoryLock) {
+            if (trajectoryPlayer != null) {
+                TrajectoryPlayer player = trajectoryPlayer;
+                trajectoryPlayer = null;
+                replayFrame = null;
+                try {
+                    player.close();
+                } catch (IOException e) {
+                    throw new RuntimeException("Problem closing trajectory file", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Exports every frameStride-th displayed frame to file, in the format given
+     * by its suffix (see FrameExporter.forFile).
+     */
+    public void startExport(File file, int frameStride) {
+        synchronized (trajectoryLock) {
+            try {
+                frameExporters.add(FrameExporter.forFile(file, simulationInfo,
+                        physics.getParticles(), frameStride));
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to export to " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Stops all exports, finishing the frames they have queued.
+     */
+    public void stopExporting() {
+        // Exporters are stopped outside the lock, which the physics thread
+        // takes every frame, so it isn't held up while their queues are written
+        List<FrameExporter> exporters;
+        synchronized (trajectoryLock) {
+            exporters = new ArrayList<FrameExporter>(frameExporters);
+            frameExporters.clear();
+        }
+        int droppedFrames = 0;
+        try {
+            for (FrameExporter exporter : exporters) {
+                exporter.stop();
+                droppedFrames += exporter.getDroppedFrames();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Problem finishing export", e);
+        }
+        if (droppedFrames > 0) {
+            ErrorHandler.infoMessage(droppedFrames
+                    + " frames could not be written fast enough and were left out of the export.");
+        }
+    }
+
+    private EventLog eventLog = null;
+
+    /**
+     * Logs every event the physics performs to file until stopEventLog() is
+     * called or the simulation settings change.
+     */
+    public void startEventLog(File file, EventLog.OverflowPolicy policy) {
+        stopEventLog();
+        synchronized (trajectoryLock) {
+            try {
+                eventLog = new EventLog(file, simulationInfo.totalNumParticles, policy);
+            } catch (IOException e) {
+                throw new RuntimeException("Unable to start logging events to " + file, e);
+            }
+            physics.setEventLog(eventLog);
+        }
+    }
+
+    public void stopEventLog() {
+        EventLog log;
+        synchronized (trajectoryLock) {
+            log = eventLog;
+            eventLog = null;
+            if (log != null) {
+                physics.setEventLog(null);
+            }
+        }
+        // Closed outside the lock so the physics thread isn't held up while the log is written out
+        if (log != null) {
+            try {
+                log.close();
+            } catch (IOException e) {
+                throw new RuntimeException("Problem finishing event log", e);
+            }
+            if (log.getSkippedEvents() > 0) {
+                ErrorHandler.infoMessage(log.getSkippedEvents() + " of "
+                        + (log.getLoggedEvents() + log.getSkippedEvents())
+                        + " events were left out of the event log because it could not be written fast enough.");
+            }
+        }
+    }
+
+    public boolean isReplaying() {
+        synchronized (trajectoryLock) {
+            return trajectoryPlayer != null;
+        }
     }
 
     public void advanceOneFrame() {
         threadController.advanceOneFrame();
     }
 
+    private volatile StatisticsSnapshot statisticsSnapshot = null;
+
+    /**
+     * Copies the statistics' values for display. Called between frames by the
+     * thread controller; the view only ever reads the copies, from
+     * getStatisticsSnapshot().
+     */
+    protected void takeStatisticsSnapshot() {
+        // Statistics follow the physics, which does not advance during a replay
+        if (!isReplaying()) {
+            physics.notifyStatisticsOfCurrentFrame();
+        }
+        statisticsSnapshot = physics.createStatisticsSnapshot();
+    }
+
+    /** Newest statistics snapshot, null until the first one of a run is taken */
+    public StatisticsSnapshot getStatisticsSnapshot() {
+        return statisticsSnapshot;
+    }
+
     protected void displayStatistics() {
-        physics.notifyStatisticsOfCurrentFrame();
         mainGUI.displayStatistics();
     }
     
@@ -341,6 +667,7 @@ public abstract class Controller {
     }
 
     private void startSimulationSpecificThreads() {
+        statisticsSnapshot = null;
         threadController.startSimulationThreads();
     }
 
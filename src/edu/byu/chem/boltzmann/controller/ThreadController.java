@@ -67,6 +67,13 @@ class ThreadController {
     private final BinarySemaphore physicsFrameRate = new BinarySemaphore(true);
     
     private final BinarySemaphore statisticsLock = new BinarySemaphore(true);
+
+    /**
+     * Set by the statistics display thread when it wants new values to show. The
+     * physics thread takes the snapshot at the end of its next frame, so the
+     * display never holds statisticsLock while the statistics are drawn.
+     */
+    private volatile boolean statisticsSnapshotRequested = false;
     
     private final Timer frameRateTimer = new Timer("Frame Rate", true);
     
@@ -122,14 +129,37 @@ class ThreadController {
         @Override
         protected void runThrowingInterruptedException() throws InterruptedException {
             while (runSimulationThreads) {
-                physicsFrameRate.acquire();
+                // In turbo mode only a pause (or single stepping) holds the physics back
+                if (!turbo || paused) {
+                    physicsFrameRate.acquire();
+                }
 
                 statisticsLock.acquire();
                 root.advancePhysicsToNextFrame();              
+                boolean snapshotTaken = statisticsSnapshotRequested;
+                if (snapshotTaken) {
+                    statisticsSnapshotRequested = false;
+                    root.takeStatisticsSnapshot();
+                }
                 statisticsLock.release();
 
-                lastFrameDisplayed.acquire();
-                root.giveFrameToViewForDisplaying();
+                if (snapshotTaken) {
+                    displayStatisticsSnapshot();
+                }
+
+                root.finishFrame();
+
+                if (turbo) {
+                    // Hand over a frame only when the display has shown the last one;
+                    // otherwise keep simulating and let it sample a later frame
+                    if (!lastFrameDisplayed.tryAcquire()) {
+                        continue;
+                    }
+                    root.giveFrameToViewForDisplaying(true);
+                } else {
+                    lastFrameDisplayed.acquire();
+                    root.giveFrameToViewForDisplaying(false);
+                }
                 frameAvailable = true;
                 frameReady.release();
             }
@@ -172,27 +202,46 @@ class ThreadController {
         protected void runThrowingInterruptedException() throws InterruptedException {
             while (runSimulationThreads) {
                 Thread.sleep(STATISTICS_DISPLAY_PERIOD);
-                if (frameAvailable) {
-                    statisticsLock.acquire();
-                    SwingUtilities.invokeLater(new Runnable() {
-                        @Override
-                        public void run() {
-                            try {
-                                root.displayStatistics();
-                                statisticsLock.release();
-                            } catch (Throwable t) {
-                                // make sure we know an error occurred so we don't continue
-                                // doing bad things
-                                runSimulationThreads = false;
-                                throw new RuntimeException("Error occurred while displaying statistics", t);
-                            }
-                        }
-                    });
+                if (!frameAvailable) {
+                    continue;
+                }
+                if (!paused) {
+                    // Physics takes the snapshot at the end of its next frame
+                    statisticsSnapshotRequested = true;
+                } else if (statisticsLock.tryAcquire()) {
+                    // No frames are coming to take it at, so take it here. If physics
+                    // is partway through a single step it takes it instead.
+                    statisticsSnapshotRequested = false;
+                    root.takeStatisticsSnapshot();
+                    statisticsLock.release();
+                    displayStatisticsSnapshot();
+                } else {
+                    statisticsSnapshotRequested = true;
                 }
             } 
         }
     }
 
+    /**
+     * Has the view show the newest statistics snapshot. Nothing is locked while
+     * it does, so a slow display never holds up the physics.
+     */
+    private void displayStatisticsSnapshot() {
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    root.displayStatistics();
+                } catch (Throwable t) {
+                    // make sure we know an error occurred so we don't continue
+                    // doing bad things
+                    runSimulationThreads = false;
+                    throw new RuntimeException("Error occurred while displaying statistics", t);
+                }
+            }
+        });
+    }
+
     private void resetThreadVariables() {    
         statisticsLock.release();
                 
@@ -202,6 +251,7 @@ class ThreadController {
         physicsFrameRate.release();
         
         frameAvailable = false;
+        statisticsSnapshotRequested = false;
         
         runSimulationThreads = true;
     }
@@ -222,7 +272,7 @@ class ThreadController {
         statisticsDisplay.start();
     }
 
-    private boolean paused = false;
+    private volatile boolean paused = false;
     
     protected synchronized void setPaused(boolean paused) {        
         this.paused = paused;
@@ -231,6 +281,21 @@ class ThreadController {
         }
     }
 
+    private volatile boolean turbo = false;
+
+    /**
+     * In turbo mode the physics thread advances frames as fast as it can instead
+     * of one per displayed frame. The display shows whichever frame is newest when
+     * it is ready for another and skips the rest; statistics still see every event.
+     */
+    protected void setTurbo(boolean turbo) {
+        this.turbo = turbo;
+    }
+
+    protected boolean isTurbo() {
+        return turbo;
+    }
+
     protected void advanceOneFrame() {
         physicsFrameRate.release();
     }
@@ -0,0 +1,144 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.fullapplication;
+
+import edu.byu.chem.boltzmann.model.io.Load;
+import edu.byu.chem.boltzmann.model.physics.Physics;
+import edu.byu.chem.boltzmann.model.statistics.StatisticProviders;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.SingleAverageStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticProvider;
+import edu.byu.chem.boltzmann.utils.Units.Unit;
+import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import edu.byu.chem.boltzmann.utils.data.StatSettingsInfo;
+import edu.byu.chem.boltzmann.view.render.FrameRenderer;
+import edu.byu.chem.boltzmann.view.render.PngSequenceWriter;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Runs a simulation without any windows and writes its frames as PNG images,
+ * for making movies on servers that have no display or graphics card.
+ *
+ * Usage: HeadlessRunner [-statistics names] settings-file frames output-directory
+ * [image-width] [frames-per-image]
+ *
+ * -statistics turns on the StatisticProviders named, separated by commas, or
+ * all of them for "all". Their averages for all the particles together are
+ * printed once the last frame is done.
+ */
+public class HeadlessRunner {
+
+    private static final int DEFAULT_WIDTH = 800;
+
+    private static final String STATISTICS_OPTION = "-statistics";
+
+    public static void main(String args[]) throws Exception {
+        StatSettingsInfo statSettings = new StatSettingsInfo();
+        if (args.length > 1 && args[0].equals(STATISTICS_OPTION)) {
+            statSettings.providedStatistics.addAll(parseStatistics(args[1]));
+            args = Arrays.copyOfRange(args, 2, args.length);
+        }
+        if (args.length < 3) {
+            System.err.println("Usage: HeadlessRunner [" + STATISTICS_OPTION + " names]"
+                    + " settings-file frames output-directory [image-width] [frames-per-image]");
+            System.exit(1);
+        }
+        System.setProperty("java.awt.headless", "true");
+
+        File settingsFile = new File(args[0]);
+        int frames = Integer.parseInt(args[1]);
+        File outputDirectory = new File(args[2]);
+        int width = (args.length > 3) ? Integer.parseInt(args[3]) : DEFAULT_WIDTH;
+        int stride = (args.length > 4) ? Integer.parseInt(args[4]) : 1;
+        if (stride < 1) {
+            throw new IllegalArgumentException("Frames per image must be at least 1");
+        }
+
+        SimulationInfo simulationInfo = new Load(null).loadFile(settingsFile.toURI().toURL());
+        Physics physics = new Physics(simulationInfo, statSettings);
+        FrameRenderer renderer = new FrameRenderer(simulationInfo, width);
+        PngSequenceWriter writer = new PngSequenceWriter(renderer, outputDirectory, "frame");
+
+        try {
+            long start = System.currentTimeMillis();
+            for (int frame = 0; frame < frames; frame++) {
+                physics.advanceToNextFrame();
+                if (frame % stride == 0) {
+                    writer.write(physics.getCurrentFrame());
+                }
+            }
+            writer.close();
+            System.out.println("Wrote " + writer.getFramesWritten() + " images to " + outputDirectory
+                    + " in " + (System.currentTimeMillis() - start) / 1000.0 + " s");
+            printStatistics(physics, simulationInfo, statSettings.providedStatistics);
+        } finally {
+            writer.close();
+            renderer.close();
+        }
+    }
+
+    /** Provider names from a comma separated list, or every provider for "all" */
+    static Set<String> parseStatistics(String list) {
+        Set<String> known = new TreeSet<String>();
+        for (StatisticProvider provider: StatisticProviders.getProviders()) {
+            known.add(provider.getName());
+        }
+        if (list.trim().equalsIgnoreCase("all")) {
+            return known;
+        }
+        Set<String> names = new HashSet<String>();
+        for (String name: list.split(",")) {
+            name = name.trim();
+            if (!known.contains(name)) {
+                throw new IllegalArgumentException("No statistic named " + name + "; the statistics are " + known);
+            }
+            names.add(name);
+        }
+        return names;
+    }
+
+    private static void printStatistics(Physics physics, SimulationInfo simulationInfo, Set<String> names) {
+        Set<ParticleType> allTypes = new HashSet<ParticleType>(simulationInfo.getParticleTypes());
+        List<String> sorted = new ArrayList<String>(names);
+        Collections.sort(sorted);
+        for (String name: sorted) {
+            Statistic statistic = physics.getStatistic(allTypes, name);
+            if (statistic == null) {
+                System.out.println(name + ": not available for this simulation");
+            } else if (statistic instanceof SingleAverageStatistic) {
+                System.out.println(name + ": " + describeAverage((SingleAverageStatistic<?>) statistic));
+            } else {
+                System.out.println(name + ": recorded, no single average");
+            }
+        }
+    }
+
+    private static <U extends Unit<U>> String describeAverage(SingleAverageStatistic<U> statistic) {
+        U unit = statistic.getDefaultDisplayUnit();
+        return statistic.getCumulativeAverage(unit) + " " + unit.getSymbol()
+                + " (predicted " + statistic.getPredictionForAverage(unit) + ")";
+    }
+}
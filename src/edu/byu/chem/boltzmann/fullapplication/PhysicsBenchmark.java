@@ -0,0 +1,159 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.fullapplication;
+
+import edu.byu.chem.boltzmann.model.io.Load;
+import edu.byu.chem.boltzmann.model.physics.Physics;
+import edu.byu.chem.boltzmann.utils.Units.Time;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import edu.byu.chem.boltzmann.utils.data.StatSettingsInfo;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Times the physics of a simulation without displaying it and checks that the
+ * event loop is not allocating memory. Garbage made for every event adds up to
+ * collector pauses that show as stutter in the display, so the run fails
+ * (exit status 2) when, after warming up, more than the allowed bytes per event
+ * are allocated. What a frame allocates by itself (the FrameInfo handed to the
+ * view, statistics read once a frame) is measured first on frames too short
+ * to hold any events, and isn't counted against the events. PhysicsBenchmarkTest
+ * makes the same check with measure().
+ *
+ * Usage: PhysicsBenchmark settings-file [frames] [max-bytes-per-event]
+ */
+public class PhysicsBenchmark {
+
+    static final int DEFAULT_FRAMES = 2000;
+    static final double DEFAULT_MAX_BYTES_PER_EVENT = 1.0;
+    /** Length of the frames measuring the cost of a frame, as a fraction of a normal frame */
+    private static final double EMPTY_FRAME_FRACTION = 1e-9;
+
+    /** What measure() found */
+    static class Measurement {
+        final long events;
+        final double seconds;
+        /** Bytes allocated by the timed frames, or -1 if the JVM can't tell */
+        final long bytes;
+        /** Bytes allocated by as many frames too short to hold events */
+        final long emptyBytes;
+        final long emptyEvents;
+
+        Measurement(long events, double seconds, long bytes, long emptyBytes, long emptyEvents) {
+            this.events = events;
+            this.seconds = seconds;
+            this.bytes = bytes;
+            this.emptyBytes = emptyBytes;
+            this.emptyEvents = emptyEvents;
+        }
+
+        boolean isAllocationCounted() {
+            return bytes >= 0;
+        }
+
+        /** Bytes allocated per event beyond what the frames allocate by themselves */
+        double getBytesPerEvent() {
+            long eventBytes = Math.max(bytes - emptyBytes, 0);
+            return (events > 0) ? (double) eventBytes / events : 0.0;
+        }
+    }
+
+    public static void main(String args[]) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: PhysicsBenchmark settings-file [frames] [max-bytes-per-event]");
+            System.exit(1);
+        }
+        System.setProperty("java.awt.headless", "true");
+
+        File settingsFile = new File(args[0]);
+        int frames = (args.length > 1) ? Integer.parseInt(args[1]) : DEFAULT_FRAMES;
+        double maxBytesPerEvent = (args.length > 2) ? Double.parseDouble(args[2]) : DEFAULT_MAX_BYTES_PER_EVENT;
+
+        SimulationInfo simulationInfo = new Load(null).loadFile(settingsFile.toURI().toURL());
+        Measurement result = measure(new Physics(simulationInfo, new StatSettingsInfo()), frames);
+
+        System.out.println(simulationInfo.totalNumParticles + " particles, " + frames + " frames, "
+                + result.events + " events in " + result.seconds + " s");
+        System.out.println((result.events / result.seconds) + " events/s, " + (frames / result.seconds) + " frames/s");
+
+        if (!result.isAllocationCounted()) {
+            System.out.println("Allocation counting is not supported by this JVM");
+            return;
+        }
+        System.out.println(((double) result.bytes / frames) + " bytes allocated per frame, "
+                + ((double) result.emptyBytes / frames) + " per frame without events ("
+                + result.emptyEvents + " events)");
+        double bytesPerEvent = result.getBytesPerEvent();
+        System.out.println(bytesPerEvent + " bytes allocated per event");
+        if (bytesPerEvent > maxBytesPerEvent) {
+            System.out.println("FAILED: more than " + maxBytesPerEvent + " bytes allocated per event");
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Warms physics up, then times frames of it and counts the bytes this
+     * thread allocates, first with frames too short to hold events and then
+     * with normal frames.
+     */
+    static Measurement measure(Physics physics, int frames) {
+        // Let the JIT compile the event loop and the calendars settle
+        int warmupFrames = Math.max(frames / 4, 1);
+        for (int frame = 0; frame < warmupFrames; frame++) {
+            physics.advanceToNextFrame();
+        }
+
+        double frameDuration = physics.getFrameDuration();
+        physics.setFrameDuration(frameDuration * EMPTY_FRAME_FRACTION, Time.SECOND);
+        long emptyStartEvents = physics.getEventsPerformed();
+        long emptyStartBytes = getAllocatedBytes();
+        for (int frame = 0; frame < frames; frame++) {
+            physics.advanceToNextFrame();
+        }
+        long emptyBytes = getAllocatedBytes() - emptyStartBytes;
+        long emptyEvents = physics.getEventsPerformed() - emptyStartEvents;
+        physics.setFrameDuration(frameDuration, Time.SECOND);
+
+        long startEvents = physics.getEventsPerformed();
+        long startBytes = getAllocatedBytes();
+        long startTime = System.nanoTime();
+        for (int frame = 0; frame < frames; frame++) {
+            physics.advanceToNextFrame();
+        }
+        long elapsed = System.nanoTime() - startTime;
+        long bytes = (startBytes < 0) ? -1 : getAllocatedBytes() - startBytes;
+        long events = physics.getEventsPerformed() - startEvents;
+
+        return new Measurement(events, elapsed / 1e9, bytes, emptyBytes, emptyEvents);
+    }
+
+    /** Bytes allocated so far by this thread, or -1 if the JVM can't tell */
+    private static long getAllocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspotThreads = (com.sun.management.ThreadMXBean) threads;
+            if (hotspotThreads.isThreadAllocatedMemorySupported()) {
+                if (!hotspotThreads.isThreadAllocatedMemoryEnabled()) {
+                    hotspotThreads.setThreadAllocatedMemoryEnabled(true);
+                }
+                return hotspotThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
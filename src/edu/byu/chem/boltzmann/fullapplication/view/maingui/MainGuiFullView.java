@@ -22,7 +22,8 @@ import edu.byu.chem.boltzmann.model.physics.PartState;
 import edu.byu.chem.boltzmann.model.statistics.Formulas;
 import edu.byu.chem.boltzmann.model.statistics.InstantaneousSpeed;
 import edu.byu.chem.boltzmann.model.statistics.KineticEnergy;
-import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
+import edu.byu.chem.boltzmann.model.statistics.StatisticSnapshot;
+import edu.byu.chem.boltzmann.model.statistics.StatisticsSnapshot;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.SingleAverageStatistic;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithDistribution;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticID;
@@ -631,17 +632,25 @@ public class MainGuiFullView extends
     
     @Override
     public void displayStatistics() {
+        StatisticsSnapshot snapshot = controller.getStatisticsSnapshot();
+        if (snapshot == null) {
+            return;
+        }
+
         StatisticID selectedStat = getSelectedStatistic();
 
         Set<ParticleType> selectedTypes = getSelectedTypes();
 
-        plotPanel.updateHistories();
+        plotPanel.updateHistories(snapshot);
 
         if (selectedTypes != null) {
-            plotPanel.setPlotInfo(controller.getStatistic(selectedTypes, selectedStat),
+            plotPanel.setPlotInfo(snapshot.get(controller.getStatistic(selectedTypes, selectedStat)),
                     currentPlotType, chkBoxCumulative.isSelected());
             for(StatisticID statisticID: simulationInfo.getStatistics(selectedTypes)) {
-                Statistic statistic = controller.getStatistic(selectedTypes, statisticID);
+                StatisticSnapshot statistic = snapshot.get(controller.getStatistic(selectedTypes, statisticID));
+                if (statistic == null) {
+                    continue;
+                }
                 StatisticReadout readoutForStatistic = statisticReadouts.get(statisticID);
                 readoutForStatistic.update(statistic, chkBoxCumulative.isSelected(), chkBoxWidth.isSelected());
             }
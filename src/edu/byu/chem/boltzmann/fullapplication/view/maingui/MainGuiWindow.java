@@ -19,14 +19,25 @@ package edu.byu.chem.boltzmann.fullapplication.view.maingui;
 
 import edu.byu.chem.boltzmann.controller.ErrorHandler;
 import edu.byu.chem.boltzmann.fullapplication.Main;
+import edu.byu.chem.boltzmann.fullapplication.view.record.RecordSimulation;
+import edu.byu.chem.boltzmann.model.io.EventLog;
 import edu.byu.chem.boltzmann.model.io.Load;
+import edu.byu.chem.boltzmann.model.physics.ThermostatFactory;
 import edu.byu.chem.boltzmann.resources.ResourceLoader;
 import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
 import edu.byu.chem.boltzmann.utils.data.StatSettingsInfo;
 import edu.byu.chem.boltzmann.view.maingui.MainGuiView;
 import edu.byu.chem.boltzmann.view.maingui.components.GLPanel.ColorMode;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.io.File;
+import javax.swing.ButtonGroup;
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JFileChooser;
+import javax.swing.JMenu;
+import javax.swing.JMenuItem;
+import javax.swing.JOptionPane;
+import javax.swing.JRadioButtonMenuItem;
 import javax.swing.filechooser.FileFilter;
 
 /**
@@ -46,6 +57,9 @@ public class MainGuiWindow extends javax.swing.JFrame {
 
         setLocation(100, 50);
         initComponents();
+        addRecordingMenuItems();
+        addTurboMenuItem();
+        addThermostatMenu();
 
         setIconImage(ResourceLoader.getBoltzmannImage());
 
@@ -336,6 +350,192 @@ public class MainGuiWindow extends javax.swing.JFrame {
         view.getController().licensesClicked();
     }//GEN-LAST:event_mnuItmLicensesActionPerformed
 
+    /**
+     * Adds the trajectory recording and replay items to the File menu, just
+     * above Exit.
+     */
+    private void addRecordingMenuItems() {
+        JMenuItem mnuItmRecord = new JMenuItem("Record...");
+        mnuItmRecord.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+                if (recordWindow == null) {
+                    recordWindow = new RecordSimulation(view.getController());
+                    recordWindow.setLocationRelativeTo(MainGuiWindow.this);
+                }
+                recordWindow.setVisible(true);
+            }
+        });
+
+        JMenuItem mnuItmStopRecording = new JMenuItem("Stop Recording");
+        mnuItmStopRecording.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+                view.getController().stopRecording();
+            }
+        });
+
+        JMenuItem mnuItmReplay = new JMenuItem("Replay Recording...");
+        mnuItmReplay.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+                JFileChooser chooser = new JFileChooser();
+                if (chooser.showOpenDialog(MainGuiWindow.this) == JFileChooser.APPROVE_OPTION) {
+                    view.getController().replaySimulation(chooser.getSelectedFile());
+                }
+            }
+        });
+
+        JMenuItem mnuItmStopReplay = new JMenuItem("Stop Replay");
+        mnuItmStopReplay.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+                view.getController().stopReplay();
+            }
+        });
+
+        JMenuItem mnuItmExport = new JMenuItem("Export Frames...");
+        mnuItmExport.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+                exportFrames();
+            }
+        });
+
+        JMenuItem mnuItmStopExporting = new JMenuItem("Stop Exporting");
+        mnuItmStopExporting.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+                view.getController().stopExporting();
+            }
+        });
+
+        JMenuItem mnuItmLogEvents = new JMenuItem("Log Events...");
+        mnuItmLogEvents.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+                logEvents();
+            }
+        });
+
+        JMenuItem mnuItmStopLoggingEvents = new JMenuItem("Stop Logging Events");
+        mnuItmStopLoggingEvents.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+                view.getController().stopLoggingEvents();
+            }
+        });
+
+        int exitIndex = jMenu1.getPopupMenu().getComponentIndex(mnuItmExit);
+        jMenu1.insert(mnuItmRecord, exitIndex++);
+        jMenu1.insert(mnuItmStopRecording, exitIndex++);
+        jMenu1.insert(mnuItmReplay, exitIndex++);
+        jMenu1.insert(mnuItmStopReplay, exitIndex++);
+        jMenu1.insert(mnuItmExport, exitIndex++);
+        jMenu1.insert(mnuItmStopExporting, exitIndex++);
+        jMenu1.insert(mnuItmLogEvents, exitIndex++);
+        jMenu1.insert(mnuItmStopLoggingEvents, exitIndex++);
+        jMenu1.insertSeparator(exitIndex);
+    }
+
+    private void addTurboMenuItem() {
+        final JCheckBoxMenuItem mnuChkTurbo = new JCheckBoxMenuItem("Run as Fast as Possible");
+        mnuChkTurbo.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+                view.getController().setTurboMode(mnuChkTurbo.isSelected());
+            }
+        });
+        jMenu3.addSeparator();
+        jMenu3.add(mnuChkTurbo);
+    }
+
+    /**
+     * Lets the gas be held at its initial temperature without the piston, which
+     * is the only way to thermostat periodic boxes.
+     */
+    private void addThermostatMenu() {
+        String[] names = { "Off", "Andersen", "Velocity Rescaling", "Lowe-Andersen" };
+        int[] modes = {
+            -1,
+            ThermostatFactory.ANDERSENTHERMOSTAT,
+            ThermostatFactory.RESCALINGTHERMOSTAT,
+            ThermostatFactory.LOWEANDERSENTHERMOSTAT
+        };
+
+        JMenu mnuThermostat = new JMenu("Thermostat");
+        ButtonGroup thermostatGroup = new ButtonGroup();
+        for (int i = 0; i < names.length; i++) {
+            final int mode = modes[i];
+            JRadioButtonMenuItem mnuRadThermostat = new JRadioButtonMenuItem(names[i], mode < 0);
+            mnuRadThermostat.addActionListener(new ActionListener() {
+                public void actionPerformed(ActionEvent evt) {
+                    if (mode < 0) {
+                        view.getController().stopThermostat();
+                    } else {
+                        view.getController().startThermostat(mode);
+                    }
+                }
+            });
+            thermostatGroup.add(mnuRadThermostat);
+            mnuThermostat.add(mnuRadThermostat);
+        }
+        jMenu3.add(mnuThermostat);
+
+        // Andersen thermostats do not conserve momentum, so periodic boxes slowly drift
+        JMenuItem mnuItmRemoveDrift = new JMenuItem("Remove Drift");
+        mnuItmRemoveDrift.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+                view.getController().removeDrift();
+            }
+        });
+        jMenu3.add(mnuItmRemoveDrift);
+    }
+
+    private void exportFrames() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setFileFilter(new FileFilter() {
+            @Override
+            public boolean accept(File f) {
+                String name = f.getName().toLowerCase();
+                return f.isDirectory() || name.endsWith(".xyz") || name.endsWith(".csv")
+                        || name.endsWith(".xyz.gz") || name.endsWith(".csv.gz");
+            }
+
+            @Override
+            public String getDescription() {
+                return "Extended XYZ or CSV Files (.xyz, .csv)";
+            }
+        });
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        String stride = JOptionPane.showInputDialog(this,
+                "Export every how many frames?", "1");
+        if (stride == null) {
+            return;
+        }
+        try {
+            view.getController().exportFrames(chooser.getSelectedFile(),
+                    Integer.parseInt(stride.trim()));
+        } catch (NumberFormatException e) {
+            ErrorHandler.infoMessage("Please enter a whole number of frames.");
+        }
+    }
+
+    private void logEvents() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+
+        EventLog.OverflowPolicy[] policies = EventLog.OverflowPolicy.values();
+        int choice = JOptionPane.showOptionDialog(this,
+                "What should happen if events arrive faster than they can be written?\n"
+                + "BLOCK slows the simulation down, DROP leaves events out\n"
+                + "and SAMPLE keeps only some events until the log catches up.",
+                "Log Events", JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE,
+                null, policies, EventLog.OverflowPolicy.DROP);
+        if (choice < 0) {
+            return;
+        }
+        view.getController().logEvents(chooser.getSelectedFile(), policies[choice]);
+    }
+
+    private RecordSimulation recordWindow = null;
+
     private void coloringChanged() {
         if (mnuRadNormalColor.isSelected()) {
             view.setParticleColorMode(ColorMode.NORMAL_COLORING);
@@ -20,6 +20,7 @@ package edu.byu.chem.boltzmann.fullapplication.view.piston;
 import edu.byu.chem.boltzmann.controller.ErrorHandler;
 import edu.byu.chem.boltzmann.model.physics.Piston;
 import edu.byu.chem.boltzmann.model.physics.Piston.PistonMode;
+import edu.byu.chem.boltzmann.model.physics.ThermostatFactory;
 import edu.byu.chem.boltzmann.utils.Units;
 import edu.byu.chem.boltzmann.utils.Units.Length;
 import edu.byu.chem.boltzmann.view.piston.PistonController;
@@ -34,6 +35,14 @@ public class PistonFullView extends javax.swing.JPanel implements PistonView {
     
     private static int SLIDER_POPUP_Y_OFFSET = -25;
 
+    /** ThermostatFactory modes in the order they are listed in cmbThermostat */
+    private static final int[] THERMOSTAT_MODES = {
+        ThermostatFactory.WALLTHERMOSTAT,
+        ThermostatFactory.ANDERSENTHERMOSTAT,
+        ThermostatFactory.RESCALINGTHERMOSTAT,
+        ThermostatFactory.LOWEANDERSENTHERMOSTAT
+    };
+
     private PistonController controller;
     
     private int currentPistonPosition = 0;
@@ -85,6 +94,8 @@ public class PistonFullView extends javax.swing.JPanel implements PistonView {
         btnStop = new javax.swing.JButton();
         lblNewPosition = new javax.swing.JLabel();
         lblSpeedUnits = new javax.swing.JLabel();
+        lblThermostat = new javax.swing.JLabel();
+        cmbThermostat = new javax.swing.JComboBox<String>();
 
         mnuBtnPistonPos.setText("jMenuItem1");
         popMnuPistonPos.add(mnuBtnPistonPos);
@@ -175,6 +186,10 @@ public class PistonFullView extends javax.swing.JPanel implements PistonView {
 
         lblSpeedUnits.setText("nm/ps");
 
+        lblThermostat.setText("Thermostat:");
+
+        cmbThermostat.setModel(new javax.swing.DefaultComboBoxModel<String>(new String[] { "Wall Collisions", "Andersen", "Velocity Rescaling", "Lowe-Andersen" }));
+
         org.jdesktop.layout.GroupLayout layout = new org.jdesktop.layout.GroupLayout(this);
         this.setLayout(layout);
         layout.setHorizontalGroup(
@@ -202,6 +217,11 @@ public class PistonFullView extends javax.swing.JPanel implements PistonView {
                                 .add(spnrDampFactor, org.jdesktop.layout.GroupLayout.PREFERRED_SIZE, org.jdesktop.layout.GroupLayout.DEFAULT_SIZE, org.jdesktop.layout.GroupLayout.PREFERRED_SIZE)
                                 .add(10, 10, 10)
                                 .add(lblDampFactorPercent))
+                            .add(layout.createSequentialGroup()
+                                .add(21, 21, 21)
+                                .add(lblThermostat)
+                                .addPreferredGap(org.jdesktop.layout.LayoutStyle.RELATED)
+                                .add(cmbThermostat, org.jdesktop.layout.GroupLayout.PREFERRED_SIZE, org.jdesktop.layout.GroupLayout.DEFAULT_SIZE, org.jdesktop.layout.GroupLayout.PREFERRED_SIZE))
                             .add(radBtnInstantaneous)))
                     .add(layout.createSequentialGroup()
                         .addContainerGap()
@@ -238,6 +258,10 @@ public class PistonFullView extends javax.swing.JPanel implements PistonView {
                     .add(radBtnIsothermal)
                     .add(lblDampFactorPercent))
                 .addPreferredGap(org.jdesktop.layout.LayoutStyle.RELATED)
+                .add(layout.createParallelGroup(org.jdesktop.layout.GroupLayout.CENTER)
+                    .add(lblThermostat)
+                    .add(cmbThermostat, org.jdesktop.layout.GroupLayout.PREFERRED_SIZE, org.jdesktop.layout.GroupLayout.DEFAULT_SIZE, org.jdesktop.layout.GroupLayout.PREFERRED_SIZE))
+                .addPreferredGap(org.jdesktop.layout.LayoutStyle.RELATED)
                 .add(radBtnAdiabatic)
                 .addPreferredGap(org.jdesktop.layout.LayoutStyle.UNRELATED)
                 .add(radBtnInstantaneous)
@@ -268,6 +292,10 @@ public class PistonFullView extends javax.swing.JPanel implements PistonView {
         PistonMode moveMode = getPistonMode();
         double moveSpeed = getPistonSpeed();
         
+        if (moveMode == PistonMode.ISOTHERMAL) {
+            controller.setThermostatSettings(getThermostatMode(), getDampFactor());
+        }
+        
         //Move piston needs new position as value from 0.0 to 1.0 (10% of arena = 0.1)
         controller.movePiston(newPosition / 1000.0, moveMode, moveSpeed);
                 
@@ -354,6 +382,14 @@ public class PistonFullView extends javax.swing.JPanel implements PistonView {
         }
     }
     
+    private int getThermostatMode() {
+        return THERMOSTAT_MODES[cmbThermostat.getSelectedIndex()];
+    }
+    
+    private double getDampFactor() {
+        return (Double) spnrDampFactor.getValue() / 100.0;
+    }
+    
     private double getPistonSpeed() {
         double speedBadUnits = (Double) spnrSpeed.getValue();
         return Units.convert("nm/ps", "m/s", speedBadUnits);
@@ -363,6 +399,8 @@ public class PistonFullView extends javax.swing.JPanel implements PistonView {
         lblDampFactor.setEnabled(enabled);
         spnrDampFactor.setEnabled(enabled);
         lblDampFactorPercent.setEnabled(enabled);        
+        lblThermostat.setEnabled(enabled);
+        cmbThermostat.setEnabled(enabled);
     }
     
     private void setSpeedEnabled(boolean enabled) {
@@ -389,6 +427,7 @@ public class PistonFullView extends javax.swing.JPanel implements PistonView {
     private javax.swing.ButtonGroup btnGrpPistonMode;
     private javax.swing.JButton btnMove;
     private javax.swing.JButton btnStop;
+    private javax.swing.JComboBox<String> cmbThermostat;
     private javax.swing.JLabel lblDampFactor;
     private javax.swing.JLabel lblDampFactorPercent;
     private javax.swing.JLabel lblMode;
@@ -396,6 +435,7 @@ public class PistonFullView extends javax.swing.JPanel implements PistonView {
     private javax.swing.JLabel lblPistonPosition;
     private javax.swing.JLabel lblSpeed;
     private javax.swing.JLabel lblSpeedUnits;
+    private javax.swing.JLabel lblThermostat;
     private javax.swing.JMenuItem mnuBtnPistonPos;
     private javax.swing.JPopupMenu popMnuPistonPos;
     private javax.swing.JRadioButton radBtnAdiabatic;
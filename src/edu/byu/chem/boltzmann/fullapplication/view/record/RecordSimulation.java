@@ -17,15 +17,98 @@
  */
 package edu.byu.chem.boltzmann.fullapplication.view.record;
 
+import edu.byu.chem.boltzmann.controller.ErrorHandler;
+import edu.byu.chem.boltzmann.utils.Units;
+import edu.byu.chem.boltzmann.utils.Units.Time;
+import edu.byu.chem.boltzmann.view.maingui.MainGuiController;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.File;
+import javax.swing.JFileChooser;
+
 /**
  *
  * @author Dman
  */
 public class RecordSimulation extends javax.swing.JFrame {
 
+    private final MainGuiController controller;
+    private File recordingFile = null;
+
     /** Creates new form RecordSimulation */
-    public RecordSimulation() {
+    public RecordSimulation(MainGuiController controller) {
+        this.controller = controller;
         initComponents();
+        attachListeners();
+    }
+
+    /**
+     * Only writing particle positions and velocities is supported so far, so the
+     * other options are disabled.
+     */
+    private void attachListeners() {
+        jCheckBox1.setEnabled(false);
+        jTextField1.setEnabled(false);
+        jCheckBox3.setSelected(true);
+        jCheckBox3.setEnabled(false);
+        jCheckBox4.setEnabled(false);
+        jCheckBox5.setEnabled(false);
+        jCheckBox6.setEnabled(false);
+        jCheckBox7.setEnabled(false);
+        jTextField2.setText("0");
+
+        jButton1.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+                chooseFile();
+            }
+        });
+        jButton2.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+                startRecording();
+            }
+        });
+        jButton3.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+                setVisible(false);
+            }
+        });
+    }
+
+    private void chooseFile() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+            recordingFile = chooser.getSelectedFile();
+            jLabel3.setText(recordingFile.getName());
+            jCheckBox2.setSelected(true);
+        }
+    }
+
+    private void startRecording() {
+        if (!jCheckBox2.isSelected()) {
+            setVisible(false);
+            return;
+        }
+        if (recordingFile == null) {
+            ErrorHandler.infoMessage("Please choose a file to record to.");
+            return;
+        }
+
+        double interval;
+        try {
+            interval = Double.parseDouble(jTextField2.getText().trim());
+        } catch (NumberFormatException e) {
+            ErrorHandler.infoMessage("The recording interval must be a number of picoseconds.");
+            return;
+        }
+        if (interval < 0.0) {
+            ErrorHandler.infoMessage("The recording interval cannot be negative.");
+            return;
+        }
+
+        controller.recordSimulation(recordingFile,
+                Units.convert(Time.PICOSECOND, Time.SECOND, interval),
+                jRadioButton2.isSelected());
+        setVisible(false);
     }
 
     /** This method is called from within the constructor to
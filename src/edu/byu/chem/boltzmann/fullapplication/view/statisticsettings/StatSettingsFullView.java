@@ -17,10 +17,21 @@
  */
 package edu.byu.chem.boltzmann.fullapplication.view.statisticsettings;
 
+import edu.byu.chem.boltzmann.model.statistics.AveragingMode;
 import edu.byu.chem.boltzmann.utils.Units;
 import edu.byu.chem.boltzmann.utils.data.StatSettingsInfo;
 import edu.byu.chem.boltzmann.view.statisticsettings.StatSettingsController;
 import edu.byu.chem.boltzmann.view.statisticsettings.StatSettingsView;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import javax.swing.JCheckBox;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
 
 /**
  * Created 7 May 2011
@@ -33,13 +44,20 @@ public class StatSettingsFullView extends javax.swing.JPanel implements StatSett
     private String lastForgetTime = "";
     private String lastPresAvgTime = "";
     private String lastRDFUpdateFreq = "";
+    private String lastHalfLife = "";
+    
+    private JComboBox<AveragingMode> cmbBoxAveraging;
+    private JTextField txtFldHalfLife;
+    private JCheckBox chkBoxDetectEquilibration;
     
     /** Creates new form View */
     public StatSettingsFullView() {
         initComponents();
+        addAveragingSettings();
         lastForgetTime = txtFldForgetTime.getText();
         lastPresAvgTime = txtFldPresAvgTime.getText();
         lastRDFUpdateFreq = txtFldRDFUpdateFreq.getText();
+        lastHalfLife = txtFldHalfLife.getText();
     }
 
     public void attachController(StatSettingsController controller) {
@@ -352,6 +370,70 @@ public class StatSettingsFullView extends javax.swing.JPanel implements StatSett
         controller.setExhaustiveRDFCalcs(chkBoxExhaustiveRDFCalcs.isSelected());
     }//GEN-LAST:event_chkBoxExhaustiveRDFCalcsActionPerformed
 
+    /**
+     * Adds the averaging mode, half-life and equilibration detection controls
+     * under the global settings.
+     */
+    private void addAveragingSettings() {
+        StatSettingsInfo defaults = new StatSettingsInfo();
+        
+        cmbBoxAveraging = new JComboBox<AveragingMode>(AveragingMode.values());
+        cmbBoxAveraging.setSelectedItem(defaults.averagingMode);
+        cmbBoxAveraging.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+                handleAveragingChange();
+            }
+        });
+        
+        txtFldHalfLife = new JTextField(Double.toString(defaults.averagingHalfLife), 5);
+        txtFldHalfLife.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+                handleAveragingChange();
+            }
+        });
+        txtFldHalfLife.addFocusListener(new FocusAdapter() {
+            @Override
+            public void focusLost(FocusEvent evt) {
+                handleAveragingChange();
+            }
+        });
+        
+        chkBoxDetectEquilibration = new JCheckBox("Forget when equilibrated", defaults.detectEquilibration);
+        chkBoxDetectEquilibration.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent evt) {
+                controller.setDetectEquilibration(chkBoxDetectEquilibration.isSelected());
+            }
+        });
+        
+        JPanel pnlAveraging = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        pnlAveraging.add(new JLabel("Averaging:"));
+        pnlAveraging.add(cmbBoxAveraging);
+        pnlAveraging.add(new JLabel("half-life:"));
+        pnlAveraging.add(txtFldHalfLife);
+        pnlAveraging.add(new JLabel("X collision lifetime"));
+        
+        JPanel pnlEquilibration = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        pnlEquilibration.add(chkBoxDetectEquilibration);
+        
+        pnlGlobalSettingsOuter.add(pnlAveraging);
+        pnlGlobalSettingsOuter.add(pnlEquilibration);
+    }
+    
+    private void handleAveragingChange() {
+        try {
+            String halfLife = txtFldHalfLife.getText();
+            double newHalfLife = Double.parseDouble(halfLife);
+            if (!(newHalfLife > 0.0)) {
+                throw new NumberFormatException("Half-life must be positive");
+            }
+            controller.setAveraging((AveragingMode) cmbBoxAveraging.getSelectedItem(), newHalfLife);
+            lastHalfLife = halfLife;
+            
+        } catch (NumberFormatException ex) {
+            txtFldHalfLife.setText(lastHalfLife);
+        }
+    }
+
     private void handleForgetTimeChange() {
         try {
             String forgetMult = txtFldForgetTime.getText();
@@ -428,7 +510,12 @@ public class StatSettingsFullView extends javax.swing.JPanel implements StatSett
         double rdfUpdateFreq = Double.parseDouble(lastRDFUpdateFreq);
         boolean exhausiveRDFCalcs = chkBoxExhaustiveRDFCalcs.isSelected();
         
+        AveragingMode averagingMode = (AveragingMode) cmbBoxAveraging.getSelectedItem();
+        double halfLife = Double.parseDouble(lastHalfLife);
+        boolean detectEquilibration = chkBoxDetectEquilibration.isSelected();
+        
         return new StatSettingsInfo(forgetTime, useFinSysCorrections, useRealGasCorrections,
-                presAvgTime, rdfUpdateFreq, exhausiveRDFCalcs);
+                presAvgTime, rdfUpdateFreq, exhausiveRDFCalcs,
+                averagingMode, halfLife, detectEquilibration);
     }
 }
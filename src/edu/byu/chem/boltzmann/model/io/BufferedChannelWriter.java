@@ -0,0 +1,225 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writer for settings and state files which collects output in a large byte
+ * buffer and only hands it to the underlying channel when the buffer fills,
+ * on flush() or on close(). Settings files are plain ASCII, so characters are
+ * narrowed straight into the buffer without going through a charset encoder.
+ *
+ * Numbers can be written with writeDouble/writeInt, which format directly into
+ * the buffer. They always use '.' as the decimal separator and no grouping, so
+ * the output is the same as the Locale.US NumberFormat used elsewhere in this
+ * package without creating any intermediate strings.
+ */
+public class BufferedChannelWriter extends Writer {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    /** Largest fixed-point value (times 10^digits) that fits in a long */
+    private static final double MAX_FIXED_POINT = 9.0e17;
+
+    private static final long[] POWERS_OF_TEN = new long[19];
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final byte[] digits = new byte[20];
+    private boolean closed = false;
+
+    public BufferedChannelWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(bufferSize);
+    }
+
+    public BufferedChannelWriter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Opens a writer on the given file. If compress is true the output is
+     * gzip-compressed; Load recognises compressed settings files by their
+     * contents, so they can keep the ".set" suffix or add ".gz" after it.
+     */
+    public static BufferedChannelWriter open(File file, boolean compress) throws IOException {
+        FileOutputStream fileStream = new FileOutputStream(file);
+        if (compress) {
+            return new BufferedChannelWriter(Channels.newChannel(
+                    new GZIPOutputStream(fileStream, DEFAULT_BUFFER_SIZE)));
+        } else {
+            return new BufferedChannelWriter(fileStream.getChannel());
+        }
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        ensureRoom(1);
+        buffer.put((byte) c);
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        int end = off + len;
+        while (off < end) {
+            ensureRoom(1);
+            int count = Math.min(end - off, buffer.remaining());
+            for (int i = 0; i < count; i++) {
+                buffer.put((byte) cbuf[off++]);
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        int end = off + len;
+        while (off < end) {
+            ensureRoom(1);
+            int count = Math.min(end - off, buffer.remaining());
+            for (int i = 0; i < count; i++) {
+                buffer.put((byte) str.charAt(off++));
+            }
+        }
+    }
+
+    public void newLine() throws IOException {
+        write('\n');
+    }
+
+    public void writeLine(String line) throws IOException {
+        write(line);
+        newLine();
+    }
+
+    public void writeInt(long value) throws IOException {
+        ensureRoom(digits.length + 1);
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                write(Long.toString(value));
+                return;
+            }
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        putDigits(value, 1);
+    }
+
+    /**
+     * Writes value rounded to at most fractionDigits places after the decimal
+     * point. Trailing zeros are dropped, so 1.50 is written as 1.5 and 2.0 as 2.
+     * Values too large for fixed-point output, NaN and infinities fall back to
+     * Double.toString.
+     */
+    public void writeDouble(double value, int fractionDigits) throws IOException {
+        if (fractionDigits < 0 || fractionDigits >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("Unsupported number of fraction digits: " + fractionDigits);
+        }
+        long scale = POWERS_OF_TEN[fractionDigits];
+        double scaled = Math.abs(value) * scale;
+        if (Double.isNaN(value) || scaled >= MAX_FIXED_POINT) {
+            write(Double.toString(value));
+            return;
+        }
+
+        long fixed = (long) (scaled + 0.5);
+        int places = fractionDigits;
+        while (places > 0 && fixed % 10 == 0) {
+            fixed /= 10;
+            places--;
+        }
+
+        ensureRoom(digits.length + 2);
+        if (value < 0 && fixed != 0) {
+            buffer.put((byte) '-');
+        }
+        if (places == 0) {
+            putDigits(fixed, 1);
+        } else {
+            long divisor = POWERS_OF_TEN[places];
+            putDigits(fixed / divisor, 1);
+            buffer.put((byte) '.');
+            putDigits(fixed % divisor, places);
+        }
+    }
+
+    /** Puts at least minDigits decimal digits of a non-negative value, zero-padded. */
+    private void putDigits(long value, int minDigits) {
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + (int) (value % 10));
+            value /= 10;
+        } while (value > 0);
+        while (count < minDigits) {
+            digits[count++] = '0';
+        }
+        while (count > 0) {
+            buffer.put(digits[--count]);
+        }
+    }
+
+    private void ensureRoom(int bytes) throws IOException {
+        if (closed) {
+            throw new IOException("Writer is closed");
+        }
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (!closed) {
+            drain();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            drain();
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.io;
+
+import edu.byu.chem.boltzmann.model.physics.Particle;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Exports the state of every particle at the chosen frames as CSV, one row
+ * per particle per frame. Times are in picoseconds, positions in nanometers
+ * and velocities in meters per second, the units Boltzmann displays them in.
+ */
+public class CsvExporter extends FrameExporter {
+
+    public static final String HEADER =
+            "frame,time_ps,particle,type,x_nm,y_nm,z_nm,vx_m_per_s,vy_m_per_s,vz_m_per_s,color_rgb";
+
+    private static final double PICOSECONDS_PER_SECOND = 1.0e12;
+    private static final double NANOMETERS_PER_METER = 1.0e9;
+
+    private static final int DIGITS = 6;
+
+    private final String[] typeNames;
+
+    public CsvExporter(File file, SimulationInfo simulationInfo, Particle[] particles,
+            int frameStride, boolean compress) throws IOException {
+        super(file, simulationInfo, particles, frameStride, compress);
+
+        typeNames = new String[particles.length];
+        for (int i = 0; i < particles.length; i++) {
+            // Quote so names containing commas still parse
+            typeNames[i] = "\"" + particles[i].particleType.displayName.replace("\"", "\"\"") + "\"";
+        }
+    }
+
+    @Override
+    protected void writeHeader(BufferedChannelWriter out) throws IOException {
+        out.write(HEADER);
+        out.newLine();
+    }
+
+    @Override
+    protected void writeFrame(FrameSnapshot frame, BufferedChannelWriter out) throws IOException {
+        for (int i = 0; i < typeNames.length; i++) {
+            int offset = 3 * i;
+            out.writeInt(frame.frameNumber);
+            out.write(',');
+            out.writeDouble(frame.time * PICOSECONDS_PER_SECOND, DIGITS);
+            out.write(',');
+            out.writeInt(i);
+            out.write(',');
+            out.write(typeNames[i]);
+            for (int axis = 0; axis < 3; axis++) {
+                out.write(',');
+                out.writeDouble(frame.position[offset + axis] * NANOMETERS_PER_METER, DIGITS);
+            }
+            for (int axis = 0; axis < 3; axis++) {
+                out.write(',');
+                out.writeDouble(frame.velocity[offset + axis], DIGITS);
+            }
+            out.write(',');
+            out.writeInt(frame.color[i].getRGB() & 0xFFFFFF);
+            out.newLine();
+        }
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.io;
+
+import edu.byu.chem.boltzmann.model.physics.EventInfo;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes every event Physics performs to a binary file for later analysis.
+ *
+ * Physics calls log() once per event from its own thread. The event is copied
+ * into a fixed-size ring of primitive arrays and a writer thread drains the
+ * ring into a FileChannel, so logging takes no locks and allocates nothing.
+ * There is exactly one producer (the physics thread) and one consumer (the
+ * writer), which is what lets the ring get away with two counters.
+ *
+ * When the disk cannot keep up and the ring fills, the OverflowPolicy decides
+ * what happens. Every record stores how many events were left out just before
+ * it, so analyses can tell where the log has gaps.
+ *
+ * File layout (big endian): int MAGIC, int VERSION, int numParticles, then
+ * RECORD_BYTES-byte records of
+ * <pre>
+ * byte colType, byte side, byte deltaBlue, byte unused,
+ * int part1, int part2 (-1 for boundary events), int eventsSkippedBefore,
+ * double colTime (s), double energy (J)
+ * </pre>
+ * For particle-particle events energy is the kinetic energy of relative motion
+ * before the event; for boundary events it is the particle's kinetic energy.
+ */
+public class EventLog {
+
+    public enum OverflowPolicy {
+        /** Wait for the writer, slowing the physics down to the disk's speed */
+        BLOCK,
+        /** Leave out events that arrive while the ring is full */
+        DROP,
+        /**
+         * Once the ring is half full keep only one event in SAMPLE_INTERVAL
+         * until it drains; events arriving while it is full are left out
+         */
+        SAMPLE
+    }
+
+    static final int MAGIC = 0x42334445; // "B3DE"
+    static final int VERSION = 1;
+    public static final int RECORD_BYTES = 32;
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    public static final int SAMPLE_INTERVAL = 8;
+
+    private static final int WRITE_BUFFER_RECORDS = 4096;
+    private static final long IDLE_WAIT_NANOS = 200000L;
+
+    private final OverflowPolicy policy;
+    private final int capacity;
+    private final int mask;
+
+    private final double[] colTime;
+    private final double[] energy;
+    private final int[] colType;
+    private final int[] part1;
+    private final int[] part2;
+    private final int[] side;
+    private final int[] deltaBlue;
+    private final int[] skippedBefore;
+
+    /** Next slot the physics thread will fill; only written by the producer */
+    private final AtomicLong tail = new AtomicLong(0);
+    /** Next slot the writer will drain; only written by the consumer */
+    private final AtomicLong head = new AtomicLong(0);
+
+    // Producer-only state
+    private int skipped = 0;
+    private long totalSkipped = 0;
+    private int sampleCounter = 0;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final Thread writerThread;
+
+    private volatile boolean running = true;
+    private volatile IOException writeError = null;
+    private boolean closed = false;
+
+    public EventLog(File file, int numParticles, OverflowPolicy policy) throws IOException {
+        this(file, numParticles, policy, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity number of events the ring holds; rounded up to a power of two
+     */
+    public EventLog(File file, int numParticles, OverflowPolicy policy, int capacity) throws IOException {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("Event log capacity must be at least 2");
+        }
+        this.policy = policy;
+        this.capacity = Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+
+        colTime = new double[this.capacity];
+        energy = new double[this.capacity];
+        colType = new int[this.capacity];
+        part1 = new int[this.capacity];
+        part2 = new int[this.capacity];
+        side = new int[this.capacity];
+        deltaBlue = new int[this.capacity];
+        skippedBefore = new int[this.capacity];
+
+        buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_RECORDS * RECORD_BYTES);
+        channel = new FileOutputStream(file).getChannel();
+        try {
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(numParticles);
+            writeBuffer();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        writerThread = new Thread("Event Log Writer") {
+            @Override
+            public void run() {
+                drain();
+            }
+        };
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Adds event to the log. Must only be called from the physics thread.
+     * @param eventEnergy energy of the event in joules (see class comment)
+     * @param boundaryEvent true if part2 of the event is not a particle
+     */
+    public void log(EventInfo event, double eventEnergy, boolean boundaryEvent) {
+        if (!running) {
+            return;
+        }
+        long t = tail.get();
+        long backlog = t - head.get();
+
+        if (backlog >= capacity) {
+            if (policy == OverflowPolicy.BLOCK) {
+                while (t - head.get() >= capacity) {
+                    if (!running) {
+                        return;
+                    }
+                    LockSupport.parkNanos(IDLE_WAIT_NANOS / 4);
+                }
+            } else {
+                skip();
+                return;
+            }
+        } else if (policy == OverflowPolicy.SAMPLE && backlog >= capacity / 2) {
+            if (++sampleCounter < SAMPLE_INTERVAL) {
+                skip();
+                return;
+            }
+            sampleCounter = 0;
+        }
+
+        int slot = (int) t & mask;
+        colTime[slot] = event.colTime;
+        energy[slot] = eventEnergy;
+        colType[slot] = event.colType;
+        part1[slot] = event.part1;
+        part2[slot] = boundaryEvent ? -1 : event.part2;
+        side[slot] = event.side;
+        deltaBlue[slot] = event.deltaBlue;
+        skippedBefore[slot] = skipped;
+        skipped = 0;
+
+        // Publishes the slot contents to the writer thread
+        tail.lazySet(t + 1);
+    }
+
+    private void skip() {
+        if (skipped < Integer.MAX_VALUE) {
+            skipped++;
+        }
+        totalSkipped++;
+    }
+
+    /** Events left out of the log because of the overflow policy */
+    public long getSkippedEvents() {
+        return totalSkipped;
+    }
+
+    /** Events written (or waiting to be written) to the log */
+    public long getLoggedEvents() {
+        return tail.get();
+    }
+
+    /**
+     * Writes any events still in the ring and closes the file. Events the
+     * physics thread logs while the log is closing may be left out.
+     */
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        running = false;
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            writerThread.interrupt();
+            Thread.currentThread().interrupt();
+        } finally {
+            channel.close();
+        }
+        if (writeError != null) {
+            throw writeError;
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                // Read running first, so that a final empty pass really is final
+                boolean stillRunning = running;
+                long h = head.get();
+                long t = tail.get();
+
+                if (h == t) {
+                    if (buffer.position() > 0) {
+                        writeBuffer();
+                    }
+                    if (!stillRunning) {
+                        return;
+                    }
+                    LockSupport.parkNanos(IDLE_WAIT_NANOS);
+                    continue;
+                }
+
+                for (long i = h; i < t; i++) {
+                    if (buffer.remaining() < RECORD_BYTES) {
+                        head.lazySet(i);
+                        writeBuffer();
+                    }
+                    int slot = (int) i & mask;
+                    buffer.put((byte) colType[slot]);
+                    buffer.put((byte) side[slot]);
+                    buffer.put((byte) deltaBlue[slot]);
+                    buffer.put((byte) 0);
+                    buffer.putInt(part1[slot]);
+                    buffer.putInt(part2[slot]);
+                    buffer.putInt(skippedBefore[slot]);
+                    buffer.putDouble(colTime[slot]);
+                    buffer.putDouble(energy[slot]);
+                }
+                head.lazySet(t);
+            }
+        } catch (IOException e) {
+            writeError = e;
+            running = false;
+        }
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
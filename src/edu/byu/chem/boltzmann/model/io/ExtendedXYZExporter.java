@@ -0,0 +1,123 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.io;
+
+import edu.byu.chem.boltzmann.model.physics.Particle;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Exports frames as extended XYZ, which OVITO, VMD and ASE can all read. Each
+ * frame is a particle count line, a comment line describing the arena and the
+ * per-particle columns, then one line per particle.
+ *
+ * Following the usual XYZ conventions, positions and radii are written in
+ * angstroms, velocities in angstroms per femtosecond and the time in
+ * femtoseconds. Species names are the particle type names.
+ */
+public class ExtendedXYZExporter extends FrameExporter {
+
+    private static final double ANGSTROMS_PER_METER = 1.0e10;
+    private static final double FEMTOSECONDS_PER_SECOND = 1.0e15;
+    private static final double ANGSTROMS_PER_FS_PER_METER_PER_SECOND = 1.0e-5;
+
+    private static final int DIGITS = 6;
+
+    private final String[] species;
+    private final double[] radius;
+    private final double[] lattice;
+    private final String pbc;
+
+    public ExtendedXYZExporter(File file, SimulationInfo simulationInfo, Particle[] particles,
+            int frameStride, boolean compress) throws IOException {
+        super(file, simulationInfo, particles, frameStride, compress);
+
+        species = new String[particles.length];
+        radius = new double[particles.length];
+        for (int i = 0; i < particles.length; i++) {
+            species[i] = particles[i].particleType.displayName.trim().replaceAll("\\s+", "_");
+            radius[i] = particles[i].radius * ANGSTROMS_PER_METER;
+        }
+
+        // Arenas of fewer than three dimensions get a cell one particle thick
+        // along the unused axes
+        double thickness = 0.0;
+        for (double r : radius) {
+            thickness = Math.max(thickness, 2.0 * r);
+        }
+        double[] arenaSize = new double[] {
+            simulationInfo.arenaXSize, simulationInfo.arenaYSize, simulationInfo.arenaZSize
+        };
+        lattice = new double[3];
+        for (int axis = 0; axis < 3; axis++) {
+            lattice[axis] = (axis < simulationInfo.dimension)
+                    ? arenaSize[axis] * ANGSTROMS_PER_METER : thickness;
+        }
+        pbc = simulationInfo.isPeriodic() ? "T T T" : "F F F";
+    }
+
+    @Override
+    protected void writeFrame(FrameSnapshot frame, BufferedChannelWriter out) throws IOException {
+        int numParticles = species.length;
+
+        out.writeInt(numParticles);
+        out.newLine();
+        out.write("Lattice=\"");
+        for (int axis = 0; axis < 3; axis++) {
+            for (int column = 0; column < 3; column++) {
+                if (axis + column > 0) {
+                    out.write(' ');
+                }
+                out.writeDouble(column == axis ? lattice[axis] : 0.0, DIGITS);
+            }
+        }
+        out.write("\" Properties=species:S:1:pos:R:3:velo:R:3:radius:R:1:color:R:3 pbc=\"");
+        out.write(pbc);
+        out.write("\" Time=");
+        out.writeDouble(frame.time * FEMTOSECONDS_PER_SECOND, DIGITS);
+        out.write(" Frame=");
+        out.writeInt(frame.frameNumber);
+        out.newLine();
+
+        for (int i = 0; i < numParticles; i++) {
+            int offset = 3 * i;
+            out.write(species[i]);
+            for (int axis = 0; axis < 3; axis++) {
+                out.write(' ');
+                out.writeDouble(frame.position[offset + axis] * ANGSTROMS_PER_METER, DIGITS);
+            }
+            for (int axis = 0; axis < 3; axis++) {
+                out.write(' ');
+                out.writeDouble(frame.velocity[offset + axis] * ANGSTROMS_PER_FS_PER_METER_PER_SECOND, DIGITS + 3);
+            }
+            out.write(' ');
+            out.writeDouble(radius[i], DIGITS);
+
+            Color color = frame.color[i];
+            out.write(' ');
+            out.writeDouble(color.getRed() / 255.0, 3);
+            out.write(' ');
+            out.writeDouble(color.getGreen() / 255.0, 3);
+            out.write(' ');
+            out.writeDouble(color.getBlue() / 255.0, 3);
+            out.newLine();
+        }
+    }
+}
@@ -24,7 +24,7 @@ import java.io.StreamTokenizer;
 import java.io.StringReader;
 //import java.util.StringTokenizer;
 //import java.util.NoSuchElementException;
-import java.io.PrintWriter;
+import java.io.Writer;
 
 import java.util.Calendar;
 import java.text.SimpleDateFormat;
@@ -151,7 +151,7 @@ public class FileGroup extends Group {
 		return buf.toString();
 	}
 	
-	public void write(PrintWriter pw) {
-		pw.append(this.toString());
+	public void write(Writer out) throws IOException {
+		out.write(this.toString());
 	}
 }
@@ -0,0 +1,222 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.io;
+
+import edu.byu.chem.boltzmann.model.physics.FrameInfo;
+import edu.byu.chem.boltzmann.model.physics.Particle;
+import edu.byu.chem.boltzmann.model.physics.ParticleStates;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import java.awt.Color;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Streams particle states from displayed frames to a text file for use in
+ * outside analysis tools. Subclasses decide the file format.
+ *
+ * export() copies the frame into one of a fixed number of preallocated
+ * snapshots and returns; formatting and writing are done on a separate thread
+ * through a BufferedChannelWriter. When every snapshot is waiting to be written
+ * the frame is dropped, so exporting never holds up the physics.
+ */
+public abstract class FrameExporter {
+
+    private static final int BUFFERED_FRAMES = 8;
+
+    /** Copy of the particle states of one frame, in the order of getParticles() */
+    protected static class FrameSnapshot {
+        public int frameNumber;
+        public double time;
+        public boolean holeOpen;
+        public final double[] position;
+        public final double[] velocity;
+        public final Color[] color;
+
+        private FrameSnapshot(int numParticles) {
+            position = new double[3 * numParticles];
+            velocity = new double[3 * numParticles];
+            color = new Color[numParticles];
+        }
+    }
+
+    private static final FrameSnapshot END_OF_EXPORT = new FrameSnapshot(0);
+
+    protected final SimulationInfo simulationInfo;
+    private final Particle[] particles;
+    private final int frameStride;
+
+    private final BufferedChannelWriter out;
+    private final BlockingQueue<FrameSnapshot> freeSnapshots;
+    private final BlockingQueue<FrameSnapshot> filledSnapshots;
+    private final Thread writerThread;
+
+    private volatile boolean stopped = false;
+    private boolean closed = false;
+    private volatile IOException writeError = null;
+    private int framesSeen = 0;
+    private int droppedFrames = 0;
+
+    /**
+     * @param frameStride export every frameStride-th frame given to export()
+     * @param compress gzip the output
+     */
+    protected FrameExporter(File file, SimulationInfo simulationInfo, Particle[] particles,
+            int frameStride, boolean compress) throws IOException {
+        if (frameStride < 1) {
+            throw new IllegalArgumentException("Frame stride must be at least 1");
+        }
+        this.simulationInfo = simulationInfo;
+        this.particles = particles.clone();
+        this.frameStride = frameStride;
+
+        freeSnapshots = new ArrayBlockingQueue<FrameSnapshot>(BUFFERED_FRAMES);
+        filledSnapshots = new ArrayBlockingQueue<FrameSnapshot>(BUFFERED_FRAMES + 1);
+        for (int i = 0; i < BUFFERED_FRAMES; i++) {
+            freeSnapshots.add(new FrameSnapshot(particles.length));
+        }
+
+        out = BufferedChannelWriter.open(file, compress);
+
+        writerThread = new Thread(getClass().getSimpleName() + " Writer") {
+            @Override
+            public void run() {
+                writeSnapshots();
+            }
+        };
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Creates an exporter for the format given by the file's suffix: ".xyz" or
+     * ".extxyz" for extended XYZ and ".csv" for CSV. Either may be followed by
+     * ".gz" to compress the output.
+     */
+    public static FrameExporter forFile(File file, SimulationInfo simulationInfo,
+            Particle[] particles, int frameStride) throws IOException {
+        String name = file.getName().toLowerCase();
+        boolean compress = name.endsWith(".gz");
+        if (compress) {
+            name = name.substring(0, name.length() - ".gz".length());
+        }
+
+        if (name.endsWith(".xyz") || name.endsWith(".extxyz")) {
+            return new ExtendedXYZExporter(file, simulationInfo, particles, frameStride, compress);
+        } else if (name.endsWith(".csv")) {
+            return new CsvExporter(file, simulationInfo, particles, frameStride, compress);
+        } else {
+            throw new IllegalArgumentException("Unknown export format for " + file.getName()
+                    + "; use a .xyz or .csv file");
+        }
+    }
+
+    /** Particles in the order their states appear in a FrameSnapshot */
+    protected Particle[] getParticles() {
+        return particles;
+    }
+
+    /** Called on the writer thread before the first frame */
+    protected void writeHeader(BufferedChannelWriter out) throws IOException {
+    }
+
+    /** Called on the writer thread for each exported frame */
+    protected abstract void writeFrame(FrameSnapshot frame, BufferedChannelWriter out) throws IOException;
+
+    /**
+     * Queues frame for export. Called from the physics thread; this never blocks.
+     */
+    public void export(FrameInfo frame) {
+        if (stopped || frame == null) {
+            return;
+        }
+        int frameNumber = framesSeen++;
+        if (frameNumber % frameStride != 0) {
+            return;
+        }
+
+        FrameSnapshot snapshot = freeSnapshots.poll();
+        if (snapshot == null) {
+            droppedFrames++;
+            return;
+        }
+
+        snapshot.frameNumber = frameNumber;
+        snapshot.time = frame.endTime;
+        snapshot.holeOpen = frame.isArenaHoleOpen();
+        ParticleStates states = frame.getParticleStates();
+        System.arraycopy(states.getPositions(), 0, snapshot.position, 0, snapshot.position.length);
+        System.arraycopy(states.getVelocities(), 0, snapshot.velocity, 0, snapshot.velocity.length);
+        System.arraycopy(states.getColors(), 0, snapshot.color, 0, snapshot.color.length);
+
+        filledSnapshots.add(snapshot);
+    }
+
+    /**
+     * Stops exporting, waits for queued frames to be written and closes the file.
+     */
+    public void stop() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        stopped = true;
+        try {
+            filledSnapshots.put(END_OF_EXPORT);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            writerThread.interrupt();
+            Thread.currentThread().interrupt();
+        } finally {
+            out.close();
+        }
+        if (writeError != null) {
+            throw writeError;
+        }
+    }
+
+    /** Frames not exported because the writer thread had fallen behind */
+    public int getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    private void writeSnapshots() {
+        try {
+            writeHeader(out);
+            while (true) {
+                FrameSnapshot snapshot = filledSnapshots.take();
+                if (snapshot == END_OF_EXPORT) {
+                    break;
+                }
+                writeFrame(snapshot, out);
+                freeSnapshots.add(snapshot);
+
+                // Keep the file current for anyone following it while the writer is idle
+                if (filledSnapshots.isEmpty()) {
+                    out.flush();
+                }
+            }
+        } catch (InterruptedException e) {
+            // Export was abandoned; the file is closed by stop()
+        } catch (IOException e) {
+            writeError = e;
+            stopped = true;
+        }
+    }
+}
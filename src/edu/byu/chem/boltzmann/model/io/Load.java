@@ -25,14 +25,17 @@ import java.awt.Color;
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.net.URL;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.NoSuchElementException;
 import java.util.StringTokenizer;
+import java.util.zip.GZIPInputStream;
 import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 
@@ -109,17 +112,40 @@ public class Load
 		}
 	}
 	
+	/**
+	 * Suffix of a settings file name in lower case, looking past a ".gz"
+	 * suffix so that "a.set.gz" gives ".set"
+	 */
+	private static String settingsSuffix(String name)
+	{
+		String lowerName = name.toLowerCase();
+		if (lowerName.endsWith(".gz"))
+			lowerName = lowerName.substring(0, lowerName.length() - ".gz".length());
+		int index = lowerName.lastIndexOf(".");
+		return (index < 0 ? "" : lowerName.substring(index));
+	}
+
+	/** Opens a settings file for reading, gunzipping it if Save compressed it */
+	private static BufferedReader openSettings(InputStream in) throws IOException
+	{
+		BufferedInputStream buffered = new BufferedInputStream(in);
+		buffered.mark(2);
+		int magic = buffered.read() | (buffered.read() << 8);
+		buffered.reset();
+		InputStream settings = (magic == GZIPInputStream.GZIP_MAGIC ? new GZIPInputStream(buffered) : buffered);
+		return new BufferedReader(new InputStreamReader(settings));
+	}
+
 	/** Loads a settings file, either new-style or old-style (suffix doesn't matter) */
 	public SimulationInfo loadFile(File file) throws FileNotFoundException, IOException, ParseException
 	{
 		setLastLoadedURL(file);
-		int index = file.getName().lastIndexOf(".");
-		String suffix = (index < 0 ? "" : file.getName().substring(index).toLowerCase());
+		String suffix = settingsSuffix(file.getName());
 		if (file.isFile() && (suffix.equals(".set") || suffix.equals(".set2")))
 		{
 //			try
 //			{
-				BufferedReader fileIn = new BufferedReader(new FileReader(file));
+				BufferedReader fileIn = openSettings(new FileInputStream(file));
 				String firstLine;
                                 SimulationInfo newInfo = null;
 				if ((firstLine = fileIn.readLine()) != null)
@@ -144,13 +170,12 @@ public class Load
 		setLastLoadedURL(url);
 		File file = new File(url.getFile());
                 
-		int index = file.getName().lastIndexOf(".");
-		String suffix = (index < 0 ? "" : file.getName().substring(index).toLowerCase());
+		String suffix = settingsSuffix(file.getName());
 		if (suffix.equals(".set") || suffix.equals(".set2")) {
                     
                     try {
                         BufferedReader fileIn = 
-                                new BufferedReader(new InputStreamReader(url.openConnection().getInputStream()));
+                                openSettings(url.openConnection().getInputStream());
                         String firstLine;
                         if ((firstLine = fileIn.readLine()) != null) {			
                                 //Old Style
@@ -179,7 +204,7 @@ public class Load
 		setLastLoadedURL(file);
 //		try
 //		{
-			BufferedReader fileIn = new BufferedReader(new FileReader(file));
+			BufferedReader fileIn = openSettings(new FileInputStream(file));
 			return loadNewSetFile(fileIn);
 //		}
 //		catch (Exception e) {
@@ -191,7 +216,7 @@ public class Load
 	{
 		setLastLoadedURL(url);
 		try {
-			BufferedReader fileIn = new BufferedReader(new InputStreamReader(url.openStream()));
+			BufferedReader fileIn = openSettings(url.openStream());
 			return loadNewSetFile(fileIn);
 		}
 		catch (Exception e) {
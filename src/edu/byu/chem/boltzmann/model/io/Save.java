@@ -19,12 +19,9 @@ package edu.byu.chem.boltzmann.model.io;
 
 import edu.byu.chem.boltzmann.controller.ErrorHandler;
 import edu.byu.chem.boltzmann.model.physics.Particle;
+import edu.byu.chem.boltzmann.utils.data.ParticleType;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.io.PrintWriter;
-import java.text.NumberFormat;
-import java.util.Locale;
 
 //still experimental:
 import edu.byu.chem.boltzmann.utils.data.SimulationInfo.ArenaType;
@@ -36,6 +33,13 @@ public class Save
         private Load loader;
         private ErrorHandler main;
 
+        // Places after the decimal point kept in old-style SET files
+        private static final int SIZE_DIGITS = 1;
+        private static final int VELOCITY_DIGITS = 1;
+        private static final int MASS_DIGITS = 3;
+        // Radii are in meters, so this keeps them to the femtometer
+        private static final int RADIUS_DIGITS = 15;
+
 
 
         public Save(ErrorHandler mainObject) {
@@ -46,46 +50,51 @@ public class Save
 	// Saves the current settings to a SET file, if complete is true, all
 	// positions and directions are saved.
 	protected void saveSetFile(File file, boolean complete) {
+		saveSetFile(file, complete, false);
+	}
+
+	// As saveSetFile(file, complete), gzip-compressing the file if compress
+	// is true. Numbers are written by BufferedChannelWriter, which always
+	// uses US format (1234.56) rather than international (1.234,56), so
+	// settings files are completely portable.
+	protected void saveSetFile(File file, boolean complete, boolean compress) {
 
-		loader.setLastLoadedURL(file);
+		if (loader != null)
+			loader.setLastLoadedURL(file);
 		
-		// This numberformat object is used to get around locale issues
-		// All files are saved in US format (1,234.56) rather than international
-		// (1.234,56). This allows settings files to be completely portable
-		NumberFormat usFormat = NumberFormat.getNumberInstance(Locale.US);
-		usFormat.setMaximumFractionDigits(1);
-		usFormat.setGroupingUsed(false);
 		try {
 			// Write the header to file
-			PrintWriter fileOut = new PrintWriter(new FileWriter(file), true);
-			Particle[] partInfo = main.getPhysics().getParticles();
-			fileOut
-					.println("------Global Settings(Required)-------\r\n#X Size, Y Size, Z Size, Dimension, Hole Diameter, Pressure Averaging Time, Boundary Type (PERIODIC, REFLECTING, DIVIDED, HOLE)");
-			String boundString = "PERIODIC";
-			if (main.simulationInfo.arenaType == ArenaType.REFLECTING_BOUNDARIES)
-				boundString = "REFLECTING";
-			else if (main.simulationInfo.arenaType == ArenaType.DIVIDED_ARENA)
-				boundString = "DIVIDED";
-			else if (main.simulationInfo.arenaType == ArenaType.DIVIDED_ARENA_WITH_HOLE)
-				boundString = "HOLE";
-			fileOut.println(usFormat.format(main.simulationInfo.arenaXSize)	+ ", "
-					+ usFormat.format(main.simulationInfo.arenaYSize)
-					+ ", "
-					+ usFormat.format(main.simulationInfo.arenaZSize)
-					+ ", "
-					+ main.simulationInfo.dimension
-					+ ", "
-					+ usFormat.format(main.simulationInfo.holeDiameter)
-					+ ", ");
+			BufferedChannelWriter fileOut = BufferedChannelWriter.open(file, compress);
+			try {
+				Particle[] partInfo = main.getPhysics().getParticles();
+				fileOut
+						.writeLine("------Global Settings(Required)-------\r\n#X Size, Y Size, Z Size, Dimension, Hole Diameter, Pressure Averaging Time, Boundary Type (PERIODIC, REFLECTING, DIVIDED, HOLE)");
+				String boundString = "PERIODIC";
+				if (main.simulationInfo.arenaType == ArenaType.REFLECTING_BOUNDARIES)
+					boundString = "REFLECTING";
+				else if (main.simulationInfo.arenaType == ArenaType.DIVIDED_ARENA)
+					boundString = "DIVIDED";
+				else if (main.simulationInfo.arenaType == ArenaType.DIVIDED_ARENA_WITH_HOLE)
+					boundString = "HOLE";
+				fileOut.writeDouble(main.simulationInfo.arenaXSize, SIZE_DIGITS);
+				fileOut.write(", ");
+				fileOut.writeDouble(main.simulationInfo.arenaYSize, SIZE_DIGITS);
+				fileOut.write(", ");
+				fileOut.writeDouble(main.simulationInfo.arenaZSize, SIZE_DIGITS);
+				fileOut.write(", ");
+				fileOut.writeInt(main.simulationInfo.dimension);
+				fileOut.write(", ");
+				fileOut.writeDouble(main.simulationInfo.holeDiameter, SIZE_DIGITS);
+				fileOut.writeLine(", ");
 //					+ usFormat.format(main.pressAvgTime) + ", " + boundString);
-			fileOut
-					.println("#Color Scheme (DARK, LIGHT, CUSTOM: RED_RGB,BLUE_RGB,BACKGROUND_RGB,DIVIDER_RGB,LEFT_3D_RGB,RIGHT_3D_RGB,TOP_3D_RGB,BOTTOM_3D_RGB,FRONT_3D_RGB,BACK_3D_RGB)");
-			// Write the getColor scheme
-			if (true)//main.darkColorItem.isSelected())
-				fileOut.println("DARK");
-			else if (false)//main.lightColorItem.isSelected())
-				fileOut.println("LIGHT");
-			else {
+				fileOut
+						.writeLine("#Color Scheme (DARK, LIGHT, CUSTOM: RED_RGB,BLUE_RGB,BACKGROUND_RGB,DIVIDER_RGB,LEFT_3D_RGB,RIGHT_3D_RGB,TOP_3D_RGB,BOTTOM_3D_RGB,FRONT_3D_RGB,BACK_3D_RGB)");
+				// Write the getColor scheme
+				if (true)//main.darkColorItem.isSelected())
+					fileOut.writeLine("DARK");
+				else if (false)//main.lightColorItem.isSelected())
+					fileOut.writeLine("LIGHT");
+				else {
 //				fileOut.println("CUSTOM: 0x"
 //						+ Integer.toHexString(main.arena.getRed().getRGB())
 //								.substring(2).toUpperCase()
@@ -116,10 +125,10 @@ public class Save
 //						+ ", 0x"
 //						+ Integer.toHexString(main.arena.getBack3DColor().getRGB())
 //								.substring(2).toUpperCase());
-                            }
-			fileOut
-					.println("#Forget Time (In multiples of predicted lifetime), Lighting (TRUE, FALSE), Stat name, Stat color(BOTH, RED, BLUE), Cum (TRUE, FALSE), Wid (TRUE, FALSE), His (TRUE, FALSE)");
-			String colorString = "BOTH";
+	                            }
+				fileOut
+						.writeLine("#Forget Time (In multiples of predicted lifetime), Lighting (TRUE, FALSE), Stat name, Stat color(BOTH, RED, BLUE), Cum (TRUE, FALSE), Wid (TRUE, FALSE), His (TRUE, FALSE)");
+				String colorString = "BOTH";
 //			if (main.statColor == Load.RED)
 //				colorString = "RED";
 //			else if (main.statColor == Load.BLUE)
@@ -134,31 +143,31 @@ public class Save
 //					+ main.cumBox.isSelected() + ", "
 //					+ main.widBox.isSelected() + ", " + main.hisBox
 //					.isSelected()).toUpperCase());
-			fileOut
-					.println("#Simulation speed, Paused (TRUE, FALSE), Pressure prediction mode (IDEAL, REAL)");
+				fileOut
+						.writeLine("#Simulation speed, Paused (TRUE, FALSE), Pressure prediction mode (IDEAL, REAL)");
 //			fileOut.println(//main.speedSpinner.getValue() +
 //					(", " + false).toUpperCase() + ", "
 //					+ (main.realRadio.isSelected() ? "REAL" : "IDEAL"));
-			fileOut
-					.println("#3D Viewing angles: X_ANGLE(Rotation around x-axis in degrees), Y_ANGLE(Rotation around y-axis in degrees)");
+				fileOut
+						.writeLine("#3D Viewing angles: X_ANGLE(Rotation around x-axis in degrees), Y_ANGLE(Rotation around y-axis in degrees)");
 //			fileOut.println(main.arena.getCamAngleX() + ", " + main.arena.getCamAngleY());
-			fileOut
-					.println("#Coloring Mode (SPEED, KE, NORMAL), Trace point size, Maxwell Demon mode (TRUE, FALSE), Reaction Mode (TRUE, FALSE), Trace Mode (TRUE, FALSE)");
-			String colorModeString = "NORMAL";
+				fileOut
+						.writeLine("#Coloring Mode (SPEED, KE, NORMAL), Trace point size, Maxwell Demon mode (TRUE, FALSE), Reaction Mode (TRUE, FALSE), Trace Mode (TRUE, FALSE)");
+				String colorModeString = "NORMAL";
 //			if (main.arena.getRainbowMode() == Const.VEL)
 //				colorModeString = "SPEED";
 //			else if (main.arena.getRainbowMode() == Const.KE)
 //				colorModeString = "KE";
-			fileOut.println(colorModeString + ", " //+ main.arena.getTracePointSize()
-					+ (", " + false).toUpperCase()
-					+ (", " + main.simulationInfo.reactionMode).toUpperCase()
-					/*+ (", " + main.arena.isTraceMode()).toUpperCase()*/);
-			fileOut.println("\r\n-------Abscissa Limits-------\r\n");
-			fileOut
-					.println("#BOTH_MIN, BOTH_MAX, RED_MIN, RED_MAX, BLUE_MIN, BLUE_MAX");
-
-			//Write the min and max abscissa limits for all stats.
-			//for (int i = 0; i < Const.NUMSTATTYPES; i++) {
+				fileOut.writeLine(colorModeString + ", " //+ main.arena.getTracePointSize()
+						+ (", " + false).toUpperCase()
+						+ (", " + main.simulationInfo.reactionMode).toUpperCase()
+						/*+ (", " + main.arena.isTraceMode()).toUpperCase()*/);
+				fileOut.writeLine("\r\n-------Abscissa Limits-------\r\n");
+				fileOut
+						.writeLine("#BOTH_MIN, BOTH_MAX, RED_MIN, RED_MAX, BLUE_MIN, BLUE_MAX");
+
+				//Write the min and max abscissa limits for all stats.
+				//for (int i = 0; i < Const.NUMSTATTYPES; i++) {
 //			for (int j = 0; j < Const.oldStatOrder.length; j++)
 //			{
 //				int i = Const.oldStatOrder[j];
@@ -177,11 +186,11 @@ public class Save
 ////					+ main.format(minAndMaxBlue[0], 5, false) + ", "
 ////					+ main.format(minAndMaxBlue[1], 5, false));
 //			}
-			// Write a set definition for red particles
-			fileOut
-					.println("\r\n-------Red  Particles-------\r\n#Radius, Mass (Required)");
-			boolean wroteRed = false;
-			for (int i = 0; i < partInfo.length; i++) {
+				// Write a set definition for red particles
+				fileOut
+						.writeLine("\r\n-------Red  Particles-------\r\n#Radius, Mass (Required)");
+				boolean wroteRed = false;
+				for (int i = 0; i < partInfo.length; i++) {
 //				if (partInfo[i].getColor() == Load.RED) {
 //					fileOut.println(usFormat.format(partInfo[i].getRadius())
 //							+ ", "
@@ -189,21 +198,21 @@ public class Save
 //					wroteRed = true;
 //					break;
 //				}
-			}
-			// If there are no red particles, just write the default settings
-			// because they are required in the file parameters
-			if (!wroteRed) {
-				fileOut.println("2, 1");
-			}
-			// If saving a complete simulation, save the position and direction
-			// of particles
-			if (complete) {
-				fileOut
-						.println("#Number of Randomly Placed Particles, Avg. RMS Velocicy\r\n"
-								+ "#---AND/OR---(Additional particles at prescribed positions, if any)\r\n"
-								+ "#X, Y, Z, RMS Velocity\r\n"
-								+ "#---AND/OR---(Additional particles at prescribed positions and directions, if any)\r\n"
-								+ "#X, Y, Z, Theta, Phi, RMS Velocity");
+				}
+				// If there are no red particles, just write the default settings
+				// because they are required in the file parameters
+				if (!wroteRed) {
+					fileOut.writeLine("2, 1");
+				}
+				// If saving a complete simulation, save the position and direction
+				// of particles
+				if (complete) {
+					fileOut
+							.writeLine("#Number of Randomly Placed Particles, Avg. RMS Velocicy\r\n"
+									+ "#---AND/OR---(Additional particles at prescribed positions, if any)\r\n"
+									+ "#X, Y, Z, RMS Velocity\r\n"
+									+ "#---AND/OR---(Additional particles at prescribed positions and directions, if any)\r\n"
+									+ "#X, Y, Z, Theta, Phi, RMS Velocity");
 //				for (int i = 0; i < partInfo.length; i++)
 //					if (partInfo[i].getColor() == Load.RED)
 //						fileOut.println(partInfo[i].getX() + ", "
@@ -229,43 +238,29 @@ public class Save
 //								+ partInfo[i].getTheta() + ", "
 //								+ partInfo[i].getPhi() + ", "
 //								+ partInfo[i].getVel());
-			}
-			// Otherwise just save the number of particles and they will be
-			// randomly added
-			else {
-				fileOut
-						.println("#Number of Randomly Placed Particles, Avg. RMS Velocity");
-				if (main.simulationInfo.getNumberOfParticles(main.simulationInfo.getParticleTypes().get(0)) > 0)
-					fileOut.println(main.simulationInfo.getNumberOfParticles(main.simulationInfo.getParticleTypes().get(0))
-							+ ", "
-							+ (1000 * Math.sqrt(Formulas.temperature(main.simulationInfo.initialTemperature, main.simulationInfo.dimension)
-									* 2 / main.simulationInfo.getParticleTypes().get(0).particleMass)));
-				fileOut
-						.println("#---AND/OR---(Additional particles at prescribed positions, if any)\r\n"
-								+ "#X, Y, Z, RMS Velocity\r\n"
-								+ "#---AND/OR---(Additional particles at prescribed positions and directions, if any)\r\n"
-								+ "#X, Y, Z, Theta, Phi, RMS Velocity");
-				fileOut
-						.println("-------Blue Particles-------\r\n"
-								+ "#Number of Randomly Placed Particles, Radius, Mass, RMS Velocity");
-				int lastBlue = -1;
-//				for (int i = 0; i < partInfo.length; i++)
-//					if (partInfo[i].getColor() == Load.BLUE)
-//						lastBlue = i;
-				if (main.simulationInfo.getNumberOfParticles(main.simulationInfo.getParticleTypes().get(1)) > 0)
-					fileOut.println(main.simulationInfo.getNumberOfParticles(main.simulationInfo.getParticleTypes().get(1))
-							+ ", "
-							+ partInfo[lastBlue].getRadius() + ", "
-							+ partInfo[lastBlue].getMass() + ", "
-							+ (1000 * Math.sqrt(Formulas.temperature(main.simulationInfo.initialTemperature, main.simulationInfo.dimension)
-									* 2 / main.simulationInfo.getParticleTypes().get(1).particleMass)));
-				fileOut.println("#---AND/OR---\r\n"
-						+ "#Radius, Mass, X, Y, Z, RMS Velocity\r\n"
-						+ "#---AND/OR---\r\n"
-						+ "#Radius, Mass, X, Y, Z, Theta, Phi, RMS Velocity");
-				
+				}
+				// Otherwise just save the number of particles and they will be
+				// randomly added
+				else {
+					fileOut
+							.writeLine("#Number of Randomly Placed Particles, Avg. RMS Velocity");
+					writeRandomParticles(fileOut, main.simulationInfo.getParticleTypes().get(0), false);
+					fileOut
+							.writeLine("#---AND/OR---(Additional particles at prescribed positions, if any)\r\n"
+									+ "#X, Y, Z, RMS Velocity\r\n"
+									+ "#---AND/OR---(Additional particles at prescribed positions and directions, if any)\r\n"
+									+ "#X, Y, Z, Theta, Phi, RMS Velocity");
+					fileOut
+							.writeLine("-------Blue Particles-------\r\n"
+									+ "#Number of Randomly Placed Particles, Radius, Mass, RMS Velocity");
+					writeRandomParticles(fileOut, main.simulationInfo.getParticleTypes().get(1), true);
+					fileOut.writeLine("#---AND/OR---\r\n"
+							+ "#Radius, Mass, X, Y, Z, RMS Velocity\r\n"
+							+ "#---AND/OR---\r\n"
+							+ "#Radius, Mass, X, Y, Z, Theta, Phi, RMS Velocity");
+				}
+			} finally {
 				fileOut.close();
-
 			}
 		} catch (Exception e) {
 			throw new RuntimeException("Unable to save file", e);
@@ -276,12 +271,40 @@ public class Save
 		//saveNewSetFile(file2, complete);
 	}	
 
+	// Writes the line giving how many particles of type are placed randomly
+	// and their RMS velocity, with the type's radius and mass before the
+	// velocity if withSize is true. Nothing is written if there are none.
+	private void writeRandomParticles(BufferedChannelWriter fileOut, ParticleType type,
+			boolean withSize) throws IOException {
+		int count = main.simulationInfo.getNumberOfParticles(type);
+		if (count <= 0)
+			return;
+		fileOut.writeInt(count);
+		fileOut.write(", ");
+		if (withSize) {
+			fileOut.writeDouble(type.particleRadius, RADIUS_DIGITS);
+			fileOut.write(", ");
+			fileOut.writeDouble(type.particleMass, MASS_DIGITS);
+			fileOut.write(", ");
+		}
+		fileOut.writeDouble(1000 * Math.sqrt(Formulas.temperature(main.simulationInfo.initialTemperature,
+				main.simulationInfo.dimension) * 2 / type.particleMass), VELOCITY_DIGITS);
+		fileOut.newLine();
+	}
+
 	// Saves the current settings to a SET file, if complete is true, all
 	// positions and directions are saved.
 	// new-style (VRML-like format)
 	public void saveNewSetFile(File file, boolean complete) { // OutputStream file, boolean complete) {
+		saveNewSetFile(file, complete, false);
+	}
+
+	// As saveNewSetFile(file, complete), gzip-compressing the file if
+	// compress is true. Load reads compressed files as well.
+	public void saveNewSetFile(File file, boolean complete, boolean compress) {
 
-		loader.setLastLoadedURL(file);
+		if (loader != null)
+			loader.setLastLoadedURL(file);
 
 		Particle[] partInfo = main.getPhysics().getParticles();
 
@@ -696,10 +719,14 @@ public class Save
 		} // if (false)
 
 		try {
-			PrintWriter fileOut = new PrintWriter(new FileWriter(file), true);
-		// 	FileGroup.write(PrintWriter)
-			fg.write(fileOut);
-			fileOut.close();
+			BufferedChannelWriter fileOut = BufferedChannelWriter.open(file, compress);
+			try {
+			// 	FileGroup.write(Writer)
+				fg.write(fileOut);
+			}
+			finally {
+				fileOut.close();
+			}
 		}
 		catch (IOException e) {
 			throw new RuntimeException("Problem saving file", e);
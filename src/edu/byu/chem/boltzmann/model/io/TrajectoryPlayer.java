@@ -0,0 +1,232 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.io;
+
+import edu.byu.chem.boltzmann.model.physics.FrameInfo;
+import edu.byu.chem.boltzmann.model.physics.Particle;
+import edu.byu.chem.boltzmann.model.physics.ParticleStates;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import java.awt.Color;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Reads back a trajectory written by TrajectoryRecorder one frame at a time, so
+ * the view can be driven from the file without running Physics.
+ *
+ * The particles given to the player stand in for the recorded ones in the
+ * frames it returns. They must come from a simulation with the same settings
+ * as the one recorded, in the same order, which is checked against the file
+ * header when it is opened.
+ */
+public class TrajectoryPlayer {
+
+    private final Particle[] particles;
+    private final int dimension;
+    private final double positionStep;
+    private final double velocityStep;
+
+    private final FileChannel channel;
+    private final long firstFramePosition;
+    private final ByteBuffer frameHeader = ByteBuffer.allocate(5);
+    private ByteBuffer payload = ByteBuffer.allocate(0);
+
+    private final int[] position;
+    private final int[] velocity;
+    private final Color[] colors;
+    private final int[] bFlags;
+    private final double[] statePositions;
+    private final double[] stateVelocities;
+
+    private FrameInfo lastFrame = null;
+
+    public TrajectoryPlayer(File file, SimulationInfo simulationInfo, Particle[] particles) throws IOException {
+        this.particles = particles.clone();
+        this.dimension = simulationInfo.dimension;
+
+        channel = new FileInputStream(file).getChannel();
+        try {
+            int numParticles = particles.length;
+            ByteBuffer header = ByteBuffer.allocate(4 * 4 + 5 * 8 + numParticles);
+            readFully(header, true);
+
+            if (header.getInt() != TrajectoryRecorder.MAGIC) {
+                throw new IOException(file + " is not a Boltzmann 3D trajectory");
+            }
+            if (header.getInt() != TrajectoryRecorder.VERSION) {
+                throw new IOException("Unsupported trajectory version in " + file);
+            }
+            if (header.getInt() != dimension || header.getInt() != numParticles) {
+                throw new IOException("Trajectory was recorded with different simulation settings");
+            }
+            double arenaX = header.getDouble();
+            double arenaY = header.getDouble();
+            double arenaZ = header.getDouble();
+            if (arenaX != simulationInfo.arenaXSize || arenaY != simulationInfo.arenaYSize
+                    || arenaZ != simulationInfo.arenaZSize) {
+                throw new IOException("Trajectory was recorded with a different arena size");
+            }
+            positionStep = header.getDouble();
+            velocityStep = header.getDouble();
+
+            List<?> types = simulationInfo.getParticleTypes();
+            for (Particle particle : particles) {
+                if (header.get() != (byte) types.indexOf(particle.particleType)) {
+                    throw new IOException("Trajectory was recorded with different particle types");
+                }
+            }
+
+            firstFramePosition = channel.position();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        position = new int[particles.length * dimension];
+        velocity = new int[particles.length * dimension];
+        colors = new Color[particles.length];
+        bFlags = new int[particles.length];
+        statePositions = new double[3 * particles.length];
+        stateVelocities = new double[3 * particles.length];
+    }
+
+    /**
+     * Returns the next recorded frame. When the end of the recording is reached
+     * the last frame is returned again.
+     */
+    public FrameInfo nextFrame() throws IOException {
+        frameHeader.clear();
+        if (!readFully(frameHeader, false)) {
+            return lastFrame;
+        }
+        byte kind = frameHeader.get();
+        int length = frameHeader.getInt();
+        if (kind != TrajectoryRecorder.KEY_FRAME && kind != TrajectoryRecorder.DELTA_FRAME) {
+            throw new IOException("Corrupt trajectory frame");
+        }
+        if (kind == TrajectoryRecorder.DELTA_FRAME && lastFrame == null) {
+            throw new IOException("Trajectory does not start with a key frame");
+        }
+
+        if (payload.capacity() < length) {
+            payload = ByteBuffer.allocate(length);
+        }
+        payload.clear();
+        payload.limit(length);
+        if (!readFully(payload, false)) {
+            // Recording was cut off partway through a frame
+            return lastFrame;
+        }
+
+        lastFrame = decodeFrame(kind == TrajectoryRecorder.KEY_FRAME);
+        return lastFrame;
+    }
+
+    /** Starts playback again from the first frame */
+    public void rewind() throws IOException {
+        channel.position(firstFramePosition);
+        lastFrame = null;
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private FrameInfo decodeFrame(boolean keyFrame) {
+        double startTime = payload.getDouble();
+        double endTime = payload.getDouble();
+        double pistonStart = payload.getDouble();
+        double pistonFinal = payload.getDouble();
+        double pistonMovingTime = payload.getDouble();
+        boolean holeOpen = payload.get() != 0;
+
+        for (int i = 0; i < position.length; i++) {
+            position[i] = (keyFrame ? 0 : position[i]) + getSignedVarInt();
+        }
+        for (int i = 0; i < velocity.length; i++) {
+            velocity[i] = (keyFrame ? 0 : velocity[i]) + getSignedVarInt();
+        }
+
+        int changes = getVarInt();
+        for (int change = 0; change < changes; change++) {
+            int index = getVarInt();
+            int rgb = payload.getInt();
+            if (colors[index] == null || colors[index].getRGB() != rgb) {
+                colors[index] = new Color(rgb);
+            }
+            bFlags[index] = payload.get();
+        }
+
+        FrameInfo frame = new FrameInfo(startTime, endTime);
+        frame.setPistonStart(pistonStart);
+        frame.setPistonEnd(pistonFinal, startTime + pistonMovingTime);
+        frame.setArenaHoleOpen(holeOpen);
+
+        for (int particleIndex = 0; particleIndex < particles.length; particleIndex++) {
+            int offset = particleIndex * dimension;
+            int stateOffset = 3 * particleIndex;
+            for (int axis = 0; axis < dimension; axis++) {
+                statePositions[stateOffset + axis] = position[offset + axis] * positionStep;
+                stateVelocities[stateOffset + axis] = velocity[offset + axis] * velocityStep;
+            }
+        }
+        // Each frame gets its own states, since callers may hold on to earlier ones
+        ParticleStates states = new ParticleStates(particles);
+        states.setAll(statePositions, stateVelocities, colors, bFlags);
+        frame.setEndingStates(states);
+        return frame;
+    }
+
+    private int getSignedVarInt() {
+        int value = getVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int getVarInt() {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = payload.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return value;
+    }
+
+    /**
+     * Fills buffer from the channel and flips it. Returns false if the end of the
+     * file is reached first, throwing instead if required is true.
+     */
+    private boolean readFully(ByteBuffer buffer, boolean required) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (required) {
+                    throw new IOException("Unexpected end of trajectory file");
+                }
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+}
@@ -0,0 +1,393 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.io;
+
+import edu.byu.chem.boltzmann.model.physics.FrameInfo;
+import edu.byu.chem.boltzmann.model.physics.Particle;
+import edu.byu.chem.boltzmann.model.physics.ParticleStates;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import java.awt.Color;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Records the frames handed to the view into a compact binary trajectory file
+ * which can be played back with TrajectoryPlayer.
+ *
+ * Positions and velocities are quantised to fixed steps and stored as
+ * variable-length differences from the last recorded frame, with a complete
+ * key frame every KEY_FRAME_INTERVAL frames. Colours and boundary flags are
+ * only written for particles whose values changed. A typical 3D particle
+ * takes well under half the space of its raw doubles.
+ *
+ * record() only copies the quantised frame into a preallocated buffer; the
+ * encoding and channel writes happen on a separate thread. If that thread
+ * falls behind, frames are dropped instead of holding up the physics.
+ *
+ * File layout (big endian):
+ * <pre>
+ * header: int MAGIC, int VERSION, int dimension, int numParticles,
+ *         double arenaX, arenaY, arenaZ, double positionStep, velocityStep,
+ *         byte particleTypeIndex[numParticles]
+ * frame:  byte KEY_FRAME or DELTA_FRAME, int payloadLength,
+ *         double startTime, endTime, pistonStart, pistonFinal, pistonMovingTime,
+ *         byte holeOpen,
+ *         zig-zag varint position[numParticles][dimension],
+ *         zig-zag varint velocity[numParticles][dimension],
+ *         varint changeCount, changeCount x (varint index, int rgb, byte bFlag)
+ * </pre>
+ */
+public class TrajectoryRecorder {
+
+    static final int MAGIC = 0x42334454; // "B3DT"
+    static final int VERSION = 1;
+
+    static final byte KEY_FRAME = 1;
+    static final byte DELTA_FRAME = 2;
+
+    static final int KEY_FRAME_INTERVAL = 100;
+
+    /** Positions are stored to this fraction of the largest arena dimension */
+    public static final double DEFAULT_RELATIVE_POSITION_STEP = 1.0 / (1 << 20);
+    /** Velocity resolution in m/s */
+    public static final double DEFAULT_VELOCITY_STEP = 0.01;
+
+    private static final int BUFFERED_FRAMES = 8;
+    private static final int FRAME_HEADER_BYTES = 1 + 4;
+    private static final int FRAME_FIXED_BYTES = 5 * 8 + 1;
+    private static final int MAX_VARINT_BYTES = 5;
+
+    /** One frame of quantised particle data waiting to be written */
+    private static class RecordedFrame {
+        double startTime;
+        double endTime;
+        double pistonStart;
+        double pistonFinal;
+        double pistonMovingTime;
+        boolean holeOpen;
+        final int[] position;
+        final int[] velocity;
+        final int[] rgb;
+        final byte[] bFlag;
+
+        RecordedFrame(int numParticles, int dimension) {
+            position = new int[numParticles * dimension];
+            velocity = new int[numParticles * dimension];
+            rgb = new int[numParticles];
+            bFlag = new byte[numParticles];
+        }
+    }
+
+    private static final RecordedFrame END_OF_RECORDING = new RecordedFrame(0, 0);
+
+    private final Particle[] particles;
+    private final int dimension;
+    private final double positionStep;
+    private final double velocityStep;
+    private final double recordingInterval;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    private final BlockingQueue<RecordedFrame> freeFrames;
+    private final BlockingQueue<RecordedFrame> filledFrames;
+    private final Thread writerThread;
+
+    private volatile boolean stopped = false;
+    private boolean closed = false;
+    private volatile IOException writeError = null;
+    private double nextRecordingTime = 0.0;
+    private int droppedFrames = 0;
+    private int recordedFrames = 0;
+
+    /**
+     * Starts recording to file. Particles are written in the order given, which
+     * must be the same order used when the recording is played back.
+     * @param recordingInterval minimum simulation time in seconds between
+     * recorded frames; 0 records every frame
+     */
+    public TrajectoryRecorder(File file, SimulationInfo simulationInfo,
+            Particle[] particles, double recordingInterval) throws IOException {
+        this(file, simulationInfo, particles, recordingInterval,
+                DEFAULT_RELATIVE_POSITION_STEP * Math.max(simulationInfo.arenaXSize,
+                        Math.max(simulationInfo.arenaYSize, simulationInfo.arenaZSize)),
+                DEFAULT_VELOCITY_STEP);
+    }
+
+    public TrajectoryRecorder(File file, SimulationInfo simulationInfo,
+            Particle[] particles, double recordingInterval,
+            double positionStep, double velocityStep) throws IOException {
+        if (positionStep <= 0.0 || velocityStep <= 0.0) {
+            throw new IllegalArgumentException("Quantisation steps must be positive");
+        }
+
+        this.particles = particles.clone();
+        this.dimension = simulationInfo.dimension;
+        this.positionStep = positionStep;
+        this.velocityStep = velocityStep;
+        this.recordingInterval = recordingInterval;
+
+        int numParticles = particles.length;
+        int maxFrameBytes = FRAME_HEADER_BYTES + FRAME_FIXED_BYTES
+                + 2 * numParticles * dimension * MAX_VARINT_BYTES
+                + MAX_VARINT_BYTES + numParticles * (MAX_VARINT_BYTES + 4 + 1);
+        int headerBytes = 4 * 4 + 5 * 8 + numParticles;
+        buffer = ByteBuffer.allocateDirect(Math.max(maxFrameBytes, headerBytes));
+
+        freeFrames = new ArrayBlockingQueue<RecordedFrame>(BUFFERED_FRAMES);
+        // Room for every frame plus the end of recording marker
+        filledFrames = new ArrayBlockingQueue<RecordedFrame>(BUFFERED_FRAMES + 1);
+        for (int i = 0; i < BUFFERED_FRAMES; i++) {
+            freeFrames.add(new RecordedFrame(numParticles, dimension));
+        }
+
+        channel = new FileOutputStream(file).getChannel();
+        try {
+            writeHeader(simulationInfo);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        writerThread = new Thread("Trajectory Writer") {
+            @Override
+            public void run() {
+                writeFrames();
+            }
+        };
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    private void writeHeader(SimulationInfo simulationInfo) throws IOException {
+        List<?> types = simulationInfo.getParticleTypes();
+
+        buffer.clear();
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(dimension);
+        buffer.putInt(particles.length);
+        buffer.putDouble(simulationInfo.arenaXSize);
+        buffer.putDouble(simulationInfo.arenaYSize);
+        buffer.putDouble(simulationInfo.arenaZSize);
+        buffer.putDouble(positionStep);
+        buffer.putDouble(velocityStep);
+        for (Particle particle : particles) {
+            buffer.put((byte) types.indexOf(particle.particleType));
+        }
+        buffer.flip();
+        writeBuffer();
+    }
+
+    /**
+     * Queues frame to be written. Called from the physics thread; this never
+     * blocks. Frames arriving faster than the recording interval are skipped
+     * and frames arriving while the writer is behind are dropped.
+     */
+    public void record(FrameInfo frame) {
+        if (stopped || frame == null) {
+            return;
+        }
+        if (frame.endTime < nextRecordingTime - recordingInterval) {
+            // The simulation was restarted; keep recording from its new start
+            nextRecordingTime = frame.endTime;
+        }
+        if (frame.endTime < nextRecordingTime) {
+            return;
+        }
+        nextRecordingTime = frame.endTime + recordingInterval;
+
+        RecordedFrame recorded = freeFrames.poll();
+        if (recorded == null) {
+            droppedFrames++;
+            return;
+        }
+
+        recorded.startTime = frame.startTime;
+        recorded.endTime = frame.endTime;
+        recorded.pistonStart = frame.getPistonStartPosition();
+        recorded.pistonFinal = frame.getPistonFinalPosition();
+        recorded.pistonMovingTime = frame.getPistonMovingTime();
+        recorded.holeOpen = frame.isArenaHoleOpen();
+
+        ParticleStates states = frame.getParticleStates();
+        double[] positions = states.getPositions();
+        double[] velocities = states.getVelocities();
+        Color[] colors = states.getColors();
+        int[] bFlags = states.getBoundaryFlags();
+        for (int particleIndex = 0; particleIndex < particles.length; particleIndex++) {
+            int offset = particleIndex * dimension;
+            int stateOffset = 3 * particleIndex;
+            for (int axis = 0; axis < dimension; axis++) {
+                recorded.position[offset + axis] = quantise(positions[stateOffset + axis], positionStep);
+                recorded.velocity[offset + axis] = quantise(velocities[stateOffset + axis], velocityStep);
+            }
+            recorded.rgb[particleIndex] = colors[particleIndex].getRGB();
+            recorded.bFlag[particleIndex] = (byte) bFlags[particleIndex];
+        }
+
+        filledFrames.add(recorded);
+        recordedFrames++;
+    }
+
+    private static int quantise(double value, double step) {
+        long quantised = Math.round(value / step);
+        if (quantised > Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        } else if (quantised < Integer.MIN_VALUE) {
+            return Integer.MIN_VALUE;
+        }
+        return (int) quantised;
+    }
+
+    /**
+     * Stops recording, waits for queued frames to be written and closes the file.
+     */
+    public void stop() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        stopped = true;
+        try {
+            filledFrames.put(END_OF_RECORDING);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            writerThread.interrupt();
+            Thread.currentThread().interrupt();
+        } finally {
+            channel.close();
+        }
+        if (writeError != null) {
+            throw writeError;
+        }
+    }
+
+    public boolean isRecording() {
+        return !stopped;
+    }
+
+    /** Frames not recorded because the writer thread had fallen behind */
+    public int getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    public int getRecordedFrames() {
+        return recordedFrames;
+    }
+
+    private void writeFrames() {
+        RecordedFrame previous = null;
+        int framesSinceKeyFrame = 0;
+        try {
+            while (true) {
+                RecordedFrame frame = filledFrames.take();
+                if (frame == END_OF_RECORDING) {
+                    break;
+                }
+
+                boolean keyFrame = (previous == null || framesSinceKeyFrame >= KEY_FRAME_INTERVAL);
+                encodeFrame(frame, keyFrame ? null : previous);
+                writeBuffer();
+                framesSinceKeyFrame = keyFrame ? 1 : framesSinceKeyFrame + 1;
+
+                if (previous != null) {
+                    freeFrames.add(previous);
+                }
+                previous = frame;
+            }
+        } catch (InterruptedException e) {
+            // Recording was abandoned; close() is handled by stop()
+        } catch (IOException e) {
+            writeError = e;
+            stopped = true;
+        }
+    }
+
+    /** Encodes frame into the buffer relative to previous, or as a key frame if previous is null */
+    private void encodeFrame(RecordedFrame frame, RecordedFrame previous) {
+        buffer.clear();
+        buffer.put(previous == null ? KEY_FRAME : DELTA_FRAME);
+        int lengthPosition = buffer.position();
+        buffer.putInt(0);
+
+        buffer.putDouble(frame.startTime);
+        buffer.putDouble(frame.endTime);
+        buffer.putDouble(frame.pistonStart);
+        buffer.putDouble(frame.pistonFinal);
+        buffer.putDouble(frame.pistonMovingTime);
+        buffer.put((byte) (frame.holeOpen ? 1 : 0));
+
+        int values = frame.position.length;
+        for (int i = 0; i < values; i++) {
+            putSignedVarInt(frame.position[i] - (previous == null ? 0 : previous.position[i]));
+        }
+        for (int i = 0; i < values; i++) {
+            putSignedVarInt(frame.velocity[i] - (previous == null ? 0 : previous.velocity[i]));
+        }
+
+        int numParticles = frame.rgb.length;
+        int changes = 0;
+        for (int i = 0; i < numParticles; i++) {
+            if (attributesChanged(frame, previous, i)) {
+                changes++;
+            }
+        }
+        putVarInt(changes);
+        for (int i = 0; i < numParticles; i++) {
+            if (attributesChanged(frame, previous, i)) {
+                putVarInt(i);
+                buffer.putInt(frame.rgb[i]);
+                buffer.put(frame.bFlag[i]);
+            }
+        }
+
+        buffer.putInt(lengthPosition, buffer.position() - lengthPosition - 4);
+        buffer.flip();
+    }
+
+    private static boolean attributesChanged(RecordedFrame frame, RecordedFrame previous, int index) {
+        return previous == null
+                || frame.rgb[index] != previous.rgb[index]
+                || frame.bFlag[index] != previous.bFlag[index];
+    }
+
+    private void putSignedVarInt(int value) {
+        putVarInt((value << 1) ^ (value >> 31));
+    }
+
+    private void putVarInt(int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private void writeBuffer() throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.physics;
+
+import java.util.List;
+
+/**
+ * Concrete implementation of a ThermostatController that gives each particle
+ * a new velocity from the Maxwell-Boltzmann distribution at random times
+ * (Andersen thermostat).
+ *
+ * The times for each particle follow a Poisson process whose rate is the damp
+ * factor times the predicted collision frequency, and are scheduled on the
+ * calendar as Collision.THERMOSTAT events.
+ */
+public class AndersenController implements ThermostatController {
+
+	/** Rate used when no collision frequency could be predicted, in Hz */
+	public static double DEFAULT_FREQUENCY = 1.0 / Physics.DEFAULT_FRAME_DURATION;
+
+	private double[] nextEventTime = new double[0];
+
+	public double calculateAdjustment(Thermostat t, EventInfo event, Particle p) {
+		return 1.0;
+	}
+
+	public void start(Thermostat t, int numParticles, double time) {
+		nextEventTime = new double[numParticles];
+		for (int i = 0; i < numParticles; i++) {
+			nextEventTime[i] = scheduleNextEvent(t, time);
+		}
+	}
+
+	public double predictEvent(Thermostat t, int particleIndex, Particle p) {
+		if (particleIndex >= nextEventTime.length) {
+			return Calendar.MAXTIME;
+		}
+		return nextEventTime[particleIndex];
+	}
+
+	public void performEvent(Thermostat t, EventInfo event, Particle p) {
+		p.setVelocity(
+				t.sampleVelocityComponent(p.mass),
+				t.sampleVelocityComponent(p.mass),
+				t.sampleVelocityComponent(p.mass));
+		if (event.part1 < nextEventTime.length) {
+			nextEventTime[event.part1] = scheduleNextEvent(t, event.colTime);
+		}
+	}
+
+	public boolean afterCollision(Thermostat t, EventInfo event, Particle p1, Particle p2) {
+		return false;
+	}
+
+	public double endFrame(Thermostat t, List<Particle> particles) {
+		return 1.0;
+	}
+
+	private double scheduleNextEvent(Thermostat t, double time) {
+		double collisionFrequency = t.getCollisionFrequency() > 0.0 ? t.getCollisionFrequency() : DEFAULT_FREQUENCY;
+		double rate = t.getDampFactor() * collisionFrequency;
+		if (rate <= 0.0) {
+			return Calendar.MAXTIME;
+		}
+		return Math.min(time + t.sampleWaitingTime(rate), Calendar.MAXTIME);
+	}
+}
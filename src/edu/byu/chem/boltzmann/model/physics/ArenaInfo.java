@@ -41,6 +41,8 @@ public class ArenaInfo {
     public final int numEdgePart;
     private final double[] edgeY;
     private final double[] edgeZ;
+    /** Surfaces the particles predict and perform boundary events against */
+    public final BoundaryGeometry boundaries;
 
     private Map<ParticleType, Statistic[]> simulationStatistics;
 
@@ -54,6 +56,7 @@ public class ArenaInfo {
         edgeY = null;
         edgeZ = null;
         numEdgePart = 0;
+        boundaries = new BoundaryGeometry();
     }
 
     /**
@@ -119,6 +122,8 @@ public class ArenaInfo {
                 edgeZ = null;
                 break;
         }
+
+        boundaries = BoundaryGeometry.forArena(simulationInfo, this);
     }
 
 //    public boolean CheckBoundaryOverlap(double x, double y, double z, double rad) {
@@ -177,6 +182,16 @@ public class ArenaInfo {
         return Arrays.copyOf(edgeZ, edgeZ.length);
     }
 
+    /** Same as getEdgeY()[i] without copying the array */
+    public double getEdgeY(int i) {
+        return edgeY[i];
+    }
+
+    /** Same as getEdgeZ()[i] without copying the array */
+    public double getEdgeZ(int i) {
+        return edgeZ[i];
+    }
+
 //    public Set<Statistic> getStatistics(ParticleType type) {
 //        return new HashSet(Arrays.asList(simulationStatistics.get(type)));
 //    }
@@ -0,0 +1,493 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.physics;
+
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo.ArenaType;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import java.util.Arrays;
+
+/**
+ * Every surface a particle can run into other than another particle: the arena
+ * walls or periodic boundaries, the dividing barrier, the fixed particles lining
+ * its hole and the piston. Each surface is one row of a set of primitive arrays,
+ * so predicting a particle's next boundary event is a single loop over the rows
+ * which allocates nothing, and the same loop serves all three dimensions
+ * (missing coordinates are passed in as 0).
+ *
+ * The event types and sides produced are the ones the Particle classes already
+ * respond to:
+ * - WALLS: WALL (or ENTER/EXIT_GRAVITY_WELL with an attractive wall) with the
+ *   Wall side that is hit
+ * - PERIODIC: BOUNDARY or EOB with the Wall side
+ * - SLAB: BARRIER with the Wall side of the face that is hit, plus
+ *   SLAB_SIDE_STRIDE times the slab's number after the first one
+ * - SPHERE: EDGE with the sphere's number as the side
+ * - PISTON: PISTON with the side given when it was added
+ * - CROSSING: HOLE_CROSSING with the low Wall side when crossing from the low
+ *   side to the high side and the high one the other way, plus
+ *   SLAB_SIDE_STRIDE times the crossing's number after the first one
+ * Further obstacles, such as internal walls or pores, are added as more slabs
+ * and spheres; getSlabAxis/getSlabContact and getSphereX/Y/Z let the particles
+ * respond to them without knowing where they are.
+ */
+public class BoundaryGeometry {
+
+    /** Reflecting walls at 0 and the arena size along an axis */
+    public static final int WALLS = 0;
+    /** Periodic boundaries at 0 and the arena size along an axis */
+    public static final int PERIODIC = 1;
+    /** Slab perpendicular to an axis, optionally with a circular opening */
+    public static final int SLAB = 2;
+    /** Fixed sphere of infinite mass */
+    public static final int SPHERE = 3;
+    /** Piston moving along an axis */
+    public static final int PISTON = 4;
+    /** Plane through a slab's opening, counted whenever a particle's centre crosses it */
+    public static final int CROSSING = 5;
+
+    /** Slab sides are the Wall side of the face plus this times the slab number */
+    public static final int SLAB_SIDE_STRIDE = Wall.FRONT << 1;
+
+    private static final int[] LOW_SIDES = {Wall.LEFT, Wall.BOTTOM, Wall.BACK};
+    private static final int[] HIGH_SIDES = {Wall.RIGHT, Wall.TOP, Wall.FRONT};
+
+    private int count = 0;
+
+    // One entry per surface. Unused fields of a kind are left at 0.
+    private int[] kind = new int[0];
+    /** Axis the surface is perpendicular to (WALLS, PERIODIC, SLAB, PISTON) */
+    private int[] axis = new int[0];
+    /** WALLS, PERIODIC: 0; SLAB: low face; CROSSING: the plane */
+    private double[] lower = new double[0];
+    /** WALLS, PERIODIC: arena size; SLAB: high face */
+    private double[] upper = new double[0];
+    /** WALLS: width of the attractive well by the low wall, negative for none */
+    private double[] wellWidth = new double[0];
+    /** SLAB: centre of the opening; SPHERE: centre */
+    private double[] centerX = new double[0];
+    private double[] centerY = new double[0];
+    private double[] centerZ = new double[0];
+    /** SLAB: squared radius of the opening, negative for none; SPHERE: radius */
+    private double[] size = new double[0];
+    /** SLAB, SPHERE, CROSSING: the opening, sphere or plane is only there while the hole is open */
+    private boolean[] onlyWhenOpen = new boolean[0];
+    /** Added to the side of the events this surface produces */
+    private int[] sideBase = new int[0];
+
+    private int[] slabRows = new int[0];
+    private int[] sphereRows = new int[0];
+    private int[] crossingRows = new int[0];
+
+    /** Creates a geometry with no surfaces, so every particle flies freely */
+    public BoundaryGeometry() {
+    }
+
+    /**
+     * Builds the surfaces of the arena described by simulationInfo, using the
+     * barrier and hole positions already worked out in arena.
+     */
+    public static BoundaryGeometry forArena(SimulationInfo simulationInfo, ArenaInfo arena) {
+        BoundaryGeometry geometry = new BoundaryGeometry();
+        int dimension = simulationInfo.dimension;
+        double[] arenaSize = {simulationInfo.arenaXSize, simulationInfo.arenaYSize, simulationInfo.arenaZSize};
+
+        if (simulationInfo.arenaType == ArenaType.PERIODIC_BOUNDARIES) {
+            for (int a = 0; a < dimension; a++) {
+                geometry.addPeriodic(a, arenaSize[a]);
+            }
+            return geometry;
+        }
+
+        for (int a = 0; a < dimension; a++) {
+            //the attractive wall is always the bottom one
+            boolean well = (a == 1) && simulationInfo.includeAttractiveWall;
+            geometry.addWalls(a, arenaSize[a], well ? simulationInfo.wallWellWidth : -1.0);
+        }
+
+        if (simulationInfo.arenaType == ArenaType.MOVABLE_PISTON) {
+            if (dimension == 1) {
+                geometry.addPiston(0, Wall.RIGHT);
+            } else {
+                geometry.addPiston(1, Wall.BOTTOM);
+            }
+        } else if (simulationInfo.arenaType == ArenaType.DIVIDED_ARENA) {
+            geometry.addSlab(0, arena.barrierLeftX, arena.barrierRightX);
+        } else if (simulationInfo.arenaType == ArenaType.DIVIDED_ARENA_WITH_HOLE) {
+            if (dimension == 1) {
+                //a hole in a 1D barrier is invalid
+                geometry.addSlab(0, arena.barrierLeftX, arena.barrierRightX);
+            } else {
+                double holeY = 0.5 * simulationInfo.arenaYSize;
+                double holeZ = (dimension == 3) ? 0.5 * simulationInfo.arenaZSize : 0.0;
+                geometry.addSlab(0, arena.barrierLeftX, arena.barrierRightX,
+                        arena.edgeX, holeY, holeZ, arena.holeRadius, simulationInfo.maxwellDemonMode);
+                for (int i = 0; i < arena.numEdgePart; i++) {
+                    geometry.addSphere(arena.edgeX, arena.getEdgeY(i), arena.getEdgeZ(i),
+                            arena.edgeRadius, simulationInfo.maxwellDemonMode);
+                }
+                geometry.addCrossing(0, arena.edgeX, simulationInfo.maxwellDemonMode);
+            }
+        }
+        return geometry;
+    }
+
+    /**
+     * Adds reflecting walls at 0 and size along axis.
+     * @param wellWidth width of an attractive well next to the wall at 0, or
+     * negative for none
+     */
+    public void addWalls(int axis, double size, double wellWidth) {
+        int row = addRow(WALLS, axis, 0);
+        this.upper[row] = size;
+        this.wellWidth[row] = wellWidth;
+    }
+
+    /** Adds periodic boundaries at 0 and size along axis */
+    public void addPeriodic(int axis, double size) {
+        int row = addRow(PERIODIC, axis, 0);
+        this.upper[row] = size;
+    }
+
+    /** Adds a solid slab filling lower to upper along axis */
+    public void addSlab(int axis, double lower, double upper) {
+        addSlab(axis, lower, upper, 0, 0, 0, -1.0, false);
+    }
+
+    /**
+     * Adds a slab filling lower to upper along axis with a circular opening
+     * (a cylinder through the slab, so a pore in 3D and a gap in 2D) of the
+     * given radius around the centre point.
+     * @param onlyWhenOpen the opening is closed while the arena's hole is
+     * closed (Maxwell's demon mode)
+     */
+    public void addSlab(int axis, double lower, double upper, double centerX, double centerY,
+            double centerZ, double openingRadius, boolean onlyWhenOpen) {
+        int row = addRow(SLAB, axis, slabRows.length * SLAB_SIDE_STRIDE);
+        this.lower[row] = lower;
+        this.upper[row] = upper;
+        this.centerX[row] = centerX;
+        this.centerY[row] = centerY;
+        this.centerZ[row] = centerZ;
+        this.size[row] = (openingRadius < 0) ? -1.0 : openingRadius * openingRadius;
+        this.onlyWhenOpen[row] = onlyWhenOpen;
+        slabRows = append(slabRows, row);
+    }
+
+    /**
+     * Adds a fixed sphere (a circle in 2D, where centerZ should be 0).
+     * @param onlyWhenOpen the sphere is only there while the arena's hole is open
+     */
+    public void addSphere(double centerX, double centerY, double centerZ, double radius,
+            boolean onlyWhenOpen) {
+        int row = addRow(SPHERE, 0, sphereRows.length);
+        this.centerX[row] = centerX;
+        this.centerY[row] = centerY;
+        this.centerZ[row] = centerZ;
+        this.size[row] = radius;
+        this.onlyWhenOpen[row] = onlyWhenOpen;
+        sphereRows = append(sphereRows, row);
+    }
+
+    /**
+     * Adds a plane at position along axis whose crossings are events. It
+     * should lie inside an opening, since particles only reach it through one.
+     * @param onlyWhenOpen crossings are only predicted while the arena's hole
+     * is open, so a closed hole costs nothing
+     */
+    public void addCrossing(int axis, double position, boolean onlyWhenOpen) {
+        int row = addRow(CROSSING, axis, crossingRows.length * SLAB_SIDE_STRIDE);
+        this.lower[row] = position;
+        this.onlyWhenOpen[row] = onlyWhenOpen;
+        crossingRows = append(crossingRows, row);
+    }
+
+    /** Adds the piston, which moves along axis and produces events with the given side */
+    public void addPiston(int axis, int side) {
+        addRow(PISTON, axis, side);
+    }
+
+    private int addRow(int kind, int axis, int sideBase) {
+        if (axis < 0 || axis > 2) {
+            throw new IllegalArgumentException("Invalid axis " + axis);
+        }
+        if (count == this.kind.length) {
+            int capacity = Math.max(4, 2 * count);
+            this.kind = Arrays.copyOf(this.kind, capacity);
+            this.axis = Arrays.copyOf(this.axis, capacity);
+            lower = Arrays.copyOf(lower, capacity);
+            upper = Arrays.copyOf(upper, capacity);
+            wellWidth = Arrays.copyOf(wellWidth, capacity);
+            centerX = Arrays.copyOf(centerX, capacity);
+            centerY = Arrays.copyOf(centerY, capacity);
+            centerZ = Arrays.copyOf(centerZ, capacity);
+            size = Arrays.copyOf(size, capacity);
+            onlyWhenOpen = Arrays.copyOf(onlyWhenOpen, capacity);
+            this.sideBase = Arrays.copyOf(this.sideBase, capacity);
+        }
+        int row = count++;
+        this.kind[row] = kind;
+        this.axis[row] = axis;
+        this.sideBase[row] = sideBase;
+        return row;
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] longer = Arrays.copyOf(array, array.length + 1);
+        longer[array.length] = value;
+        return longer;
+    }
+
+    /**
+     * Finds the soonest event of a particle with any of the surfaces and stores
+     * it in event, which is returned. Position and velocity are the particle's
+     * at time t0, with 0 for coordinates beyond the simulation's dimension.
+     * If nothing can be hit a BOUNDARY event at Calendar.MAXTIME is returned.
+     * @param bFlag the particle's periodic boundary flags
+     * @param holeOpen whether the arena's hole is currently open
+     * @param crossings whether HOLE_CROSSING events are predicted; nothing
+     * bounces off a crossing plane, so it is only worth predicting while
+     * something counts the crossings
+     */
+    public EventInfo predict(EventInfo event, double x, double y, double z,
+            double xVel, double yVel, double zVel, double radius, double t0, int bFlag,
+            Piston piston, boolean holeOpen, boolean crossings) {
+        int bestType = Collision.BOUNDARY;
+        int bestSide = 0;
+        double bestTime = Calendar.MAXTIME;
+
+        for (int i = 0; i < count; i++) {
+            int a = axis[i];
+            double pos = (a == 0) ? x : (a == 1) ? y : z;
+            double vel = (a == 0) ? xVel : (a == 1) ? yVel : zVel;
+            int colType;
+            int side;
+            double colTime;
+
+            switch (kind[i]) {
+                case WALLS: {
+                    if (vel == 0) {
+                        continue;
+                    }
+                    double dt;
+                    if (vel < 0) {
+                        side = LOW_SIDES[a];
+                        colType = Collision.WALL;
+                        dt = (radius-pos)/vel; //=(pos-radius)/(-vel) don't need negate if we swap the top order
+                        if (wellWidth[i] >= 0) {
+                            double wellColTime = (wellWidth[i] - pos) / vel;
+                            if (wellColTime > 0) {
+                                dt = wellColTime;
+                                colType = Collision.ENTER_GRAVITY_WELL;
+                            }
+                        }
+                    } else {
+                        side = HIGH_SIDES[a];
+                        colType = Collision.WALL;
+                        dt = (upper[i]-radius-pos)/vel;
+                        if (wellWidth[i] >= 0) {
+                            double wellColTime = (wellWidth[i] - pos) / vel;
+                            if (wellColTime > 0) {
+                                dt = wellColTime;
+                                colType = Collision.EXIT_GRAVITY_WELL;
+                            }
+                        }
+                    }
+                    colTime = t0+dt;
+                    break;
+                }
+                case PERIODIC: {
+                    if (vel == 0) {
+                        continue;
+                    }
+                    int low = LOW_SIDES[a];
+                    double dt;
+                    if ((bFlag & low) == low) { //sitting on the boundary, check for EOB
+                        colType = Collision.EOB;
+                        if (vel < 0) {
+                            side = low;
+                            dt = (pos+radius)/(-vel);
+                        } else {
+                            side = HIGH_SIDES[a];
+                            dt = (radius-pos)/vel;
+                        }
+                    } else {
+                        colType = Collision.BOUNDARY;
+                        if (vel < 0) {
+                            side = low;
+                            dt = (radius-pos)/vel;
+                        } else {
+                            side = HIGH_SIDES[a];
+                            dt = (upper[i]-radius-pos)/vel;
+                        }
+                    }
+                    colTime = t0+dt;
+                    break;
+                }
+                case SLAB: {
+                    double dt;
+                    if (pos <= lower[i]-radius && vel > 0) {
+                        side = LOW_SIDES[a];
+                        dt = (lower[i]-radius-pos)/vel;
+                    } else if (pos >= upper[i]+radius && vel < 0) {
+                        side = HIGH_SIDES[a];
+                        dt = (upper[i]+radius-pos)/vel; //=(pos-radius-upper)/-vel
+                    } else {
+                        continue;
+                    }
+                    if (size[i] >= 0 && (!onlyWhenOpen[i] || holeOpen)) {
+                        //position relative to the opening when reaching the face
+                        double dX = (a == 0) ? 0 : x + xVel*dt - centerX[i];
+                        double dY = (a == 1) ? 0 : y + yVel*dt - centerY[i];
+                        double dZ = (a == 2) ? 0 : z + zVel*dt - centerZ[i];
+                        if (dX*dX + dY*dY + dZ*dZ <= size[i]) {
+                            //passes into the opening, where the spheres lining it take over
+                            continue;
+                        }
+                    }
+                    colType = Collision.BARRIER;
+                    side += sideBase[i];
+                    colTime = t0+dt;
+                    break;
+                }
+                case SPHERE: {
+                    if (onlyWhenOpen[i] && !holeOpen) {
+                        continue;
+                    }
+                    colType = Collision.EDGE;
+                    side = sideBase[i];
+                    colTime = predContact(x-centerX[i], y-centerY[i], z-centerZ[i],
+                            xVel, yVel, zVel, radius + size[i], t0);
+                    break;
+                }
+                case PISTON: {
+                    colType = Collision.PISTON;
+                    side = sideBase[i];
+                    colTime = predContact(pos - piston.getPositionAtTime(t0), 0, 0,
+                            vel - piston.getVelocityAtTime(t0), 0, 0, radius, t0);
+                    // If the piston was moving, but by the calculated collision time has stopped,
+                    //		and the particle was heading toward the piston, we need to recalculate
+                    if (piston.isMoving(t0) && !piston.isMoving(colTime) && vel > 0) {
+                        colTime = predContact(pos - piston.getStopPosition(), 0, 0,
+                                vel, 0, 0, radius, t0);
+                    }
+                    break;
+                }
+                case CROSSING: {
+                    if (!crossings || (onlyWhenOpen[i] && !holeOpen)) {
+                        continue;
+                    }
+                    //a particle sitting on the plane has just crossed it
+                    if (pos < lower[i] && vel > 0) {
+                        side = LOW_SIDES[a];
+                    } else if (pos > lower[i] && vel < 0) {
+                        side = HIGH_SIDES[a];
+                    } else {
+                        continue;
+                    }
+                    colType = Collision.HOLE_CROSSING;
+                    side += sideBase[i];
+                    colTime = t0+(lower[i]-pos)/vel;
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unknown surface kind " + kind[i]);
+            }
+
+            if (colTime < bestTime) {
+                bestTime = colTime;
+                bestType = colType;
+                bestSide = side;
+            }
+        }
+
+        event.set(bestType, bestTime, 0, 0, bestSide);
+        if (bestTime < t0) {
+            throw new RuntimeException("Boundary collision predicted in the past");
+        }
+        return event;
+    }
+
+    /**
+     * Time at which two spheres whose centres are dX, dY, dZ apart at currt0
+     * (moving apart at dVx, dVy, dVz) first touch at distance Dc, or
+     * Calendar.MAXTIME if they never do. Same as Particle3D.PredCol.
+     */
+    private static double predContact(double dX, double dY, double dZ,
+            double dVx, double dVy, double dVz, double Dc, double currt0) {
+        double B = dX*dVx+dY*dVy+dZ*dVz; //i.e. dot product of position and velocity vectors
+
+        if (B >= 0) //no collision occurs, not moving towards each other
+            return Calendar.MAXTIME;
+        double A = dVx*dVx+dVy*dVy+dVz*dVz;	//i.e. modulus squared of velocity vector
+        double C = dX*dX+dY*dY+dZ*dZ-Dc*Dc;	//i.e. mod squared of pos vector - square of distance at collision
+        double rad = B*B-A*C;
+        if (rad < 0) //no collision occurs, at this point due to parallel paths
+            return Calendar.MAXTIME;
+        //collision occurs at time tc (result of solving quadratic to get time when first touching)
+        double dt = - (B+Math.sqrt(rad))/A;
+        return (dt >= 0)? currt0+dt : currt0;
+    }
+
+    /** Axis the slab hit in a BARRIER event with the given side is perpendicular to */
+    public int getSlabAxis(int side) {
+        return axis[slabRows[side / SLAB_SIDE_STRIDE]];
+    }
+
+    /**
+     * Coordinate along getSlabAxis(side) of the centre of a particle of the
+     * given radius touching the face hit in a BARRIER event with this side.
+     */
+    public double getSlabContact(int side, double radius) {
+        int row = slabRows[side / SLAB_SIDE_STRIDE];
+        int face = side % SLAB_SIDE_STRIDE;
+        return (face == LOW_SIDES[axis[row]]) ? lower[row]-radius : upper[row]+radius;
+    }
+
+    /** Axis the plane crossed in a HOLE_CROSSING event with the given side is perpendicular to */
+    public int getCrossingAxis(int side) {
+        return axis[crossingRows[side / SLAB_SIDE_STRIDE]];
+    }
+
+    /** Coordinate along getCrossingAxis(side) of the plane crossed in a HOLE_CROSSING event */
+    public double getCrossingPosition(int side) {
+        return lower[crossingRows[side / SLAB_SIDE_STRIDE]];
+    }
+
+    /** True if a HOLE_CROSSING event with the given side went from the low side of the plane to the high side */
+    public static boolean isCrossingUpward(int side) {
+        int face = side % SLAB_SIDE_STRIDE;
+        return face == Wall.LEFT || face == Wall.BOTTOM || face == Wall.BACK;
+    }
+
+    /** Centre of the sphere hit in an EDGE event with the given side */
+    public double getSphereX(int side) {
+        return centerX[sphereRows[side]];
+    }
+
+    public double getSphereY(int side) {
+        return centerY[sphereRows[side]];
+    }
+
+    public double getSphereZ(int side) {
+        return centerZ[sphereRows[side]];
+    }
+
+    public double getSphereRadius(int side) {
+        return size[sphereRows[side]];
+    }
+}
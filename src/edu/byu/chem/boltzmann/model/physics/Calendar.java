@@ -41,7 +41,7 @@ package edu.byu.chem.boltzmann.model.physics;
   * ArrayLists are used to provide the ability for the calendar to grow and shrink as
   * particles are added to or removed from the simulation.
   ***********/
- public class Calendar {
+ public class Calendar implements EventCalendar {
 
 	 // Matrix organization:
 	 // column, row: particles to interact (starting with number: 0? 1?)
@@ -96,7 +96,7 @@ package edu.byu.chem.boltzmann.model.physics;
 	private ArrayList<calElem> matrix;
 	
 	private Set<EventInfo> eventMatrix;
-	private EventInfo nextEvent = null;
+	private final EventInfo nextEvent = new EventInfo(); // returned by NextEvent, see EventCalendar
 	
 	/** 
 	 * minRow - Which row contains the soonest event - set to -1 if no particles or if the calendar
@@ -260,14 +260,15 @@ package edu.byu.chem.boltzmann.model.physics;
  	 * Returns a copy of the event on the top of the heap (assumes sorted)
  	 * this will be the event with the smallest colTime - note, this means
  	 * that it is very important that the prediction code not place any events
- 	 * on the calendar that occur in the "past"
+ 	 * on the calendar that occur in the "past". The copy is nextEvent, which
+ 	 * is overwritten by the next call.
  	 * @return
  	 */
  	public EventInfo NextEvent() {
  		
- 		EventInfo event = new EventInfo();
+ 		EventInfo event = nextEvent;
  		if (minRow == -1) {
- 			event = new EventInfo(-1,MAXTIME,-1,-1,-1);
+ 			event.set(-1,MAXTIME,-1,-1,-1);
  			return event;
  		}
  		// otherwise pull out the soonest event from the matrix
@@ -331,7 +332,7 @@ package edu.byu.chem.boltzmann.model.physics;
 	 */
  	// TODO: The comment about Sort appears to be old... I don't see any Sort method here!
  	// and yet it seems likely that it is the problem! - APS 24 Oct 2008
- 	public void Update(int colType, int part1, int part2, int side, double colTime, Particle[] particlesInvolved) {
+ 	public void Update(int colType, int part1, int part2, int side, double colTime) {
  		
  		// A particle can't have an event with itself
 	    if (colType == Collision.PARTICLE && part1 == part2)
@@ -347,8 +348,6 @@ package edu.byu.chem.boltzmann.model.physics;
 			    ((EventInfo)((calElem)matrix.get(row)).col.get(col)).colTime = colTime;
 			    ((EventInfo)((calElem)matrix.get(row)).col.get(col)).side = side;
 			    ((EventInfo)((calElem)matrix.get(row)).col.get(col)).colType = colType;
-			    ((EventInfo)((calElem)matrix.get(row)).col.get(col)).particlesInvolved[0] = particlesInvolved[0];
-			    ((EventInfo)((calElem)matrix.get(row)).col.get(col)).particlesInvolved[1] = particlesInvolved[1];
                             
 			    	// Note: by pulling the event with the correct row and column we only
 			    	// need to set the value for collision time (and possibly side if periodic
@@ -369,8 +368,6 @@ package edu.byu.chem.boltzmann.model.physics;
 			    ((EventInfo)((calElem)matrix.get(row)).col.get(col)).colType = colType;
 			    ((EventInfo)((calElem)matrix.get(row)).col.get(col)).colTime = colTime;
 			    ((EventInfo)((calElem)matrix.get(row)).col.get(col)).side = side;
-			    ((EventInfo)((calElem)matrix.get(row)).col.get(col)).particlesInvolved[0] = particlesInvolved[0];
-			    ((EventInfo)((calElem)matrix.get(row)).col.get(col)).particlesInvolved[1] = particlesInvolved[1];
 				break;
 			case Collision.EXIT_WELL:
 			    row = (part1 > part2) ? part1 : part2;
@@ -378,8 +375,6 @@ package edu.byu.chem.boltzmann.model.physics;
 			    ((EventInfo)((calElem)matrix.get(row)).col.get(col)).colType = colType;
 			    ((EventInfo)((calElem)matrix.get(row)).col.get(col)).colTime = colTime;
 			    ((EventInfo)((calElem)matrix.get(row)).col.get(col)).side = side;
-			    ((EventInfo)((calElem)matrix.get(row)).col.get(col)).particlesInvolved[0] = particlesInvolved[0];
-			    ((EventInfo)((calElem)matrix.get(row)).col.get(col)).particlesInvolved[1] = particlesInvolved[1];
 				break;
 			default: //all other types are boundary events (Wall, Boundary, EOB, Barrier, Edge)
 			    row = BOUNDARY_ROW;
@@ -387,7 +382,6 @@ package edu.byu.chem.boltzmann.model.physics;
 			    ((EventInfo)((calElem)matrix.get(row)).col.get(col)).colType = colType; //Boundary, Wall, etc. this is important!
 			    ((EventInfo)((calElem)matrix.get(row)).col.get(col)).side = side; 		//which side (left, right, etc)
 			    ((EventInfo)((calElem)matrix.get(row)).col.get(col)).colTime = colTime;
-			    ((EventInfo)((calElem)matrix.get(row)).col.get(col)).particlesInvolved[0] = particlesInvolved[0];
 	    } //end switch
 
 		// set minimum values where applicable
@@ -408,6 +402,17 @@ package edu.byu.chem.boltzmann.model.physics;
 		}
  	}
  	
+	public void ScaleEventTimes(double time, double factor) {
+		// Each row's minPos stays the minimum because the order doesn't change
+		for (calElem row: matrix) {
+			for (EventInfo event: row.col) {
+				if (event.colTime != MAXTIME) {
+					event.colTime = time + (event.colTime - time) * factor;
+				}
+			}
+		}
+	}
+
 	public void FindMinimum() {
 		//reset the update flags and find the row with the minimum event time
 		
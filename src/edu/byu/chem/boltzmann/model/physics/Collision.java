@@ -38,7 +38,9 @@ public class Collision {
 			EXIT_WELL       = 8,
                         ENTER_GRAVITY_WELL = 9,
                         EXIT_GRAVITY_WELL = 10,
-                        WELL_REFLECT    = 18;
+                        WELL_REFLECT    = 18,
+                        THERMOSTAT      = 19,   // thermostat event scheduled for one particle
+                        HOLE_CROSSING   = 20;   // centre passing through the open hole of a divider
 
 		//update flags used to tell CalUpdate what needs to be done
 		//(start at 10 to help trap errors if not initialized properly - i.e. a collision
@@ -50,7 +52,8 @@ public class Collision {
 			BOUNDARY_ALL= 13,	//update all particle-boundary interactions
 			EVERYTHING	= 14,	//complete prediction of all events
 			RESORT		= 15,	//just re-sort the calendar
-			PISTON_ALL  = 16;   //update all particle-piston interactions
+			PISTON_ALL  = 16,   //update all particle-piston interactions
+			BOUNDARY_1  = 21;   //only 1 particle's boundary event needs updating
 		//Note: these flags are placed here to avoid too much redundancy - the CalUpdate
 		//method uses the particle indices and boundary info (i.e. left, right, etc)
 		//to correctly predict new events, etc, but some user events need to set mass
@@ -0,0 +1,56 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.physics;
+
+/**
+ * The schedule of predicted events Physics pulls events from. Prediction code
+ * calls Update for each event it predicts, then FindMinimum before the next
+ * event is taken off the calendar.
+ */
+public interface EventCalendar {
+
+    /** Time of the soonest event (assumes FindMinimum has been called) */
+    double NextEventTime();
+
+    /**
+     * Returns a copy of the soonest event and marks it as done so it is not
+     * returned again unless it is predicted again. The copy is held by the
+     * calendar and overwritten by the next call, so nothing is allocated per
+     * event; callers that need to keep an event must copy it themselves.
+     */
+    EventInfo NextEvent();
+
+    /** Tells the calendar which events are about to be predicted again */
+    void MarkEventToUpdate(EventInfo event);
+
+    /**
+     * Sets the predicted event between part1 and part2, or between part1 and
+     * the boundaries for boundary event types.
+     */
+    void Update(int colType, int part1, int part2, int side, double colTime);
+
+    /**
+     * Multiplies the time from time to each pending event by factor, which is
+     * what happens to straight line events when every velocity is scaled by
+     * 1 / factor. Order is kept, so the calendar doesn't need sorting again.
+     */
+    void ScaleEventTimes(double time, double factor);
+
+    /** Finds the soonest event after a round of updates */
+    void FindMinimum();
+}
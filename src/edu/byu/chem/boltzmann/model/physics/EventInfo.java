@@ -29,7 +29,11 @@ public class EventInfo implements Cloneable {
     public double colTime;				// when the event occurs - (presumably in ps??? TODO) <- No, this is in seconds.
     public int part1, part2, side;		// what particles are involved in the event
                                                             // and what side collision occurs
-    public Particle[] particlesInvolved = new Particle[2];
+
+    // The particles at part1 and part2 (second is null for boundary events).
+    // Physics fills these in from the indices when it takes the event off the
+    // calendar; the array is never replaced, so events can be reused freely.
+    private Particle[] particlesInvolved = new Particle[2];
 
     // This field is solely to allow Particle.CollideWith to return
     // reaction information to Physics.PerformEvent.
@@ -49,35 +53,50 @@ public class EventInfo implements Cloneable {
             colType = Collision.EVERYTHING;
             colTime = 0.0;
             part1 = part2 = side = 0;
-            particlesInvolved = new Particle[2];
     }
 
     public EventInfo(int updateFlag) {
             colType = updateFlag;
             colTime = 0.0;
             part1 = part2 = side = 0;
-            particlesInvolved = new Particle[0];
     }
 
+    /**
+     * The particles involved in the event, the second being null for boundary
+     * events. This is the event's own array, not a copy: it must not be changed
+     * and is only valid for as long as the event is.
+     */
     public Particle[] getInvolvedParticles() {
-        return Arrays.copyOf(particlesInvolved, particlesInvolved.length);
+        return particlesInvolved;
     }
 
-    public EventInfo(int colType, double colTime, int part1Index, int part2Index, int whichSide, Particle[] particlesInvolved) {
-            this.colType = colType;
-            this.colTime = colTime;
-            this.part1 = part1Index;
-            this.part2 = part2Index;
-            this.side = whichSide;
-            this.particlesInvolved = particlesInvolved;
+    /** Index in the simulation's particle list of getInvolvedParticles()[which] */
+    public int getInvolvedParticleIndex(int which) {
+        return (which == 0) ? part1 : part2;
+    }
+
+    public void setInvolvedParticles(Particle particle1, Particle particle2) {
+        particlesInvolved[0] = particle1;
+        particlesInvolved[1] = particle2;
     }
 
     public EventInfo(int colType, double colTime, int part1Index, int part2Index, int whichSide) {
+            set(colType, colTime, part1Index, part2Index, whichSide);
+    }
+
+    /**
+     * Overwrites this event as though it had just been created with the
+     * five-argument constructor, so that preallocated events can be reused.
+     */
+    public final void set(int colType, double colTime, int part1Index, int part2Index, int whichSide) {
             this.colType = colType;
             this.colTime = colTime;
             this.part1 = part1Index;
             this.part2 = part2Index;
             this.side = whichSide;
+            this.deltaBlue = 0;
+            particlesInvolved[0] = null;
+            particlesInvolved[1] = null;
     }
 
     /**
@@ -90,7 +109,7 @@ public class EventInfo implements Cloneable {
 
     /**
      * Copier
-     * @param Deep copies other's event information 
+     * @param Copies other's event information into this event without allocating
      */
     public final void copy(EventInfo other) {
         this.colTime = other.colTime;
@@ -99,21 +118,8 @@ public class EventInfo implements Cloneable {
         this.part1 = other.part1;
         this.part2 = other.part2;
         this.side = other.side;
-
-        // use existing array if it's big enough
-        if (this.particlesInvolved != null && this.particlesInvolved.length > 1) {
-            if (other.particlesInvolved != null) {
-                this.particlesInvolved[0] = other.particlesInvolved[0];
-                this.particlesInvolved[1] = other.particlesInvolved[1];
-            } else {
-                this.particlesInvolved = null;
-            }              
-        } else if (other.particlesInvolved != null) {
-            this.particlesInvolved = Arrays.copyOf(other.particlesInvolved, 
-                    other.particlesInvolved.length);
-        } else {
-            this.particlesInvolved = null;
-        }                    
+        this.particlesInvolved[0] = other.particlesInvolved[0];
+        this.particlesInvolved[1] = other.particlesInvolved[1];
     }
 
     @Override
@@ -151,6 +157,7 @@ public class EventInfo implements Cloneable {
     public Object clone() throws CloneNotSupportedException {
             EventInfo copy=null;
             copy = (EventInfo) super.clone();
+            copy.particlesInvolved = particlesInvolved.clone();
             return copy;
     }
 
@@ -184,6 +191,9 @@ public class EventInfo implements Cloneable {
                     case Collision.PISTON:
                             out += "Piston, ";
                             break;
+                    case Collision.HOLE_CROSSING:
+                            out += "Hole crossing, ";
+                            break;
                     case Collision.PARTICLE_1:
                             out += "Update 1 Particle, ";
                             break;
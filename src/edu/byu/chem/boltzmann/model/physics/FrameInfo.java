@@ -17,9 +17,7 @@
  */
 package edu.byu.chem.boltzmann.model.physics;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
+import edu.byu.chem.boltzmann.model.statistics.utils.FrameAnalysis;
 
 /**
  *
@@ -35,22 +33,55 @@ public class FrameInfo {
     private double pistonMovingTime;
     
     private boolean arenaHoleOpen = false;
+    private boolean velocitiesRescaled = false;
+    private HeatReservoirFlux.Totals heatReservoirTotals = null;
 
     public FrameInfo(double startTime, double endTime) {
         this.startTime = startTime;
         this.endTime = endTime;
     }
     
-    private final Map<Particle, PartState> particleStates = new HashMap<Particle, PartState>();
-        
-    public void setEndingStates(Map<Particle, PartState> allParticles) {
-        particleStates.putAll(allParticles);  
+    private ParticleStates particleStates = null;
+
+    /**
+     * Gives the frame the states of all particles at its end time. The states
+     * are kept as they are, not copied.
+     */
+    public void setEndingStates(ParticleStates states) {
+        particleStates = states;
     }
 
-    public Map<Particle, PartState> getParticleStates() {
+    /** Particle states at the end of the frame, indexed by particle number */
+    public ParticleStates getParticleStates() {
         return particleStates;
     }
 
+    private FrameAnalysis analysis = null;
+
+    /**
+     * Gives the frame an analysis already made of its ending states, so the
+     * statistics reading the frame share it.
+     */
+    public void setAnalysis(FrameAnalysis analysis) {
+        this.analysis = analysis;
+    }
+
+    /**
+     * Per-particle values of the ending states. Analyzed here, on the calling
+     * thread, if the frame wasn't given an analysis of its current states.
+     */
+    public FrameAnalysis getAnalysis() {
+        if (analysis == null || analysis.getParticleStates() != particleStates) {
+            analysis = new FrameAnalysis();
+            analysis.analyze(particleStates);
+        }
+        return analysis;
+    }
+
+    public int getNumParticles() {
+        return particleStates.size();
+    }
+
     public void setPistonStart(double pistonPosition) {
         this.pistonStartPosition = pistonPosition;
     }
@@ -69,12 +100,17 @@ public class FrameInfo {
         }
     }
 
-    public PartState getParticleState(Particle particle) {
-        return particleStates.get(particle);
+    public double getPistonStartPosition() {
+        return pistonStartPosition;
+    }
+
+    public double getPistonFinalPosition() {
+        return pistonFinalPosition;
     }
 
-    public Set<Particle> getParticles() {
-        return particleStates.keySet();
+    /** Time after the start of this frame at which the piston stopped moving */
+    public double getPistonMovingTime() {
+        return pistonMovingTime;
     }
 
     public void setArenaHoleOpen(boolean holeOpen) {
@@ -84,4 +120,48 @@ public class FrameInfo {
     public boolean isArenaHoleOpen() {
         return arenaHoleOpen;
     }
+
+    public void setVelocitiesRescaled(boolean rescaled) {
+        velocitiesRescaled = rescaled;
+    }
+
+    /**
+     * True if the thermostat changed particle velocities at the end of the
+     * frame, without an event, so the ending states' velocities aren't the
+     * ones the particles had since their last events.
+     */
+    public boolean areVelocitiesRescaled() {
+        return velocitiesRescaled;
+    }
+
+    public void setHeatReservoirTotals(HeatReservoirFlux.Totals totals) {
+        heatReservoirTotals = totals;
+    }
+
+    /**
+     * Energy exchanged with the heat reservoir behind the attractive wall up
+     * to the end of the frame, or null if the frame wasn't given any.
+     */
+    public HeatReservoirFlux.Totals getHeatReservoirTotals() {
+        return heatReservoirTotals;
+    }
+
+    /**
+     * Returns a copy of this frame with its own particle states. Physics reuses
+     * the states of earlier frames, so a frame kept after Physics has moved on
+     * must be copied first.
+     */
+    public FrameInfo copy() {
+        FrameInfo copy = new FrameInfo(startTime, endTime);
+        copy.pistonStartPosition = pistonStartPosition;
+        copy.pistonFinalPosition = pistonFinalPosition;
+        copy.pistonMovingTime = pistonMovingTime;
+        copy.arenaHoleOpen = arenaHoleOpen;
+        copy.velocitiesRescaled = velocitiesRescaled;
+        copy.heatReservoirTotals = heatReservoirTotals;
+        if (particleStates != null) {
+            copy.particleStates = particleStates.copy();
+        }
+        return copy;
+    }
 }
@@ -0,0 +1,109 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.physics;
+
+import edu.byu.chem.boltzmann.utils.Units;
+import edu.byu.chem.boltzmann.utils.Units.Energy;
+
+/**
+ * Keeps track of the energy exchanged between the gas and the heat reservoir
+ * behind the attractive wall.
+ *
+ * Particles add to the running totals from the physics thread as they hit the
+ * wall, which takes no locks. Once per frame Physics publishes the totals as an
+ * immutable Totals object through a volatile field, so statistics and the GUI
+ * can read a consistent set of numbers from any thread without stopping the
+ * physics.
+ */
+public class HeatReservoirFlux {
+
+    /** Reservoir totals as of the end of a frame. Energies are in joules. */
+    public static class Totals {
+        /** Energy the reservoir has given to the gas */
+        public final double energyIntoGas;
+        /** Energy the gas has given to the reservoir */
+        public final double energyOutOfGas;
+        /** Number of wall collisions that exchanged energy with the reservoir */
+        public final long exchanges;
+        /** Simulation time (s) the totals were collected over */
+        public final double time;
+
+        private Totals(double energyIntoGas, double energyOutOfGas, long exchanges, double time) {
+            this.energyIntoGas = energyIntoGas;
+            this.energyOutOfGas = energyOutOfGas;
+            this.exchanges = exchanges;
+            this.time = time;
+        }
+
+        /** Net energy (J) that has flowed from the reservoir into the gas */
+        public double getNetHeatIntoGas() {
+            return energyIntoGas - energyOutOfGas;
+        }
+
+        /** Average net heat flow (W) from the reservoir into the gas */
+        public double getNetHeatFlowRate() {
+            return time > 0.0 ? getNetHeatIntoGas() / time : 0.0;
+        }
+    }
+
+    private static final Totals NO_EXCHANGE = new Totals(0.0, 0.0, 0, 0.0);
+
+    // Physics-thread-only running totals, in AMU_JOULE
+    private double energyIntoGas = 0.0;
+    private double energyOutOfGas = 0.0;
+    private long exchanges = 0;
+    private double startTime = 0.0;
+
+    private volatile Totals published = NO_EXCHANGE;
+
+    /**
+     * Records a wall collision that changed a particle's kinetic energy by
+     * deltaKE (AMU_JOULE). Must only be called from the physics thread.
+     */
+    void recordExchange(double deltaKE) {
+        if (deltaKE > 0.0) {
+            energyIntoGas += deltaKE;
+        } else {
+            energyOutOfGas -= deltaKE;
+        }
+        exchanges++;
+    }
+
+    /** Makes the totals up to simulationTime visible to getTotals() */
+    void publish(double simulationTime) {
+        published = new Totals(
+                Units.convert(Energy.AMU_JOULE, Energy.JOULE, energyIntoGas),
+                Units.convert(Energy.AMU_JOULE, Energy.JOULE, energyOutOfGas),
+                exchanges,
+                simulationTime - startTime);
+    }
+
+    /** Clears the totals and starts collecting again at simulationTime */
+    void reset(double simulationTime) {
+        energyIntoGas = 0.0;
+        energyOutOfGas = 0.0;
+        exchanges = 0;
+        startTime = simulationTime;
+        published = NO_EXCHANGE;
+    }
+
+    /** Totals as of the end of the last frame; safe to call from any thread */
+    public Totals getTotals() {
+        return published;
+    }
+}
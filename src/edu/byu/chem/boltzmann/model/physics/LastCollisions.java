@@ -28,6 +28,10 @@ public class LastCollisions {
     private final int totalNumberOfParticles;
     private final EventInfo defaultEvent;
     
+    /** Set when only neighbouring particles in 1D can collide */
+    private final ParticleOrder1D neighbourOrder;
+    private final EventInfo[] lastCollisionsByNeighbourPair;
+    
     public LastCollisions(int numParticles, EventInfo defaultEvent) {
         if (numParticles < 0) {
             throw new IllegalArgumentException("Negative number of particles specified");
@@ -35,6 +39,8 @@ public class LastCollisions {
         
         totalNumberOfParticles = numParticles;
         this.defaultEvent = defaultEvent;
+        neighbourOrder = null;
+        lastCollisionsByNeighbourPair = null;
         
         if (totalNumberOfParticles != 0) {
             // We use one less row because particle 0 has now row - his collisions
@@ -52,6 +58,22 @@ public class LastCollisions {
         return;
     }
     
+    /**
+     * Keeps last collisions only for pairs of neighbours in order, which are the
+     * only pairs that can collide in 1D. Asking about any other pair is an error.
+     */
+    LastCollisions(ParticleOrder1D order, EventInfo defaultEvent) {
+        totalNumberOfParticles = order.size();
+        this.defaultEvent = defaultEvent;
+        neighbourOrder = order;
+        lastCollisionsByParticlePair = null;
+        
+        lastCollisionsByNeighbourPair = new EventInfo[totalNumberOfParticles];
+        for (int pair = 0; pair < totalNumberOfParticles; pair++) {
+            lastCollisionsByNeighbourPair[pair] = new EventInfo(defaultEvent);
+        }
+    }
+    
     /**
      * 
      * @param rowNumber The index of the row that will contain collisions between
@@ -93,6 +115,15 @@ public class LastCollisions {
     }
     
     private EventInfo getEventForParticlePair(int particleIndex1, int particleIndex2) {
+        if (neighbourOrder != null) {
+            int pair = neighbourOrder.getPairSlot(particleIndex1, particleIndex2);
+            if (pair == ParticleOrder1D.NO_NEIGHBOUR) {
+                throw new IllegalArgumentException("Particles " + particleIndex1 + " and "
+                        + particleIndex2 + " are not neighbours");
+            }
+            return lastCollisionsByNeighbourPair[pair];
+        }
+        
         int rowParticle = Math.max(particleIndex1, particleIndex2);
         int columnParticle = Math.min(particleIndex1, particleIndex2);
         int rowIndex = rowParticle - 1;
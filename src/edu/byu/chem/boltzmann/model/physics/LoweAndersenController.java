@@ -0,0 +1,109 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.physics;
+
+import edu.byu.chem.boltzmann.model.statistics.Formulas;
+import edu.byu.chem.boltzmann.utils.Units;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import java.util.List;
+
+/**
+ * Concrete implementation of a ThermostatController that thermalizes the
+ * relative motion of colliding pairs (Lowe-Andersen thermostat).
+ *
+ * With probability equal to the damp factor, the component of the pair's
+ * relative velocity along the line of centers is redrawn after a collision from
+ * the distribution of that component for colliding pairs at the target
+ * temperature. The change is shared between the two particles so momentum is
+ * conserved, which keeps the dynamics of the gas close to the unthermostatted
+ * ones while still holding the temperature.
+ */
+public class LoweAndersenController implements ThermostatController {
+
+	private static final double KG_PER_AMU = Units.convert("amu", "kg", 1.0);
+
+	public double calculateAdjustment(Thermostat t, EventInfo event, Particle p) {
+		return 1.0;
+	}
+
+	public void start(Thermostat t, int numParticles, double time) {
+	}
+
+	public double predictEvent(Thermostat t, int particleIndex, Particle p) {
+		return Calendar.MAXTIME;
+	}
+
+	public void performEvent(Thermostat t, EventInfo event, Particle p) {
+	}
+
+	public boolean afterCollision(Thermostat t, EventInfo event, Particle p1, Particle p2) {
+		if (event.colType != Collision.PARTICLE || t.getRandom().nextDouble() >= t.getDampFactor()) {
+			return false;
+		}
+
+		// Line of centers, pointing from p2 to p1
+		SimulationInfo simulationInfo = p1.simulationInfo;
+		double nx = p1.getX() - p2.getX();
+		double ny = p1.getY() - p2.getY();
+		double nz = p1.getZ() - p2.getZ();
+		if (simulationInfo.isPeriodic()) {
+			nx = nearestImage(nx, simulationInfo.arenaXSize);
+			ny = nearestImage(ny, simulationInfo.arenaYSize);
+			nz = nearestImage(nz, simulationInfo.arenaZSize);
+		}
+		double distance = Math.sqrt(nx * nx + ny * ny + nz * nz);
+		if (distance == 0.0) {
+			return false;
+		}
+		nx /= distance;
+		ny /= distance;
+		nz /= distance;
+
+		double normalVelocity =
+				(p1.getXVel() - p2.getXVel()) * nx
+				+ (p1.getYVel() - p2.getYVel()) * ny
+				+ (p1.getZVel() - p2.getZVel()) * nz;
+
+		// Colliding pairs separate with normal speeds from a Rayleigh distribution
+		double reducedMass = KG_PER_AMU * p1.mass * p2.mass / (p1.mass + p2.mass);
+		double newNormalVelocity = Math.sqrt(-2.0 * Formulas.BOLTZMANN_CONST * t.getTargetTemperature()
+				/ reducedMass * Math.log(1.0 - t.getRandom().nextDouble()));
+		if (normalVelocity < 0.0) {
+			newNormalVelocity = -newNormalVelocity;
+		}
+
+		double change = newNormalVelocity - normalVelocity;
+		double totalMass = p1.mass + p2.mass;
+		double change1 = change * p2.mass / totalMass;
+		double change2 = -change * p1.mass / totalMass;
+		p1.setVelocity(p1.getXVel() + change1 * nx, p1.getYVel() + change1 * ny, p1.getZVel() + change1 * nz);
+		p2.setVelocity(p2.getXVel() + change2 * nx, p2.getYVel() + change2 * ny, p2.getZVel() + change2 * nz);
+		return true;
+	}
+
+	public double endFrame(Thermostat t, List<Particle> particles) {
+		return 1.0;
+	}
+
+	private static double nearestImage(double separation, double arenaSize) {
+		if (arenaSize <= 0.0) {
+			return separation;
+		}
+		return separation - arenaSize * Math.rint(separation / arenaSize);
+	}
+}
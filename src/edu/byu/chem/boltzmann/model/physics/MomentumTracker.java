@@ -0,0 +1,117 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.physics;
+
+import edu.byu.chem.boltzmann.utils.Units;
+import edu.byu.chem.boltzmann.utils.Units.Energy;
+import java.util.List;
+
+/**
+ * Running totals of the momentum and kinetic energy of all the particles.
+ *
+ * Physics takes each particle's contribution out before an event changes its
+ * velocity and puts it back afterwards, so the totals stay current at the cost
+ * of a few multiplications per event instead of a pass over every particle.
+ * Anything that changes velocities outside of events (velocity rescaling,
+ * drift removal, resets) has to call recompute() or shift() to keep them in step.
+ *
+ * All methods must be called from the physics thread.
+ */
+class MomentumTracker {
+
+    // Totals in amu m/s and AMU_JOULE
+    private double xMom = 0.0;
+    private double yMom = 0.0;
+    private double zMom = 0.0;
+    private double kineticEnergy = 0.0;
+    private double totalMass = 0.0;
+
+    /** Adds particle's momentum and kinetic energy to the totals */
+    void add(Particle particle) {
+        accumulate(particle, 1.0);
+    }
+
+    /** Takes particle's momentum and kinetic energy out of the totals */
+    void remove(Particle particle) {
+        accumulate(particle, -1.0);
+    }
+
+    private void accumulate(Particle particle, double sign) {
+        double mass = particle.mass;
+        double xVel = particle.getXVel();
+        double yVel = particle.getYVel();
+        double zVel = particle.getZVel();
+        double weight = sign * mass;
+        xMom += weight * xVel;
+        yMom += weight * yVel;
+        zMom += weight * zVel;
+        kineticEnergy += 0.5 * weight * (xVel * xVel + yVel * yVel + zVel * zVel);
+    }
+
+    /**
+     * Sums the totals again from scratch. Also clears any rounding error
+     * collected by add() and remove().
+     */
+    void recompute(List<Particle> particles) {
+        xMom = 0.0;
+        yMom = 0.0;
+        zMom = 0.0;
+        kineticEnergy = 0.0;
+        totalMass = 0.0;
+        for (Particle particle: particles) {
+            add(particle);
+            totalMass += particle.mass;
+        }
+    }
+
+    /**
+     * Updates the totals for every particle's velocity having changed by
+     * (dvx, dvy, dvz) m/s.
+     */
+    void shift(double dvx, double dvy, double dvz) {
+        // KE' = KE + v.P + M v^2 / 2 for a uniform velocity change v
+        kineticEnergy += dvx * xMom + dvy * yMom + dvz * zMom
+                + 0.5 * totalMass * (dvx * dvx + dvy * dvy + dvz * dvz);
+        xMom += totalMass * dvx;
+        yMom += totalMass * dvy;
+        zMom += totalMass * dvz;
+    }
+
+    /** Total x momentum in amu m/s */
+    double getXMom() {
+        return xMom;
+    }
+
+    double getYMom() {
+        return yMom;
+    }
+
+    double getZMom() {
+        return zMom;
+    }
+
+    /** Total mass of the particles in amu */
+    double getTotalMass() {
+        return totalMass;
+    }
+
+    /** Total kinetic energy in joules */
+    double getKineticEnergy() {
+        return Units.convert(Energy.AMU_JOULE, Energy.JOULE, kineticEnergy);
+    }
+}
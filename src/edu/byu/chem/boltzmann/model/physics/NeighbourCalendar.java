@@ -0,0 +1,182 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.physics;
+
+/**
+ * Event calendar for 1D simulations that only holds events a particle can
+ * actually have: one boundary event per particle and one event per pair of
+ * neighbours (see ParticleOrder1D), 2N events instead of the N^2 of Calendar.
+ *
+ * The events are kept in an indexed binary heap, so updating an event and
+ * taking the soonest one are both O(log N). The heap is always in order, so
+ * MarkEventToUpdate and FindMinimum have nothing to do.
+ */
+class NeighbourCalendar implements EventCalendar {
+
+    private final ParticleOrder1D order;
+
+    /** Slot 2i holds particle i's boundary event, slot 2i + 1 the event of pair slot i */
+    private final EventInfo[] events;
+    /** Heap of slots ordered by event time */
+    private final int[] heap;
+    /** Position of each slot in heap */
+    private final int[] heapPosition;
+    /** Returned by NextEvent, see EventCalendar */
+    private final EventInfo nextEvent = new EventInfo();
+
+    NeighbourCalendar(ParticleOrder1D order) {
+        this.order = order;
+        int numSlots = 2 * order.size();
+        events = new EventInfo[numSlots];
+        heap = new int[numSlots];
+        heapPosition = new int[numSlots];
+
+        for (int particle = 0; particle < order.size(); particle++) {
+            events[boundarySlot(particle)] = new EventInfo(Collision.WALL, Calendar.MAXTIME, particle, 0, 0);
+
+            int rightNeighbour = order.getRight(particle);
+            int part1 = (rightNeighbour == ParticleOrder1D.NO_NEIGHBOUR) ? particle : Math.min(particle, rightNeighbour);
+            int part2 = (rightNeighbour == ParticleOrder1D.NO_NEIGHBOUR) ? particle : Math.max(particle, rightNeighbour);
+            events[pairSlot(particle)] = new EventInfo(Collision.PARTICLE, Calendar.MAXTIME, part1, part2, 0);
+        }
+        for (int slot = 0; slot < numSlots; slot++) {
+            heap[slot] = slot;
+            heapPosition[slot] = slot;
+        }
+    }
+
+    private static int boundarySlot(int particle) {
+        return 2 * particle;
+    }
+
+    private static int pairSlot(int leftParticle) {
+        return 2 * leftParticle + 1;
+    }
+
+    private static boolean isPairEvent(int colType) {
+        return colType == Collision.PARTICLE
+                || colType == Collision.ENTER_WELL
+                || colType == Collision.EXIT_WELL
+                || colType == Collision.WELL_REFLECT;
+    }
+
+    public double NextEventTime() {
+        if (heap.length == 0) {
+            return Calendar.MAXTIME;
+        }
+        return events[heap[0]].colTime;
+    }
+
+    public EventInfo NextEvent() {
+        if (heap.length == 0) {
+            nextEvent.set(-1, Calendar.MAXTIME, -1, -1, -1);
+            return nextEvent;
+        }
+        int slot = heap[0];
+        nextEvent.copy(events[slot]);
+
+        // As in Calendar, make sure the event isn't taken again unless it is predicted again
+        events[slot].colTime = Calendar.MAXTIME;
+        siftDown(0);
+        return nextEvent;
+    }
+
+    public void MarkEventToUpdate(EventInfo event) {
+    }
+
+    public void Update(int colType, int part1, int part2, int side, double colTime) {
+        int slot;
+        if (isPairEvent(colType)) {
+            if (part1 == part2) {
+                return;
+            }
+            int pair = order.getPairSlot(part1, part2);
+            if (pair == ParticleOrder1D.NO_NEIGHBOUR) {
+                throw new IllegalArgumentException("Particles " + part1 + " and " + part2 + " are not neighbours");
+            }
+            slot = pairSlot(pair);
+        } else {
+            slot = boundarySlot(part1);
+        }
+
+        EventInfo event = events[slot];
+        double oldTime = event.colTime;
+        event.colType = colType;
+        event.colTime = colTime;
+        event.side = side;
+
+        if (colTime < oldTime) {
+            siftUp(heapPosition[slot]);
+        } else if (colTime > oldTime) {
+            siftDown(heapPosition[slot]);
+        }
+    }
+
+    public void ScaleEventTimes(double time, double factor) {
+        // The heap stays in order because the order doesn't change
+        for (EventInfo event: events) {
+            if (event.colTime != Calendar.MAXTIME) {
+                event.colTime = time + (event.colTime - time) * factor;
+            }
+        }
+    }
+
+    public void FindMinimum() {
+    }
+
+    private void siftUp(int position) {
+        int slot = heap[position];
+        double time = events[slot].colTime;
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            int parentSlot = heap[parent];
+            if (events[parentSlot].colTime <= time) {
+                break;
+            }
+            heap[position] = parentSlot;
+            heapPosition[parentSlot] = position;
+            position = parent;
+        }
+        heap[position] = slot;
+        heapPosition[slot] = position;
+    }
+
+    private void siftDown(int position) {
+        int slot = heap[position];
+        double time = events[slot].colTime;
+        int size = heap.length;
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && events[heap[child + 1]].colTime < events[heap[child]].colTime) {
+                child++;
+            }
+            int childSlot = heap[child];
+            if (events[childSlot].colTime >= time) {
+                break;
+            }
+            heap[position] = childSlot;
+            heapPosition[childSlot] = position;
+            position = child;
+        }
+        heap[position] = slot;
+        heapPosition[slot] = position;
+    }
+}
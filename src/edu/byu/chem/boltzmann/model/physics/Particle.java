@@ -19,6 +19,7 @@ package edu.byu.chem.boltzmann.model.physics;
 
 import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
 import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import edu.byu.chem.boltzmann.utils.data.ReactionTable;
 import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
 import java.awt.Color;
 import java.util.Map;
@@ -91,6 +92,12 @@ public abstract class Particle {
         public Map<Class<? extends Statistic>, String> statisticUpdateMethods;
 
         private Color color;
+
+        /** Id of the species the particle currently is, see ReactionTable */
+        private int species;
+        private final int startSpecies;
+        /** Reactions this particle can take part in, null if not in reaction mode */
+        protected final ReactionTable reactions;
         
         public Particle() {
             this.particleType = null;
@@ -101,6 +108,8 @@ public abstract class Particle {
             this.energyWellDepth = 0.0;
 
             this.simulationInfo = null;            
+            this.startSpecies = 0;
+            this.reactions = null;
         }
 
         public Particle(ParticleType particleType, SimulationInfo simulationInfo) {
@@ -118,6 +127,9 @@ public abstract class Particle {
 
             this.simulationInfo = simulationInfo;
 
+            this.startSpecies = simulationInfo.getSpeciesId(particleType);
+            this.species = startSpecies;
+            this.reactions = simulationInfo.getReactionTable();
         }
 		
 	public Color getDisplayColor() {
@@ -136,6 +148,52 @@ public abstract class Particle {
             color = newColor;
         }
 
+        public int getSpecies() {
+            return species;
+        }
+
+        /** Changes the particle to the given species, taking on its color */
+        public void setSpecies(int newSpecies) {
+            species = newSpecies;
+            color = reactions.getSpeciesColor(newSpecies);
+        }
+
+        /** Puts the particle back to the species it started as */
+        protected void resetSpecies() {
+            species = startSpecies;
+            if (particleType != null) {
+                color = particleType.defaultColor;
+            }
+        }
+
+        /**
+         * Finds the reaction, if any, that happens in the given collision with
+         * target.
+         *
+         * @param relativeEnergy kinetic energy of relative motion along the line
+         * of centers, in amu·m^2/s^2
+         * @return the reaction, or ReactionTable.NO_REACTION
+         */
+        protected int findReaction(Particle target, EventInfo event, double relativeEnergy) {
+            if (reactions == null || event.colType != Collision.PARTICLE) {
+                return ReactionTable.NO_REACTION;
+            }
+            return reactions.findReaction(species, target.species, relativeEnergy);
+        }
+
+        /**
+         * Turns this particle and target into the products of reaction and records
+         * the change in blue particles on event.
+         *
+         * @return Energy taken from relative motion in amu·m^2/s^2
+         */
+        protected double react(Particle target, int reaction, EventInfo event) {
+            setSpecies(reactions.getProduct1(reaction));
+            target.setSpecies(reactions.getProduct2(reaction));
+            event.setDeltaBlue(reactions.getDeltaBlue(reaction));
+            return reactions.getEnergyChange(reaction);
+        }
+
 
 	//Methods that are dimension dependent - these methods are used in the main
 	//physics code of predicting/performing events and need to be optimized for
@@ -159,6 +217,10 @@ public abstract class Particle {
 
 	public abstract void adjust(double fudgeFactor);
 
+	//Used by the thermostats to give the particle a new velocity; components
+	//the particle doesn't have in its dimension are ignored
+	public abstract void setVelocity(double xVel, double yVel, double zVel);
+
 	//These following 6 methods are used to zero the momentum in periodic boundary conditions
 	public abstract void adjust(double xAdj, double yAdj, double zAdj);
 
@@ -173,6 +235,9 @@ public abstract class Particle {
 
 	public abstract PartState getState(PartState returnState);
 
+	/** Writes this particle's current state into states at index */
+	public abstract void getState(ParticleStates states, int index);
+
 	public abstract void moveToTime (double time);
 		//This function simply moves the particle from the current position
 		//at t0 to the new position at time newTime following the classical
@@ -192,9 +257,9 @@ public abstract class Particle {
 		//variables must be set by the prediction code, this is primarily due to
 		//the fact that the particles don't know their index in the particle array
 
-	public abstract EventInfo predPistonCol(Piston piston);
-	
-	public abstract EventInfo predBoundaryCol(Piston piston, boolean holeOpen);
+	public abstract EventInfo predBoundaryCol(Piston piston, boolean holeOpen, boolean crossings);
+		//Note: returns an event owned by the particle which the next
+		//prediction overwrites, so callers copy out what they need first
 		//Returns time of soonest collision with a wall, boundary or barrier as
 		//well as what type of boundary and which side is collided with
 
@@ -203,7 +268,8 @@ public abstract class Particle {
 		//and performs the collision.  In periodic boundaries, the info in event.side
 		//is used to collide with the correct image
 
-	public abstract void boundaryCollide(EventInfo event, Piston piston, Thermostat thermostat);
+	public abstract void boundaryCollide(EventInfo event, Piston piston, Thermostat thermostat,
+			HeatReservoirFlux reservoirFlux);
 		//Moves this particle to the collision time and performs the appropriate
 		//boundary collision
 
@@ -243,4 +309,7 @@ public abstract class Particle {
         }
         
         public static final EventInfo NULL_LAST_COLLISION = new EventInfo(Collision.PARTICLE, Calendar.MINTIME, 0, 0, 0);
+
+        /** Returned by predBoundaryCol */
+        protected final EventInfo boundaryEvent = new EventInfo(Collision.BOUNDARY, Calendar.MAXTIME, 0, 0, 0);
 }
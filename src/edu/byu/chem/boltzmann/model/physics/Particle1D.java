@@ -19,13 +19,11 @@ package edu.byu.chem.boltzmann.model.physics;
 
 import edu.byu.chem.boltzmann.utils.Units;
 import edu.byu.chem.boltzmann.utils.data.ParticleType;
-import edu.byu.chem.boltzmann.utils.data.ReactionRelationship;
+import edu.byu.chem.boltzmann.utils.data.ReactionTable;
 import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
 import edu.byu.chem.boltzmann.utils.data.SimulationInfo.ArenaType;
 import edu.byu.chem.boltzmann.utils.Units.Energy;
 import edu.byu.chem.boltzmann.model.statistics.Formulas;
-import java.awt.Color;
-import java.util.HashSet;
 
 /* Proposed package: boltzmann.physics */
 /* Used by: Physics */
@@ -159,6 +157,8 @@ public class Particle1D extends Particle {
         private EventInfo particleCollision = new EventInfo(Collision.PARTICLE, Calendar.MINTIME, 0, 0, 0);
         private EventInfo enterWellCollision = new EventInfo(Collision.ENTER_WELL, Calendar.MINTIME, 0, 0, 0);
         private EventInfo exitWellCollision = new EventInfo(Collision.EXIT_WELL, Calendar.MINTIME, 0, 0, 0);
+        private final EventInfo[] periodicImages = {new EventInfo(), new EventInfo()};
+        private static final EventInfo NO_LAST_COLLISION = new EventInfo(Collision.EXIT_WELL, Calendar.MINTIME, 0, 0, 0);
                 
 	/** 
 	 * Returns time of collision with referenced particle and (possibly) a flag
@@ -219,7 +219,7 @@ public class Particle1D extends Particle {
                         //If these particles haven't collided yet, we can pretend their last collision was when
                         //they exited their potential energy well
 			if (lastCollision == null){
-				lastCollision = new EventInfo(Collision.EXIT_WELL, Calendar.MINTIME, 0, 0, 0);
+				lastCollision = NO_LAST_COLLISION;
 			}
 			lastCollisionType = lastCollision.colType; //Last collision between the two particles
 
@@ -246,7 +246,7 @@ public class Particle1D extends Particle {
 			   // soonest collision of all the images
 
 			// at most 2 images in 1D
-			EventInfo image[] = new EventInfo[2];
+			EventInfo image[] = periodicImages;
 			int numToCheck = 0;
 			boolean checkX = false;
 			// x adjustment for image
@@ -258,7 +258,7 @@ public class Particle1D extends Particle {
 			// to indicate that an image is needed, then the actual bFlags can be checked to choose which image
 
 			// first image is the 'normal' particle
-			image[numToCheck++] = new EventInfo(Collision.PARTICLE, PredCol(dX, dVx, Dc, currTime), 0, 0, 0);
+			image[numToCheck++].set(Collision.PARTICLE, PredCol(dX, dVx, Dc, currTime), 0, 0, 0);
 
 			// images to be checked depend on boundary flags - if either this or target is on the boundary
 			// (but not both!) check the image
@@ -269,7 +269,7 @@ public class Particle1D extends Particle {
 			if (checkX) {
 				xAdj = ((this.bFlag & Wall.LEFT) == Wall.LEFT) ? simulationInfo.arenaXSize : -simulationInfo.arenaXSize;
 				
-				image[numToCheck++] = new EventInfo(Collision.PARTICLE,
+				image[numToCheck++].set(Collision.PARTICLE,
 					PredCol(dX+xAdj, dVx, Dc, currTime), 0, 0, xSide);
 			}
 
@@ -283,8 +283,6 @@ public class Particle1D extends Particle {
 			}
 		}
 
-                predictedCollision.particlesInvolved[0] = this;
-                predictedCollision.particlesInvolved[1] = other;
                 
 		if (predictedCollision.colTime < currTime) {
 			// formerly misc.guiPtr.reportError
@@ -359,134 +357,11 @@ public class Particle1D extends Particle {
                 return (dt >= 0)? currt0+dt : Calendar.MAXTIME;
 	}
 	
-	public EventInfo predPistonCol(Piston piston)
-	{
-		EventInfo event = null;
-		double colTime = Calendar.MAXTIME;
-		int side = Wall.RIGHT;
-		
-		double dC = getRadius();
-		double dX = x - piston.getPositionAtTime(this.t0);
-		double dVx = xVel - piston.getVelocityAtTime(this.t0);
-		
-		colTime = PredCol(dX, dVx, dC, t0);
-		
-		if(piston.isMoving(this.t0) && !piston.isMoving(colTime) && this.xVel > 0)
-		{
-			dVx = xVel;
-			dX = x - piston.getStopPosition();
-			colTime = PredCol(dX, dVx, dC, t0);	
-		}
-		event = new EventInfo(Collision.PISTON, colTime , 0, 0, side);
-		
-		return event;	
-	}
-
-	public EventInfo predBoundaryCol(Piston piston, boolean arenaHoleOpen) {
-		// Returns time of soonest collision with a wall, boundary or barrier as
-		// well as what it is that is collided with
-
-		EventInfo event = null;
-		EventInfo boundary[] = new EventInfo[2];
-		double colTime=Calendar.MAXTIME;
-		int side=0, numToCheck = 0;
-
-		if (simulationInfo.arenaType == ArenaType.PERIODIC_BOUNDARIES) {
-			// check for boundary collisions and (possibly) end of boundary events
-
-			// it's possible for the vel component to be 0 which needs to trigger a MAXTIME
-			// this is easy in 1D
-			if (xVel == 0) {
-				boundary[numToCheck++] = new EventInfo(Collision.BOUNDARY, Calendar.MAXTIME, 0, 0, 0);
-			}
-			else {
-				// x direction
-				if ((bFlag & Wall.LEFT) == Wall.LEFT) { //check for EOB
-					if (xVel < 0) {
-						side = Wall.LEFT;
-						colTime = (x+radius) / (-xVel);
-					}
-					else { // xVel > 0
-						side = Wall.RIGHT;
-						colTime = (radius-x) / xVel;
-					}
-					boundary[numToCheck++] = new EventInfo(Collision.EOB, t0+colTime, 0, 0, side);
-				}
-				else { //check for boundary collision
-					if (xVel < 0) {
-						side = Wall.LEFT;
-						colTime = (radius-x) / xVel; //=(x-radius)/(-xVel) don't need negate if we swap the top order
-					}
-					else { //xVel > 0
-						side = Wall.RIGHT;
-						colTime = (simulationInfo.arenaXSize-radius-x)/xVel;
-					}
-					boundary[numToCheck++] = new EventInfo(Collision.BOUNDARY, t0+colTime, 0, 0, side);
-				}
-			}//xvel==0 check
-		}
-		else { //check for wall and barrier collisions
-			//check the normal walls
-
-			// it's possible for the vel component to be 0 which needs to trigger a MAXTIME
-			// this is easy in 1D
-			if (xVel==0) {
-				boundary[numToCheck++] = new EventInfo(Collision.WALL, Calendar.MAXTIME, 0, 0, 0);
-			}
-			else {
-				//x direction
-				if (xVel < 0) {
-					side = Wall.LEFT;
-					colTime = (radius-x)/xVel; //=(x-radius)/(-xVel) don't need negate if we swap the top order
-				}
-				else { //xVel > 0
-					side = Wall.RIGHT;
-					colTime = (simulationInfo.arenaXSize-radius-x)/xVel;
-				}
-				boundary[numToCheck++] = new EventInfo(Collision.WALL, t0+colTime, 0, 0, side);
-
-				if(simulationInfo.arenaType == ArenaType.MOVABLE_PISTON)	{
-					boundary[numToCheck++] = this.predPistonCol(piston);
-				}
-				
-				//check the barrier
-                                double barrierLeftX = arena.barrierLeftX;
-                                double barrierRightX = arena.barrierRightX;
-				if (simulationInfo.arenaType == ArenaType.DIVIDED_ARENA ||
-                                        simulationInfo.arenaType == ArenaType.DIVIDED_ARENA_WITH_HOLE) {
-					side = -1;
-					if (x <= barrierLeftX-radius && xVel > 0) {
-						//collision with left of barrier
-						side = Wall.LEFT;
-						colTime = (barrierLeftX-radius-x)/xVel;
-					}
-					else if (x >= barrierRightX+radius && xVel < 0) {
-						//collision with right of barrier
-						side = Wall.RIGHT;
-						colTime = (barrierRightX+radius-x)/xVel; //=(x-radius-barrierRightX)/-xVel
-					}
-
-					// hole in a 1D barrier is invalid, so no need to check that case
-					if (side != -1) //divideStatus=FULL so always create an event if moving towards barrier
-						boundary[numToCheck++] = new EventInfo(Collision.BARRIER, t0+colTime, 0, 0, side);
-				}
-			}//xvel==0 check
-		}
-
-		//Note: all colTime's need to be corrected since they currently only hold the time relative to t0
-		event = boundary[0];
-		if (numToCheck==2) {
-			if (boundary[1].colTime < event.colTime)
-				event = boundary[1];
-		}
-
-                event.particlesInvolved[0] = this;
-                
-		if (event.colTime < t0) {
-			//misc.guiPtr.reportError("Boundary collision predicted in the past", new RuntimeException("Particle1D:predBoundaryCol, event.colTime<currTime"));
-			throw new RuntimeException("Boundary collision predicted in the past");
-		}
-		return event;
+	public EventInfo predBoundaryCol(Piston piston, boolean holeOpen, boolean crossings) {
+		//Returns time of soonest collision with a wall, boundary, barrier or piston
+		//as well as what it is that is collided with (see BoundaryGeometry)
+		return arena.boundaries.predict(boundaryEvent, x, 0, 0, xVel, 0, 0,
+				radius, t0, bFlag, piston, holeOpen, crossings);
 	}
 
 	/** Moves this and referenced particle to given time and performs the collision */
@@ -507,7 +382,6 @@ public class Particle1D extends Particle {
                 double combinedMass = mass + targetMass;
 		double reducedMass=((mass * target.mass) / (combinedMass));
                 double relativeEnergy = Formulas.kineticEnergy(reducedMass, relativeVelocity);
-                double eRel = Units.convert(Energy.AMU_JOULE, Energy.KILOJOULE_PER_MOLE, relativeEnergy);
 //		double eRel=0.5*reducedMass*vRelSquared * Units.AMU * Units.AVAG / 1.0E3;
 
 		double rmsVel = 0.0; //Units.toSim(Units.VELOCITY, getMain().getPredictor().getPrediction(Const.RMSVEL, getMain().statColor, false).avg, simulationInfo.dimension);
@@ -516,35 +390,12 @@ public class Particle1D extends Particle {
 		//System.out.println("avgERel = " + avgERel);
 		
 		double deltaE;
-		// Reaction: red to blue
-                Color thisColor = getDisplayColor();
-                Color targetColor = target.getDisplayColor();
-                
-                if (simulationInfo.reactionMode && (event.colType == Collision.PARTICLE)) {
-                    ReactionRelationship redToBlue = simulationInfo.getReactionRelationship(new HashSet<ParticleType>(simulationInfo.getParticleTypes()));
-                    Color type0Color = simulationInfo.getParticleTypes().get(0).defaultColor;
-                    Color type1Color = simulationInfo.getParticleTypes().get(1).defaultColor;
-
-                    if (simulationInfo.reactionMode && (thisColor.equals(type0Color)) && (targetColor.equals(type0Color)) && (eRel > redToBlue.forwardActivationEnergy)) {
-                            deltaE = redToBlue.forwardActivationEnergy - redToBlue.reverseActivationEnergy;
-                            deltaE = Units.convert(Energy.KILOJOULE_PER_MOLE, Energy.AMU_JOULE, deltaE);
-
-                            this.setColor(type1Color);
-                            target.setColor(type1Color);
-                            event.setDeltaBlue(+2); // update blue count cumulative statistics
-                    } else if (simulationInfo.reactionMode && (thisColor.equals(type1Color)) && (targetColor.equals(type1Color)) && (eRel > redToBlue.reverseActivationEnergy) && !redToBlue.suppressReverseReaction) {
-                            deltaE = redToBlue.reverseActivationEnergy - redToBlue.forwardActivationEnergy;
-                            deltaE = Units.convert(Energy.KILOJOULE_PER_MOLE, Energy.AMU_JOULE, deltaE);
-
-                            this.setColor(type0Color);
-                            target.setColor(type0Color);
-                            event.setDeltaBlue(-2); // update blue count cumulative statistics
-                    } else {
-                            deltaE = 0;
-                    }
-                } else {
-                    deltaE = 0;
-                }
+		int reaction = findReaction(target, event, relativeEnergy);
+		if (reaction != ReactionTable.NO_REACTION) {
+			deltaE = react(target, reaction, event);
+		} else {
+			deltaE = 0;
+		}
 
 		if (deltaE == 0) { //No change in energy due to a reaction
                     //The energy in the particle's square well
@@ -630,7 +481,8 @@ public class Particle1D extends Particle {
 	 * Moves this particle to the collision time and performs the appropriate
 	 * boundary collision
 	 */
-	public void boundaryCollide(EventInfo event, Piston piston, Thermostat thermostat) {
+	public void boundaryCollide(EventInfo event, Piston piston, Thermostat thermostat,
+			HeatReservoirFlux reservoirFlux) {
 
 		// set the time variables
   		double dt = event.colTime - t0;
@@ -661,17 +513,9 @@ public class Particle1D extends Particle {
 				}
 				break;
 			case Collision.BARRIER:
-				switch (event.side) {
-					case Wall.LEFT:
-                                                double barrierLeftX = arena.barrierLeftX;
-						x = barrierLeftX-radius;
-						xVel = -xVel * velAdjust;
-						break;
-					case Wall.RIGHT:
-                                                double barrierRightX = arena.barrierRightX;
-						x = barrierRightX+radius;
-						xVel = -xVel * velAdjust;
-				}
+				//put the particle against the face of the barrier it hit
+				x = arena.boundaries.getSlabContact(event.side, radius);
+				xVel = -xVel * velAdjust;
 				break;
 			case Collision.EDGE:
 				//hole in 1D barrier not valid, so no edge event should occur
@@ -748,6 +592,10 @@ public class Particle1D extends Particle {
 		return returnState;
     }
 
+    public void getState(ParticleStates states, int index) {
+        states.set(index, x, 0.0, 0.0, xVel, 0.0, 0.0, getDisplayColor(), bFlag);
+    }
+
     public double getX()  {
 		return x;
     }
@@ -792,6 +640,10 @@ public class Particle1D extends Particle {
 		xVel *= fudgeFactor;
 	}
 
+    public void setVelocity(double xVel, double yVel, double zVel) {
+		this.xVel = xVel;
+	}
+
     public double getXMom() {
                 double mass = getMass();
 		return xVel*mass;
@@ -842,6 +694,7 @@ public class Particle1D extends Particle {
 
     @Override
     public void reset() {
+        resetSpecies();
         x = startX;
         xVel = startXVel;
 
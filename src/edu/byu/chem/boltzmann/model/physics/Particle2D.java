@@ -19,14 +19,12 @@ package edu.byu.chem.boltzmann.model.physics;
 
 import edu.byu.chem.boltzmann.utils.Units;
 import edu.byu.chem.boltzmann.utils.data.ParticleType;
-import edu.byu.chem.boltzmann.utils.data.ReactionRelationship;
+import edu.byu.chem.boltzmann.utils.data.ReactionTable;
 import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
 import edu.byu.chem.boltzmann.utils.data.SimulationInfo.ArenaType;
 import edu.byu.chem.boltzmann.utils.Units.Energy;
 import edu.byu.chem.boltzmann.model.statistics.Formulas;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
-import java.awt.Color;
-import java.util.HashSet;
 
 /**********
  * Particle Class
@@ -165,6 +163,7 @@ public class Particle2D extends Particle {
         private EventInfo particleCollision = new EventInfo(Collision.PARTICLE, Calendar.MINTIME, 0, 0, 0);
         private EventInfo enterWellCollision = new EventInfo(Collision.ENTER_WELL, Calendar.MINTIME, 0, 0, 0);
         private EventInfo exitWellCollision = new EventInfo(Collision.EXIT_WELL, Calendar.MINTIME, 0, 0, 0);
+        private final EventInfo[] periodicImages = {new EventInfo(), new EventInfo(), new EventInfo(), new EventInfo()};
                 
 	public void predCol(Particle targetParticle, EventInfo lastCollision, EventInfo returnCollision) {
                 Particle2D target = (Particle2D) targetParticle;
@@ -248,7 +247,7 @@ public class Particle2D extends Particle {
 			   //soonest collision of all the images
 
 			//at most 4 images in 2D
-			EventInfo image[] = new EventInfo[4];
+			EventInfo image[] = periodicImages;
 			int numToCheck = 0;
 			boolean checkX=false, checkY=false;
 			double xAdj=0, yAdj=0;
@@ -258,7 +257,7 @@ public class Particle2D extends Particle {
 			//to indicate that an image is needed, then the actual bFlags can be checked to choose which image
 
 			//first image is the 'normal' particle
-			image[numToCheck++] = new EventInfo(Collision.PARTICLE, PredCol(dX, dY, dVx, dVy, Dc, currTime), 0, 0, 0);
+			image[numToCheck++].set(Collision.PARTICLE, PredCol(dX, dY, dVx, dVy, Dc, currTime), 0, 0, 0);
 
 			//images to be checked depend on boundary flags - if either this or target is on the boundary
 			//(but not both!) check the image
@@ -270,20 +269,20 @@ public class Particle2D extends Particle {
 			//check x image
 			if (checkX) {
 				xAdj = ((this.bFlag & Wall.LEFT)==Wall.LEFT) ? simulationInfo.arenaXSize : -simulationInfo.arenaXSize;
-				image[numToCheck++] = new EventInfo(Collision.PARTICLE,
+				image[numToCheck++].set(Collision.PARTICLE,
 					PredCol(dX+xAdj, dY, dVx, dVy, Dc, currTime), 0, 0, xSide);
 			}
 
 			//check y image
 			if (checkY) {
 				yAdj = ((this.bFlag & Wall.BOTTOM)==Wall.BOTTOM) ? simulationInfo.arenaYSize : -simulationInfo.arenaYSize;
-				image[numToCheck++] = new EventInfo(Collision.PARTICLE,
+				image[numToCheck++].set(Collision.PARTICLE,
 					PredCol(dX, dY+yAdj, dVx, dVy, Dc, currTime), 0, 0, ySide);
 			}
 
 			//check combined image
 			if (checkX && checkY) {
-				image[numToCheck++] = new EventInfo(Collision.PARTICLE,
+				image[numToCheck++].set(Collision.PARTICLE,
 					PredCol(dX+xAdj, dY+yAdj, dVx, dVy, Dc, currTime), 0, 0, (xSide | ySide));
 			}
 
@@ -295,8 +294,6 @@ public class Particle2D extends Particle {
 			}
 		}
 
-                returnCollision.particlesInvolved[0] = this;
-                returnCollision.particlesInvolved[1] = targetParticle;
                 
 		if (returnCollision.colTime < currTime) {
 			//misc.guiPtr.reportError("Particle-Particle collision predicted in the past", new RuntimeException("Particle2D:predCol, event.colTime<currTime"));
@@ -374,229 +371,11 @@ public class Particle2D extends Particle {
                 return (dt >= 0)? currt0+dt : Calendar.MAXTIME;
 	}
 	
-	public EventInfo predPistonCol(Piston piston)
-	{
-		EventInfo event = null;
-		double colTime = Calendar.MAXTIME;
-		int side = Wall.BOTTOM;
-		
-		double dC = getRadius();
-		double dX = 0.0;
-		double dY =  y - piston.getPositionAtTime(this.t0);//piston.getPosition() + piston.getVelocity()*(this.t0 - piston.getT0());;
-		double dVx = 0.0;
-		double dVy = yVel - piston.getVelocityAtTime(this.t0);
-		
-		// Calculate the collision given the piston and particle's state at t0 
-		colTime = PredCol(dX, dY, dVx, dVy, dC, t0);
-		
-		// If the piston was moving, but by the calculated collision time has stopped,
-		//		and the particle was heading toward the piston, we need to recalculate
-		if(piston.isMoving(this.t0) && !piston.isMoving(colTime) && this.yVel > 0)
-		{
-			dVy = yVel;
-			dY = y - piston.getStopPosition();
-			colTime = PredCol(dX, dY, dVx, dVy, dC, t0);	
-		}
-		
-		event = new EventInfo(Collision.PISTON, colTime , 0, 0, side);
-		
-		return event;
-	}
-
-	public EventInfo predBoundaryCol(Piston piston, boolean holeOpen) {
-		//Returns time of soonest collision with a wall, boundary or barrier as
-		//well as what it is that is collided with
-
-		EventInfo event = null;
-		EventInfo boundary[] = new EventInfo[simulationInfo.dimension+1+arena.numEdgePart]; //+1=barrier
-		double colTime=Calendar.MAXTIME;
-		int side=-1, numToCheck = 0;
-
-		if (simulationInfo.arenaType == ArenaType.PERIODIC_BOUNDARIES) {
-			//check for boundary collisions and (possibly) end of boundary events
-
-			//it's possible for the vel component to be 0 which needs to trigger a MAXTIME
-			if (xVel==0) {
-				boundary[numToCheck++] = new EventInfo(Collision.BOUNDARY, Calendar.MAXTIME, 0, 0, 0);
-			}
-			else {
-				//x direction
-				if ((bFlag & Wall.LEFT)==Wall.LEFT) { //check for EOB
-					if (xVel < 0) {
-						side = Wall.LEFT;
-						colTime = (x+radius)/(-xVel);
-					}
-					else { //xVel > 0
-						side = Wall.RIGHT;
-						colTime = (radius-x)/xVel;
-					}
-					boundary[numToCheck++] = new EventInfo(Collision.EOB, t0+colTime, 0, 0, side);
-				}
-				else { //check for boundary collision
-					if (xVel < 0) {
-						side = Wall.LEFT;
-						colTime = (radius-x)/xVel; //=(x-radius)/(-xVel) don't need negate if we swap the top order
-					}
-					else { //xVel > 0
-						side = Wall.RIGHT;
-						colTime = (simulationInfo.arenaXSize-radius-x)/xVel;
-					}
-					boundary[numToCheck++] = new EventInfo(Collision.BOUNDARY, t0+colTime, 0, 0, side);
-				}
-			}//xvel==0 check
-
-			//it's possible for the vel component to be 0 which needs to trigger a MAXTIME
-			if (yVel==0) {
-				boundary[numToCheck++] = new EventInfo(Collision.BOUNDARY, Calendar.MAXTIME, 0, 0, 0);
-			}
-			else {
-				//y direction
-				
-				if ((bFlag & Wall.BOTTOM)==Wall.BOTTOM) { //check for EOB
-					if (yVel < 0) {
-						side = Wall.BOTTOM;
-						colTime = (y+radius)/(-yVel);
-					}
-					else { //yVel > 0
-						side = Wall.TOP;
-						colTime = (radius-y)/yVel;
-						
-					}
-					boundary[numToCheck++] = new EventInfo(Collision.EOB, t0+colTime, 0, 0, side);
-				}
-				else { //check for boundary collision
-					if (yVel < 0) {
-						side = Wall.BOTTOM;
-						colTime = (radius-y)/yVel; //=(y-radius)/(-yVel) don't need negate if we swap the top order
-					}
-					else { //yVel > 0
-						side = Wall.TOP;
-						colTime = (simulationInfo.arenaYSize-radius-y)/yVel;
-					}
-					boundary[numToCheck++] = new EventInfo(Collision.BOUNDARY, t0+colTime, 0, 0, side);
-				}
-			}//yvel==0 check
-		}
-		else { //check for wall and barrier collisions		
-			//check the normal walls
-
-			//it's possible for the vel component to be 0 which needs to trigger a MAXTIME
-			if (xVel==0) {
-				boundary[numToCheck++] = new EventInfo(Collision.BOUNDARY, Calendar.MAXTIME, 0, 0, 0);
-			}
-			else {
-				//x direction
-				if (xVel < 0) {
-					side = Wall.LEFT;
-					colTime = (radius-x)/xVel; //=(x-radius)/(-xVel) don't need negate if we swap the top order
-				}
-				else { //xVel > 0
-					side = Wall.RIGHT;
-					colTime = (simulationInfo.arenaXSize-radius-x)/xVel;
-				}
-				boundary[numToCheck++] = new EventInfo(Collision.WALL, t0+colTime, 0, 0, side);
-			}
-
-			//it's possible for the vel component to be 0 which needs to trigger a MAXTIME
-			if (yVel==0) {
-				boundary[numToCheck++] = new EventInfo(Collision.BOUNDARY, Calendar.MAXTIME, 0, 0, 0);
-			}
-			else {
-				//y direction
-                                int colType = Collision.WALL;
-				if (yVel < 0) {
-					side = Wall.BOTTOM;
-					colTime = (radius-y)/yVel; //=(y-radius)/(-yVel) don't need negate if we swap the top order
-                                        if(simulationInfo.includeAttractiveWall){
-                                            double wellColTime = (simulationInfo.wallWellWidth - y) / yVel;
-                                            if (wellColTime > 0) {
-                                                colTime = wellColTime;
-                                                colType = Collision.ENTER_GRAVITY_WELL;
-                                            }
-                                        }
-				}
-				else { //yVel > 0
-					side = Wall.TOP;
-					colTime = (simulationInfo.arenaYSize-radius-y)/yVel;
-                                        if(simulationInfo.includeAttractiveWall){
-                                            double wellColTime = (simulationInfo.wallWellWidth - y) / yVel;
-                                            if(wellColTime > 0){
-                                                colTime = wellColTime;
-                                                colType = Collision.EXIT_GRAVITY_WELL;
-                                            }
-                                        }
-				}
-
-				boundary[numToCheck++] = new EventInfo(colType, t0+colTime, 0, 0, side);
-			}
-                        
-			if(simulationInfo.arenaType == ArenaType.MOVABLE_PISTON)	{
-				boundary[numToCheck++] = this.predPistonCol(piston);
-			}
-			//check the barrier
-			else if (simulationInfo.arenaType == ArenaType.DIVIDED_ARENA || simulationInfo.arenaType == ArenaType.DIVIDED_ARENA_WITH_HOLE ) {
-				side = -1;
-                                double barrierLeftX = 0.5 * (simulationInfo.arenaXSize) - SimulationInfo.ARENA_DIVIDER_RADIUS;
-                                double barrierRightX = 0.5 * (simulationInfo.arenaXSize) + SimulationInfo.ARENA_DIVIDER_RADIUS;
-				if (x <= barrierLeftX-radius && xVel > 0) {
-					//collision with left of barrier
-					side = Wall.LEFT;
-					colTime = (barrierLeftX-radius-x)/xVel;
-				}
-				else if (x >= barrierRightX+radius && xVel < 0) {
-					//collision with right of barrier
-					side = Wall.RIGHT;
-					colTime = (barrierRightX+radius-x)/xVel; //=(x-radius-barrierRightX)/-xVel
-				}				
-
-				//if we have a barrier collision, make sure it's not with the hole - and check
-				//collision with the edges while we're here
-				if (simulationInfo.arenaType == ArenaType.DIVIDED_ARENA_WITH_HOLE && 
-                                        (!simulationInfo.maxwellDemonMode || holeOpen)) {
-					//check the edges of the hole
-                                        double[] edgeY = arena.getEdgeY();
-					double Dc = radius + arena.edgeRadius;
-					double dVx = xVel, dVy = yVel;
-					double dX, dY;
-
-					for (int i=0; i<arena.numEdgePart; i++) {
-						//check collision with current edge particle
-						dX = x-arena.edgeX;
-                                                dY = y-edgeY[i];
-                                                boundary[numToCheck++] = new EventInfo(Collision.EDGE, PredCol(dX, dY, dVx, dVy, Dc, t0), 0, 0, i);
-                                        }
-
-					//double check that barrier collision is valid
-					if (side != -1) {
-                                            /**
-                                             * TODO possibly bad calculation for holeRad2 - Derek Manwaring Sep 2010
-                                             */
-                                                double holeRad2 = (simulationInfo.holeDiameter / 2.0) * (simulationInfo.holeDiameter / 2.0);
-						//get y position at time of collision - if no in the hole, count it
-						double yPos = (y + yVel*(colTime))-0.5f*simulationInfo.arenaYSize;
-						if (yPos*yPos >= holeRad2)
-							boundary[numToCheck++] = new EventInfo(Collision.BARRIER, t0+colTime, 0, 0, side);
-					}
-				} else if (side != -1) { //divideStatus=FULL so always create an event if moving towards barrier
-					boundary[numToCheck++] = new EventInfo(Collision.BARRIER, t0+colTime, 0, 0, side);
-                                }
-			}
-		}
-
-		//Note: all colTime's need to be corrected since they currently only hold the time relative to t0
-		event = boundary[0];
-		for (int i=1; i<numToCheck; i++) {
-			if (boundary[i].colTime < event.colTime)
-				event = boundary[i];
-		}
-
-                event.particlesInvolved[0] = this;
-                
-		if (event.colTime < t0) {
-			//misc.guiPtr.reportError("Boundary collision predicted in the past", new RuntimeException("Particle2D:predBoundaryCol, event.colTime<currTime"));
-			throw new RuntimeException("Boundary collision predicted in the past");
-		}
-		return event;
+	public EventInfo predBoundaryCol(Piston piston, boolean holeOpen, boolean crossings) {
+		//Returns time of soonest collision with a wall, boundary, barrier or piston
+		//as well as what it is that is collided with (see BoundaryGeometry)
+		return arena.boundaries.predict(boundaryEvent, x, y, 0, xVel, yVel, 0,
+				radius, t0, bFlag, piston, holeOpen, crossings);
 	}
 
 	public void collideWith(Particle targetParticle, EventInfo event)
@@ -671,7 +450,6 @@ public class Particle2D extends Particle {
                 double combinedMass = mass + targetMass;
 		double reducedMass=((mass * targetMass) / (combinedMass));
                 double relativeEnergy = Formulas.kineticEnergy(reducedMass, relativeVelocity);
-                double eRel = Units.convert(Energy.AMU_JOULE, Energy.KILOJOULE_PER_MOLE, relativeEnergy);
 //		double eRel=0.5*reducedMass*vRelSquared * Units.AMU * Units.AVAG / 1.0E3;
 
 //		double rmsVel = 0.0; //new Units(getMain()).toSim(Units.VELOCITY, getMain().getPredictor().getPrediction(Const.RMSVEL, getMain().statColor, false).avg, simulationInfo.dimension);
@@ -679,35 +457,9 @@ public class Particle2D extends Particle {
 //		AudioCore.getInstance().generateNote(eRel, avgERel);
 		
 		double deltaE;
-                Color thisColor = getDisplayColor();
-                Color targetColor = target.getDisplayColor();
-
-                if (simulationInfo.reactionMode && (event.colType == Collision.PARTICLE)) {
-                    Color type0Color = simulationInfo.getParticleTypes().get(0).defaultColor;
-                    Color type1Color = simulationInfo.getParticleTypes().get(1).defaultColor;
-                    ReactionRelationship redToBlue = simulationInfo.getReactionRelationship(new HashSet<ParticleType>(simulationInfo.getParticleTypes()));
-                    if (simulationInfo.reactionMode && (thisColor.equals(type0Color)) && (targetColor.equals(type0Color)) &&
-                            (eRel > redToBlue.forwardActivationEnergy)) {
-                            deltaE = redToBlue.forwardActivationEnergy - redToBlue.reverseActivationEnergy;
-                            deltaE = Units.convert(Energy.KILOJOULE_PER_MOLE, Energy.AMU_JOULE, deltaE);
-                            
-                            this.setColor(type1Color);
-                            target.setColor(type1Color);
-                            event.setDeltaBlue(2); // update blue count cumulative statistics
-                    }
-                    // Reaction: blue to red
-                    else if (simulationInfo.reactionMode && (thisColor.equals(type1Color)) && (targetColor.equals(type1Color)) &&
-                            (eRel > redToBlue.reverseActivationEnergy) && !redToBlue.suppressReverseReaction) {
-                            deltaE = redToBlue.reverseActivationEnergy - redToBlue.forwardActivationEnergy;
-                            deltaE = Units.convert(Energy.KILOJOULE_PER_MOLE, Energy.AMU_JOULE, deltaE);
-
-                            this.setColor(type0Color);
-                            target.setColor(type0Color);
-                            event.setDeltaBlue(-2); // update blue count cumulative statistics
-                    }
-                    else {
-                            deltaE=0;
-                    }
+                int reaction = findReaction(target, event, relativeEnergy);
+                if (reaction != ReactionTable.NO_REACTION) {
+                    deltaE = react(target, reaction, event);
                 } else {
                     deltaE = 0;
                 }
@@ -800,7 +552,8 @@ public class Particle2D extends Particle {
 	    target.t0 = event.colTime;
 	}
 
-	public void boundaryCollide(EventInfo event, Piston piston, Thermostat thermostat) {
+	public void boundaryCollide(EventInfo event, Piston piston, Thermostat thermostat,
+			HeatReservoirFlux reservoirFlux) {
 		//Moves this particle to the collision time and performs the appropriate
 		//boundary collision
 
@@ -850,14 +603,17 @@ public class Particle2D extends Particle {
 							}
 						}
                                                 if (simulationInfo.includeAttractiveWall && simulationInfo.includeHeatReservoir) {
+                                                    double speedSquared = xVel*xVel + yVel*yVel;
                                                     double velocityChange = PhysicsFormulas.calculateVelocityChange(
-                                                            new double[] { xVel, yVel },
+                                                            0.5 * mass * speedSquared,
                                                             yVel,
                                                             mass, 
                                                             simulationInfo.getHeatReservoirTemperature(), 
                                                             simulationInfo.dimension);
                                                     
-                                                    yVel = yVel - velocityChange;
+                                                    double newYVel = yVel - velocityChange;
+                                                    reservoirFlux.recordExchange(0.5 * mass * (newYVel*newYVel - yVel*yVel));
+                                                    yVel = newYVel;
                                                 }
 						break;
 					case Wall.TOP:
@@ -879,16 +635,15 @@ public class Particle2D extends Particle {
 				}
 				break;
 			case Collision.BARRIER:
-				switch (event.side) {
-					case Wall.LEFT:
-						x = barrierLeftX-radius;
-						y += yVel*dt;
-						xVel = -xVel * velAdjust;
-						break;
-					case Wall.RIGHT:
-						x = barrierRightX+radius;
-						y += yVel*dt;
-						xVel = -xVel * velAdjust;
+				//put the particle against the face of the barrier it hit
+				x += xVel*dt;
+				y += yVel*dt;
+				if (arena.boundaries.getSlabAxis(event.side) == 0) {
+					x = arena.boundaries.getSlabContact(event.side, radius);
+					xVel = -xVel * velAdjust;
+				} else {
+					y = arena.boundaries.getSlabContact(event.side, radius);
+					yVel = -yVel * velAdjust;
 				}
 				break;
 			case Collision.PISTON:
@@ -909,12 +664,20 @@ public class Particle2D extends Particle {
 						}				
 				}
 				break;
+			case Collision.HOLE_CROSSING:
+				//put the particle on the plane so the crossing isn't predicted again
+				x += xVel*dt;
+				y += yVel*dt;
+				if (arena.boundaries.getCrossingAxis(event.side) == 0) {
+					x = arena.boundaries.getCrossingPosition(event.side);
+				} else {
+					y = arena.boundaries.getCrossingPosition(event.side);
+				}
+				break;
 			case Collision.EDGE:
 				x += xVel*dt;
 				y += yVel*dt;
-                                double edgeX = simulationInfo.arenaXSize / 2.0;
-                                double[] edgeY = arena.getEdgeY();
-				EdgeCollide(edgeX, edgeY[event.side]);
+				EdgeCollide(arena.boundaries.getSphereX(event.side), arena.boundaries.getSphereY(event.side));
 				break;
 			case Collision.BOUNDARY:
 				switch (event.side) {
@@ -1060,6 +823,10 @@ public class Particle2D extends Particle {
 		return returnState;
     }
 
+    public void getState(ParticleStates states, int index) {
+        states.set(index, x, y, 0.0, xVel, yVel, 0.0, getDisplayColor(), bFlag);
+    }
+
     public double getX()  {
 		return x;
     }
@@ -1115,6 +882,11 @@ public class Particle2D extends Particle {
 		yVel *= fudgeFactor;
 	}
 
+    public void setVelocity(double xVel, double yVel, double zVel) {
+		this.xVel = xVel;
+		this.yVel = yVel;
+	}
+
     public double getXMom() {
 		return xVel*mass;
 	}
@@ -1141,7 +913,7 @@ public class Particle2D extends Particle {
      * @return Kinetic energy of the particle in joules (kg * m^2 / s^2)
      */
     public double getKE() {
-        double energy = Formulas.kineticEnergy(mass, Formulas.magnitude(xVel, yVel));
+        double energy = Formulas.kineticEnergy(mass, getVel());
         return Units.convert(Energy.AMU_JOULE, Energy.JOULE, energy);
     }
 
@@ -1177,6 +949,7 @@ public class Particle2D extends Particle {
 
     @Override
     public void reset() {
+        resetSpecies();
         x = startX;
         y = startY;
         xVel = startXVel;
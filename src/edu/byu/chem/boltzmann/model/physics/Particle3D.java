@@ -19,13 +19,11 @@ package edu.byu.chem.boltzmann.model.physics;
 
 import edu.byu.chem.boltzmann.utils.Units;
 import edu.byu.chem.boltzmann.utils.data.ParticleType;
-import edu.byu.chem.boltzmann.utils.data.ReactionRelationship;
+import edu.byu.chem.boltzmann.utils.data.ReactionTable;
 import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
 import edu.byu.chem.boltzmann.utils.data.SimulationInfo.ArenaType;
 import edu.byu.chem.boltzmann.utils.Units.Energy;
 import edu.byu.chem.boltzmann.model.statistics.Formulas;
-import java.awt.Color;
-import java.util.HashSet;
 
 /* Proposed package: boltzmann.physics */
 /* Used by: Physics */
@@ -361,8 +359,6 @@ public class Particle3D extends Particle
 			}
 		}
 
-                returnCollision.particlesInvolved[0] = this;
-                returnCollision.particlesInvolved[1] = targetParticle;
                 
 		if (returnCollision.colTime < currTime) {
 			//misc.guiPtr.reportError("Particle-Particle collision predicted in the past", new RuntimeException("Particle3D:predCol, event.colTime<currTime"));
@@ -439,263 +435,11 @@ public class Particle3D extends Particle
                 return (dt >= 0)? currt0+dt : Calendar.MAXTIME;
 	}
 	
-	public EventInfo predPistonCol(Piston piston)
-	{
-		EventInfo event = null;
-		double colTime = Calendar.MAXTIME;
-		int side = Wall.BOTTOM;
-		
-		double dC = getRadius();
-		double dX = 0.0;
-		double dY =  y - piston.getPositionAtTime(this.t0);
-		double dZ = 0.0;
-		double dVx = 0.0;
-		double dVy = yVel - piston.getVelocityAtTime(this.t0);
-		double dVz = 0.0;
-		
-		colTime = PredCol(dX, dY, dZ, dVx, dVy, dVz, dC, t0);
-
-		if(piston.isMoving(this.t0) && !piston.isMoving(colTime) && this.yVel > 0)
-		{
-			dVy = yVel;
-			dY = y - piston.getStopPosition();
-			colTime = PredCol(dX, dY, dZ, dVx, dVy, dVz, dC, t0);
-		}
-		event = new EventInfo(Collision.PISTON, colTime , 0, 0, side);
-		
-		return event;
-	}
-
-	public EventInfo predBoundaryCol(Piston piston, boolean holeOpen) {
-		//Returns time of soonest collision with a wall, boundary or barrier as
-		//well as what it is that is collided with
-
-		EventInfo event = null;
-                int numEdgePart = arena.numEdgePart;
-		EventInfo boundary[] = new EventInfo[simulationInfo.dimension+1+numEdgePart]; //+1=barrier
-		double colTime=Calendar.MAXTIME;
-		int side=0, numToCheck = 0;
-
-		if ((simulationInfo.arenaType == ArenaType.PERIODIC_BOUNDARIES)) {
-			//check for boundary collisions and (possibly) end of boundary events
-
-			//it's possible for the vel component to be 0 which needs to trigger a MAXTIME
-			if (xVel==0) {
-				boundary[numToCheck++] = new EventInfo(Collision.BOUNDARY, Calendar.MAXTIME, 0, 0, 0);
-			}
-			else {
-				//x direction
-				if ((bFlag & Wall.LEFT)==Wall.LEFT) { //check for EOB
-					if (xVel < 0) {
-						side = Wall.LEFT;
-						colTime = (x+radius)/(-xVel);
-					} else { //xVel > 0
-						side = Wall.RIGHT;
-						colTime = (radius-x)/xVel;
-					}
-					boundary[numToCheck++] = new EventInfo(Collision.EOB, t0+colTime, 0, 0, side);
-				}
-				else { //check for boundary collision
-					if (xVel < 0) {
-						side = Wall.LEFT;
-						colTime = (radius-x)/xVel; //=(x-radius)/(-xVel) don't need negate if we swap the top order
-					} else { //xVel > 0
-						side = Wall.RIGHT;
-						colTime = (simulationInfo.arenaXSize-radius-x)/xVel;
-					}
-					boundary[numToCheck++] = new EventInfo(Collision.BOUNDARY, t0+colTime, 0, 0, side);
-				}
-			}//xvel==0 check
-
-			//it's possible for the vel component to be 0 which needs to trigger a MAXTIME
-			if (yVel==0) {
-				boundary[numToCheck++] = new EventInfo(Collision.BOUNDARY, Calendar.MAXTIME, 0, 0, 0);
-			}
-			else {
-				//y direction
-				if ((bFlag & Wall.BOTTOM)==Wall.BOTTOM) { //check for EOB
-					if (yVel < 0) {
-						side = Wall.BOTTOM;
-						colTime = (y+radius)/(-yVel);
-					} else { //yVel > 0
-						side = Wall.TOP;
-						colTime = (radius-y)/yVel;
-					}
-					boundary[numToCheck++] = new EventInfo(Collision.EOB, t0+colTime, 0, 0, side);
-				}
-				else { //check for boundary collision
-					if (yVel < 0) {
-						side = Wall.BOTTOM;
-						colTime = (radius-y)/yVel; //=(y-radius)/(-yVel) don't need negate if we swap the top order
-					} else { //yVel > 0
-						side = Wall.TOP;
-						colTime = (simulationInfo.arenaYSize-radius-y)/yVel;
-					}
-					boundary[numToCheck++] = new EventInfo(Collision.BOUNDARY, t0+colTime, 0, 0, side);
-				}
-			}//yvel==0 check
-
-			//it's possible for the vel component to be 0 which needs to trigger a MAXTIME
-			if (zVel==0) {
-				boundary[numToCheck++] = new EventInfo(Collision.BOUNDARY, Calendar.MAXTIME, 0, 0, 0);
-			} else {
-				//z direction
-				if ((bFlag & Wall.BACK)==Wall.BACK) { //check for EOB
-					if (zVel < 0) {
-						side = Wall.BACK;
-						colTime = (z+radius)/(-zVel);
-					} else { //zVel > 0
-						side = Wall.FRONT;
-						colTime = (radius-z)/zVel;
-					}
-					boundary[numToCheck++] = new EventInfo(Collision.EOB, t0+colTime, 0, 0, side);
-				} else { //check for boundary collision
-					if (zVel < 0) {
-						side = Wall.BACK;
-						colTime = (radius-z)/zVel; //=(z-radius)/(-zVel) don't need negate if we swap the top order
-					} else { //zVel > 0
-						side = Wall.FRONT;
-						colTime = (simulationInfo.arenaZSize-radius-z)/zVel;
-					}
-					boundary[numToCheck++] = new EventInfo(Collision.BOUNDARY, t0+colTime, 0, 0, side);
-				}
-			}//zvel==0 check
-		} else { //check for wall and barrier collisions
-			//check the normal walls
-
-			//it's possible for the vel component to be 0 which needs to trigger a MAXTIME
-			if (xVel==0) {
-				boundary[numToCheck++] = new EventInfo(Collision.BOUNDARY, Calendar.MAXTIME, 0, 0, 0);
-			} else {
-				//x direction
-				if (xVel < 0) {
-					side = Wall.LEFT;
-					colTime = (radius-x)/xVel; //=(x-radius)/(-xVel) don't need negate if we swap the top order
-				} else { //xVel > 0
-					side = Wall.RIGHT;
-					colTime = (simulationInfo.arenaXSize-radius-x)/xVel;
-				}
-				boundary[numToCheck++] = new EventInfo(Collision.WALL, t0+colTime, 0, 0, side);
-			}
-
-			//it's possible for the vel component to be 0 which needs to trigger a MAXTIME
-			if (yVel==0) {
-				boundary[numToCheck++] = new EventInfo(Collision.BOUNDARY, Calendar.MAXTIME, 0, 0, 0);
-			} else {
-				//y direction
-                                int colType = Collision.WALL;
-				if (yVel < 0) {
-					side = Wall.BOTTOM;
-					colTime = (radius-y)/yVel; //=(y-radius)/(-yVel) don't need negate if we swap the top order
-                                        if(simulationInfo.includeAttractiveWall){
-                                            double wellColTime = (simulationInfo.wallWellWidth - y) / yVel;
-                                            if (wellColTime > 0) {
-                                                colTime = wellColTime;
-                                                colType = Collision.ENTER_GRAVITY_WELL;
-                                            }
-                                        }
-				} else { //yVel > 0
-					side = Wall.TOP;
-					colTime = (simulationInfo.arenaYSize-radius-y)/yVel;
-                                        if(simulationInfo.includeAttractiveWall){
-                                            double wellColTime = (simulationInfo.wallWellWidth - y) / yVel;
-                                            if(wellColTime > 0){
-                                                colTime = wellColTime;
-                                                colType = Collision.EXIT_GRAVITY_WELL;
-                                            }
-                                        }
-				}
-				boundary[numToCheck++] = new EventInfo(colType, t0+colTime, 0, 0, side);
-			}
-
-			//it's possible for the vel component to be 0 which needs to trigger a MAXTIME
-			if (zVel==0) {
-				boundary[numToCheck++] = new EventInfo(Collision.BOUNDARY, Calendar.MAXTIME, 0, 0, 0);
-			} else {
-				//z direction
-				if (zVel < 0) {
-					side = Wall.BACK;
-					colTime = (radius-z)/zVel; //=(z-radius)/(-zVel) don't need negate if we swap the top order
-				}
-				else { //zVel > 0
-					side = Wall.FRONT;
-					colTime = (simulationInfo.arenaZSize-radius-z)/zVel;
-				}
-				boundary[numToCheck++] = new EventInfo(Collision.WALL, t0+colTime, 0, 0, side);
-			}
-
-			
-			if(simulationInfo.arenaType == ArenaType.MOVABLE_PISTON)	{
-				boundary[numToCheck++] = this.predPistonCol(piston);
-                        //check the barrier
-			} else if (simulationInfo.arenaType == ArenaType.DIVIDED_ARENA || simulationInfo.arenaType == ArenaType.DIVIDED_ARENA_WITH_HOLE) {
-                                double barrierLeftX = arena.barrierLeftX;
-                                double barrierRightX = arena.barrierRightX;
-				side = -1;
-				if (x <= barrierLeftX-radius && xVel > 0) {
-					//collision with left of barrier
-					side = Wall.LEFT;
-					colTime = (barrierLeftX-radius-x)/xVel;
-				} else if (x >= barrierRightX+radius && xVel < 0) {
-					//collision with right of barrier
-					side = Wall.RIGHT;
-					colTime = (barrierRightX+radius-x)/xVel; //=(x-radius-barrierRightX)/-xVel
-				}				
-				
-				//if we have a barrier collision, make sure it's not with the hole - and check
-				//collision with the edges while we're here
-				if (simulationInfo.arenaType == ArenaType.DIVIDED_ARENA_WITH_HOLE && 
-                                        (!simulationInfo.maxwellDemonMode || holeOpen)) {
-					//first, see if we really have a barrier event or if it's really just passing
-					//through the hole or interacting with the edge
-					if (side != -1) {
-						//get position at time of collision
-						double 	yPos = y + yVel*(colTime) - 0.5f*simulationInfo.arenaYSize,
-								zPos = z + zVel*(colTime) - 0.5f*simulationInfo.arenaZSize;
-                                                double holeRad2 = arena.holeRadiusSquared;
-
-						if (yPos*yPos+zPos*zPos > holeRad2)
-							//we have a barrier collision
-							boundary[numToCheck++] = new EventInfo(Collision.BARRIER, t0+colTime, 0, 0, side);
-					}
-
-					//now check for collisions with the fixed particles that make up the edge of the hole
-                                        double edgeRad = arena.edgeRadius;
-					double Dc = this.getRadius() + edgeRad;
-					double dVx = xVel, dVy = yVel, dVz = zVel;
-					double dX, dY, dZ;
-
-					for (int i=0; i<numEdgePart; i++) {
-						//check collision with current edge particle
-                                                double edgeX = arena.edgeX;
-                                                double[] edgeY = arena.getEdgeY();
-                                                double[] edgeZ = arena.getEdgeZ();
-						dX = x-edgeX;
-                                                dY = y-edgeY[i];
-                                                dZ = z-edgeZ[i];
-                                                boundary[numToCheck++] = new EventInfo(Collision.EDGE, PredCol(dX, dY, dZ, dVx, dVy, dVz, Dc, t0), 0, 0, i);
-                                        }
-
-				} else if (side != -1) {//divideStatus=FULL so always create an event if moving towards barrier
-					boundary[numToCheck++] = new EventInfo(Collision.BARRIER, t0+colTime, 0, 0, side);
-                                }
-			}
-		}
-
-		//Note: all colTime's need to be corrected since they currently only hold the time relative to t0
-		event = boundary[0];
-		for (int i=1; i<numToCheck; i++) {
-			if (boundary[i].colTime < event.colTime)
-				event = boundary[i];
-		}
-                
-                event.particlesInvolved[0] = this;
-
-		if (event.colTime < t0) {
-			//misc.guiPtr.reportError("Boundary collision predicted in the past", new RuntimeException("Particle3D:predBoundaryCol, event.colTime<currTime"));
-			throw new RuntimeException("Boundary collision predicted in the past");
-		}
-		return event;
+	public EventInfo predBoundaryCol(Piston piston, boolean holeOpen, boolean crossings) {
+		//Returns time of soonest collision with a wall, boundary, barrier or piston
+		//as well as what it is that is collided with (see BoundaryGeometry)
+		return arena.boundaries.predict(boundaryEvent, x, y, z, xVel, yVel, zVel,
+				radius, t0, bFlag, piston, holeOpen, crossings);
 	}
 
 	public void collideWith(Particle targetParticle, EventInfo event) {
@@ -844,31 +588,9 @@ public class Particle3D extends Particle
 		//System.out.println("avgERel = " + avgERel);
 
 		double deltaE;
-                Color thisColor = getDisplayColor();
-                Color targetColor = target.getDisplayColor();
-
-		// Reaction: blue to red
-                if (simulationInfo.reactionMode && (event.colType == Collision.PARTICLE)) {
-                    Color type0Color = simulationInfo.getParticleTypes().get(0).defaultColor;
-                    Color type1Color = simulationInfo.getParticleTypes().get(1).defaultColor;
-                    ReactionRelationship redToBlue = simulationInfo.getReactionRelationship(new HashSet<ParticleType>(simulationInfo.getParticleTypes()));
-
-                    if (simulationInfo.reactionMode && (thisColor.equals(type0Color)) && (targetColor.equals(type0Color)) && (eRel > redToBlue.forwardActivationEnergy))
-                    {
-                            deltaE = redToBlue.forwardActivationEnergy - redToBlue.reverseActivationEnergy;
-                            this.setColor(type1Color);
-                            target.setColor(type1Color);
-                            event.setDeltaBlue(+2); // update blue count cumulative statistics
-                    } else if (simulationInfo.reactionMode && (thisColor.equals(type1Color)) && (targetColor.equals(type1Color)) && (eRel > redToBlue.reverseActivationEnergy) && !redToBlue.suppressReverseReaction)
-                    {
-                            deltaE = redToBlue.reverseActivationEnergy - redToBlue.forwardActivationEnergy;
-
-                            this.setColor(type0Color);
-                            target.setColor(type0Color);
-                            event.setDeltaBlue(-2); // update blue count cumulative statistics
-                    }
-                    else
-                            deltaE=0;
+                int reaction = findReaction(target, event, eRel);
+                if (reaction != ReactionTable.NO_REACTION) {
+                    deltaE = react(target, reaction, event);
                 } else {
                     deltaE = 0;
                 }
@@ -975,7 +697,8 @@ public class Particle3D extends Particle
 
 	}
 
-	public void boundaryCollide(EventInfo event, Piston piston, Thermostat thermostat) {
+	public void boundaryCollide(EventInfo event, Piston piston, Thermostat thermostat,
+			HeatReservoirFlux reservoirFlux) {
 		//Moves this particle to the collision time and performs the appropriate
 		//boundary collision
 
@@ -1029,14 +752,17 @@ public class Particle3D extends Particle
 							}
 						}
                                                 if (simulationInfo.includeAttractiveWall && simulationInfo.includeHeatReservoir) {
+                                                    double speedSquared = xVel*xVel + yVel*yVel + zVel*zVel;
                                                     double velocityChange = PhysicsFormulas.calculateVelocityChange(
-                                                            new double[] { xVel, yVel, zVel },
+                                                            0.5 * mass * speedSquared,
                                                             yVel,
                                                             mass, 
                                                             simulationInfo.getHeatReservoirTemperature(), 
                                                             simulationInfo.dimension);
                                                     
-                                                    yVel = yVel - velocityChange;
+                                                    double newYVel = yVel - velocityChange;
+                                                    reservoirFlux.recordExchange(0.5 * mass * (newYVel*newYVel - yVel*yVel));
+                                                    yVel = newYVel;
                                                 }
 						break;
 					case Wall.TOP:
@@ -1112,28 +838,46 @@ public class Particle3D extends Particle
 				}
 				break;
 			case Collision.BARRIER:
-				switch (event.side) {
-					case Wall.LEFT:
-						x = barrierLeftX-radius;
-						y += yVel*dt;
-						z += zVel*dt;
+				//put the particle against the face of the barrier it hit
+				x += xVel*dt;
+				y += yVel*dt;
+				z += zVel*dt;
+				switch (arena.boundaries.getSlabAxis(event.side)) {
+					case 0:
+						x = arena.boundaries.getSlabContact(event.side, radius);
 						xVel = -xVel;
 						break;
-					case Wall.RIGHT:
-						x = barrierRightX+radius;
-						y += yVel*dt;
-						z += zVel*dt;
-						xVel = -xVel;
+					case 1:
+						y = arena.boundaries.getSlabContact(event.side, radius);
+						yVel = -yVel;
+						break;
+					case 2:
+						z = arena.boundaries.getSlabContact(event.side, radius);
+						zVel = -zVel;
+				}
+				break;
+			case Collision.HOLE_CROSSING:
+				//put the particle on the plane so the crossing isn't predicted again
+				x += xVel*dt;
+				y += yVel*dt;
+				z += zVel*dt;
+				switch (arena.boundaries.getCrossingAxis(event.side)) {
+					case 0:
+						x = arena.boundaries.getCrossingPosition(event.side);
+						break;
+					case 1:
+						y = arena.boundaries.getCrossingPosition(event.side);
+						break;
+					case 2:
+						z = arena.boundaries.getCrossingPosition(event.side);
 				}
 				break;
 			case Collision.EDGE:
 				x += xVel*dt;
 				y += yVel*dt;
 				z += zVel*dt;
-                                double edgeX = arena.edgeX;
-                                double[] edgeY = arena.getEdgeY();
-                                double[] edgeZ = arena.getEdgeZ();
-				EdgeCollide(edgeX, edgeY[event.side], edgeZ[event.side]);
+				EdgeCollide(arena.boundaries.getSphereX(event.side), arena.boundaries.getSphereY(event.side),
+						arena.boundaries.getSphereZ(event.side));
 				break;
 			case Collision.BOUNDARY:
 				switch (event.side) {
@@ -1370,6 +1114,10 @@ public class Particle3D extends Particle
 		return returnState;
     }
 
+    public void getState(ParticleStates states, int index) {
+        states.set(index, x, y, z, xVel, yVel, zVel, getDisplayColor(), bFlag);
+    }
+
     public double getX()  {
 		return x;
     }
@@ -1432,6 +1180,12 @@ public class Particle3D extends Particle
 		zVel *= fudgeFactor;
 	}
 
+    public void setVelocity(double xVel, double yVel, double zVel) {
+		this.xVel = xVel;
+		this.yVel = yVel;
+		this.zVel = zVel;
+	}
+
     public double getXMom() {
                 double mass = getMass();
 		return xVel*mass;
@@ -1458,7 +1212,7 @@ public class Particle3D extends Particle
     }
 
     public double getKE() {
-        double energy = Formulas.kineticEnergy(mass, Formulas.magnitude(xVel, yVel, zVel));
+        double energy = Formulas.kineticEnergy(mass, getVel());
         return Units.convert(Energy.AMU_JOULE, Energy.JOULE, energy);
     }
 
@@ -1487,6 +1241,7 @@ public class Particle3D extends Particle
 
     @Override
     public void reset() {
+        resetSpecies();
         xVel = startXVel;
         yVel = startYVel;
         zVel = startZVel;
@@ -0,0 +1,99 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.physics;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Left to right order of the particles in a 1D simulation.
+ *
+ * Particles in 1D cannot pass each other, so the order they start in is the
+ * order they keep: the neighbours found here stay the neighbours for the whole
+ * run. With periodic boundaries the first and last particles are neighbours
+ * across the boundary, which stays true as particles wrap around.
+ *
+ * Each neighbour pair is given a slot number, the index of its left particle,
+ * so that per-pair data can be kept in arrays of length N.
+ */
+class ParticleOrder1D {
+
+    public static final int NO_NEIGHBOUR = -1;
+
+    private final int[] left;
+    private final int[] right;
+
+    ParticleOrder1D(List<Particle> particles, boolean periodic) {
+        int numParticles = particles.size();
+        final double[] x = new double[numParticles];
+        Integer[] order = new Integer[numParticles];
+        for (int i = 0; i < numParticles; i++) {
+            x[i] = particles.get(i).getX();
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(x[a], x[b]);
+            }
+        });
+
+        left = new int[numParticles];
+        right = new int[numParticles];
+        for (int rank = 0; rank < numParticles; rank++) {
+            int particle = order[rank];
+            left[particle] = (rank > 0) ? order[rank - 1] : NO_NEIGHBOUR;
+            right[particle] = (rank < numParticles - 1) ? order[rank + 1] : NO_NEIGHBOUR;
+        }
+        if (periodic && numParticles > 2) {
+            int first = order[0];
+            int last = order[numParticles - 1];
+            left[first] = last;
+            right[last] = first;
+        }
+    }
+
+    int size() {
+        return left.length;
+    }
+
+    /** Neighbour on the left of particle, or NO_NEIGHBOUR */
+    int getLeft(int particle) {
+        return left[particle];
+    }
+
+    /** Neighbour on the right of particle, or NO_NEIGHBOUR */
+    int getRight(int particle) {
+        return right[particle];
+    }
+
+    /**
+     * Slot of the pair (particle1, particle2), or NO_NEIGHBOUR if they are not
+     * neighbours.
+     */
+    int getPairSlot(int particle1, int particle2) {
+        if (right[particle1] == particle2) {
+            return particle1;
+        } else if (right[particle2] == particle1) {
+            return particle2;
+        } else {
+            return NO_NEIGHBOUR;
+        }
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.physics;
+
+import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import java.awt.Color;
+import java.util.List;
+
+/**
+ * Particle states of one frame stored as columns indexed by particle number,
+ * which is the particle's position in Physics.getParticles().
+ *
+ * Positions and velocities are interleaved x, y, z, so particle i's state
+ * starts at 3 * i in both arrays; unused axes are 0. The getters hand out the
+ * backing arrays themselves so loops over a frame allocate nothing and make no
+ * lookups. Callers must treat them as read-only.
+ *
+ * Particle, radius and type columns are fixed when the states are created.
+ * Only positions, velocities, colours, species and boundary flags change from
+ * frame to frame. The type is the one the particle was created as; reactions
+ * change a particle's species (see ReactionTable) but not its type.
+ */
+public class ParticleStates {
+
+    private final Particle[] particles;
+    private final double[] radii;
+    private final ParticleType[] particleTypes;
+
+    private final double[] positions;
+    private final double[] velocities;
+    private final Color[] colors;
+    private final int[] species;
+    private final int[] boundaryFlags;
+
+    public ParticleStates(Particle[] particles) {
+        this.particles = particles.clone();
+        int numParticles = particles.length;
+        radii = new double[numParticles];
+        particleTypes = new ParticleType[numParticles];
+        species = new int[numParticles];
+        for (int i = 0; i < numParticles; i++) {
+            radii[i] = particles[i].radius;
+            particleTypes[i] = particles[i].particleType;
+            species[i] = particles[i].getSpecies();
+        }
+        positions = new double[3 * numParticles];
+        velocities = new double[3 * numParticles];
+        colors = new Color[numParticles];
+        boundaryFlags = new int[numParticles];
+    }
+
+    public ParticleStates(List<? extends Particle> particles) {
+        this(particles.toArray(new Particle[particles.size()]));
+    }
+
+    private ParticleStates(ParticleStates original) {
+        // Columns fixed at creation are shared; they are never written
+        particles = original.particles;
+        radii = original.radii;
+        particleTypes = original.particleTypes;
+        positions = original.positions.clone();
+        velocities = original.velocities.clone();
+        colors = original.colors.clone();
+        species = original.species.clone();
+        boundaryFlags = original.boundaryFlags.clone();
+    }
+
+    /** Reads the current state of every particle; particles must be in creation order */
+    void fill(List<Particle> particles) {
+        for (int i = 0; i < this.particles.length; i++) {
+            Particle particle = particles.get(i);
+            particle.getState(this, i);
+            species[i] = particle.getSpecies();
+        }
+    }
+
+    /** Called by Particle.getState(ParticleStates, int) */
+    void set(int index, double x, double y, double z,
+            double xVel, double yVel, double zVel, Color color, int bFlag) {
+        int offset = 3 * index;
+        positions[offset] = x;
+        positions[offset + 1] = y;
+        positions[offset + 2] = z;
+        velocities[offset] = xVel;
+        velocities[offset + 1] = yVel;
+        velocities[offset + 2] = zVel;
+        colors[index] = color;
+        boundaryFlags[index] = bFlag;
+    }
+
+    /**
+     * Copies positions and velocities for every particle, laid out as in
+     * getPositions(), along with colours and boundary flags. Used to build
+     * frames that don't come from a running Physics. Species are left as they
+     * were, since trajectories don't record them.
+     */
+    public void setAll(double[] positions, double[] velocities, Color[] colors, int[] boundaryFlags) {
+        System.arraycopy(positions, 0, this.positions, 0, this.positions.length);
+        System.arraycopy(velocities, 0, this.velocities, 0, this.velocities.length);
+        System.arraycopy(colors, 0, this.colors, 0, this.colors.length);
+        System.arraycopy(boundaryFlags, 0, this.boundaryFlags, 0, this.boundaryFlags.length);
+    }
+
+    public int size() {
+        return particles.length;
+    }
+
+    public Particle getParticle(int index) {
+        return particles[index];
+    }
+
+    /** Particles in index order; read-only */
+    public Particle[] getParticles() {
+        return particles;
+    }
+
+    /** x, y, z of each particle in arena units; read-only */
+    public double[] getPositions() {
+        return positions;
+    }
+
+    /** x, y, z velocity of each particle in m/s; read-only */
+    public double[] getVelocities() {
+        return velocities;
+    }
+
+    /** Read-only */
+    public double[] getRadii() {
+        return radii;
+    }
+
+    /** Read-only */
+    public ParticleType[] getParticleTypes() {
+        return particleTypes;
+    }
+
+    /** Display colour of each particle; read-only */
+    public Color[] getColors() {
+        return colors;
+    }
+
+    /** Species id of each particle as in Particle.getSpecies(); read-only */
+    public int[] getSpecies() {
+        return species;
+    }
+
+    /** Boundary overlap flags as in PartState.bFlag; read-only */
+    public int[] getBoundaryFlags() {
+        return boundaryFlags;
+    }
+
+    /**
+     * Fills into with the state of the particle at index and returns it, for
+     * code written against PartState. into must have its own position and
+     * velocity arrays.
+     */
+    public PartState getState(int index, PartState into) {
+        int offset = 3 * index;
+        into.x = into.position[0] = positions[offset];
+        into.y = into.position[1] = positions[offset + 1];
+        into.z = into.position[2] = positions[offset + 2];
+        into.velocity[0] = velocities[offset];
+        into.velocity[1] = velocities[offset + 1];
+        into.velocity[2] = velocities[offset + 2];
+        into.rad = radii[index];
+        into.particleType = particleTypes[index];
+        into.color = colors[index];
+        into.bFlag = boundaryFlags[index];
+        return into;
+    }
+
+    /** Copy with its own position, velocity, colour, species and flag columns */
+    public ParticleStates copy() {
+        return new ParticleStates(this);
+    }
+}
@@ -20,13 +20,23 @@ package edu.byu.chem.boltzmann.model.physics;
 // Classes needed for random positioning of the particles
 import edu.byu.chem.boltzmann.controller.Controller;
 import edu.byu.chem.boltzmann.controller.ErrorHandler;
+import edu.byu.chem.boltzmann.model.io.EventLog;
 // Classes needed for various data structures
 import edu.byu.chem.boltzmann.model.physics.Piston.PistonMode;
+import edu.byu.chem.boltzmann.model.statistics.AveragingMode;
 import edu.byu.chem.boltzmann.model.statistics.Formulas;
 import edu.byu.chem.boltzmann.model.statistics.Pressure;
 import edu.byu.chem.boltzmann.model.statistics.RadialDistribution;
+import edu.byu.chem.boltzmann.model.statistics.StatisticProviders;
+import edu.byu.chem.boltzmann.model.statistics.StatisticsSnapshot;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.AveragedStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.EventOutcomeStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.FrameStatistic;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticID;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticProvider;
+import edu.byu.chem.boltzmann.model.statistics.utils.EquilibrationDetector;
+import edu.byu.chem.boltzmann.model.statistics.utils.FrameAnalysis;
 import edu.byu.chem.boltzmann.utils.Units;
 import edu.byu.chem.boltzmann.utils.Units.Time;
 import java.util.HashMap;
@@ -38,6 +48,8 @@ import edu.byu.chem.boltzmann.utils.data.SimulationInfo.ArenaType;
 import edu.byu.chem.boltzmann.utils.data.StatSettingsInfo;
 import java.awt.Color;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Important Methods Deleted:
@@ -82,6 +94,11 @@ public class Physics {
                     0, 
                     0
                     );
+
+    // Events the statistics in StatisticID are told about. Hole crossings
+    // aren't collisions, and would cut their free paths in two.
+    private static final int STATISTIC_ID_EVENTS =
+            StatisticProvider.ALL_EVENTS & ~StatisticProviders.eventTypes(Collision.HOLE_CROSSING);
         
     // settings
 
@@ -90,7 +107,14 @@ public class Physics {
 
     /** cal - the event calendar contains all possible events and allows fast sorting to pull out the
      * next event to be performed */
-    private Calendar cal;
+    private EventCalendar cal;
+
+    /**
+     * Order of the particles when only neighbours can collide (1D), in which
+     * case only neighbour pairs are predicted and kept in the calendar; null
+     * otherwise
+     */
+    private ParticleOrder1D neighbourOrder;
 
     /** particles - arraylist of particle objects, used to perform and predict events */
     private ArrayList<Particle> particles;
@@ -101,6 +125,36 @@ public class Physics {
     /** thermostat - thermostat object that controls the thermostat behavior */
     public Thermostat thermostat;
 
+    /** thermostatMode - ThermostatFactory mode used for isothermal piston moves and startThermostat */
+    private volatile int thermostatMode = ThermostatFactory.WALLTHERMOSTAT;
+    private volatile double thermostatDampFactor = Thermostat.DEFAULT_DAMP_FACTOR;
+
+    /** Thermostat change requested from another thread, applied at the start of the next frame */
+    private static class ThermostatRequest {
+        final boolean enabled;
+        final int mode;
+        final double dampFactor;
+        /** NaN to hold the gas at whatever temperature it has when the request is applied */
+        final double targetTemperature;
+
+        ThermostatRequest(boolean enabled, int mode, double dampFactor, double targetTemperature) {
+            this.enabled = enabled;
+            this.mode = mode;
+            this.dampFactor = dampFactor;
+            this.targetTemperature = targetTemperature;
+        }
+    }
+    private final AtomicReference<ThermostatRequest> thermostatRequest = new AtomicReference<ThermostatRequest>();
+
+    /** reservoirFlux - energy exchanged with the heat reservoir behind the attractive wall */
+    private final HeatReservoirFlux reservoirFlux = new HeatReservoirFlux();
+
+    /** momentum - running total momentum and kinetic energy of the particles */
+    private final MomentumTracker momentum = new MomentumTracker();
+
+    /** Set from another thread to remove the centre-of-mass drift at the start of the next frame */
+    private final AtomicBoolean removeDriftRequested = new AtomicBoolean(false);
+
     /** maxHoleDiam - yLen for 2D or the smaller of yLen and zLen in 3D */
     private double maxHoleDiam;
     
@@ -109,6 +163,8 @@ public class Physics {
      */
     private boolean holeOpen;
     private boolean nextFrameHoleOpen;
+    /** Whether a statistic counts HOLE_CROSSING events, which are only predicted if so */
+    private boolean countHoleCrossings = false;
     
     public double currSimTime;
 
@@ -120,6 +176,16 @@ public class Physics {
     private double frameDuration = DEFAULT_FRAME_DURATION;
     
     private Map<Set<ParticleType>, Map<StatisticID, Statistic>> statistics;
+    /** Statistics from StatisticProviders, by provider name */
+    private Map<Set<ParticleType>, Map<String, Statistic>> providedStatistics;
+    /** Every statistic in statistics and providedStatistics, so notifying them needs no iterators */
+    private Statistic[] statisticList = new Statistic[0];
+    /** Statistics to notify of each event type, in statisticList order */
+    private Statistic[][] statisticsByEventType = new Statistic[Integer.SIZE][0];
+    /** Statistics in statisticList that are FrameStatistics */
+    private FrameStatistic[] frameStatisticList = new FrameStatistic[0];
+    /** EventOutcomeStatistics in statisticsByEventType, by event type, and all of them last */
+    private EventOutcomeStatistic[][] outcomeStatisticsByEventType = new EventOutcomeStatistic[Integer.SIZE + 1][0];
     
     private boolean stopProcessingCurrentFrame = false;
     private boolean runPhysics = true;
@@ -127,6 +193,9 @@ public class Physics {
 
     public Physics(SimulationInfo simulationInfo, StatSettingsInfo statSettingsInfo) {
         forgetMultiplier = statSettingsInfo.forgetTime;
+        averagingMode = statSettingsInfo.averagingMode;
+        averagingHalfLife = statSettingsInfo.averagingHalfLife;
+        detectEquilibration = statSettingsInfo.detectEquilibration;
         useFiniteSystemCorrections = statSettingsInfo.useFinSysCorrections;
         useRealGasCorrections = statSettingsInfo.useRealGasCorrections;
         holeOpen = false;
@@ -174,20 +243,17 @@ public class Physics {
         initializeLastCollisions();
         
         // 6) Instantiate the calendar, predict initial events and sort
-        cal = new Calendar(particles.size());
+        cal = createCalendar();
 
-        CalUpdate(new EventInfo(Collision.EVERYTHING));
-        
+        momentum.recompute(particles);
         if (simulationInfo.isPeriodic()) {
-            SetTotalMom(0.0, 0.0, 0.0);
+            setTotalMomentum(0.0, 0.0, 0.0);
         }
+
+        CalUpdate(new EventInfo(Collision.EVERYTHING));
         
-        allocatedStates1 = new PartState[particles.size()];
-        allocatedStates2 = new PartState[particles.size()];
-        for (int particleIndex = 0; particleIndex < particles.size(); particleIndex++) {
-            allocatedStates1[particleIndex] = new PartState(0, 0, 0, 0, null, 0);
-            allocatedStates2[particleIndex] = new PartState(0, 0, 0, 0, null, 0);
-        }        
+        allocatedStates1 = new ParticleStates(particles);
+        allocatedStates2 = new ParticleStates(particles);
         workingStates = allocatedStates1;
         
         double collisionRate = Formulas.predictCollisionRate(
@@ -196,14 +262,15 @@ public class Physics {
                 useRealGasCorrections);
         
         collisionLifetime = Formulas.collisionLifetime(collisionRate);
+        thermostat.setCollisionFrequency(collisionRate);
         statisticsReset = false;
         
         initiateStatistics(statSettingsInfo);
     }
 
-    private PartState[] workingStates;
-    private final PartState[] allocatedStates1;
-    private final PartState[] allocatedStates2;
+    private ParticleStates workingStates;
+    private final ParticleStates allocatedStates1;
+    private final ParticleStates allocatedStates2;
     
     private FrameInfo currentFrame = null;
 
@@ -224,7 +291,16 @@ public class Physics {
             frameInfo.setEndingStates(getParticleStates());
             
             currentFrame = frameInfo;
+            reservoirFlux.publish(currentFrame.endTime);
+            currentFrame.setHeatReservoirTotals(reservoirFlux.getTotals());
+            if (averagingChanged.getAndSet(false)) {
+                setAveragingForStats();
+            }
             notifyStatisticsOfTime(currentFrame.endTime);
+            notifyStatisticsOfFrame(currentFrame);
+            if (!statisticsReset && detectingEquilibration()) {
+                checkEquilibration(currentFrame);
+            }
         }
     }
     
@@ -232,6 +308,13 @@ public class Physics {
         return currentFrame;
     }
 
+    private long eventsPerformed = 0;
+
+    /** Number of events performed since the simulation was created */
+    public long getEventsPerformed() {
+        return eventsPerformed;
+    }
+
     public void AdjustPistonLevel(double targetLevel) {
         piston.setTargetLevel(targetLevel);
         CalUpdate(new EventInfo(Collision.PISTON_ALL));
@@ -251,15 +334,21 @@ public class Physics {
         } else {
         
             piston.setTargetLevel(targetLevel);
-            CalUpdate(new EventInfo(Collision.PISTON_ALL));
-            ThermostatController controller = ThermostatFactory.createController(ThermostatFactory.WALLTHERMOSTAT);
-            thermostat.setThermostatController(controller);
             // if the piston is in isothermal mode, use the thermostat to regulate temperature
             if (mode == PistonMode.ISOTHERMAL) {
-                thermostat.setEnabled(true);
+                int isothermalMode = thermostatMode;
+                if (isothermalMode == ThermostatFactory.WALLTHERMOSTAT) {
+                    // The wall thermostat only removes the work done by the piston,
+                    // so it has to be on before the piston starts moving
+                    enableThermostat(isothermalMode, thermostatDampFactor, thermostat.getTargetTemperature());
+                } else if (!thermostat.isEnabled() || thermostat.getMode() != isothermalMode) {
+                    thermostatRequest.set(new ThermostatRequest(true, isothermalMode, thermostatDampFactor, Double.NaN));
+                }
             } else if (mode == PistonMode.ADIABATIC) {
+                thermostatRequest.set(null);
                 thermostat.reset(false);
             }
+            CalUpdate(new EventInfo(Collision.PISTON_ALL));
         }
 
 //		ResetStats();
@@ -289,6 +378,15 @@ public class Physics {
             CalUpdate(new EventInfo(Collision.BOUNDARY_ALL));
         }
         
+        ThermostatRequest request = thermostatRequest.getAndSet(null);
+        if (request != null) {
+            applyThermostatRequest(request);
+        }
+
+        if (removeDriftRequested.getAndSet(false)) {
+            shiftToCentreOfMassFrame();
+        }
+        
         // Check frameTime of top event on the calendar heap - this assumes that
         // the calendar has been correctly sorted (either in initialization
         // code or at the end of the last AdvanceToTime)
@@ -296,18 +394,30 @@ public class Physics {
         double pistonStart = piston.getPosition();
         double frameStart = currSimTime;
 
+        EventLog log = eventLog;
+
         //As long as there are events to perform, pull them from the calendar.
         EventInfo event = null;
         while (nextEventTime <= maxTime) {       
             //Perform event.
             // pull the next event from the calendar
             event = cal.NextEvent();
+            setInvolvedParticles(event);
+            eventsPerformed++;
             
             updateStatistics(event);
+
+            // Energies have to be taken before the event changes the velocities
+            double eventEnergy = (log != null) ? getEventEnergy(event) : 0.0;
             
             // Carry out the next event and tell CalUpdate what action to
             // take when predicting new events
             EventInfo calAction = PerformEvent(event);
+            updateStatisticsWithOutcome(event);
+
+            if (log != null) {
+                log.log(event, eventEnergy, !isParticleEvent(event));
+            }
 
             // predict new events and sort the calendar
             CalUpdate(calAction);
@@ -343,26 +453,90 @@ public class Physics {
 
         currSimTime = maxTime;
         
+        double velocityScale = thermostat.endFrame(particles);
+        if (velocityScale != 1.0) {
+            newFrame.setVelocitiesRescaled(true);
+            momentum.recompute(particles);
+            // Particles move in straight lines between events, so every pair
+            // event just comes velocityScale times sooner. Boundary events
+            // are predicted again since the piston doesn't speed up with them.
+            cal.ScaleEventTimes(currSimTime, 1.0 / velocityScale);
+            CalUpdate(rescaleUpdate);
+        }
+        
         processingFrame = false;
         
         return newFrame;
     }
 
+    private static final double KG_PER_AMU = Units.convert("amu", "kg", 1.0);
+
+    private static boolean isParticleEvent(EventInfo event) {
+        return event.colType == Collision.PARTICLE
+                || event.colType == Collision.ENTER_WELL
+                || event.colType == Collision.EXIT_WELL
+                || event.colType == Collision.WELL_REFLECT;
+    }
+
+    /**
+     * Kinetic energy of relative motion for particle-particle events, or the
+     * particle's kinetic energy for boundary events, in joules.
+     */
+    private double getEventEnergy(EventInfo event) {
+        Particle p1 = particles.get(event.part1);
+        if (!isParticleEvent(event)) {
+            return p1.getKE();
+        }
+        Particle p2 = particles.get(event.part2);
+        double reducedMass = KG_PER_AMU * p1.mass * p2.mass / (p1.mass + p2.mass);
+        double dvx = p1.getXVel() - p2.getXVel();
+        double dvy = p1.getYVel() - p2.getYVel();
+        double dvz = p1.getZVel() - p2.getZVel();
+        return 0.5 * reducedMass * (dvx * dvx + dvy * dvy + dvz * dvz);
+    }
+
+    private volatile EventLog eventLog = null;
+
+    /**
+     * Logs every event performed from the next frame on to log, or stops
+     * logging if log is null.
+     */
+    public void setEventLog(EventLog log) {
+        eventLog = log;
+    }
+
+    /**
+     * Fills in the particles of an event taken off the calendar from its
+     * indices; the calendars only keep the indices.
+     */
+    private void setInvolvedParticles(EventInfo event) {
+        if (event.part1 < 0) {
+            return;
+        }
+        event.setInvolvedParticles(particles.get(event.part1),
+                isParticleEvent(event) ? particles.get(event.part2) : null);
+    }
+
+    /** Returned by PerformEvent, reused so performing an event allocates nothing */
+    private final EventInfo calAction = new EventInfo();
+
+    /** What CalUpdate predicts again after the thermostat rescales the velocities */
+    private final EventInfo rescaleUpdate = new EventInfo(Collision.BOUNDARY_ALL);
+
     private EventInfo PerformEvent(EventInfo event) {
             // carry out the event and be sure to set event.colType to the
             // appropriate flag for CalUpdate
-            EventInfo calAction = null;
-                        
-            try {
-                    calAction = (EventInfo) event.clone();
-            } catch (CloneNotSupportedException err) {
-                    //misc.guiPtr
-                    throw new RuntimeException(
-                                                    "Could not create a copy of the event in Physics:PerformEvent",
-                                                    err);
-            }
+            calAction.copy(event);
             Particle p1 = null, p2 = null;
 
+            // Take the particles out of the momentum totals while their velocities change
+            Particle moved1 = particles.get(event.part1);
+            Particle moved2 = isParticleEvent(event) ? particles.get(event.part2) : null;
+            momentum.remove(moved1);
+            if (moved2 != null) {
+                momentum.remove(moved2);
+            }
+
             // Take care of the event
             switch (event.colType)
             {
@@ -372,6 +546,7 @@ public class Physics {
                             p1.moveToTime(event.colTime);
                             p2.moveToTime(event.colTime);
                             p1.collideWith(p2, event);
+                            thermostat.afterCollision(event, p1, p2);
                             calAction.colType = Collision.PARTICLE_2;
                             lastCollisions.setLastCollision(event.part1, event.part2, event);
                             break;
@@ -406,13 +581,32 @@ public class Physics {
                             lastCollisions.setLastCollision(event.part1, event.part2, event);
                             break;
 
+                    case Collision.THERMOSTAT:
+                            p1 = particles.get(event.part1);
+                            p1.moveToTime(event.colTime);
+                            thermostat.performEvent(event, p1);
+                            calAction.colType = Collision.PARTICLE_1;
+                            break;
+
+                    case Collision.HOLE_CROSSING:
+                            // The velocity is unchanged, so the particle's pair
+                            // predictions still hold
+                            particles.get(event.part1).boundaryCollide(event, piston, thermostat, reservoirFlux);
+                            calAction.colType = Collision.BOUNDARY_1;
+                            break;
+
                     default: // all boundary events (Wall, Boundary, EOB, Barrier,
                                             // Edge)
                             Particle currentParticle = particles.get(event.part1);
-                            currentParticle.boundaryCollide(event, piston, thermostat);
+                            currentParticle.boundaryCollide(event, piston, thermostat, reservoirFlux);
                             calAction.colType = Collision.PARTICLE_1;
             }// end switch(event type)
 
+            momentum.add(moved1);
+            if (moved2 != null) {
+                momentum.add(moved2);
+            }
+
 
             return calAction;
     }
@@ -424,6 +618,11 @@ public class Physics {
      */
     EventInfo eventForCalUpdate = new EventInfo();
     protected void CalUpdate(EventInfo action) {
+        if (neighbourOrder != null) {
+            neighbourCalUpdate(action);
+            return;
+        }
+        
         cal.MarkEventToUpdate(action); // this helps optimize the calendar
                                              
         switch (action.colType) {
@@ -445,14 +644,14 @@ public class Physics {
                                     EventInfo lastCollision = lastCollisions.getLastCollision(part1Index, i);
                                     part1.predCol(part_i, lastCollision, eventForCalUpdate);
                                     cal.Update(eventForCalUpdate.colType, action.part1, i,
-                                                    eventForCalUpdate.side, eventForCalUpdate.colTime, eventForCalUpdate.particlesInvolved);
+                                                    eventForCalUpdate.side, eventForCalUpdate.colTime);
                                 }
 
                                 if (i != part2Index) {
                                     EventInfo lastCollision = lastCollisions.getLastCollision(i, part2Index);
                                     part2.predCol(part_i, lastCollision, eventForCalUpdate);
                                     cal.Update(eventForCalUpdate.colType, action.part2, i,
-                                                    eventForCalUpdate.side, eventForCalUpdate.colTime, eventForCalUpdate.particlesInvolved);
+                                                    eventForCalUpdate.side, eventForCalUpdate.colTime);
                                 }
                         }
                 }
@@ -469,19 +668,15 @@ public class Physics {
                         EventInfo lastCollision = lastCollisions.getLastCollision(part1Index, part2Index);
                         part1.predCol(part2, lastCollision, eventForCalUpdate);
                         cal.Update(Collision.PARTICLE, action.part1, action.part2,
-                                eventForCalUpdate.side, eventForCalUpdate.colTime, eventForCalUpdate.particlesInvolved);
+                                eventForCalUpdate.side, eventForCalUpdate.colTime);
                 }
                 }
                 // END Code added for the overlap issue (APS)
 
 
                 // get the soonest boundary event as well
-                eventForCalUpdate = part1.predBoundaryCol(getPiston(), holeOpen);
-                cal.Update(eventForCalUpdate.colType, action.part1, 0, eventForCalUpdate.side,
-                                eventForCalUpdate.colTime, eventForCalUpdate.particlesInvolved);
-                eventForCalUpdate = part2.predBoundaryCol(getPiston(), holeOpen);
-                cal.Update(eventForCalUpdate.colType, action.part2, 0, eventForCalUpdate.side,
-                                eventForCalUpdate.colTime, eventForCalUpdate.particlesInvolved);
+                predictBoundaryEvent(action.part1);
+                predictBoundaryEvent(action.part2);
 
         }
                 break;
@@ -498,14 +693,12 @@ public class Physics {
                                 EventInfo lastCollision = lastCollisions.getLastCollision(part1Index, i);
                                 part1.predCol(part_i, lastCollision, eventForCalUpdate);
                                 cal.Update(eventForCalUpdate.colType, action.part1, i,
-                                                eventForCalUpdate.side, eventForCalUpdate.colTime, eventForCalUpdate.particlesInvolved);
+                                                eventForCalUpdate.side, eventForCalUpdate.colTime);
                         }
                 }
 
                 // get the soonest boundary event as well
-                eventForCalUpdate = part1.predBoundaryCol(getPiston(), holeOpen);
-                cal.Update(eventForCalUpdate.colType, action.part1, 0, eventForCalUpdate.side,
-                                eventForCalUpdate.colTime, eventForCalUpdate.particlesInvolved);
+                predictBoundaryEvent(action.part1);
 
         }
                 break;
@@ -519,19 +712,21 @@ public class Physics {
                                 EventInfo lastCollision = lastCollisions.getLastCollision(p1, p2);
                                 part1.predCol(part2, lastCollision, eventForCalUpdate);
                                 cal.Update(eventForCalUpdate.colType, p1, p2, eventForCalUpdate.side,
-                                                eventForCalUpdate.colTime, eventForCalUpdate.particlesInvolved);
+                                                eventForCalUpdate.colTime);
                         }
                 }
         }
                 break;
+        case Collision.BOUNDARY_1:
+                predictBoundaryEvent(action.part1);
+                break;
         case Collision.BOUNDARY_ALL: {
                 // update all the boundary events for all particles (but no
                 // particle-
                 // particle events)
 
                 for (int i = 0; i < particles.size(); i++) {
-                        eventForCalUpdate = ((Particle) particles.get(i)).predBoundaryCol(getPiston(), holeOpen);
-                        cal.Update(eventForCalUpdate.colType, i, 0, eventForCalUpdate.side, eventForCalUpdate.colTime, eventForCalUpdate.particlesInvolved);
+                        predictBoundaryEvent(i);
                 }
         }
                 break;
@@ -540,10 +735,7 @@ public class Physics {
                 for (int i = 0; i < particles.size(); i++) {
                         // customize for only collision detection with piston
                         // event = ((Particle)particles.get(i)).predBoundaryCol();
-                        eventForCalUpdate = ((Particle) particles.get(i)).predBoundaryCol(getPiston(), holeOpen);
-                        if (eventForCalUpdate != null)
-                                cal.Update(eventForCalUpdate.colType, i, 0, eventForCalUpdate.side,
-                                                eventForCalUpdate.colTime, eventForCalUpdate.particlesInvolved);
+                        predictBoundaryEvent(i);
                 }
         }
                 break;
@@ -558,10 +750,9 @@ public class Physics {
                                 EventInfo lastCollision = lastCollisions.getLastCollision(p1, p2);
                                 part1.predCol(part2, lastCollision, eventForCalUpdate);
                                 cal.Update(eventForCalUpdate.colType, p1, p2, eventForCalUpdate.side,
-                                                eventForCalUpdate.colTime, eventForCalUpdate.particlesInvolved);
+                                                eventForCalUpdate.colTime);
                         }
-                        eventForCalUpdate = part1.predBoundaryCol(getPiston(), holeOpen);
-                        cal.Update(eventForCalUpdate.colType, p1, 0, eventForCalUpdate.side, eventForCalUpdate.colTime, eventForCalUpdate.particlesInvolved);
+                        predictBoundaryEvent(p1);
                 }
         }
         // case Collision.RESORT:
@@ -572,6 +763,83 @@ public class Physics {
         cal.FindMinimum();
     }
 
+    /**
+     * CalUpdate for when only neighbours can collide: the same predictions, but
+     * each particle is only checked against the particles on either side of it,
+     * so an event costs O(log N) instead of O(N).
+     */
+    private void neighbourCalUpdate(EventInfo action) {
+        switch (action.colType) {
+        case Collision.PARTICLE_2:
+                // The pair that just collided are neighbours, so this repredicts their event too
+                predictNeighbourEvents(action.part1);
+                predictNeighbourEvents(action.part2);
+                predictBoundaryEvent(action.part1);
+                predictBoundaryEvent(action.part2);
+                break;
+        case Collision.PARTICLE_1:
+                predictNeighbourEvents(action.part1);
+                predictBoundaryEvent(action.part1);
+                break;
+        case Collision.BOUNDARY_1:
+                predictBoundaryEvent(action.part1);
+                break;
+        case Collision.PARTICLE_ALL:
+                for (int i = 0; i < particles.size(); i++) {
+                        predictPairEvent(i, neighbourOrder.getRight(i));
+                }
+                break;
+        case Collision.BOUNDARY_ALL:
+        case Collision.PISTON_ALL:
+                for (int i = 0; i < particles.size(); i++) {
+                        predictBoundaryEvent(i);
+                }
+                break;
+        case Collision.EVERYTHING:
+                for (int i = 0; i < particles.size(); i++) {
+                        predictPairEvent(i, neighbourOrder.getRight(i));
+                        predictBoundaryEvent(i);
+                }
+                break;
+        }
+    }
+
+    private void predictNeighbourEvents(int particleIndex) {
+        predictPairEvent(particleIndex, neighbourOrder.getLeft(particleIndex));
+        predictPairEvent(particleIndex, neighbourOrder.getRight(particleIndex));
+    }
+
+    private void predictPairEvent(int particleIndex, int otherIndex) {
+        if (otherIndex == ParticleOrder1D.NO_NEIGHBOUR) {
+            return;
+        }
+        EventInfo lastCollision = lastCollisions.getLastCollision(particleIndex, otherIndex);
+        particles.get(particleIndex).predCol(particles.get(otherIndex), lastCollision, eventForCalUpdate);
+        cal.Update(eventForCalUpdate.colType, particleIndex, otherIndex,
+                eventForCalUpdate.side, eventForCalUpdate.colTime);
+    }
+
+    /**
+     * Predicts the soonest boundary event for a particle, or the particle's next
+     * thermostat event if that comes first; both use the particle's boundary
+     * slot in the calendar.
+     */
+    private void predictBoundaryEvent(int particleIndex) {
+        Particle particle = particles.get(particleIndex);
+        EventInfo boundaryEvent = particle.predBoundaryCol(getPiston(), holeOpen, countHoleCrossings);
+        if (boundaryEvent == null) {
+            return;
+        }
+        double thermostatTime = thermostat.predictEvent(particleIndex, particle);
+        if (thermostatTime < boundaryEvent.colTime) {
+            cal.Update(Collision.THERMOSTAT, particleIndex, 0, 0,
+                    thermostatTime);
+        } else {
+            cal.Update(boundaryEvent.colType, particleIndex, 0, boundaryEvent.side,
+                    boundaryEvent.colTime);
+        }
+    }
+
     public Piston getPiston() {
             return piston;
     }
@@ -580,6 +848,59 @@ public class Physics {
             return thermostat;
     }
 
+    /**
+     * Chooses the thermostat (a ThermostatFactory mode) and damp factor used by
+     * isothermal piston moves and startThermostat. See the ThermostatController
+     * implementations for what the damp factor means for each.
+     */
+    public void setThermostatSettings(int mode, double dampFactor) {
+        thermostatMode = mode;
+        thermostatDampFactor = dampFactor;
+    }
+
+    /**
+     * Holds the gas at targetTemperature (K) with the thermostat chosen by
+     * setThermostatSettings, whether or not the piston is used. This lets
+     * periodic boxes, which have no walls, be thermostatted. Takes effect at the
+     * start of the next frame.
+     */
+    public void startThermostat(double targetTemperature) {
+        thermostatRequest.set(new ThermostatRequest(true, thermostatMode, thermostatDampFactor, targetTemperature));
+    }
+
+    /** Switches the thermostat off at the start of the next frame */
+    public void stopThermostat() {
+        thermostatRequest.set(new ThermostatRequest(false, thermostatMode, thermostatDampFactor, Double.NaN));
+    }
+
+    private void applyThermostatRequest(ThermostatRequest request) {
+        if (request.enabled) {
+            double targetTemperature = Double.isNaN(request.targetTemperature)
+                    ? getTemperature() : request.targetTemperature;
+            enableThermostat(request.mode, request.dampFactor, targetTemperature);
+        } else {
+            thermostat.reset(false);
+        }
+        // Schedule or drop thermostat events
+        CalUpdate(new EventInfo(Collision.BOUNDARY_ALL));
+    }
+
+    private void enableThermostat(int mode, double dampFactor, double targetTemperature) {
+        thermostat.setThermostatController(ThermostatFactory.createController(mode));
+        thermostat.setMode(mode);
+        thermostat.setDampFactor(dampFactor);
+        thermostat.setTargetTemperature(targetTemperature);
+        thermostat.setEnabled(true);
+        thermostat.start(particles.size(), currSimTime);
+    }
+
+    /**
+     * @return Current temperature of the gas in K
+     */
+    private double getTemperature() {
+        return Formulas.temperature(momentum.getKineticEnergy() / particles.size(), simulationInfo.dimension);
+    }
+
     /**
      * Calculates the percent of length in the piston's direction that is the
      * minimum length required to have enough space to fit all the particles
@@ -663,14 +984,10 @@ public class Physics {
         return 100.0 * minimumLength / pistonArenaSize;
     }
 
-    private Map<Particle, PartState> getParticleStates() {
-        Map<Particle, PartState> particleStates = new HashMap<Particle, PartState>();
-        int particleIndex = 0;
-        for (Particle p: particles) {
-            particleStates.put(p, p.getState(workingStates[particleIndex]));
-            particleIndex++;
-        }
-        //Switch which array we're using so particle states are not overwritten
+    private ParticleStates getParticleStates() {
+        ParticleStates particleStates = workingStates;
+        particleStates.fill(particles);
+        //Switch which states we're using so particle states are not overwritten
         //before frame is drawn
         switchWorkingStatesArray();        
         
@@ -708,6 +1025,8 @@ public class Physics {
         // 3) Create the piston and thermostat
         piston = new Piston(currSimTime, 0.0, simulationInfo.maxPistonLevel, simulationInfo);
         thermostat = new Thermostat(false);
+        thermostat.setCollisionFrequency(1.0 / collisionLifetime);
+        thermostatRequest.set(null);
 
         for (Particle particle: particles) {
             particle.reset();
@@ -716,17 +1035,65 @@ public class Physics {
         initializeLastCollisions();
 
         // 6) Instantiate the calendar, predict initial events and sort
-        cal = new Calendar(particles.size());
+        cal = createCalendar();
+
+        // Start from the same velocities as the constructor did
+        removeDriftRequested.set(false);
+        momentum.recompute(particles);
+        if (simulationInfo.isPeriodic()) {
+            setTotalMomentum(0.0, 0.0, 0.0);
+        }
 
         CalUpdate(new EventInfo(Collision.EVERYTHING));
         
         resetStatistics(0.0);
         statisticsReset = false;    
+        equilibrationDetector = null;
         
         firstRun = true;
     }
     
+    /**
+     * True if particles can only ever collide with their neighbours in order,
+     * which is the case in 1D unless the interaction wells are wide enough to
+     * reach past a neighbour.
+     */
+    private boolean onlyNeighboursCollide() {
+        if (simulationInfo.dimension != 1 || particles.size() < 3) {
+            return false;
+        }
+        if (simulationInfo.attractiveParticleInteractions) {
+            double minRadius = Double.MAX_VALUE;
+            double maxRadius = 0.0;
+            for (Particle particle : particles) {
+                minRadius = Math.min(minRadius, particle.radius);
+                maxRadius = Math.max(maxRadius, particle.radius);
+            }
+            // The closest two particles with one between them can get is the
+            // sum of their radii plus the diameter of the one in the middle
+            double extraWellReach = (simulationInfo.radiusOfInteractionMultiplier - 1.0) * 2.0 * maxRadius;
+            if (extraWellReach > 2.0 * minRadius) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Must be called after initializeLastCollisions() */
+    private EventCalendar createCalendar() {
+        if (neighbourOrder != null) {
+            return new NeighbourCalendar(neighbourOrder);
+        } else {
+            return new Calendar(particles.size());
+        }
+    }
+
     private void initializeLastCollisions() {
+        if (onlyNeighboursCollide()) {
+            initializeNeighbourLastCollisions();
+            return;
+        }
+        neighbourOrder = null;
         lastCollisions = new LastCollisions(simulationInfo.totalNumParticles, DEFAULT_LAST_COLLISION);  
         
         if (simulationInfo.attractiveParticleInteractions) {
@@ -740,14 +1107,36 @@ public class Physics {
                             (part1.radius + part2.radius);
                     if (distance < wellSize) {                                
                         lastCollisions.setLastCollision(particleIndex1, particleIndex2, 
-                                new EventInfo(Collision.ENTER_WELL, currSimTime, -1, -1, -1,
-                                        null));
+                                new EventInfo(Collision.ENTER_WELL, currSimTime, -1, -1, -1));
                     }
                 }
             }
         }
     }
 
+    private void initializeNeighbourLastCollisions() {
+        neighbourOrder = new ParticleOrder1D(particles, simulationInfo.isPeriodic());
+        lastCollisions = new LastCollisions(neighbourOrder, DEFAULT_LAST_COLLISION);
+
+        if (simulationInfo.attractiveParticleInteractions) {
+            for (int particleIndex1 = 0; particleIndex1 < particles.size(); particleIndex1++) {
+                int particleIndex2 = neighbourOrder.getRight(particleIndex1);
+                if (particleIndex2 == ParticleOrder1D.NO_NEIGHBOUR) {
+                    continue;
+                }
+                Particle part1 = particles.get(particleIndex1);
+                Particle part2 = particles.get(particleIndex2);
+                double distance = Formulas.distance(part1.getPosition(), part2.getPosition());
+                double wellSize = simulationInfo.radiusOfInteractionMultiplier * 
+                        (part1.radius + part2.radius);
+                if (distance < wellSize) {                                
+                    lastCollisions.setLastCollision(particleIndex1, particleIndex2, 
+                            new EventInfo(Collision.ENTER_WELL, currSimTime, -1, -1, -1));
+                }
+            }
+        }
+    }
+
     /** 
      * Sets the total momentum of the system - only valid in periodic boundaries.
      * 
@@ -758,75 +1147,94 @@ public class Physics {
      * (3) If the adjusted kinetic energy is zero, (i.e., all particles are 
      * 		drifting the same direction with no relative motion, and they are adjusted to zero),
      * 		it adjusts the momentum but does not try to adjust the kinetic energy
+     *
+     * Restoring the kinetic energy changes the relative velocities, so every
+     * event has to be predicted again. removeDrift() takes the drift out
+     * without that cost.
      */
     public void SetTotalMom(double xMom, double yMom, double zMom) {
+        if (setTotalMomentum(xMom, yMom, zMom)) {
+            // update the calendar
+            CalUpdate(new EventInfo(Collision.EVERYTHING));
+        }
+    }
 
-        if (simulationInfo.isPeriodic()) {
-
-//            // Pause the simulation to avoid threading conflicts while adjusting...
-//            boolean pausedHere = false;
-//            if (! this.paused) {
-//                    pausedHere = true;
-//                    this.Pause();
-//            }
-
-
-            double origKE = 0, currKE = 0, f = 0;
-            // Current x, y, z total momentum
-            double currX = 0, currY = 0, currZ = 0;
-            // Momentum adjustments per particle
-            double xAdj = 0, yAdj = 0, zAdj = 0;
-            int numPart = particles.size();
+    /**
+     * Adjusts the velocities for SetTotalMom, leaving the calendar alone.
+     *
+     * @return true if any velocities were changed
+     */
+    private boolean setTotalMomentum(double xMom, double yMom, double zMom) {
+        int numPart = particles.size();
+        double origKE = momentum.getKineticEnergy();
 
-            // only valid if there are two or more particles...
-            if (numPart >= 2) {
+        // only valid if there are two or more particles and they already have some energy...
+        if (!simulationInfo.isPeriodic() || numPart < 2 || origKE <= 0.0) {
+            return false;
+        }
 
-                for (int i = 0; i < numPart; i++) {
-                    origKE += ((Particle) particles.get(i)).getKE();
-                    currX += ((Particle) particles.get(i)).getXMom();
-                    if (simulationInfo.dimension > 1)
-                        currY += ((Particle) particles.get(i)).getYMom();
-                    if (simulationInfo.dimension > 2)
-                        currZ += ((Particle) particles.get(i)).getZMom();
-                }
+        // Momentum adjustments per particle
+        double xAdj = (momentum.getXMom() - xMom) / numPart;
+        double yAdj = (simulationInfo.dimension > 1) ? (momentum.getYMom() - yMom) / numPart : 0.0;
+        double zAdj = (simulationInfo.dimension > 2) ? (momentum.getZMom() - zMom) / numPart : 0.0;
 
-                // only valid if particles already have some energy...
-                if (origKE > 0.0) {
+        // adjust the total momentum and gather KE information
+        double currKE = 0.0;
+        for (Particle particle: particles) {
+            particle.adjust(xAdj, yAdj, zAdj);
+            currKE += particle.getKE();
+        }
+        if (currKE > 0.0) {
+            // correct the KE to re-establish the old average
+            // (unless it is a unified drift with no relative motion)
+            double f = Math.sqrt(origKE / currKE);
+            for (Particle particle: particles) {
+                particle.adjust(f);
+            }
+        }
 
-                    xAdj = (currX - xMom) / numPart;
-                    if (simulationInfo.dimension > 1)
-                        yAdj = (currY - yMom) / numPart;
-                    if (simulationInfo.dimension > 2)
-                        zAdj = (currZ - zMom) / numPart;
+        momentum.recompute(particles);
+        return true;
+    }
 
-                    // adjust the total momentum to zero and gather KE information
-                    for (int i = 0; i < numPart; i++) {
-                        ((Particle) particles.get(i)).adjust(xAdj, yAdj, zAdj);
-                        currKE += ((Particle) particles.get(i)).getKE();
-                    }
-                    if (currKE > 0.0) {
-                        // correct the KE to re-establish the old average
-                        // (unless it is a unified drift with no relative motion)
-                        f = Math.sqrt(origKE / currKE);
-                        for (int i = 0; i < numPart; i++)
-                            ((Particle) particles.get(i)).adjust(f);
-                    }
+    /**
+     * Takes the centre-of-mass drift out of a periodic box at the start of the
+     * next frame, for instance after running a thermostat that does not
+     * conserve momentum. Does nothing in other arenas, whose walls do not
+     * conserve momentum either.
+     *
+     * Every particle's velocity changes by the same amount. That leaves the
+     * relative motion, and so the temperature and the time of every
+     * particle-particle event, as it was; only boundary events are predicted
+     * again. The kinetic energy of the drift is removed along with it.
+     */
+    public void removeDrift() {
+        if (simulationInfo.isPeriodic()) {
+            removeDriftRequested.set(true);
+        }
+    }
 
-                    // update the calendar
-                    CalUpdate(new EventInfo(Collision.EVERYTHING));
-                    
-                } // end if (origKE > 0.0)
-            } // end if (numpart >= 2)
+    /**
+     * Galilean shift for removeDrift. All particles must be at currSimTime,
+     * which they are between frames.
+     */
+    private void shiftToCentreOfMassFrame() {
+        double totalMass = momentum.getTotalMass();
+        if (totalMass <= 0.0) {
+            return;
+        }
+        double xShift = -momentum.getXMom() / totalMass;
+        double yShift = -momentum.getYMom() / totalMass;
+        double zShift = -momentum.getZMom() / totalMass;
 
-//            if (pausedHere) {
-//                this.Pause(); // unpause
-//            }
-//
-//            if (paused) {
-//                activeStat.update = true;
-//                AsyncUpdateQ();
-//            }
+        for (Particle particle: particles) {
+            particle.setVelocity(particle.getXVel() + xShift,
+                    particle.getYVel() + yShift,
+                    particle.getZVel() + zShift);
         }
+        momentum.shift(xShift, yShift, zShift);
+
+        CalUpdate(new EventInfo(Collision.BOUNDARY_ALL));
     }
 
     public double getFrameDuration() {
@@ -847,13 +1255,106 @@ public class Physics {
             statistics.put(currentTypes, currentStatistics);
         }
         
+        Set<String> unknown = new HashSet<String>(statInfo.providedStatistics);
+        for (StatisticProvider provider: StatisticProviders.getProviders()) {
+            unknown.remove(provider.getName());
+        }
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("No statistic providers named " + unknown);
+        }
+        providedStatistics = new HashMap<Set<ParticleType>, Map<String, Statistic>>();
+        for (Set<ParticleType> currentTypes: statistics.keySet()) {
+            Map<String, Statistic> currentStatistics = new LinkedHashMap<String, Statistic>();
+            for (StatisticProvider provider: StatisticProviders.getProviders()) {
+                if (!statInfo.providedStatistics.contains(provider.getName())) {
+                    continue;
+                }
+                Statistic currentStatistic = provider.createStatistic(simulationInfo, currentTypes);
+                if (currentStatistic != null) {
+                    currentStatistics.put(provider.getName(), currentStatistic);
+                }
+            }
+            providedStatistics.put(currentTypes, currentStatistics);
+        }
+        listStatistics();
+        
         setCorrectionsForStats(useFiniteSystemCorrections, useRealGasCorrections);
+        setAveragingForStats();
         
         setPressureAveragingTime(statInfo.pressureAveragingTime);
         setRDFUpdateMultiplier(statInfo.rdfUpdateFreq);
         setExhaustiveRDFCalcs(statInfo.exhausiveRDFCalcs);
     }
 
+    private void listStatistics() {
+        List<Statistic> list = new ArrayList<Statistic>();
+        List<Integer> eventTypes = new ArrayList<Integer>();
+        Set<FrameAnalysis.Column> columns = EnumSet.noneOf(FrameAnalysis.Column.class);
+        for (Map<StatisticID, Statistic> statsByClass: statistics.values()) {
+            list.addAll(statsByClass.values());
+            for (int i = 0; i < statsByClass.size(); i++) {
+                eventTypes.add(STATISTIC_ID_EVENTS);
+            }
+            if (!statsByClass.isEmpty()) {
+                // Statistics in StatisticID may read any column
+                columns.addAll(EnumSet.allOf(FrameAnalysis.Column.class));
+            }
+        }
+        Map<String, StatisticProvider> providers = new HashMap<String, StatisticProvider>();
+        for (StatisticProvider provider: StatisticProviders.getProviders()) {
+            providers.put(provider.getName(), provider);
+        }
+        for (Map<String, Statistic> statsByName: providedStatistics.values()) {
+            for (Map.Entry<String, Statistic> entry: statsByName.entrySet()) {
+                StatisticProvider provider = providers.get(entry.getKey());
+                list.add(entry.getValue());
+                eventTypes.add(provider.getEventTypes());
+                columns.addAll(provider.getFrameColumns());
+            }
+        }
+        statisticList = list.toArray(new Statistic[list.size()]);
+        
+        Statistic[][] byEventType = new Statistic[Integer.SIZE][];
+        for (int type = 0; type < Integer.SIZE; type++) {
+            List<Statistic> forType = new ArrayList<Statistic>();
+            for (int i = 0; i < statisticList.length; i++) {
+                if ((eventTypes.get(i) & (1 << type)) != 0) {
+                    forType.add(statisticList[i]);
+                }
+            }
+            byEventType[type] = forType.toArray(new Statistic[forType.size()]);
+        }
+        statisticsByEventType = byEventType;
+        
+        boolean crossings = byEventType[Collision.HOLE_CROSSING].length > 0;
+        if (crossings != countHoleCrossings) {
+            countHoleCrossings = crossings;
+            CalUpdate(new EventInfo(Collision.BOUNDARY_ALL));
+        }
+        
+        EventOutcomeStatistic[][] outcomeByEventType = new EventOutcomeStatistic[Integer.SIZE + 1][];
+        for (int type = 0; type <= Integer.SIZE; type++) {
+            Statistic[] forType = (type < Integer.SIZE) ? byEventType[type] : statisticList;
+            List<EventOutcomeStatistic> outcomeForType = new ArrayList<EventOutcomeStatistic>();
+            for (Statistic statistic: forType) {
+                if (statistic instanceof EventOutcomeStatistic) {
+                    outcomeForType.add((EventOutcomeStatistic) statistic);
+                }
+            }
+            outcomeByEventType[type] = outcomeForType.toArray(new EventOutcomeStatistic[outcomeForType.size()]);
+        }
+        outcomeStatisticsByEventType = outcomeByEventType;
+        
+        List<FrameStatistic> frameStatistics = new ArrayList<FrameStatistic>();
+        for (Statistic statistic: statisticList) {
+            if (statistic instanceof FrameStatistic) {
+                frameStatistics.add((FrameStatistic) statistic);
+            }
+        }
+        frameStatisticList = frameStatistics.toArray(new FrameStatistic[frameStatistics.size()]);
+        frameAnalysis.setColumns(columns);
+    }
+
     public void setFiniteSysCorrections(boolean corrections) {
         useFiniteSystemCorrections = corrections;
         setCorrectionsForStats(corrections, useRealGasCorrections);
@@ -865,13 +1366,9 @@ public class Physics {
     }
     
     private void setCorrectionsForStats(boolean finiteCorrections, boolean realGasCorrections) {
-        if (statistics != null) {
-            for (Map<StatisticID, Statistic> statsByClass: statistics.values()) {
-                for (Statistic statistic: statsByClass.values()){
-                    statistic.setFiniteSysCorrections(finiteCorrections);
-                    statistic.setRealGasCorrections(realGasCorrections);
-                }
-            }
+        for (Statistic statistic: statisticList) {
+            statistic.setFiniteSysCorrections(finiteCorrections);
+            statistic.setRealGasCorrections(realGasCorrections);
         }
     }
     
@@ -902,6 +1399,21 @@ public class Physics {
 //            }
     }
 
+    /**
+     * The statistic made for types by the StatisticProvider named name, or null
+     * if the provider wasn't enabled in the StatSettingsInfo or didn't make one
+     * for them.
+     */
+    public Statistic getStatistic(Set<ParticleType> types, String name) {
+        Map<String, Statistic> statMap = providedStatistics.get(types);
+
+        if (statMap != null) {
+            return statMap.get(name);
+        } else {
+            throw new IllegalArgumentException("No statistic " + name + " for " + types);
+        }
+    }
+
     public Statistic getStatistic(Set<ParticleType> types, StatisticID statisticID) {
         Map<StatisticID, Statistic> statMap = statistics.get(types);
 
@@ -913,19 +1425,15 @@ public class Physics {
     }
 
     private void resetStatistics(double newStartTime) {
+        reservoirFlux.reset(newStartTime);
         if (newStartTime == 0.0) {
-            for (Map<StatisticID, Statistic> statsByClass: statistics.values()) {
-                for (Statistic statistic: statsByClass.values()) {
-                    statistic.reset();
-                }
+            for (Statistic statistic: statisticList) {
+                statistic.reset();
             }
         } else {
-            for (Map<StatisticID, Statistic> statsByClass: statistics.values()) {
-                for (Statistic statistic: statsByClass.values()) {
-                    statistic.clear();
-                }
+            for (Statistic statistic: statisticList) {
+                statistic.clear();
             }
-            
         }
     }
     
@@ -933,17 +1441,35 @@ public class Physics {
     private double collisionLifetime = 0.0;
     private boolean statisticsReset = false;
     
+    private volatile AveragingMode averagingMode;
+    /** In collision lifetimes */
+    private volatile double averagingHalfLife;
+    private final AtomicBoolean averagingChanged = new AtomicBoolean(false);
+    
+    private volatile boolean detectEquilibration;
+    private EquilibrationDetector equilibrationDetector = null;
+    
     public void updateStatistics(EventInfo event) {
-        if (!statisticsReset && 
+        if (!statisticsReset && !detectingEquilibration() &&
                 event.colTime > (forgetMultiplier * collisionLifetime)) {
             resetStatistics(event.colTime);
             statisticsReset = true;
         }
         
-        for (Map<StatisticID, Statistic> statsByClass: statistics.values()) {
-            for (Statistic statistic: statsByClass.values()) {
-                statistic.notifyOfEvent(event);
-            }
+        // Provided statistics only hear about the event types they asked for
+        int type = event.colType;
+        Statistic[] list = (type >= 0 && type < Integer.SIZE) ? statisticsByEventType[type] : statisticList;
+        for (int i = 0; i < list.length; i++) {
+            list[i].notifyOfEvent(event);
+        }
+    }
+    
+    private void updateStatisticsWithOutcome(EventInfo event) {
+        int type = event.colType;
+        EventOutcomeStatistic[] list = outcomeStatisticsByEventType[
+                (type >= 0 && type < Integer.SIZE) ? type : Integer.SIZE];
+        for (int i = 0; i < list.length; i++) {
+            list[i].notifyOfEventOutcome(event);
         }
     }
     
@@ -962,25 +1488,122 @@ public class Physics {
     }
 
     private void notifyStatisticsOfTime(double simulationTime) {
-        for (Map<StatisticID, Statistic> statsByClass: statistics.values()) {
-            for (Statistic statistic: statsByClass.values()) {
-                statistic.notifyOfSimulationTime(simulationTime);
-            }
+        Statistic[] list = statisticList;
+        for (int i = 0; i < list.length; i++) {
+            list[i].notifyOfSimulationTime(simulationTime);
+        }
+    }
+    
+    private void notifyStatisticsOfFrame(FrameInfo frame) {
+        FrameStatistic[] list = frameStatisticList;
+        for (int i = 0; i < list.length; i++) {
+            list[i].notifyOfFrame(frame);
         }
     }
     
     public void setForgetMultiplier(double mult) {
         forgetMultiplier = mult;
     }
+    
+    /**
+     * Chooses how statistics that support it weight older data in their
+     * cumulative averages. Takes effect at the end of the next frame.
+     * @param halfLife half-life or block length in collision lifetimes
+     */
+    public void setAveraging(AveragingMode mode, double halfLife) {
+        averagingMode = mode;
+        averagingHalfLife = halfLife;
+        averagingChanged.set(true);
+    }
+    
+    /**
+     * When on, statistics are cleared once the gas is seen to have equilibrated
+     * rather than after the forget time. Only affects a simulation whose
+     * statistics have not been cleared yet.
+     */
+    public void setDetectEquilibration(boolean detect) {
+        detectEquilibration = detect;
+    }
+    
+    private void setAveragingForStats() {
+        AveragingMode mode = averagingMode;
+        double halfLife = averagingHalfLife * collisionLifetime;
+        if (!(halfLife > 0.0) || Double.isInfinite(halfLife)) {
+            // No collisions to measure the half-life by
+            mode = AveragingMode.CUMULATIVE;
+        }
+        for (Statistic statistic: statisticList) {
+            if (statistic instanceof AveragedStatistic) {
+                ((AveragedStatistic) statistic).setAveraging(mode, halfLife);
+            }
+        }
+    }
+    
+    private boolean detectingEquilibration() {
+        return detectEquilibration && collisionLifetime > 0.0 && !Double.isInfinite(collisionLifetime);
+    }
+    
+    /**
+     * Watches the mean particle speed, which drifts while the speed
+     * distribution relaxes, and clears the statistics once it levels off.
+     * Blocks are half a collision lifetime, so neighbouring blocks are still
+     * somewhat correlated; that makes the test stricter, not looser.
+     */
+    private void checkEquilibration(FrameInfo frame) {
+        if (equilibrationDetector == null) {
+            equilibrationDetector = new EquilibrationDetector(0.5 * collisionLifetime);
+        }
+        ParticleStates states = frame.getParticleStates();
+        double[] velocities = states.getVelocities();
+        double totalSpeed = 0.0;
+        for (int offset = 0; offset < velocities.length; offset += 3) {
+            double xVel = velocities[offset];
+            double yVel = velocities[offset + 1];
+            double zVel = velocities[offset + 2];
+            totalSpeed += Math.sqrt(xVel * xVel + yVel * yVel + zVel * zVel);
+        }
+        equilibrationDetector.addSample(totalSpeed / states.size(),
+                frame.endTime - frame.startTime, frame.endTime);
+        
+        if (equilibrationDetector.isEquilibrated()) {
+            resetStatistics(equilibrationDetector.getEquilibrationTime());
+            statisticsReset = true;
+        }
+    }
+    
+    /** Time at which equilibration was detected, NaN if it hasn't been */
+    public double getEquilibrationTime() {
+        EquilibrationDetector detector = equilibrationDetector;
+        return (detector == null) ? Double.NaN : detector.getEquilibrationTime();
+    }
+
+    private final FrameAnalysis frameAnalysis = new FrameAnalysis();
 
+    /**
+     * Has the statistics read the current frame's particle states. The states
+     * are analyzed once, in parallel for large systems, and every statistic
+     * reads the shared analysis from the frame.
+     */
     public void notifyStatisticsOfCurrentFrame() {
-        for (Map<StatisticID, Statistic> statsByClass: statistics.values()) {
-            for (Statistic statistic: statsByClass.values()) {
-                statistic.useFrameForCurrentCalculations(currentFrame);
-            }
+        frameAnalysis.analyze(currentFrame.getParticleStates());
+        currentFrame.setAnalysis(frameAnalysis);
+        Statistic[] list = statisticList;
+        for (int i = 0; i < list.length; i++) {
+            list[i].useFrameForCurrentCalculations(currentFrame);
         }
     }
 
+    /**
+     * Snapshot of every statistic as of the end of the current frame. Must be
+     * called between frames, from the thread that advances them (or while it
+     * is held up), after notifyStatisticsOfCurrentFrame() if the current
+     * values should reflect this frame.
+     */
+    public StatisticsSnapshot createStatisticsSnapshot() {
+        double time = (currentFrame == null) ? 0.0 : currentFrame.endTime;
+        return new StatisticsSnapshot(statisticList, time);
+    }
+
     public void setArenaHoleOpen(boolean arenaHoleOpen) {
         /**
          * Don't change the hole's state while the current frame is being processed.
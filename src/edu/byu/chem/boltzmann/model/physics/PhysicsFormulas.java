@@ -31,6 +31,8 @@ public class PhysicsFormulas {
     //collisions with a heat reservoir.
     private static double MAX_NORMAL_KE_CHANGE = 0.1;
     
+    private static final double AMU_JOULES_PER_JOULE = Units.convert(Energy.JOULE, Energy.AMU_JOULE, 1.0);
+    
     /**
      * @return How much the normal component of velocity should changed 
      */
@@ -41,11 +43,31 @@ public class PhysicsFormulas {
             double reservoirTemperature,
             int dimension) {
         
-        double currentKE = Formulas.kineticEnergy(mass, Formulas.magnitude(velocity));
+        return calculateVelocityChange(
+                Formulas.kineticEnergy(mass, Formulas.magnitude(velocity)),
+                normalComponent,
+                mass,
+                reservoirTemperature,
+                dimension);
+    }
+    
+    /**
+     * Same as calculateVelocityChange(double[], ...), but takes the particle's
+     * kinetic energy (AMU_JOULE) so that wall collisions don't have to build a
+     * velocity array.
+     * @return How much the normal component of velocity should changed 
+     */
+    public static double calculateVelocityChange(
+            double currentKE, 
+            double normalComponent,
+            double mass,
+            double reservoirTemperature,
+            int dimension) {
+        
         double normalKE = Formulas.kineticEnergy(mass, normalComponent);
         
         double rightKEForTempJoules = Formulas.avgKineticEnergy(reservoirTemperature, dimension);
-        double rightKEForTemp = Units.convert(Energy.JOULE, Energy.AMU_JOULE, rightKEForTempJoules);
+        double rightKEForTemp = rightKEForTempJoules * AMU_JOULES_PER_JOULE;
         
         double energyDifference = Math.abs(rightKEForTemp - currentKE);
         double maxEnergyChange = normalKE * MAX_NORMAL_KE_CHANGE;
@@ -0,0 +1,86 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.physics;
+
+import edu.byu.chem.boltzmann.model.statistics.Formulas;
+import java.util.List;
+
+/**
+ * Concrete implementation of a ThermostatController that scales the velocities
+ * of all the particles at the end of each frame so the temperature moves
+ * toward the target temperature.
+ *
+ * Each frame the kinetic energy is scaled by 1 + dampFactor * (T0/T - 1), so
+ * the damp factor is the fraction of the difference removed per frame.
+ */
+public class RescalingController implements ThermostatController {
+
+	public static double MINGAMMA2 = .5;
+	public static double MAXGAMMA2 = 1.5;
+
+	public double calculateAdjustment(Thermostat t, EventInfo event, Particle p) {
+		return 1.0;
+	}
+
+	public void start(Thermostat t, int numParticles, double time) {
+	}
+
+	public double predictEvent(Thermostat t, int particleIndex, Particle p) {
+		return Calendar.MAXTIME;
+	}
+
+	public void performEvent(Thermostat t, EventInfo event, Particle p) {
+	}
+
+	public boolean afterCollision(Thermostat t, EventInfo event, Particle p1, Particle p2) {
+		return false;
+	}
+
+	public double endFrame(Thermostat t, List<Particle> particles) {
+		if (particles.isEmpty()) {
+			return 1.0;
+		}
+
+		double totalKE = 0.0;
+		for (Particle particle: particles) {
+			totalKE += particle.getKE();
+		}
+		if (totalKE <= 0.0) {
+			return 1.0;
+		}
+
+		int dimension = particles.get(0).simulationInfo.dimension;
+		double temperature = Formulas.temperature(totalKE / particles.size(), dimension);
+
+		double gammaSquared = 1.0 + t.getDampFactor() * (t.getTargetTemperature() / temperature - 1.0);
+		if (gammaSquared < MINGAMMA2) {
+			gammaSquared = MINGAMMA2;
+		} else if (gammaSquared > MAXGAMMA2) {
+			gammaSquared = MAXGAMMA2;
+		}
+		if (gammaSquared == 1.0) {
+			return 1.0;
+		}
+
+		double gamma = Math.sqrt(gammaSquared);
+		for (Particle particle: particles) {
+			particle.adjust(gamma);
+		}
+		return gamma;
+	}
+}
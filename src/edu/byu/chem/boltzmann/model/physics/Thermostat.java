@@ -19,14 +19,19 @@ package edu.byu.chem.boltzmann.model.physics;
 
 import edu.byu.chem.boltzmann.controller.Controller;
 import edu.byu.chem.boltzmann.controller.ErrorHandler;
+import edu.byu.chem.boltzmann.model.statistics.Formulas;
 import edu.byu.chem.boltzmann.utils.Units;
 import edu.byu.chem.boltzmann.utils.Units.Energy;
+import java.util.List;
+import java.util.Random;
 
 public class Thermostat {
 
 	public static final double THERMOSTATEPSILON = 
                 Units.convert(Energy.AMU_JOULE, Energy.JOULE, 1.0);
 
+	public static final double DEFAULT_DAMP_FACTOR = .1;
+
 	int mode;
 	
 	private ThermostatController thermostatController;
@@ -36,6 +41,16 @@ public class Thermostat {
 	private double deltaKE;
 	
 	protected boolean isEnabled;
+
+	private static final double KG_PER_AMU = Units.convert("amu", "kg", 1.0);
+
+	/** Temperature (K) the Andersen, rescaling and Lowe-Andersen thermostats hold the gas at */
+	private double targetTemperature;
+
+	/** Predicted collision frequency (Hz) of a single particle */
+	private double collisionFrequency;
+
+	private final Random random = new Random();
 	
 	public Thermostat(boolean enabled)
 	{
@@ -44,7 +59,7 @@ public class Thermostat {
 	
 	public void reset(boolean enabled) 
 	{
-		setDampFactor(.1);
+		setDampFactor(DEFAULT_DAMP_FACTOR);
 		setDeltaKE(0.0);
 		setMode(ThermostatFactory.WALLTHERMOSTAT);
 		setEnabled(enabled);
@@ -62,6 +77,70 @@ public class Thermostat {
 		return modifier;		
 	}
 
+	/**
+	 * Called by Physics when the thermostat is switched on
+	 */
+	public void start(int numParticles, double time) {
+		getThermostatController().start(this, numParticles, time);
+	}
+
+	/**
+	 * @return Time of the next thermostat event for the particle, or
+	 * Calendar.MAXTIME if there is none
+	 */
+	public double predictEvent(int particleIndex, Particle p) {
+		if (!isEnabled || thermostatController == null) {
+			return Calendar.MAXTIME;
+		}
+		return thermostatController.predictEvent(this, particleIndex, p);
+	}
+
+	public void performEvent(EventInfo event, Particle p) {
+		if (isEnabled && thermostatController != null) {
+			thermostatController.performEvent(this, event, p);
+		}
+	}
+
+	/**
+	 * @return true if the thermostat changed the velocities of p1 and p2
+	 */
+	public boolean afterCollision(EventInfo event, Particle p1, Particle p2) {
+		return isEnabled && thermostatController != null
+				&& thermostatController.afterCollision(this, event, p1, p2);
+	}
+
+	/**
+	 * @return the factor the thermostat multiplied every particle's velocity
+	 * by, or 1.0 if it left the velocities alone
+	 */
+	public double endFrame(List<Particle> particles) {
+		if (!isEnabled || thermostatController == null) {
+			return 1.0;
+		}
+		return thermostatController.endFrame(this, particles);
+	}
+
+	/**
+	 * @param mass mass of the particle in amu
+	 * @return A velocity component (m/s) drawn from the Maxwell-Boltzmann
+	 * distribution at the target temperature
+	 */
+	double sampleVelocityComponent(double mass) {
+		return random.nextGaussian()
+				* Math.sqrt(Formulas.BOLTZMANN_CONST * targetTemperature / (mass * KG_PER_AMU));
+	}
+
+	/**
+	 * @return Time until the next event of a Poisson process with the given rate (Hz)
+	 */
+	double sampleWaitingTime(double rate) {
+		return -Math.log(1.0 - random.nextDouble()) / rate;
+	}
+
+	Random getRandom() {
+		return random;
+	}
+
 	public boolean isActive()
 	{
             
@@ -128,6 +207,34 @@ public class Thermostat {
 	public double getDampFactor() {
 		return dampFactor;
 	}
+
+	/**
+	 * @param targetTemperature the temperature (K) to hold the gas at
+	 */
+	public void setTargetTemperature(double targetTemperature) {
+		this.targetTemperature = targetTemperature;
+	}
+
+	/**
+	 * @return the temperature (K) to hold the gas at
+	 */
+	public double getTargetTemperature() {
+		return targetTemperature;
+	}
+
+	/**
+	 * @param collisionFrequency the predicted collision frequency (Hz) of a particle
+	 */
+	public void setCollisionFrequency(double collisionFrequency) {
+		this.collisionFrequency = collisionFrequency;
+	}
+
+	/**
+	 * @return the predicted collision frequency (Hz) of a particle
+	 */
+	public double getCollisionFrequency() {
+		return collisionFrequency;
+	}
 	
 	
 }
@@ -17,6 +17,8 @@
  */
 package edu.byu.chem.boltzmann.model.physics;
 
+import java.util.List;
+
 /**
  * Defines the manner in which the Thermostat affects particle movement
  * @author Jared
@@ -32,5 +34,51 @@ public interface ThermostatController {
 	 * @return the adjustment factor to be applied
 	 */
 	public double calculateAdjustment(Thermostat t, EventInfo event, Particle p);
+
+	/**
+	 * Called when the thermostat is switched on
+	 * @param t the Thermostat
+	 * @param numParticles number of particles in the simulation
+	 * @param time the current simulation time
+	 */
+	public void start(Thermostat t, int numParticles, double time);
+
+	/**
+	 * Predicts the next thermostat event (Collision.THERMOSTAT) for a particle
+	 * @param t the Thermostat
+	 * @param particleIndex index of the particle in Physics
+	 * @param p the Particle in consideration
+	 * @return the time of the event, or Calendar.MAXTIME if there is none
+	 */
+	public double predictEvent(Thermostat t, int particleIndex, Particle p);
+
+	/**
+	 * Performs a thermostat event predicted by predictEvent. The particle has
+	 * already been moved to event.colTime.
+	 * @param t the Thermostat
+	 * @param event the thermostat event
+	 * @param p the Particle in consideration
+	 */
+	public void performEvent(Thermostat t, EventInfo event, Particle p);
+
+	/**
+	 * Called after two particles have collided
+	 * @param t the Thermostat
+	 * @param event the collision
+	 * @param p1 the first Particle of the collision
+	 * @param p2 the second Particle of the collision
+	 * @return true if the velocities of the particles were changed
+	 */
+	public boolean afterCollision(Thermostat t, EventInfo event, Particle p1, Particle p2);
+
+	/**
+	 * Called at the end of each frame once all particles have been moved to the
+	 * end of the frame
+	 * @param t the Thermostat
+	 * @param particles all of the particles in the simulation
+	 * @return the factor every particle's velocity was multiplied by, or 1.0
+	 * if the velocities were left alone
+	 */
+	public double endFrame(Thermostat t, List<Particle> particles);
 	
 }
@@ -25,7 +25,8 @@ package edu.byu.chem.boltzmann.model.physics;
  */
 public class ThermostatFactory {
 
-	public static final int FRICTIONTHERMOSTAT = 1, WALLTHERMOSTAT = 0;
+	public static final int FRICTIONTHERMOSTAT = 1, WALLTHERMOSTAT = 0,
+			ANDERSENTHERMOSTAT = 2, RESCALINGTHERMOSTAT = 3, LOWEANDERSENTHERMOSTAT = 4;
 
 	/**
 	 * Given the mode of the Thermostat, returns the appropriate ThermostatController
@@ -37,6 +38,12 @@ public class ThermostatFactory {
             switch(thermostatMode) {
                 case WALLTHERMOSTAT:
                     return new WallController();
+                case ANDERSENTHERMOSTAT:
+                    return new AndersenController();
+                case RESCALINGTHERMOSTAT:
+                    return new RescalingController();
+                case LOWEANDERSENTHERMOSTAT:
+                    return new LoweAndersenController();
                 default:
                     return new WallController();
             }
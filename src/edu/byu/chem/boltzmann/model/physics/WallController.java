@@ -19,6 +19,7 @@ package edu.byu.chem.boltzmann.model.physics;
 
 import edu.byu.chem.boltzmann.utils.Units;
 import edu.byu.chem.boltzmann.utils.Units.Energy;
+import java.util.List;
 
 /**
  * Concrete implementation of a ThermostatController that 
@@ -43,6 +44,24 @@ public class WallController implements ThermostatController {
 		return Math.sqrt(gammaSquared);
 	}
 
+	public void start(Thermostat t, int numParticles, double time) {
+	}
+
+	public double predictEvent(Thermostat t, int particleIndex, Particle p) {
+		return Calendar.MAXTIME;
+	}
+
+	public void performEvent(Thermostat t, EventInfo event, Particle p) {
+	}
+
+	public boolean afterCollision(Thermostat t, EventInfo event, Particle p1, Particle p2) {
+		return false;
+	}
+
+	public double endFrame(Thermostat t, List<Particle> particles) {
+		return 1.0;
+	}
+
 	/**
 	 * @param t
 	 * @param normalKE
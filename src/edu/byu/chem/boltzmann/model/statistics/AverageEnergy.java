@@ -26,6 +26,7 @@ import edu.byu.chem.boltzmann.model.statistics.StatUtils.CalculatorByType;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.ProbabilityDensityFunctionPointCreater;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.Range;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithDistribution;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithErrorEstimate;
 import edu.byu.chem.boltzmann.model.statistics.plots.HistogramBins;
 import edu.byu.chem.boltzmann.model.statistics.utils.IndividualParticleStatisticTracker;
 import edu.byu.chem.boltzmann.model.statistics.utils.ParticleStateAnalyzer;
@@ -45,7 +46,7 @@ import java.util.*;
  * May 23, 2012
  */
 
-public class AverageEnergy implements StatisticWithDistribution<Energy> {
+public class AverageEnergy implements StatisticWithDistribution<Energy>, StatisticWithErrorEstimate<Energy> {
     private static final Energy DEFAULT_UNIT = Energy.KILOJOULE_PER_MOLE;
 
     private boolean useFiniteSystemCorrections = false;
@@ -71,7 +72,7 @@ public class AverageEnergy implements StatisticWithDistribution<Energy> {
         this.simInfo = simInfo;
         typesRecorded = types;
         
-        statisticTracker = new IndividualParticleStatisticTracker(simInfo.totalNumParticles, typesRecorded, simInfo.reactionMode, Collision.PARTICLE){
+        statisticTracker = new IndividualParticleStatisticTracker(simInfo.totalNumParticles, typesRecorded, simInfo, Collision.PARTICLE){
             public double updatedValue(double prevValue, double velocitySquared, double timeElapsed, double mass){
                 return prevValue + Units.convert(Energy.AMU_JOULE, DEFAULT_UNIT, 0.5 * mass * velocitySquared * timeElapsed);
             }
@@ -185,6 +186,21 @@ public class AverageEnergy implements StatisticWithDistribution<Energy> {
         return Units.convert(DEFAULT_UNIT, unit, statisticTracker.getAverage());
     }
 
+    @Override
+    public double getStandardError(Energy unit) {
+        return Units.convert(DEFAULT_UNIT, unit, statisticTracker.getStandardError());
+    }
+
+    @Override
+    public double getCorrelationTime() {
+        return statisticTracker.getCorrelationTime();
+    }
+
+    @Override
+    public boolean hasConvergedErrorEstimate() {
+        return statisticTracker.hasConvergedErrorEstimate();
+    }
+
     @Override
     public Set<Energy> getDisplayUnits() {
         return EnumSet.of(DEFAULT_UNIT);
@@ -207,6 +223,7 @@ public class AverageEnergy implements StatisticWithDistribution<Energy> {
     @Override    
     public void notifyOfSimulationTime(double simTime) {
         simulationTime = simTime;
+        statisticTracker.advanceTo(simTime);
     }    
 
     @Override
@@ -70,7 +70,7 @@ public class AveragePath implements StatisticWithDistribution<Length> {
         this.simInfo = simInfo;
         typesRecorded = types;
         
-        statisticTracker = new IndividualParticleStatisticTracker(simInfo.totalNumParticles, typesRecorded, simInfo.reactionMode, Collision.PARTICLE){
+        statisticTracker = new IndividualParticleStatisticTracker(simInfo.totalNumParticles, typesRecorded, simInfo, Collision.PARTICLE){
             public double updatedValue(double prevValue, double velocitySquared, double timeElapsed, double mass){
                 return prevValue + Units.convert(Length.METER, DEFAULT_UNIT, Math.sqrt(velocitySquared) * timeElapsed);
             }
@@ -26,6 +26,7 @@ import edu.byu.chem.boltzmann.model.statistics.StatUtils.CalculatorByType;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.ProbabilityDensityFunctionPointCreater;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.Range;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithDistribution;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithErrorEstimate;
 import edu.byu.chem.boltzmann.model.statistics.plots.HistogramBins;
 import edu.byu.chem.boltzmann.model.statistics.utils.IndividualParticleStatisticTracker;
 import edu.byu.chem.boltzmann.model.statistics.utils.ParticleStateAnalyzer;
@@ -44,7 +45,7 @@ import java.util.*;
  * May 23, 2012
  */
 
-public class AverageSpeed implements StatisticWithDistribution<Velocity> {
+public class AverageSpeed implements StatisticWithDistribution<Velocity>, StatisticWithErrorEstimate<Velocity> {
     private static final Velocity DEFAULT_UNIT = Units.Velocity.METER_PER_SECOND;
 
     private boolean useFiniteSystemCorrections = false;
@@ -70,7 +71,7 @@ public class AverageSpeed implements StatisticWithDistribution<Velocity> {
         this.simInfo = simInfo;
         typesRecorded = types;
         
-        statisticTracker = new IndividualParticleStatisticTracker(simInfo.totalNumParticles, typesRecorded, simInfo.reactionMode, Collision.PARTICLE){
+        statisticTracker = new IndividualParticleStatisticTracker(simInfo.totalNumParticles, typesRecorded, simInfo, Collision.PARTICLE){
             public double updatedValue(double prevValue, double velocitySquared, double timeElapsed, double mass){
                 return prevValue + Math.sqrt(velocitySquared) * timeElapsed;
             }
@@ -193,6 +194,21 @@ public class AverageSpeed implements StatisticWithDistribution<Velocity> {
         return Units.convert(DEFAULT_UNIT, unit, statisticTracker.getAverage());
     }
 
+    @Override
+    public double getStandardError(Velocity unit) {
+        return Units.convert(DEFAULT_UNIT, unit, statisticTracker.getStandardError());
+    }
+
+    @Override
+    public double getCorrelationTime() {
+        return statisticTracker.getCorrelationTime();
+    }
+
+    @Override
+    public boolean hasConvergedErrorEstimate() {
+        return statisticTracker.hasConvergedErrorEstimate();
+    }
+
     @Override
     public Set<Velocity> getDisplayUnits() {
         return EnumSet.of(DEFAULT_UNIT);
@@ -215,6 +231,7 @@ public class AverageSpeed implements StatisticWithDistribution<Velocity> {
     @Override    
     public void notifyOfSimulationTime(double simTime) {
         simulationTime = simTime;
+        statisticTracker.advanceTo(simTime);
     }    
 
     @Override
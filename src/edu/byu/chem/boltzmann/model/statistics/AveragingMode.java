@@ -0,0 +1,49 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics;
+
+/**
+ * How a statistic's cumulative averages weight the data collected since the
+ * statistics were last cleared.
+ */
+public enum AveragingMode {
+
+    /** Every value since the statistics were cleared counts the same */
+    CUMULATIVE("Cumulative"),
+
+    /** Older values count exponentially less, halving every half-life */
+    EXPONENTIAL("Exponential"),
+
+    /** Only values from the last complete block, one half-life long, count */
+    BLOCK("Block");
+
+    private final String displayName;
+
+    private AveragingMode(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
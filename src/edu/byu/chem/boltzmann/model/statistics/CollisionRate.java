@@ -23,6 +23,7 @@ import edu.byu.chem.boltzmann.model.physics.FrameInfo;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.ProbabilityDensityFunctionPointCreater;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.Range;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithDistribution;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithErrorEstimate;
 import edu.byu.chem.boltzmann.model.statistics.plots.HistogramBins;
 import edu.byu.chem.boltzmann.model.statistics.utils.IndividualParticleStatisticTracker;
 import edu.byu.chem.boltzmann.utils.Units;
@@ -38,7 +39,7 @@ import java.util.*;
  * July 11, 2012
  */
 
-public class CollisionRate implements StatisticWithDistribution<Frequency> {
+public class CollisionRate implements StatisticWithDistribution<Frequency>, StatisticWithErrorEstimate<Frequency> {
     private static final Frequency DEFAULT_UNIT = Frequency.TERAHERTZ;
 
     private boolean useFiniteSystemCorrections = false;
@@ -64,7 +65,7 @@ public class CollisionRate implements StatisticWithDistribution<Frequency> {
         this.simInfo = simInfo;
         typesRecorded = types;
         
-        statisticTracker = new IndividualParticleStatisticTracker(simInfo.totalNumParticles, typesRecorded, simInfo.reactionMode, Collision.PARTICLE){
+        statisticTracker = new IndividualParticleStatisticTracker(simInfo.totalNumParticles, typesRecorded, simInfo, Collision.PARTICLE){
             public double updatedValue(double prevValue, double velocitySquared, double timeElapsed, double mass){
                 return prevValue + 1;
             }
@@ -172,6 +173,21 @@ public class CollisionRate implements StatisticWithDistribution<Frequency> {
         return Units.convert(DEFAULT_UNIT, unit, statisticTracker.getAverage());
     }
 
+    @Override
+    public double getStandardError(Frequency unit) {
+        return Units.convert(Frequency.HERTZ, unit, statisticTracker.getStandardError());
+    }
+
+    @Override
+    public double getCorrelationTime() {
+        return statisticTracker.getCorrelationTime();
+    }
+
+    @Override
+    public boolean hasConvergedErrorEstimate() {
+        return statisticTracker.hasConvergedErrorEstimate();
+    }
+
     @Override
     public Set<Frequency> getDisplayUnits() {
         return EnumSet.of(DEFAULT_UNIT);
@@ -194,6 +210,7 @@ public class CollisionRate implements StatisticWithDistribution<Frequency> {
     @Override    
     public void notifyOfSimulationTime(double simTime) {
         simulationTime = simTime;
+        statisticTracker.advanceTo(simTime);
     }    
 
     @Override
@@ -0,0 +1,171 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics;
+
+import edu.byu.chem.boltzmann.model.physics.EventInfo;
+import edu.byu.chem.boltzmann.model.physics.FrameInfo;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.EventOutcomeStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.FrameStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticProvider;
+import edu.byu.chem.boltzmann.model.statistics.utils.FieldProfileTracker;
+import edu.byu.chem.boltzmann.model.statistics.utils.FrameAnalysis;
+import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Density, temperature and flux profiles of the particles along the arena:
+ * along y, the way the piston moves, in piston arenas of two or three
+ * dimensions, and along x, across the divider, otherwise. Values are
+ * averages since the statistic was last cleared, in SI units, and are read
+ * from the physics thread between frames. Each profile read costs a pass
+ * over the particles; events only cost the cells their particles crossed.
+ *
+ * The profile is recorded for each particle type and for all of them
+ * together. FieldProfileTracker can bin any grid; this statistic uses a
+ * single row of cells.
+ */
+public class FieldProfile implements FrameStatistic, EventOutcomeStatistic {
+    
+    public static final String NAME = "Field Profile";
+    
+    /** Cells along the profile axis */
+    public static final int PROFILE_CELLS = 50;
+    
+    /** Makes the statistic available through StatisticProviders */
+    public static class Provider implements StatisticProvider {
+        
+        public String getName() {
+            return NAME;
+        }
+        
+        public int getEventTypes() {
+            return ALL_EVENTS;
+        }
+        
+        public Set<FrameAnalysis.Column> getFrameColumns() {
+            return EnumSet.noneOf(FrameAnalysis.Column.class);
+        }
+        
+        public Statistic createStatistic(SimulationInfo simInfo, Set<ParticleType> types) {
+            if (types.size() > 1 && !types.equals(new HashSet<ParticleType>(simInfo.getParticleTypes()))) {
+                return null;
+            }
+            return new FieldProfile(simInfo, types);
+        }
+    }
+    
+    private final int profileAxis;
+    private final FieldProfileTracker tracker;
+    
+    public FieldProfile(SimulationInfo simInfo, Set<ParticleType> types) {
+        profileAxis = (simInfo.isPiston() && simInfo.dimension > 1) ? 1 : 0;
+        int[] cells = {1, 1, 1};
+        cells[profileAxis] = PROFILE_CELLS;
+        tracker = new FieldProfileTracker(cells, types, simInfo);
+    }
+    
+    /** Axis the profile runs along, 0 for x and 1 for y */
+    public int getProfileAxis() {
+        return profileAxis;
+    }
+    
+    /** Number of particles per m, m^2 or m^3 in each cell, NaN before any time has been recorded */
+    public double[] getDensityProfile() {
+        tracker.endOpenSegments();
+        double[] profile = new double[PROFILE_CELLS];
+        for (int cell = 0; cell < PROFILE_CELLS; cell++) {
+            profile[cell] = tracker.getDensity(cell);
+        }
+        return profile;
+    }
+    
+    /** Temperature (K) in each cell, without the cell's flow; NaN where no particles have been */
+    public double[] getTemperatureProfile() {
+        tracker.endOpenSegments();
+        double[] profile = new double[PROFILE_CELLS];
+        for (int cell = 0; cell < PROFILE_CELLS; cell++) {
+            profile[cell] = tracker.getTemperature(cell);
+        }
+        return profile;
+    }
+    
+    /** Number flux along the profile axis in each cell, in particles per m^(d-1) per s */
+    public double[] getFluxProfile() {
+        tracker.endOpenSegments();
+        double[] profile = new double[PROFILE_CELLS];
+        for (int cell = 0; cell < PROFILE_CELLS; cell++) {
+            profile[cell] = tracker.getFlux(cell, profileAxis);
+        }
+        return profile;
+    }
+    
+    /** Width of a cell along the profile axis (m) */
+    public double getCellWidth() {
+        return tracker.getCellSize(profileAxis);
+    }
+    
+    /** The integrals behind the profiles; call endOpenSegments() on it before reading them */
+    public FieldProfileTracker getTracker() {
+        return tracker;
+    }
+    
+    @Override
+    public void notifyOfEvent(EventInfo event) {
+    }
+    
+    @Override
+    public void notifyOfEventOutcome(EventInfo event) {
+        tracker.afterEvent(event);
+    }
+    
+    @Override
+    public void notifyOfFrame(FrameInfo frame) {
+        tracker.analyzeFrame(frame);
+    }
+    
+    @Override
+    public void notifyOfSimulationTime(double simTime) {
+        tracker.setSimulationTime(simTime);
+    }
+    
+    @Override
+    public void useFrameForCurrentCalculations(FrameInfo frame) {
+    }
+    
+    @Override
+    public void reset() {
+        tracker.reset();
+    }
+    
+    @Override
+    public void clear() {
+        tracker.clear();
+    }
+    
+    @Override
+    public void setFiniteSysCorrections(boolean corrections) {
+    }
+    
+    @Override
+    public void setRealGasCorrections(boolean corrections) {
+    }
+}
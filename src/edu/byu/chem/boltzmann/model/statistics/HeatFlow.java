@@ -0,0 +1,154 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics;
+
+import edu.byu.chem.boltzmann.model.physics.EventInfo;
+import edu.byu.chem.boltzmann.model.physics.FrameInfo;
+import edu.byu.chem.boltzmann.model.physics.HeatReservoirFlux;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.FrameStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.SingleAverageStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticProvider;
+import edu.byu.chem.boltzmann.model.statistics.utils.FrameAnalysis;
+import edu.byu.chem.boltzmann.utils.Units;
+import edu.byu.chem.boltzmann.utils.Units.Energy;
+import edu.byu.chem.boltzmann.utils.Units.Power;
+import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Net rate at which heat flows from the heat reservoir behind the attractive
+ * wall into the gas, read once a frame from the HeatReservoirFlux totals
+ * Physics attaches to each frame. The totals cover every particle, so the
+ * statistic is only recorded for all of the types together.
+ *
+ * In a steady state the gas is at the reservoir's temperature and as much
+ * heat flows out as in, so the prediction is zero.
+ */
+public class HeatFlow implements SingleAverageStatistic<Power>, FrameStatistic {
+
+    public static final String NAME = "Heat Flow";
+
+    /** Makes the statistic available through StatisticProviders */
+    public static class Provider implements StatisticProvider {
+
+        public String getName() {
+            return NAME;
+        }
+
+        public int getEventTypes() {
+            return NO_EVENTS;
+        }
+
+        public Set<FrameAnalysis.Column> getFrameColumns() {
+            return EnumSet.noneOf(FrameAnalysis.Column.class);
+        }
+
+        public Statistic createStatistic(SimulationInfo simInfo, Set<ParticleType> types) {
+            if (!simInfo.includeAttractiveWall || !simInfo.includeHeatReservoir
+                    || !types.containsAll(simInfo.getParticleTypes())) {
+                return null;
+            }
+            return new HeatFlow();
+        }
+    }
+
+    private static final Power DEFAULT_UNIT = Power.PICOWATT;
+
+    private HeatReservoirFlux.Totals totals = null;
+
+    /** Energy the reservoir has given to the gas since statistics were last reset */
+    public double getHeatIntoGas(Energy unit) {
+        return (totals == null) ? 0.0 : Units.convert(Energy.JOULE, unit, totals.energyIntoGas);
+    }
+
+    /** Energy the gas has given to the reservoir since statistics were last reset */
+    public double getHeatOutOfGas(Energy unit) {
+        return (totals == null) ? 0.0 : Units.convert(Energy.JOULE, unit, totals.energyOutOfGas);
+    }
+
+    /** Wall collisions that exchanged energy with the reservoir since statistics were last reset */
+    public long getExchanges() {
+        return (totals == null) ? 0 : totals.exchanges;
+    }
+
+    @Override
+    public double getPredictionForAverage(Power unit) {
+        return 0.0;
+    }
+
+    @Override
+    public double getCurrentAverage(Power unit) {
+        return (totals == null) ? 0.0 : Units.convert(Power.WATT, unit, totals.getNetHeatFlowRate());
+    }
+
+    /** The reservoir totals aren't weighted, so this is the same as the current average */
+    @Override
+    public double getCumulativeAverage(Power unit) {
+        return getCurrentAverage(unit);
+    }
+
+    @Override
+    public Set<Power> getDisplayUnits() {
+        return EnumSet.of(Power.NANOWATT, Power.PICOWATT);
+    }
+
+    @Override
+    public Power getDefaultDisplayUnit() {
+        return DEFAULT_UNIT;
+    }
+
+    @Override
+    public void notifyOfFrame(FrameInfo frame) {
+        if (frame.getHeatReservoirTotals() != null) {
+            totals = frame.getHeatReservoirTotals();
+        }
+    }
+
+    @Override
+    public void notifyOfEvent(EventInfo event) {
+    }
+
+    @Override
+    public void notifyOfSimulationTime(double simTime) {
+    }
+
+    @Override
+    public void useFrameForCurrentCalculations(FrameInfo frame) {
+    }
+
+    @Override
+    public void reset() {
+        totals = null;
+    }
+
+    /** Physics clears the reservoir totals along with the statistics */
+    @Override
+    public void clear() {
+    }
+
+    @Override
+    public void setFiniteSysCorrections(boolean corrections) {
+    }
+
+    @Override
+    public void setRealGasCorrections(boolean corrections) {
+    }
+}
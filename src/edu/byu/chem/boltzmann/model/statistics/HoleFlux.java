@@ -0,0 +1,321 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics;
+
+import edu.byu.chem.boltzmann.model.physics.BoundaryGeometry;
+import edu.byu.chem.boltzmann.model.physics.Collision;
+import edu.byu.chem.boltzmann.model.physics.EventInfo;
+import edu.byu.chem.boltzmann.model.physics.FrameInfo;
+import edu.byu.chem.boltzmann.model.physics.Particle;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.AveragedStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.SingleAverageStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticProvider;
+import edu.byu.chem.boltzmann.model.statistics.utils.AveragingTotals;
+import edu.byu.chem.boltzmann.model.statistics.utils.FrameAnalysis;
+import edu.byu.chem.boltzmann.model.statistics.utils.SpeciesFilter;
+import edu.byu.chem.boltzmann.utils.Units;
+import edu.byu.chem.boltzmann.utils.Units.Frequency;
+import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo.ArenaType;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Effusion through the hole in a divided arena: how often the particles'
+ * centres pass through the opening in each direction, counted from
+ * HOLE_CROSSING events. Its own averages are the rate in both directions
+ * together; getRate() gives each direction, and getTimeSeries() the rate in
+ * each of the last SERIES_FRAMES frames, so a gas let out of one side can be
+ * watched evening out.
+ *
+ * The prediction is the effusion rate of an ideal gas spread evenly through
+ * the space its centres can reach, both halves of the arena and the pore
+ * through the divider, n &lt;v&gt; / 4 times the area of the opening in three
+ * dimensions and n &lt;v&gt; / pi times its width in two, with the opening
+ * narrowed by the particle's radius. It isn't predicted in Maxwell's demon mode, where
+ * the hole is opened and closed by hand and crossings are only seen while it
+ * is open.
+ */
+public class HoleFlux implements SingleAverageStatistic<Frequency>, AveragedStatistic {
+
+    public static final String NAME = "Hole Flux";
+
+    /** Makes the statistic available through StatisticProviders */
+    public static class Provider implements StatisticProvider {
+
+        public String getName() {
+            return NAME;
+        }
+
+        public int getEventTypes() {
+            return StatisticProviders.eventTypes(Collision.HOLE_CROSSING);
+        }
+
+        public Set<FrameAnalysis.Column> getFrameColumns() {
+            return EnumSet.noneOf(FrameAnalysis.Column.class);
+        }
+
+        public Statistic createStatistic(SimulationInfo simInfo, Set<ParticleType> types) {
+            if (simInfo.arenaType != ArenaType.DIVIDED_ARENA_WITH_HOLE || simInfo.dimension == 1) {
+                return null;
+            }
+            return new HoleFlux(simInfo, types);
+        }
+    }
+
+    /** Direction from the low x side of the divider to the high x side */
+    public static final int LEFT_TO_RIGHT = 0;
+    /** Direction from the high x side of the divider to the low x side */
+    public static final int RIGHT_TO_LEFT = 1;
+
+    /** Frames kept by getTimeSeries() */
+    public static final int SERIES_FRAMES = 1000;
+
+    private static final Frequency DEFAULT_UNIT = Frequency.TERAHERTZ;
+    private static final int TIME = 2;
+
+    private final SimulationInfo simInfo;
+    private final Set<ParticleType> typesRecorded;
+    private final SpeciesFilter speciesRecorded;
+
+    private final long[] crossings = new long[2];
+    private final AveragingTotals cumulative = new AveragingTotals(3, TIME);
+    private double simulationTime = 0.0;
+
+    // Crossings in each of the last frames, oldest first from seriesStart
+    private final int[] frameCrossings = new int[2];
+    private final double[][] seriesCrossings = new double[2][SERIES_FRAMES];
+    private final double[] seriesTimes = new double[SERIES_FRAMES];
+    private final double[] seriesLengths = new double[SERIES_FRAMES];
+    private int seriesStart = 0;
+    private int seriesSize = 0;
+    private double frameStart = 0.0;
+
+    public HoleFlux(SimulationInfo simInfo, Set<ParticleType> types) {
+        this.simInfo = simInfo;
+        typesRecorded = types;
+        speciesRecorded = new SpeciesFilter(types, simInfo);
+    }
+
+    private boolean isRecorded(Particle particle) {
+        return (typesRecorded.contains(particle.particleType) || simInfo.reactionMode)
+                && speciesRecorded.accepts(particle);
+    }
+
+    /** Predicted rate of crossings in one direction, in Hz */
+    private double predictRate() {
+        if (simInfo.maxwellDemonMode) {
+            return Double.NaN;
+        }
+        double rate = 0.0;
+        for (ParticleType type: typesRecorded) {
+            double density = simInfo.getNumberOfParticles(type) / accessibleVolume(type);
+            double speed = Formulas.averageVelocity(simInfo.initialTemperature,
+                    Units.convert("amu", "kg", type.particleMass), simInfo.dimension);
+            double opening = 0.5 * simInfo.holeDiameter - type.particleRadius;
+            if (opening <= 0.0) {
+                continue;
+            }
+            if (simInfo.dimension == 2) {
+                rate += density * speed / Math.PI * 2.0 * opening;
+            } else {
+                rate += density * speed / 4.0 * Math.PI * opening * opening;
+            }
+        }
+        return rate;
+    }
+
+    /**
+     * Volume the centres of particles of type can reach: the two halves of
+     * the arena, less a radius at the walls and the divider, and the pore,
+     * whose wall is the ring of edge particles lining the hole.
+     */
+    private double accessibleVolume(ParticleType type) {
+        double radius = type.particleRadius;
+        double halves = 2.0 * Formulas.effectiveVolume(simInfo.arenaXSize, simInfo.arenaYSize,
+                simInfo.arenaZSize, radius, simInfo.dimension, ArenaType.DIVIDED_ARENA,
+                SimulationInfo.ARENA_DIVIDER_RADIUS);
+        // Centres stay this far from the ring the edge particles are centred on
+        double reach = SimulationInfo.ARENA_DIVIDER_RADIUS + radius;
+        double ring = 0.5 * simInfo.holeDiameter + SimulationInfo.ARENA_DIVIDER_RADIUS;
+        double pore;
+        if (simInfo.dimension == 2) {
+            pore = 4.0 * reach * ring - Math.PI * reach * reach;
+        } else {
+            pore = Math.PI * (2.0 * reach * ring * ring - Math.PI * reach * reach * ring
+                    + 4.0 / 3.0 * reach * reach * reach);
+        }
+        return halves + pore;
+    }
+
+    private static void checkDirection(int direction) {
+        if (direction != LEFT_TO_RIGHT && direction != RIGHT_TO_LEFT) {
+            throw new IllegalArgumentException("No hole crossing direction " + direction);
+        }
+    }
+
+    /** Predicted rate of crossings in each direction; half the prediction for the average */
+    public double getPredictionForRate(Frequency unit) {
+        return Units.convert(Frequency.HERTZ, unit, predictRate());
+    }
+
+    /** Rate of crossings in direction since the simulation started */
+    public double getRate(int direction, Frequency unit) {
+        checkDirection(direction);
+        if (simulationTime == 0.0) {
+            return 0.0;
+        }
+        return Units.convert(Frequency.HERTZ, unit, crossings[direction] / simulationTime);
+    }
+
+    /** Rate of crossings in direction weighted by the AveragingMode set with setAveraging() */
+    public double getCumulativeRate(int direction, Frequency unit) {
+        checkDirection(direction);
+        double time = cumulative.get(TIME);
+        if (time == 0.0) {
+            return getRate(direction, unit);
+        }
+        return Units.convert(Frequency.HERTZ, unit, cumulative.get(direction) / time);
+    }
+
+    /** Number of crossings in direction since the simulation started */
+    public long getCrossings(int direction) {
+        checkDirection(direction);
+        return crossings[direction];
+    }
+
+    /**
+     * Rate of crossings in direction during each of the last SERIES_FRAMES
+     * frames at most, oldest first; getSeriesTimes() gives the frames' end times.
+     */
+    public double[] getTimeSeries(int direction, Frequency unit) {
+        checkDirection(direction);
+        double[] series = new double[seriesSize];
+        for (int i = 0; i < seriesSize; i++) {
+            int entry = (seriesStart + i) % SERIES_FRAMES;
+            series[i] = Units.convert(Frequency.HERTZ, unit,
+                    seriesCrossings[direction][entry] / seriesLengths[entry]);
+        }
+        return series;
+    }
+
+    /** Simulation time (s) at the end of each frame in getTimeSeries() */
+    public double[] getSeriesTimes() {
+        double[] times = new double[seriesSize];
+        for (int i = 0; i < seriesSize; i++) {
+            times[i] = seriesTimes[(seriesStart + i) % SERIES_FRAMES];
+        }
+        return times;
+    }
+
+    @Override
+    public double getPredictionForAverage(Frequency unit) {
+        return Units.convert(Frequency.HERTZ, unit, 2.0 * predictRate());
+    }
+
+    @Override
+    public double getCurrentAverage(Frequency unit) {
+        return getRate(LEFT_TO_RIGHT, unit) + getRate(RIGHT_TO_LEFT, unit);
+    }
+
+    @Override
+    public double getCumulativeAverage(Frequency unit) {
+        return getCumulativeRate(LEFT_TO_RIGHT, unit) + getCumulativeRate(RIGHT_TO_LEFT, unit);
+    }
+
+    @Override
+    public Set<Frequency> getDisplayUnits() {
+        return EnumSet.of(Frequency.HERTZ, Frequency.TERAHERTZ);
+    }
+
+    @Override
+    public Frequency getDefaultDisplayUnit() {
+        return DEFAULT_UNIT;
+    }
+
+    @Override
+    public void notifyOfEvent(EventInfo event) {
+        if (event.colType != Collision.HOLE_CROSSING || !isRecorded(event.getInvolvedParticles()[0])) {
+            return;
+        }
+        int direction = BoundaryGeometry.isCrossingUpward(event.side) ? LEFT_TO_RIGHT : RIGHT_TO_LEFT;
+        cumulative.advanceTo(event.colTime);
+        cumulative.add(direction, 1.0);
+        crossings[direction]++;
+        frameCrossings[direction]++;
+    }
+
+    @Override
+    public void notifyOfSimulationTime(double simTime) {
+        simulationTime = simTime;
+        cumulative.advanceTo(simTime);
+        if (simTime > frameStart) {
+            int entry = (seriesStart + seriesSize) % SERIES_FRAMES;
+            if (seriesSize < SERIES_FRAMES) {
+                seriesSize++;
+            } else {
+                seriesStart = (seriesStart + 1) % SERIES_FRAMES;
+            }
+            for (int direction = 0; direction < 2; direction++) {
+                seriesCrossings[direction][entry] = frameCrossings[direction];
+            }
+            seriesTimes[entry] = simTime;
+            seriesLengths[entry] = simTime - frameStart;
+        }
+        frameCrossings[LEFT_TO_RIGHT] = 0;
+        frameCrossings[RIGHT_TO_LEFT] = 0;
+        frameStart = simTime;
+    }
+
+    @Override
+    public void useFrameForCurrentCalculations(FrameInfo frame) {
+    }
+
+    @Override
+    public void setAveraging(AveragingMode mode, double halfLife) {
+        cumulative.setAveraging(mode, halfLife);
+    }
+
+    @Override
+    public void reset() {
+        simulationTime = 0.0;
+        crossings[LEFT_TO_RIGHT] = 0;
+        crossings[RIGHT_TO_LEFT] = 0;
+        frameCrossings[LEFT_TO_RIGHT] = 0;
+        frameCrossings[RIGHT_TO_LEFT] = 0;
+        seriesStart = 0;
+        seriesSize = 0;
+        frameStart = 0.0;
+        clear();
+    }
+
+    @Override
+    public void clear() {
+        cumulative.clear();
+    }
+
+    @Override
+    public void setFiniteSysCorrections(boolean corrections) {
+    }
+
+    @Override
+    public void setRealGasCorrections(boolean corrections) {
+    }
+}
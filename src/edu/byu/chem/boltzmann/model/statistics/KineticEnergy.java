@@ -20,10 +20,13 @@ package edu.byu.chem.boltzmann.model.statistics;
 import edu.byu.chem.boltzmann.model.physics.*;
 import edu.byu.chem.boltzmann.model.statistics.parents.TimeWeightedByParticleCollisions;
 import edu.byu.chem.boltzmann.model.statistics.StatUtils.CalculatorByType;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.AveragedStatistic;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.ProbabilityDensityFunctionPointCreater;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.Range;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithDistribution;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithErrorEstimate;
 import edu.byu.chem.boltzmann.model.statistics.plots.HistogramBins;
+import edu.byu.chem.boltzmann.model.statistics.utils.FrameAnalysis;
 import edu.byu.chem.boltzmann.model.statistics.utils.ParticleStateAnalyzer;
 import edu.byu.chem.boltzmann.model.statistics.utils.WeightedValueTracker;
 import edu.byu.chem.boltzmann.utils.data.ParticleType;
@@ -38,7 +41,7 @@ import java.util.Set;
  *
  * @author Derek Manwaring
  */
-public class KineticEnergy implements StatisticWithDistribution<Energy> {
+public class KineticEnergy implements StatisticWithDistribution<Energy>, StatisticWithErrorEstimate<Energy>, AveragedStatistic {
     private static final Energy DEFAULT_UNIT = Units.Energy.KILOJOULE_PER_MOLE;
 
     private boolean useFiniteSystemCorrections = false;
@@ -66,7 +69,7 @@ public class KineticEnergy implements StatisticWithDistribution<Energy> {
         typesRecorded = types;
         
         stateAnalyzer = new ParticleStateAnalyzer(
-            new ParticleStateAnalyzer.ParticleStateWatcher(types, simInfo.reactionMode) {
+            new ParticleStateAnalyzer.ParticleStateWatcher(types, simInfo) {
 
                 @Override
                 public void update(Particle particle, double timeElapsedInState) {
@@ -77,11 +80,11 @@ public class KineticEnergy implements StatisticWithDistribution<Energy> {
                 }
 
                 @Override
-                public void update(Particle particle) {
-                    double energy = Formulas.kineticEnergy(particle.getMass(), particle.getVel());
+                public void update(FrameAnalysis frame, int index) {
+                    double energy = frame.getKineticEnergies()[index];
                     energy = Units.convert(Energy.AMU_JOULE, DEFAULT_UNIT, energy);
                     currentWeightedValues.addWeightedValue(energy, 1.0);
-                    currentBins.addWeightedValue(energy, 1.0, particle.getDisplayColor());
+                    currentBins.addWeightedValue(energy, 1.0, frame.getColors()[index]);
                 }        
             }, 
                 Collision.PARTICLE);
@@ -345,6 +348,21 @@ public class KineticEnergy implements StatisticWithDistribution<Energy> {
         return cumulativeWeightedValues.getAverage(unit);
     }
 
+    @Override
+    public double getStandardError(Energy unit) {
+        return cumulativeWeightedValues.getStandardError(unit);
+    }
+
+    @Override
+    public double getCorrelationTime() {
+        return cumulativeWeightedValues.getCorrelationTime();
+    }
+
+    @Override
+    public boolean hasConvergedErrorEstimate() {
+        return cumulativeWeightedValues.hasConvergedErrorEstimate();
+    }
+
     @Override
     public Set<Energy> getDisplayUnits() {
         return EnumSet.of(DEFAULT_UNIT);
@@ -362,6 +380,12 @@ public class KineticEnergy implements StatisticWithDistribution<Energy> {
 
     @Override
     public void notifyOfSimulationTime(double simTime) {
+        cumulativeWeightedValues.advanceTo(simTime);
+    }
+
+    @Override
+    public void setAveraging(AveragingMode mode, double halfLife) {
+        cumulativeWeightedValues.setAveraging(mode, halfLife);
     }
 
     @Override
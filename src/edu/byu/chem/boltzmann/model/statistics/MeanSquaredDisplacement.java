@@ -0,0 +1,112 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics;
+
+import edu.byu.chem.boltzmann.model.physics.ParticleStates;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticProvider;
+import edu.byu.chem.boltzmann.model.statistics.parents.TimeCorrelationStatistic;
+import edu.byu.chem.boltzmann.model.statistics.utils.FrameAnalysis;
+import edu.byu.chem.boltzmann.model.statistics.utils.TimeCorrelator;
+import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Mean squared displacement &lt;|r(t) - r(0)|^2&gt; of the recorded
+ * particles, in m^2, and the self-diffusion coefficient it gives through the
+ * Einstein relation MSD = 2 d D t. D is the least squares slope over the
+ * later lags, after the ballistic start has died away, divided by 2d.
+ *
+ * With periodic boundaries positions are unwrapped frame to frame using the
+ * nearest image, which assumes no particle crosses half the arena in a frame.
+ */
+public class MeanSquaredDisplacement extends TimeCorrelationStatistic {
+    
+    public static final String NAME = "Mean Squared Displacement";
+    
+    /** First lag fitted for the diffusion coefficient */
+    private static final int FIRST_FITTED_LAG = TimeCorrelator.LAGS / 4;
+    
+    /** Makes the statistic available through StatisticProviders */
+    public static class Provider implements StatisticProvider {
+        
+        public String getName() {
+            return NAME;
+        }
+        
+        public int getEventTypes() {
+            return NO_EVENTS;
+        }
+        
+        public Set<FrameAnalysis.Column> getFrameColumns() {
+            return EnumSet.noneOf(FrameAnalysis.Column.class);
+        }
+        
+        public Statistic createStatistic(SimulationInfo simInfo, Set<ParticleType> types) {
+            return new MeanSquaredDisplacement(simInfo, types);
+        }
+    }
+    
+    private final double[] arenaSizes;
+    private double[] lastPositions = new double[0];
+    private double[] unwrappedPositions = new double[0];
+    
+    public MeanSquaredDisplacement(SimulationInfo simInfo, Set<ParticleType> types) {
+        super(simInfo, types, TimeCorrelator.Kind.MEAN_SQUARED_DISPLACEMENT);
+        arenaSizes = new double[] {simInfo.arenaXSize, simInfo.arenaYSize, simInfo.arenaZSize};
+    }
+    
+    @Override
+    protected void fillSample(ParticleStates states, int[] trackedParticles, double[] sample, boolean restarted) {
+        double[] positions = states.getPositions();
+        if (restarted) {
+            lastPositions = new double[sample.length];
+            unwrappedPositions = new double[sample.length];
+            for (int i = 0; i < trackedParticles.length; i++) {
+                for (int axis = 0; axis < dimension; axis++) {
+                    double position = positions[3 * trackedParticles[i] + axis];
+                    lastPositions[dimension * i + axis] = position;
+                    unwrappedPositions[dimension * i + axis] = position;
+                }
+            }
+        }
+        
+        boolean periodic = simInfo.isPeriodic();
+        for (int i = 0; i < trackedParticles.length; i++) {
+            int offset = 3 * trackedParticles[i];
+            for (int axis = 0; axis < dimension; axis++) {
+                int entry = dimension * i + axis;
+                double position = positions[offset + axis];
+                double step = position - lastPositions[entry];
+                if (periodic) {
+                    step -= arenaSizes[axis] * Math.rint(step / arenaSizes[axis]);
+                }
+                unwrappedPositions[entry] += step;
+                lastPositions[entry] = position;
+                sample[entry] = unwrappedPositions[entry];
+            }
+        }
+    }
+    
+    @Override
+    protected double diffusionCoefficient(double[] correlation, double lagTime) {
+        return TimeCorrelator.fitSlope(correlation, FIRST_FITTED_LAG, lagTime) / (2.0 * dimension);
+    }
+}
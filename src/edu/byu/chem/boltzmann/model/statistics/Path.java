@@ -22,10 +22,13 @@ import edu.byu.chem.boltzmann.model.physics.Collision;
 import edu.byu.chem.boltzmann.model.physics.EventInfo;
 import edu.byu.chem.boltzmann.model.physics.FrameInfo;
 import edu.byu.chem.boltzmann.model.physics.Particle;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.AveragedStatistic;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.ProbabilityDensityFunctionPointCreater;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.Range;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithDistribution;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithErrorEstimate;
 import edu.byu.chem.boltzmann.model.statistics.plots.HistogramBins;
+import edu.byu.chem.boltzmann.model.statistics.utils.FrameAnalysis;
 import edu.byu.chem.boltzmann.model.statistics.utils.ParticleStateAnalyzer;
 import edu.byu.chem.boltzmann.model.statistics.utils.WeightedValueTracker;
 import edu.byu.chem.boltzmann.utils.Units;
@@ -41,7 +44,7 @@ import java.util.Set;
  * @author Joshua Olson
  * June 8, 2012
  */
-public class Path implements StatisticWithDistribution<Length> {
+public class Path implements StatisticWithDistribution<Length>, StatisticWithErrorEstimate<Length>, AveragedStatistic {
     private static final Length DEFAULT_UNIT = Length.NANOMETER;
 
     private boolean useFiniteSystemCorrections = false;
@@ -72,7 +75,7 @@ public class Path implements StatisticWithDistribution<Length> {
         typesRecorded = types;
         
         stateAnalyzer = new ParticleStateAnalyzer(
-            new ParticleStateAnalyzer.ParticleStateWatcher(types, simInfo.reactionMode) {
+            new ParticleStateAnalyzer.ParticleStateWatcher(types, simInfo) {
 
                 @Override
                 public void update(Particle particle, double timeElapsedInState) {
@@ -83,12 +86,12 @@ public class Path implements StatisticWithDistribution<Length> {
                 }
 
                 @Override
-                public void update(Particle particle) {
-                    double speed = particle.getVel();
-                    double timeElapsedInState = simulationTime - stateAnalyzer.getLastCollisionTime(particle);
+                public void update(FrameAnalysis frame, int index) {
+                    double speed = frame.getSpeeds()[index];
+                    double timeElapsedInState = simulationTime - stateAnalyzer.getLastCollisionTime(frame.getParticle(index));
                     double value = Units.convert(Length.METER, DEFAULT_UNIT, speed * timeElapsedInState);
                     currentWeightedValues.addWeightedValue(value, 1.0);
-                    currentBins.addWeightedValue(value, 1.0, particle.getDisplayColor());
+                    currentBins.addWeightedValue(value, 1.0, frame.getColors()[index]);
                 }        
             }, 
                 Collision.PARTICLE);
@@ -180,6 +183,21 @@ public class Path implements StatisticWithDistribution<Length> {
         return cumulativeWeightedValues.getAverage(unit);
     }
 
+    @Override
+    public double getStandardError(Length unit) {
+        return cumulativeWeightedValues.getStandardError(unit);
+    }
+
+    @Override
+    public double getCorrelationTime() {
+        return cumulativeWeightedValues.getCorrelationTime();
+    }
+
+    @Override
+    public boolean hasConvergedErrorEstimate() {
+        return cumulativeWeightedValues.hasConvergedErrorEstimate();
+    }
+
     @Override
     public Set<Length> getDisplayUnits() {
         return EnumSet.of(DEFAULT_UNIT);
@@ -205,7 +223,13 @@ public class Path implements StatisticWithDistribution<Length> {
 
     @Override    
     public void notifyOfSimulationTime(double simTime) {
-    }    
+        cumulativeWeightedValues.advanceTo(simTime);
+    }
+
+    @Override
+    public void setAveraging(AveragingMode mode, double halfLife) {
+        cumulativeWeightedValues.setAveraging(mode, halfLife);
+    }
 
     @Override
     public void reset() {
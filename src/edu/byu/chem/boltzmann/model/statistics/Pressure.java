@@ -21,7 +21,11 @@ import edu.byu.chem.boltzmann.model.physics.Collision;
 import edu.byu.chem.boltzmann.model.physics.EventInfo;
 import edu.byu.chem.boltzmann.model.physics.FrameInfo;
 import edu.byu.chem.boltzmann.model.physics.Particle;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.AveragedStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.EventOutcomeStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.FrameStatistic;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.SingleAverageStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithErrorEstimate;
 import edu.byu.chem.boltzmann.model.statistics.utils.VirialPressureTracker;
 import edu.byu.chem.boltzmann.model.statistics.utils.WallPressureTracker;
 import edu.byu.chem.boltzmann.utils.Units;
@@ -36,7 +40,8 @@ import java.util.*;
  * @author Joshua Olson
  * June 8, 2012
  */
-public class Pressure implements SingleAverageStatistic<PressureUnit> {
+public class Pressure implements SingleAverageStatistic<PressureUnit>, StatisticWithErrorEstimate<PressureUnit>, AveragedStatistic, 
+        EventOutcomeStatistic, FrameStatistic {
     private static PressureUnit DEFAULT_UNIT;
     private final int dimension;
 
@@ -63,6 +68,13 @@ public class Pressure implements SingleAverageStatistic<PressureUnit> {
 
     @Override
     public double getPredictionForAverage(PressureUnit unit) {
+        return Units.convert(DEFAULT_UNIT, unit, predictPressure(simInfo, typesRecorded, useRealGasCorrections));
+    }
+    
+    /** Predicted pressure of the particles of types, in PressureUnit.getBaseUnit(simInfo.dimension) */
+    public static double predictPressure(SimulationInfo simInfo, Set<ParticleType> typesRecorded, boolean useRealGasCorrections) {
+        int dimension = simInfo.dimension;
+        boolean periodic = simInfo.isPeriodic();
         Map<ParticleType, Double> pressureByType = new HashMap<ParticleType, Double>(typesRecorded.size());
         for(ParticleType type: typesRecorded)
             pressureByType.put(type, Formulas.pressure(simInfo.getNumberOfParticles(type),
@@ -116,7 +128,7 @@ public class Pressure implements SingleAverageStatistic<PressureUnit> {
         double totalPressure = 0.0;
         for(ParticleType type: typesRecorded)
             totalPressure += pressureByType.get(type);
-        return Units.convert(DEFAULT_UNIT, unit, totalPressure);
+        return totalPressure;
     }
     
     @Override
@@ -129,7 +141,34 @@ public class Pressure implements SingleAverageStatistic<PressureUnit> {
 
     @Override
     public double getCumulativeAverage(PressureUnit unit) {
-        return 0;
+        if(periodic)
+            return virialTracker.getCumulativeAverage(unit);
+        else
+            return wallTracker.getCumulativeAverage(unit);
+    }
+
+    @Override
+    public double getStandardError(PressureUnit unit) {
+        if(periodic)
+            return virialTracker.getStandardError(unit);
+        else
+            return wallTracker.getStandardError(unit);
+    }
+
+    @Override
+    public double getCorrelationTime() {
+        if(periodic)
+            return virialTracker.getCorrelationTime();
+        else
+            return wallTracker.getCorrelationTime();
+    }
+
+    @Override
+    public boolean hasConvergedErrorEstimate() {
+        if(periodic)
+            return virialTracker.hasConvergedErrorEstimate();
+        else
+            return wallTracker.hasConvergedErrorEstimate();
     }
 
     @Override
@@ -154,6 +193,18 @@ public class Pressure implements SingleAverageStatistic<PressureUnit> {
             wallTracker.analyzeEvent(event);
     }
 
+    @Override
+    public void notifyOfEventOutcome(EventInfo event) {
+        if(periodic)
+            virialTracker.analyzeEventOutcome(event);
+    }
+
+    @Override
+    public void notifyOfFrame(FrameInfo frame) {
+        if(periodic)
+            virialTracker.analyzeFrame(frame);
+    }
+
     @Override    
     public void notifyOfSimulationTime(double simTime) {
         if(periodic)
@@ -172,6 +223,10 @@ public class Pressure implements SingleAverageStatistic<PressureUnit> {
 
     @Override
     public void clear() {
+        if(periodic)
+            virialTracker.clear();
+        else
+            wallTracker.clear();
     }
 
     @Override
@@ -183,6 +238,12 @@ public class Pressure implements SingleAverageStatistic<PressureUnit> {
         useRealGasCorrections = corrections;
     }
     
+    @Override
+    public void setAveraging(AveragingMode mode, double halfLife) {
+        virialTracker.setAveraging(mode, halfLife);
+        wallTracker.setAveraging(mode, halfLife);
+    }
+    
     public void setAveragingTime(double avgTime){
         if(!periodic)
             wallTracker.setAveragingTime(avgTime);
@@ -0,0 +1,275 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics;
+
+import edu.byu.chem.boltzmann.model.physics.EventInfo;
+import edu.byu.chem.boltzmann.model.physics.FrameInfo;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.AveragedStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.EventOutcomeStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.FrameStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.SingleAverageStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticProvider;
+import edu.byu.chem.boltzmann.model.statistics.utils.FrameAnalysis;
+import edu.byu.chem.boltzmann.model.statistics.utils.VirialPressureTracker;
+import edu.byu.chem.boltzmann.utils.Units;
+import edu.byu.chem.boltzmann.utils.Units.PressureUnit;
+import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Pressure tensor of the particles from the kinetic tensor and the virial of
+ * their collisions with each other. Its own averages are the scalar pressure,
+ * a third of the trace in three dimensions; getComponent() gives each
+ * component P_ab as a statistic of its own, so anisotropy shows up as
+ * unequal diagonal components or off-diagonal ones away from zero.
+ *
+ * Wall forces aren't part of the tensor, and it isn't recorded with the
+ * movable piston, whose volume changes.
+ */
+public class PressureTensor implements SingleAverageStatistic<PressureUnit>, AveragedStatistic,
+        FrameStatistic, EventOutcomeStatistic {
+    
+    public static final String NAME = "Pressure Tensor";
+    
+    /** Makes the statistic available through StatisticProviders */
+    public static class Provider implements StatisticProvider {
+        
+        public String getName() {
+            return NAME;
+        }
+        
+        public int getEventTypes() {
+            return ALL_EVENTS;
+        }
+        
+        public Set<FrameAnalysis.Column> getFrameColumns() {
+            return EnumSet.noneOf(FrameAnalysis.Column.class);
+        }
+        
+        public Statistic createStatistic(SimulationInfo simInfo, Set<ParticleType> types) {
+            if (simInfo.isPiston()) {
+                return null;
+            }
+            return new PressureTensor(simInfo, types);
+        }
+    }
+    
+    private static final String AXES = "xyz";
+    
+    private final PressureUnit baseUnit;
+    private final PressureUnit defaultUnit;
+    
+    private final SimulationInfo simInfo;
+    private final Set<ParticleType> typesRecorded;
+    private final VirialPressureTracker tracker;
+    private final Component[] components;
+    
+    private boolean useRealGasCorrections = false;
+    
+    public PressureTensor(SimulationInfo simInfo, Set<ParticleType> types) {
+        this.simInfo = simInfo;
+        typesRecorded = types;
+        baseUnit = PressureUnit.getBaseUnit(simInfo.dimension);
+        switch (simInfo.dimension) {
+            case 1:
+                defaultUnit = PressureUnit.PICONEWTON;
+                break;
+            case 2:
+                defaultUnit = PressureUnit.MICRONEWTON_PER_METER;
+                break;
+            default:
+                defaultUnit = PressureUnit.MEGAPASCAL;
+        }
+        tracker = new VirialPressureTracker(baseUnit, typesRecorded, simInfo);
+        
+        components = new Component[9];
+        for (int a = 0; a < simInfo.dimension; a++) {
+            for (int b = 0; b < simInfo.dimension; b++) {
+                components[3 * a + b] = new Component(a, b);
+            }
+        }
+    }
+    
+    /**
+     * Component P_ab of the tensor, where the axes are 0 for x, 1 for y and 2
+     * for z. The off-diagonal components are symmetrized, so P_ab and P_ba are
+     * the same. The components are read from this statistic and ignore being
+     * notified of anything themselves.
+     * @throws IllegalArgumentException if an axis isn't in the simulation
+     */
+    public SingleAverageStatistic<PressureUnit> getComponent(int a, int b) {
+        if (a < 0 || b < 0 || a >= simInfo.dimension || b >= simInfo.dimension) {
+            throw new IllegalArgumentException("No pressure tensor component " + a + ", " + b 
+                    + " in " + simInfo.dimension + " dimensions");
+        }
+        return components[3 * a + b];
+    }
+    
+    /** Scalar pressure predicted for the particles; the tensor should be this times the identity */
+    @Override
+    public double getPredictionForAverage(PressureUnit unit) {
+        return Units.convert(baseUnit, unit, Pressure.predictPressure(simInfo, typesRecorded, useRealGasCorrections));
+    }
+    
+    /** Trace of the tensor over the dimension since it was last reset */
+    @Override
+    public double getCurrentAverage(PressureUnit unit) {
+        return tracker.getAverage(unit);
+    }
+    
+    @Override
+    public double getCumulativeAverage(PressureUnit unit) {
+        return tracker.getCumulativeAverage(unit);
+    }
+    
+    @Override
+    public Set<PressureUnit> getDisplayUnits() {
+        Set<PressureUnit> units = EnumSet.noneOf(PressureUnit.class);
+        for (PressureUnit unit: PressureUnit.values()) {
+            if (unit.getBaseUnit() == baseUnit) {
+                units.add(unit);
+            }
+        }
+        return units;
+    }
+    
+    @Override
+    public PressureUnit getDefaultDisplayUnit() {
+        return defaultUnit;
+    }
+    
+    @Override
+    public void notifyOfEvent(EventInfo event) {
+        tracker.analyzeEvent(event);
+    }
+    
+    @Override
+    public void notifyOfEventOutcome(EventInfo event) {
+        tracker.analyzeEventOutcome(event);
+    }
+    
+    @Override
+    public void notifyOfFrame(FrameInfo frame) {
+        tracker.analyzeFrame(frame);
+    }
+    
+    @Override
+    public void notifyOfSimulationTime(double simTime) {
+        tracker.setSimulationTime(simTime);
+    }
+    
+    @Override
+    public void useFrameForCurrentCalculations(FrameInfo frame) {
+    }
+    
+    @Override
+    public void setAveraging(AveragingMode mode, double halfLife) {
+        tracker.setAveraging(mode, halfLife);
+    }
+    
+    @Override
+    public void reset() {
+        tracker.reset();
+    }
+    
+    @Override
+    public void clear() {
+        tracker.clear();
+    }
+    
+    @Override
+    public void setFiniteSysCorrections(boolean corrections) {
+    }
+    
+    @Override
+    public void setRealGasCorrections(boolean corrections) {
+        useRealGasCorrections = corrections;
+    }
+    
+    /** One component of the tensor, read from the enclosing statistic's tracker */
+    private class Component implements SingleAverageStatistic<PressureUnit> {
+        
+        private final int a, b;
+        
+        Component(int a, int b) {
+            this.a = a;
+            this.b = b;
+        }
+        
+        @Override
+        public double getPredictionForAverage(PressureUnit unit) {
+            return (a == b) ? PressureTensor.this.getPredictionForAverage(unit) : 0.0;
+        }
+        
+        @Override
+        public double getCurrentAverage(PressureUnit unit) {
+            return tracker.getComponent(a, b, unit);
+        }
+        
+        @Override
+        public double getCumulativeAverage(PressureUnit unit) {
+            return tracker.getCumulativeComponent(a, b, unit);
+        }
+        
+        @Override
+        public Set<PressureUnit> getDisplayUnits() {
+            return PressureTensor.this.getDisplayUnits();
+        }
+        
+        @Override
+        public PressureUnit getDefaultDisplayUnit() {
+            return defaultUnit;
+        }
+        
+        @Override
+        public void notifyOfEvent(EventInfo event) {
+        }
+        
+        @Override
+        public void notifyOfSimulationTime(double simTime) {
+        }
+        
+        @Override
+        public void useFrameForCurrentCalculations(FrameInfo frame) {
+        }
+        
+        @Override
+        public void reset() {
+        }
+        
+        @Override
+        public void clear() {
+        }
+        
+        @Override
+        public void setFiniteSysCorrections(boolean corrections) {
+        }
+        
+        @Override
+        public void setRealGasCorrections(boolean corrections) {
+        }
+        
+        @Override
+        public String toString() {
+            return "P" + AXES.charAt(a) + AXES.charAt(b);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics;
+
+import edu.byu.chem.boltzmann.model.physics.EventInfo;
+import edu.byu.chem.boltzmann.model.physics.FrameInfo;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.EventOutcomeStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.FrameStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.SingleAverageStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticProvider;
+import edu.byu.chem.boltzmann.model.statistics.utils.FrameAnalysis;
+import edu.byu.chem.boltzmann.model.statistics.utils.HelfandMomentTracker;
+import edu.byu.chem.boltzmann.utils.Units;
+import edu.byu.chem.boltzmann.utils.Units.Viscosity;
+import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Shear viscosity of the whole gas from the Helfand moments of the
+ * off-diagonal stress, averaged over the xy, xz and yz components. Recorded
+ * in two and three dimensional simulations with periodic boundaries.
+ */
+public class ShearViscosity implements SingleAverageStatistic<Viscosity>, FrameStatistic, EventOutcomeStatistic {
+    
+    public static final String NAME = "Shear Viscosity";
+    
+    /** Makes the statistic available through StatisticProviders */
+    public static class Provider implements StatisticProvider {
+        
+        public String getName() {
+            return NAME;
+        }
+        
+        public int getEventTypes() {
+            return ALL_EVENTS;
+        }
+        
+        public Set<FrameAnalysis.Column> getFrameColumns() {
+            return EnumSet.noneOf(FrameAnalysis.Column.class);
+        }
+        
+        public Statistic createStatistic(SimulationInfo simInfo, Set<ParticleType> types) {
+            if (!simInfo.isPeriodic() || simInfo.dimension < 2
+                    || !types.equals(new HashSet<ParticleType>(simInfo.getParticleTypes()))) {
+                return null;
+            }
+            return new ShearViscosity(simInfo, types);
+        }
+    }
+    
+    private final Viscosity defaultUnit;
+    
+    private final SimulationInfo simInfo;
+    private final Set<ParticleType> typesRecorded;
+    private final HelfandMomentTracker tracker;
+    
+    private boolean useFiniteSystemCorrections = false;
+    private boolean useRealGasCorrections = false;
+    
+    public ShearViscosity(SimulationInfo simInfo, Set<ParticleType> types) {
+        this.simInfo = simInfo;
+        typesRecorded = types;
+        defaultUnit = (simInfo.dimension == 2) ? Viscosity.PICONEWTON_SECOND_PER_METER : Viscosity.MICROPASCAL_SECOND;
+        tracker = new HelfandMomentTracker(HelfandMomentTracker.Flux.MOMENTUM, simInfo);
+    }
+    
+    /**
+     * Chapman-Enskog viscosity of dilute hard spheres or disks, with Enskog's
+     * dense gas factor in three dimensions if using real gas corrections.
+     */
+    @Override
+    public double getPredictionForAverage(Viscosity unit) {
+        final int dimension = simInfo.dimension;
+        final double temperature = simInfo.initialTemperature;
+        double viscosity = StatUtils.weightedAverage(simInfo, typesRecorded, new StatUtils.CalculatorByType() {
+            public double valueForType(ParticleType type) {
+                double mass = Units.convert("amu", "kg", type.particleMass);
+                double diameter = 2.0 * type.particleRadius;
+                double thermal = Math.sqrt(mass * Formulas.BOLTZMANN_CONST * temperature / Math.PI);
+                if (dimension == 2) {
+                    return thermal / (2.0 * diameter);
+                }
+                double dilute = 5.0 * thermal / (16.0 * diameter * diameter);
+                if (!useRealGasCorrections) {
+                    return dilute;
+                }
+                double x = Formulas.realGasX(simInfo, type);
+                double contactValue = Formulas.realGasQx(x, dimension);
+                return dilute * (1.0 / contactValue + 0.8 * x + 0.7614 * x * x * contactValue);
+            }
+        });
+        return Units.convert(Viscosity.getBaseUnit(dimension), unit, viscosity);
+    }
+    
+    @Override
+    public double getCurrentAverage(Viscosity unit) {
+        return Units.convert(Viscosity.getBaseUnit(simInfo.dimension), unit, tracker.getCoefficient(true));
+    }
+    
+    @Override
+    public double getCumulativeAverage(Viscosity unit) {
+        return Units.convert(Viscosity.getBaseUnit(simInfo.dimension), unit, tracker.getCoefficient(false));
+    }
+    
+    @Override
+    public Set<Viscosity> getDisplayUnits() {
+        Set<Viscosity> units = EnumSet.noneOf(Viscosity.class);
+        for (Viscosity unit: Viscosity.values()) {
+            if (unit.getBaseUnit() == defaultUnit.getBaseUnit()) {
+                units.add(unit);
+            }
+        }
+        return units;
+    }
+    
+    @Override
+    public Viscosity getDefaultDisplayUnit() {
+        return defaultUnit;
+    }
+    
+    @Override
+    public void notifyOfEvent(EventInfo event) {
+        tracker.beforeEvent(event);
+    }
+    
+    @Override
+    public void notifyOfEventOutcome(EventInfo event) {
+        tracker.afterEvent(event);
+    }
+    
+    @Override
+    public void notifyOfFrame(FrameInfo frame) {
+        tracker.sampleFrame(frame);
+    }
+    
+    @Override
+    public void notifyOfSimulationTime(double simTime) {
+    }
+    
+    @Override
+    public void useFrameForCurrentCalculations(FrameInfo frame) {
+    }
+    
+    @Override
+    public void reset() {
+        tracker.reset();
+    }
+    
+    @Override
+    public void clear() {
+        tracker.clear();
+    }
+    
+    @Override
+    public void setFiniteSysCorrections(boolean corrections) {
+        useFiniteSystemCorrections = corrections;
+    }
+    
+    @Override
+    public void setRealGasCorrections(boolean corrections) {
+        useRealGasCorrections = corrections;
+    }
+}
@@ -17,6 +17,8 @@
  */
 package edu.byu.chem.boltzmann.model.statistics;
 
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithErrorEstimate;
+import edu.byu.chem.boltzmann.utils.Units.Unit;
 import edu.byu.chem.boltzmann.utils.data.ParticleType;
 import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
 import java.util.Set;
@@ -105,6 +107,20 @@ public class StatUtils {
         }
     }
     
+    /**
+     * For runs that should stop once a statistic is known well enough.
+     * @return True if the standard error of the cumulative average has
+     * converged and is no more than relativeError times the average
+     */
+    public static <UnitType extends Unit<UnitType>> boolean reachedPrecision(
+            StatisticWithErrorEstimate<UnitType> statistic, double relativeError) {
+        if (!statistic.hasConvergedErrorEstimate()) {
+            return false;
+        }
+        UnitType unit = statistic.getDefaultDisplayUnit();
+        return statistic.getStandardError(unit) <= relativeError * Math.abs(statistic.getCumulativeAverage(unit));
+    }
+    
     /**
      * Rounds to 2 significant figures, relatively. The larger magnitude
      * value determines where these significant figures lie.
@@ -0,0 +1,68 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics;
+
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticProvider;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.Set;
+
+/**
+ * The StatisticProviders on the class path, loaded once with ServiceLoader.
+ */
+public final class StatisticProviders {
+
+    private static List<StatisticProvider> providers = null;
+
+    private StatisticProviders() {
+    }
+
+    /**
+     * Every provider found, in class path order. A provider that can't be
+     * loaded fails here rather than partway through a simulation.
+     */
+    public static synchronized List<StatisticProvider> getProviders() {
+        if (providers == null) {
+            List<StatisticProvider> found = new ArrayList<StatisticProvider>();
+            Set<String> names = new HashSet<String>();
+            for (StatisticProvider provider : ServiceLoader.load(StatisticProvider.class)) {
+                if (!names.add(provider.getName())) {
+                    throw new IllegalStateException("Two statistic providers are named " + provider.getName());
+                }
+                found.add(provider);
+            }
+            providers = Collections.unmodifiableList(found);
+        }
+        return providers;
+    }
+
+    /** Mask for StatisticProvider.getEventTypes() with a bit set for each event type */
+    public static int eventTypes(int... types) {
+        int mask = StatisticProvider.NO_EVENTS;
+        for (int type : types) {
+            if (type < 0 || type >= Integer.SIZE) {
+                throw new IllegalArgumentException("No event type " + type);
+            }
+            mask |= 1 << type;
+        }
+        return mask;
+    }
+}
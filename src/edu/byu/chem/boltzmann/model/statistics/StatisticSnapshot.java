@@ -0,0 +1,214 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics;
+
+import edu.byu.chem.boltzmann.model.statistics.interfaces.Range;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.SingleAverageStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithDistribution;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithErrorEstimate;
+import edu.byu.chem.boltzmann.model.statistics.plots.HistogramBins;
+import edu.byu.chem.boltzmann.utils.Units.Unit;
+
+/**
+ * The values one statistic shows in the readouts and plots, copied on the
+ * physics thread between frames so the view can display them on the event
+ * dispatch thread while physics carries on updating the statistic. A snapshot
+ * is never changed after it is taken. All values are in getUnit(), the
+ * statistic's default display unit.
+ *
+ * Which values are available depends on the interfaces the statistic
+ * implements; see hasAverage(), hasDistribution() and hasErrorEstimate().
+ */
+public final class StatisticSnapshot {
+
+    /** Points in getPredictionCurve(), spread over the distribution range */
+    public static final int PREDICTION_POINTS = 256;
+
+    private final Statistic statistic;
+    private final Unit<?> unit;
+
+    private final boolean hasAverage;
+    private final double currentAverage;
+    private final double cumulativeAverage;
+    private final double averagePrediction;
+
+    private final boolean hasDistribution;
+    private final double currentWidth;
+    private final double cumulativeWidth;
+    private final double widthPrediction;
+    private final Range distributionRange;
+    private final HistogramBins currentBins;
+    private final HistogramBins cumulativeBins;
+    private final boolean newPredictionCurve;
+    private final double[] predictionCurve;
+
+    private final boolean hasErrorEstimate;
+    private final double standardError;
+    private final double correlationTime;
+    private final boolean convergedErrorEstimate;
+
+    /**
+     * Copies the readout values of statistic. Must be called from the thread
+     * that updates the statistic, while it is between events.
+     */
+    public StatisticSnapshot(Statistic statistic) {
+        this(statistic, (statistic instanceof SingleAverageStatistic)
+                ? (SingleAverageStatistic<?>) statistic : null);
+    }
+
+    /** average is statistic as a SingleAverageStatistic, or null if it isn't one */
+    private <U extends Unit<U>> StatisticSnapshot(Statistic statistic, SingleAverageStatistic<U> average) {
+        this.statistic = statistic;
+
+        U defaultUnit = null;
+        if (average != null) {
+            defaultUnit = average.getDefaultDisplayUnit();
+            unit = defaultUnit;
+            hasAverage = true;
+            currentAverage = average.getCurrentAverage(defaultUnit);
+            cumulativeAverage = average.getCumulativeAverage(defaultUnit);
+            averagePrediction = average.getPredictionForAverage(defaultUnit);
+        } else {
+            unit = null;
+            hasAverage = false;
+            currentAverage = cumulativeAverage = averagePrediction = Double.NaN;
+        }
+
+        if (average instanceof StatisticWithDistribution) {
+            StatisticWithDistribution<U> distribution = (StatisticWithDistribution<U>) average;
+            hasDistribution = true;
+            currentWidth = distribution.getCurrentDistributionWidth(defaultUnit);
+            cumulativeWidth = distribution.getCumulativeDistributionWidth(defaultUnit);
+            widthPrediction = distribution.getDistributionWidthPrediction(defaultUnit);
+            distributionRange = distribution.getDistributionRange(defaultUnit);
+            currentBins = distribution.getHistogramBinsForCurrentDistribution().copy();
+            cumulativeBins = distribution.getHistogramBinsForCumulativeDistribution().copy();
+            newPredictionCurve = distribution.hasNewPredictionCurve();
+            predictionCurve = distribution.getPredictionCurve(PREDICTION_POINTS);
+        } else {
+            hasDistribution = false;
+            currentWidth = cumulativeWidth = widthPrediction = Double.NaN;
+            distributionRange = null;
+            currentBins = cumulativeBins = null;
+            newPredictionCurve = false;
+            predictionCurve = null;
+        }
+
+        if (average instanceof StatisticWithErrorEstimate) {
+            StatisticWithErrorEstimate<U> errorEstimate = (StatisticWithErrorEstimate<U>) average;
+            hasErrorEstimate = true;
+            standardError = errorEstimate.getStandardError(defaultUnit);
+            correlationTime = errorEstimate.getCorrelationTime();
+            convergedErrorEstimate = errorEstimate.hasConvergedErrorEstimate();
+        } else {
+            hasErrorEstimate = false;
+            standardError = correlationTime = Double.NaN;
+            convergedErrorEstimate = false;
+        }
+    }
+
+    /**
+     * The statistic the values were copied from. Only for telling snapshots
+     * apart; reading the statistic itself off the physics thread is what
+     * snapshots are there to avoid.
+     */
+    public Statistic getStatistic() {
+        return statistic;
+    }
+
+    /** Unit of every value in the snapshot, null if the statistic has no average */
+    public Unit<?> getUnit() {
+        return unit;
+    }
+
+    /** True for SingleAverageStatistics */
+    public boolean hasAverage() {
+        return hasAverage;
+    }
+
+    public double getCurrentAverage() {
+        return currentAverage;
+    }
+
+    public double getCumulativeAverage() {
+        return cumulativeAverage;
+    }
+
+    public double getPredictionForAverage() {
+        return averagePrediction;
+    }
+
+    /** True for StatisticWithDistributions */
+    public boolean hasDistribution() {
+        return hasDistribution;
+    }
+
+    public double getCurrentDistributionWidth() {
+        return currentWidth;
+    }
+
+    public double getCumulativeDistributionWidth() {
+        return cumulativeWidth;
+    }
+
+    public double getDistributionWidthPrediction() {
+        return widthPrediction;
+    }
+
+    public Range getDistributionRange() {
+        return distributionRange;
+    }
+
+    public HistogramBins getHistogramBinsForCurrentDistribution() {
+        return currentBins;
+    }
+
+    public HistogramBins getHistogramBinsForCumulativeDistribution() {
+        return cumulativeBins;
+    }
+
+    public boolean hasNewPredictionCurve() {
+        return newPredictionCurve;
+    }
+
+    /**
+     * The prediction curve at PREDICTION_POINTS points, each at the middle of
+     * an equal part of getDistributionRange(); read-only
+     */
+    public double[] getPredictionCurve() {
+        return predictionCurve;
+    }
+
+    /** True for StatisticWithErrorEstimates */
+    public boolean hasErrorEstimate() {
+        return hasErrorEstimate;
+    }
+
+    public double getStandardError() {
+        return standardError;
+    }
+
+    public double getCorrelationTime() {
+        return correlationTime;
+    }
+
+    public boolean hasConvergedErrorEstimate() {
+        return convergedErrorEstimate;
+    }
+}
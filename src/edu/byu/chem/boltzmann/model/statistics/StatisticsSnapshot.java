@@ -0,0 +1,55 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics;
+
+import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * StatisticSnapshots of every statistic in a simulation, all taken at the end
+ * of the same frame. Physics creates these and the view displays the newest
+ * one, so displaying statistics never has to wait on the physics or hold it up.
+ */
+public final class StatisticsSnapshot {
+
+    /** Simulation time (s) the snapshot was taken at */
+    public final double simulationTime;
+
+    private final Map<Statistic, StatisticSnapshot> snapshots;
+
+    /**
+     * Takes a snapshot of each of the statistics. Must be called from the
+     * thread that updates them, between events.
+     */
+    public StatisticsSnapshot(Statistic[] statistics, double simulationTime) {
+        this.simulationTime = simulationTime;
+        snapshots = new IdentityHashMap<Statistic, StatisticSnapshot>(statistics.length);
+        for (Statistic statistic : statistics) {
+            snapshots.put(statistic, new StatisticSnapshot(statistic));
+        }
+    }
+
+    /**
+     * The snapshot of statistic, or null if it was not part of the simulation
+     * when the snapshot was taken.
+     */
+    public StatisticSnapshot get(Statistic statistic) {
+        return snapshots.get(statistic);
+    }
+}
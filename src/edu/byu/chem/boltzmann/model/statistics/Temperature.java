@@ -19,12 +19,10 @@ package edu.byu.chem.boltzmann.model.statistics;
 
 import edu.byu.chem.boltzmann.model.physics.EventInfo;
 import edu.byu.chem.boltzmann.model.physics.FrameInfo;
-import edu.byu.chem.boltzmann.model.physics.PartState;
-import edu.byu.chem.boltzmann.model.physics.Particle;
 import edu.byu.chem.boltzmann.model.statistics.parents.SingleAverageStatisticOld;
+import edu.byu.chem.boltzmann.model.statistics.utils.FrameAnalysis;
 import edu.byu.chem.boltzmann.utils.Units;
 import edu.byu.chem.boltzmann.utils.Units.Unit;
-import java.util.Set;
 
 /**
  * Created 11 Jun 2011
@@ -74,15 +72,10 @@ public class Temperature extends SingleAverageStatisticOld {
 
     @Override
     public void prepareInstCalculations(FrameInfo frame) {
-        double totalKE = 0.0;
-        Set<Particle> allParticles = frame.getParticles();
+        FrameAnalysis analysis = frame.getAnalysis();
+        double totalKE = Units.convert("amu", "kg", analysis.getTotalKineticEnergy());
         
-        for (Particle particle: allParticles) {
-            PartState frameState = frame.getParticleState(particle);
-            totalKE += Formulas.kineticEnergy(frameState);
-        }
-        
-        double avgKE = totalKE / allParticles.size();
+        double avgKE = totalKE / analysis.size();
         
         currentTemperature = Formulas.temperature(avgKE, simulationInfo.dimension);
     }
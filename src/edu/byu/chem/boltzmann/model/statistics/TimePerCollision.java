@@ -22,10 +22,13 @@ import edu.byu.chem.boltzmann.model.physics.Collision;
 import edu.byu.chem.boltzmann.model.physics.EventInfo;
 import edu.byu.chem.boltzmann.model.physics.FrameInfo;
 import edu.byu.chem.boltzmann.model.physics.Particle;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.AveragedStatistic;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.ProbabilityDensityFunctionPointCreater;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.Range;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithDistribution;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithErrorEstimate;
 import edu.byu.chem.boltzmann.model.statistics.plots.HistogramBins;
+import edu.byu.chem.boltzmann.model.statistics.utils.FrameAnalysis;
 import edu.byu.chem.boltzmann.model.statistics.utils.ParticleStateAnalyzer;
 import edu.byu.chem.boltzmann.model.statistics.utils.WeightedValueTracker;
 import edu.byu.chem.boltzmann.utils.Units;
@@ -41,7 +44,7 @@ import java.util.Set;
  * @author Joshua Olson
  * July 11, 2012
  */
-public class TimePerCollision implements StatisticWithDistribution<Time> {
+public class TimePerCollision implements StatisticWithDistribution<Time>, StatisticWithErrorEstimate<Time>, AveragedStatistic {
     private static final Time DEFAULT_UNIT = Time.PICOSECOND;
 
     private boolean useRealGasCorrections = false;
@@ -71,7 +74,7 @@ public class TimePerCollision implements StatisticWithDistribution<Time> {
         typesRecorded = types;
         
         stateAnalyzer = new ParticleStateAnalyzer(
-            new ParticleStateAnalyzer.ParticleStateWatcher(types, simInfo.reactionMode) {
+            new ParticleStateAnalyzer.ParticleStateWatcher(types, simInfo) {
 
                 @Override
                 public void update(Particle particle, double timeElapsedInState) {
@@ -81,11 +84,11 @@ public class TimePerCollision implements StatisticWithDistribution<Time> {
                 }
 
                 @Override
-                public void update(Particle particle) {
-                    double timeElapsedInState = simulationTime - stateAnalyzer.getLastCollisionTime(particle);
+                public void update(FrameAnalysis frame, int index) {
+                    double timeElapsedInState = simulationTime - stateAnalyzer.getLastCollisionTime(frame.getParticle(index));
                     double value = Units.convert(Time.SECOND, DEFAULT_UNIT, timeElapsedInState);
                     currentWeightedValues.addWeightedValue(value, 1.0);
-                    currentBins.addWeightedValue(value, 1.0, particle.getDisplayColor());
+                    currentBins.addWeightedValue(value, 1.0, frame.getColors()[index]);
                 }        
             }, 
                 Collision.PARTICLE);
@@ -170,6 +173,21 @@ public class TimePerCollision implements StatisticWithDistribution<Time> {
         return cumulativeWeightedValues.getAverage(unit);
     }
 
+    @Override
+    public double getStandardError(Time unit) {
+        return cumulativeWeightedValues.getStandardError(unit);
+    }
+
+    @Override
+    public double getCorrelationTime() {
+        return cumulativeWeightedValues.getCorrelationTime();
+    }
+
+    @Override
+    public boolean hasConvergedErrorEstimate() {
+        return cumulativeWeightedValues.hasConvergedErrorEstimate();
+    }
+
     @Override
     public Set<Time> getDisplayUnits() {
         return EnumSet.of(DEFAULT_UNIT);
@@ -195,7 +213,13 @@ public class TimePerCollision implements StatisticWithDistribution<Time> {
 
     @Override    
     public void notifyOfSimulationTime(double simTime) {
-    }    
+        cumulativeWeightedValues.advanceTo(simTime);
+    }
+
+    @Override
+    public void setAveraging(AveragingMode mode, double halfLife) {
+        cumulativeWeightedValues.setAveraging(mode, halfLife);
+    }
 
     @Override
     public void reset() {
@@ -0,0 +1,84 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics;
+
+import edu.byu.chem.boltzmann.model.physics.ParticleStates;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticProvider;
+import edu.byu.chem.boltzmann.model.statistics.parents.TimeCorrelationStatistic;
+import edu.byu.chem.boltzmann.model.statistics.utils.FrameAnalysis;
+import edu.byu.chem.boltzmann.model.statistics.utils.TimeCorrelator;
+import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Velocity autocorrelation function &lt;v(0) . v(t)&gt; of the recorded
+ * particles, in (m/s)^2, and the self-diffusion coefficient it gives through
+ * the Green-Kubo relation D = (1/d) integral of &lt;v(0) . v(t)&gt; dt, the
+ * integral taken over the lags correlated.
+ */
+public class VelocityAutocorrelation extends TimeCorrelationStatistic {
+    
+    public static final String NAME = "Velocity Autocorrelation";
+    
+    /** Makes the statistic available through StatisticProviders */
+    public static class Provider implements StatisticProvider {
+        
+        public String getName() {
+            return NAME;
+        }
+        
+        public int getEventTypes() {
+            return NO_EVENTS;
+        }
+        
+        public Set<FrameAnalysis.Column> getFrameColumns() {
+            return EnumSet.noneOf(FrameAnalysis.Column.class);
+        }
+        
+        public Statistic createStatistic(SimulationInfo simInfo, Set<ParticleType> types) {
+            return new VelocityAutocorrelation(simInfo, types);
+        }
+    }
+    
+    public VelocityAutocorrelation(SimulationInfo simInfo, Set<ParticleType> types) {
+        super(simInfo, types, TimeCorrelator.Kind.AUTOCORRELATION);
+    }
+    
+    @Override
+    protected void fillSample(ParticleStates states, int[] trackedParticles, double[] sample, boolean restarted) {
+        double[] velocities = states.getVelocities();
+        for (int i = 0; i < trackedParticles.length; i++) {
+            int offset = 3 * trackedParticles[i];
+            for (int axis = 0; axis < dimension; axis++) {
+                sample[dimension * i + axis] = velocities[offset + axis];
+            }
+        }
+    }
+    
+    @Override
+    protected double diffusionCoefficient(double[] correlation, double lagTime) {
+        double integral = 0.0;
+        for (int lag = 1; lag < correlation.length; lag++) {
+            integral += 0.5 * (correlation[lag - 1] + correlation[lag]) * lagTime;
+        }
+        return integral / dimension;
+    }
+}
@@ -19,10 +19,13 @@ package edu.byu.chem.boltzmann.model.statistics;
 
 import edu.byu.chem.boltzmann.model.physics.*;
 import edu.byu.chem.boltzmann.model.statistics.StatUtils.CalculatorByType;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.AveragedStatistic;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.ProbabilityDensityFunctionPointCreater;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.Range;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithDistribution;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithErrorEstimate;
 import edu.byu.chem.boltzmann.model.statistics.plots.HistogramBins;
+import edu.byu.chem.boltzmann.model.statistics.utils.FrameAnalysis;
 import edu.byu.chem.boltzmann.model.statistics.utils.ParticleStateAnalyzer;
 import edu.byu.chem.boltzmann.model.statistics.utils.WeightedValueTracker;
 import edu.byu.chem.boltzmann.utils.Units;
@@ -37,7 +40,7 @@ import java.util.Set;
  * @author Joshua Olson
  * June 1, 2012
  */
-public class XVelocity implements StatisticWithDistribution<Velocity> {
+public class XVelocity implements StatisticWithDistribution<Velocity>, StatisticWithErrorEstimate<Velocity>, AveragedStatistic {
     private static final Velocity DEFAULT_UNIT = Units.Velocity.METER_PER_SECOND;
 
     private boolean useFiniteSystemCorrections = false;
@@ -65,7 +68,7 @@ public class XVelocity implements StatisticWithDistribution<Velocity> {
         typesRecorded = types;
         
         stateAnalyzer = new ParticleStateAnalyzer(
-            new ParticleStateAnalyzer.ParticleStateWatcher(types, simInfo.reactionMode) {
+            new ParticleStateAnalyzer.ParticleStateWatcher(types, simInfo) {
 
                 @Override
                 public void update(Particle particle, double timeElapsedInState) {
@@ -76,11 +79,11 @@ public class XVelocity implements StatisticWithDistribution<Velocity> {
                 }
 
                 @Override
-                public void update(Particle particle) {
-                    double value = particle.getXVel();
+                public void update(FrameAnalysis frame, int index) {
+                    double value = frame.getVelocities()[3 * index];
                     currentWeightedValues.addWeightedValue(
                             value, 1.0);
-                    currentBins.addWeightedValue(value, 1.0, particle.getDisplayColor());
+                    currentBins.addWeightedValue(value, 1.0, frame.getColors()[index]);
                 }        
             }, 
                 Collision.PARTICLE);
@@ -256,6 +259,21 @@ public double distributionFunction(double x, ParticleType particleType) {
         return cumulativeWeightedValues.getAverage(unit);
     }
 
+    @Override
+    public double getStandardError(Velocity unit) {
+        return cumulativeWeightedValues.getStandardError(unit);
+    }
+
+    @Override
+    public double getCorrelationTime() {
+        return cumulativeWeightedValues.getCorrelationTime();
+    }
+
+    @Override
+    public boolean hasConvergedErrorEstimate() {
+        return cumulativeWeightedValues.hasConvergedErrorEstimate();
+    }
+
     @Override
     public Set<Velocity> getDisplayUnits() {
         return EnumSet.of(DEFAULT_UNIT);
@@ -279,8 +297,14 @@ public double distributionFunction(double x, ParticleType particleType) {
     }
 
     @Override    
-    public void notifyOfSimulationTime(double simTime) {        
-    }    
+    public void notifyOfSimulationTime(double simTime) {
+        cumulativeWeightedValues.advanceTo(simTime);
+    }
+
+    @Override
+    public void setAveraging(AveragingMode mode, double halfLife) {
+        cumulativeWeightedValues.setAveraging(mode, halfLife);
+    }
 
     @Override
     public void reset() {
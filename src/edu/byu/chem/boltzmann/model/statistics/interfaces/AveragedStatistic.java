@@ -0,0 +1,34 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics.interfaces;
+
+import edu.byu.chem.boltzmann.model.statistics.AveragingMode;
+
+/**
+ * Statistics whose cumulative averages can forget old data on their own
+ * instead of growing until the statistics are cleared.
+ */
+public interface AveragedStatistic extends Statistic {
+
+    /**
+     * @param mode how older data is weighted in cumulative averages
+     * @param halfLife half-life in seconds for EXPONENTIAL, block length in
+     * seconds for BLOCK; ignored for CUMULATIVE
+     */
+    public void setAveraging(AveragingMode mode, double halfLife);
+}
@@ -0,0 +1,38 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics.interfaces;
+
+import edu.byu.chem.boltzmann.model.physics.EventInfo;
+
+/**
+ * A statistic that needs to see what an event did, such as the momentum and
+ * energy two particles exchanged in a collision, and not just the particles
+ * before it happened as notifyOfEvent() shows them.
+ */
+public interface EventOutcomeStatistic extends Statistic {
+    
+    /**
+     * Lets the statistic know an event it was notified of has been carried
+     * out. The event's involved particles have their new velocities, and for
+     * particle collisions both have been moved to event.colTime. Called for
+     * the same events as notifyOfEvent(), right after each one is performed.
+     * @param event 
+     */
+    public void notifyOfEventOutcome(EventInfo event);
+    
+}
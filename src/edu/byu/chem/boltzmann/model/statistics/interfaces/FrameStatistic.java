@@ -0,0 +1,38 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics.interfaces;
+
+import edu.byu.chem.boltzmann.model.physics.FrameInfo;
+
+/**
+ * A statistic that follows particles from frame to frame, such as the time
+ * correlation statistics, rather than looking at frames one at a time when
+ * they're displayed.
+ */
+public interface FrameStatistic extends Statistic {
+    
+    /**
+     * Lets the statistic know about a frame the simulation has finished. This
+     * is called chronologically by the physics thread at the end of every frame
+     * it processes, after notifyOfSimulationTime(). The frame's particle states
+     * are only valid during the call.
+     * @param frame
+     */
+    public void notifyOfFrame(FrameInfo frame);
+    
+}
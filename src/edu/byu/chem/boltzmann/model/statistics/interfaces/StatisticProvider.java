@@ -0,0 +1,72 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics.interfaces;
+
+import edu.byu.chem.boltzmann.model.statistics.utils.FrameAnalysis;
+import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import java.util.Set;
+
+/**
+ * Service provider interface for statistics that aren't in StatisticID.
+ * Providers are found with java.util.ServiceLoader, so a statistic can be
+ * added by putting a jar on the class path whose
+ * META-INF/services/edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticProvider
+ * names the provider class. Providers need a public no-argument constructor.
+ *
+ * Providers are opt-in: Physics only uses those named in
+ * StatSettingsInfo.providedStatistics, which HeadlessRunner's -statistics
+ * option fills, and rejects names no provider has. It creates an enabled provider's
+ * statistic for every combination of particle types, as it does for the
+ * statistics in StatisticID, and updates them the same way, except that a
+ * provided statistic's notifyOfEvent() only sees events of the types in
+ * getEventTypes().
+ */
+public interface StatisticProvider {
+
+    /** Event types mask meaning every event */
+    public static final int ALL_EVENTS = -1;
+
+    /** Event types mask meaning no events */
+    public static final int NO_EVENTS = 0;
+
+    /**
+     * Name the statistic is looked up by with Physics.getStatistic(Set, String).
+     * Must differ from every other provider's.
+     */
+    public String getName();
+
+    /**
+     * Event types the statistic's notifyOfEvent() is called for, as a mask with
+     * bit 1 &lt;&lt; type set for each Collision type wanted, or ALL_EVENTS.
+     */
+    public int getEventTypes();
+
+    /**
+     * Per-particle columns the statistic reads from FrameInfo.getAnalysis() in
+     * useFrameForCurrentCalculations(). Columns nobody asks for aren't worked
+     * out.
+     */
+    public Set<FrameAnalysis.Column> getFrameColumns();
+
+    /**
+     * Creates the statistic for particles of types, or returns null if it
+     * shouldn't be recorded for them in this simulation.
+     */
+    public Statistic createStatistic(SimulationInfo simInfo, Set<ParticleType> types);
+}
@@ -0,0 +1,49 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics.interfaces;
+
+import edu.byu.chem.boltzmann.utils.Units.Unit;
+
+/**
+ * Statistics that can say how far their cumulative average may be from the
+ * true average, allowing for correlation between successive frames.
+ *
+ * The estimate covers the data since the statistic was last cleared and is
+ * for a plain mean of that data, whatever AveragingMode the statistic uses.
+ */
+public interface StatisticWithErrorEstimate<UnitType extends Unit<UnitType>> extends SingleAverageStatistic<UnitType> {
+
+    /**
+     * @param unit
+     * @return Standard error of the cumulative average in the requested unit,
+     * or NaN if too little has been recorded yet.
+     */
+    public double getStandardError(UnitType unit);
+
+    /**
+     * @return Time in seconds over which the recorded values stay correlated,
+     * or NaN if too little has been recorded yet.
+     */
+    public double getCorrelationTime();
+
+    /**
+     * @return True once enough has been recorded for the standard error to be
+     * trusted; before then it is an underestimate.
+     */
+    public boolean hasConvergedErrorEstimate();
+}
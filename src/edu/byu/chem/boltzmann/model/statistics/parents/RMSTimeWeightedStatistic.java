@@ -22,6 +22,7 @@ import edu.byu.chem.boltzmann.model.physics.EventInfo;
 import edu.byu.chem.boltzmann.model.physics.FrameInfo;
 import edu.byu.chem.boltzmann.model.physics.PartState;
 import edu.byu.chem.boltzmann.model.physics.Particle;
+import edu.byu.chem.boltzmann.model.physics.ParticleStates;
 import edu.byu.chem.boltzmann.model.physics.Physics;
 import edu.byu.chem.boltzmann.utils.data.ParticleType;
 import java.util.HashMap;
@@ -87,14 +88,18 @@ public abstract class RMSTimeWeightedStatistic extends RMSWeightedValueStatistic
         }
     }
 
+    private final PartState workingState = new PartState(0, 0, 0, 0, null, 0);
+
     @Override
     public void prepareInstCalculations(FrameInfo frame) {
         resetInstData();
-        for (Particle particle: frame.getParticles()) {
-            if (types.contains(particle.particleType) || simulationInfo.reactionMode) {
-                PartState particleState = frame.getParticleState(particle);
-                if (colorsRecorded.contains(particleState.color)) {
-                    updateInstRecord(particleState);
+        ParticleStates states = frame.getParticleStates();
+        ParticleType[] particleTypes = states.getParticleTypes();
+        int[] species = states.getSpecies();
+        for (int particleIndex = 0; particleIndex < states.size(); particleIndex++) {
+            if (types.contains(particleTypes[particleIndex]) || simulationInfo.reactionMode) {
+                if (shouldRecordStats(species[particleIndex])) {
+                    updateInstRecord(states.getState(particleIndex, workingState));
                 }
             }
         }
@@ -28,9 +28,8 @@ import edu.byu.chem.boltzmann.model.statistics.InstantaneousSpeed;
 import edu.byu.chem.boltzmann.model.statistics.StatisticCalculation;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
 import edu.byu.chem.boltzmann.model.statistics.plots.PlotUtils.PlotType;
-import java.awt.Color;
+import edu.byu.chem.boltzmann.model.statistics.utils.SpeciesFilter;
 import java.awt.Graphics;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
@@ -41,7 +40,7 @@ import java.util.Set;
 public abstract class StatisticOld {
 
     protected Set<ParticleType> types; //Types of particles this keeps track of
-    protected Set<Color> colorsRecorded = new HashSet<Color>(); //Colors of particle types recorded
+    protected SpeciesFilter speciesRecorded; //Species of the particle types recorded
 
     protected double lastFrameEndTime;
 
@@ -88,11 +87,7 @@ public abstract class StatisticOld {
 
     protected void setRecordedTypes(Set<ParticleType> recordedTypes) {
         this.types = recordedTypes;
-
-        colorsRecorded.clear();
-        for (ParticleType type: types) {
-            this.colorsRecorded.add(type.defaultColor);
-        }
+        speciesRecorded = new SpeciesFilter(recordedTypes, simulationInfo);
     }
 
     public abstract void drawPlot(PlotType plotType,
@@ -113,8 +108,8 @@ public abstract class StatisticOld {
         this.lastFrameEndTime = lastFrameEndTime;
     }
 
-    protected boolean shouldRecordStats(Color particleColor) {
-        return (colorsRecorded.contains(particleColor));
+    protected boolean shouldRecordStats(int species) {
+        return speciesRecorded.accepts(species);
     }
     
     protected boolean usingFiniteSysCorrections() {
@@ -0,0 +1,244 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics.parents;
+
+import edu.byu.chem.boltzmann.model.physics.EventInfo;
+import edu.byu.chem.boltzmann.model.physics.FrameInfo;
+import edu.byu.chem.boltzmann.model.physics.ParticleStates;
+import edu.byu.chem.boltzmann.model.statistics.Formulas;
+import edu.byu.chem.boltzmann.model.statistics.StatUtils;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.FrameStatistic;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.SingleAverageStatistic;
+import edu.byu.chem.boltzmann.model.statistics.utils.TimeCorrelator;
+import edu.byu.chem.boltzmann.utils.Units;
+import edu.byu.chem.boltzmann.utils.Units.Diffusivity;
+import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Self-diffusion coefficients found from a time correlation function of the
+ * recorded particles, sampled once a frame with a TimeCorrelator. Subclasses
+ * choose the per-particle quantity correlated and how the coefficient follows
+ * from the correlation function.
+ *
+ * At most MAX_TRACKED_PARTICLES particles are followed, the first ones of the
+ * recorded types, which keeps the memory and time needed bounded in big
+ * simulations. They're chosen again if the number of particles changes.
+ */
+public abstract class TimeCorrelationStatistic implements SingleAverageStatistic<Diffusivity>, FrameStatistic {
+    
+    public static final int MAX_TRACKED_PARTICLES = 1024;
+    
+    private static final Diffusivity DEFAULT_UNIT = Diffusivity.CENTIMETER2_PER_SECOND;
+    
+    protected final SimulationInfo simInfo;
+    protected final Set<ParticleType> typesRecorded;
+    protected final int dimension;
+    
+    protected boolean useFiniteSystemCorrections = false;
+    protected boolean useRealGasCorrections = false;
+    
+    private final TimeCorrelator.Kind kind;
+    private TimeCorrelator correlator = null;
+    private int[] trackedParticles = new int[0];
+    private int statesSize = -1;
+    private double[] sample = new double[0];
+    private double sampleInterval = 0.0;
+    
+    public TimeCorrelationStatistic(SimulationInfo simInfo, Set<ParticleType> types, TimeCorrelator.Kind kind) {
+        this.simInfo = simInfo;
+        this.typesRecorded = types;
+        this.dimension = simInfo.dimension;
+        this.kind = kind;
+    }
+    
+    /**
+     * Writes the value correlated for each tracked particle into sample, the
+     * dimension components of particle i at dimension * i.
+     * @param states particle states at the end of the frame
+     * @param trackedParticles indices in states of the tracked particles
+     * @param restarted true if tracking has just started over
+     */
+    protected abstract void fillSample(ParticleStates states, int[] trackedParticles, double[] sample, boolean restarted);
+    
+    /**
+     * Diffusion coefficient in m^2/s from a correlation function.
+     * @param correlation function of lag, per particle, summed over components
+     * @param lagTime time between lags in seconds
+     */
+    protected abstract double diffusionCoefficient(double[] correlation, double lagTime);
+    
+    @Override
+    public void notifyOfFrame(FrameInfo frame) {
+        double interval = frame.endTime - frame.startTime;
+        if (interval <= 0.0) {
+            return;
+        }
+        ParticleStates states = frame.getParticleStates();
+        boolean restarted = false;
+        if (correlator == null || states.size() != statesSize
+                || Math.abs(interval - sampleInterval) > 1.0E-9 * sampleInterval) {
+            startTracking(states);
+            sampleInterval = interval;
+            restarted = true;
+        }
+        fillSample(states, trackedParticles, sample, restarted);
+        correlator.add(sample);
+    }
+    
+    private void startTracking(ParticleStates states) {
+        statesSize = states.size();
+        ParticleType[] types = states.getParticleTypes();
+        int count = 0;
+        for (int i = 0; i < types.length && count < MAX_TRACKED_PARTICLES; i++) {
+            if (typesRecorded.contains(types[i])) {
+                count++;
+            }
+        }
+        trackedParticles = new int[count];
+        count = 0;
+        for (int i = 0; i < types.length && count < trackedParticles.length; i++) {
+            if (typesRecorded.contains(types[i])) {
+                trackedParticles[count++] = i;
+            }
+        }
+        sample = new double[dimension * count];
+        correlator = new TimeCorrelator(kind, sample.length);
+    }
+    
+    /** Time in seconds between lags of the correlation functions, zero before the first frame */
+    public double getLagTime() {
+        return sampleInterval;
+    }
+    
+    /**
+     * Correlation function per particle from the latest block of time origins,
+     * indexed by lag, or null before there is one.
+     */
+    public double[] getCurrentCorrelationFunction() {
+        if (correlator == null || !correlator.hasData()) {
+            return null;
+        }
+        double[] function = new double[TimeCorrelator.LAGS];
+        for (int lag = 0; lag < function.length; lag++) {
+            function[lag] = dimension * correlator.getCurrent(lag);
+        }
+        return function;
+    }
+    
+    /**
+     * Correlation function per particle from every time origin since the
+     * statistic was last cleared, indexed by lag, or null before there is one.
+     */
+    public double[] getCumulativeCorrelationFunction() {
+        if (correlator == null || !correlator.hasData()) {
+            return null;
+        }
+        double[] function = new double[TimeCorrelator.LAGS];
+        for (int lag = 0; lag < function.length; lag++) {
+            function[lag] = dimension * correlator.getCumulative(lag);
+        }
+        return function;
+    }
+    
+    /**
+     * Kinetic theory estimate d kT / (2 m nu), nu the predicted collision
+     * rate. In three dimensions this is the first Chapman-Enskog
+     * approximation for hard spheres. Not predicted in one dimension.
+     */
+    @Override
+    public double getPredictionForAverage(Diffusivity unit) {
+        if (dimension < 2) {
+            return Double.NaN;
+        }
+        double diffusivity = StatUtils.weightedAverage(simInfo, typesRecorded, new StatUtils.CalculatorByType() {
+            public double valueForType(ParticleType type) {
+                double mass = Units.convert("amu", "kg", type.particleMass);
+                double collisionRate = Formulas.predictCollisionRate(simInfo, type, useRealGasCorrections);
+                return dimension * Formulas.BOLTZMANN_CONST * simInfo.initialTemperature / (2.0 * mass * collisionRate);
+            }
+        });
+        return Units.convert(Diffusivity.METER2_PER_SECOND, unit, diffusivity);
+    }
+    
+    /** Coefficient from the latest block of time origins, NaN before there is one */
+    @Override
+    public double getCurrentAverage(Diffusivity unit) {
+        double[] function = getCurrentCorrelationFunction();
+        if (function == null) {
+            return Double.NaN;
+        }
+        return Units.convert(Diffusivity.METER2_PER_SECOND, unit, diffusionCoefficient(function, sampleInterval));
+    }
+    
+    /** Coefficient from every time origin since the last clear, NaN before there is one */
+    @Override
+    public double getCumulativeAverage(Diffusivity unit) {
+        double[] function = getCumulativeCorrelationFunction();
+        if (function == null) {
+            return Double.NaN;
+        }
+        return Units.convert(Diffusivity.METER2_PER_SECOND, unit, diffusionCoefficient(function, sampleInterval));
+    }
+    
+    @Override
+    public Set<Diffusivity> getDisplayUnits() {
+        return EnumSet.allOf(Diffusivity.class);
+    }
+    
+    @Override
+    public Diffusivity getDefaultDisplayUnit() {
+        return DEFAULT_UNIT;
+    }
+    
+    @Override
+    public void notifyOfEvent(EventInfo event) {
+    }
+    
+    @Override
+    public void notifyOfSimulationTime(double simTime) {
+    }
+    
+    @Override
+    public void useFrameForCurrentCalculations(FrameInfo frame) {
+    }
+    
+    @Override
+    public void reset() {
+        correlator = null;
+    }
+    
+    @Override
+    public void clear() {
+        if (correlator != null) {
+            correlator.clear();
+        }
+    }
+    
+    @Override
+    public void setFiniteSysCorrections(boolean corrections) {
+        useFiniteSystemCorrections = corrections;
+    }
+    
+    @Override
+    public void setRealGasCorrections(boolean corrections) {
+        useRealGasCorrections = corrections;
+    }
+}
@@ -45,8 +45,8 @@ public abstract class TimeWeightedAllCollisions extends TimeWeightedStatistic {
             if (particle != null && collisionIsValidAndShouldBeTracked(particle.particleType, event)) {
                 double lastCollisionTime = lastCollisionTimes.get(particle);
                 PartState particleState = particle.getState(workingState);
-                //If we're in reaction mode, check the color
-                if (shouldRecordStats(particleState.color)) {
+                //If we're in reaction mode, check the species
+                if (shouldRecordStats(particle.getSpecies())) {
                     double timeElapsed = event.colTime - lastCollisionTime;
                     updateRecord(particleState, timeElapsed);
                 }
@@ -46,8 +46,8 @@ public abstract class TimeWeightedByParticleCollisions extends TimeWeightedStati
                     lastCollisionTime = 0.0;
                 }
                 PartState particleState = particle.getState(workingState);
-                //If we're in reaction mode, check the color
-                if (shouldRecordStats(particleState.color)) {
+                //If we're in reaction mode, check the species
+                if (shouldRecordStats(particle.getSpecies())) {
                     double timeElapsed = event.colTime - lastCollisionTime;
                     updateRecord(particleState, timeElapsed);
                 }
@@ -74,6 +74,22 @@ public class HistogramBins {
         typesByWeight.addAll(typesPlotted);
     }
 
+    private HistogramBins(HistogramBins original) {
+        distributionRange = original.distributionRange;
+        coloredBins = new HashMap<Color, double[]>();
+        for (Map.Entry<Color, double[]> entry : original.coloredBins.entrySet()) {
+            coloredBins.put(entry.getKey(), entry.getValue().clone());
+        }
+        allBins = original.allBins.clone();
+        binLimits = original.binLimits.clone();
+        typesByWeight.addAll(original.typesByWeight);
+    }
+
+    /** Copy of the bins as they are now, unaffected by later changes to these */
+    public synchronized HistogramBins copy() {
+        return new HistogramBins(this);
+    }
+
     public synchronized void drawHistogramBars(Dimension panelSize, Graphics graphics) {
 
         double normalize = PlotUtils.calculateNormalizingFactor(
@@ -94,6 +94,30 @@ public class PlotUtils {
         }
     }
 
+    /**
+     * Interpolates points taken at the middles of equal parts of a range to
+     * count points at the middles of count equal parts of the same range.
+     */
+    public static double[] resamplePoints(double[] points, int count) {
+        double[] resampled = new double[count];
+        if (points.length == 0) {
+            return resampled;
+        }
+        for (int i = 0; i < count; i++) {
+            double position = (i + 0.5) * points.length / count - 0.5;
+            int below = (int) Math.floor(position);
+            if (below < 0) {
+                resampled[i] = points[0];
+            } else if (below >= points.length - 1) {
+                resampled[i] = points[points.length - 1];
+            } else {
+                double fraction = position - below;
+                resampled[i] = (1.0 - fraction) * points[below] + fraction * points[below + 1];
+            }
+        }
+        return resampled;
+    }
+
     /**
      * Centers the points at zeroPoint by subracting zeroPoint from each value
      */
@@ -0,0 +1,158 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics.utils;
+
+import edu.byu.chem.boltzmann.model.statistics.AveragingMode;
+import java.util.Arrays;
+
+/**
+ * A fixed set of running totals that forget old contributions according to an
+ * AveragingMode. Averages are formed from ratios of these totals, so whatever
+ * the mode does to one total it does to all of them.
+ *
+ * Contributions are made with add() and simulation time is moved forward with
+ * advanceTo(). In EXPONENTIAL mode each advance scales every total down by
+ * the decay over the elapsed time; in BLOCK mode the totals are set aside and
+ * restarted once a block's worth of time has passed, and get() reads the last
+ * complete block. Memory does not grow with the length of the run.
+ *
+ * One total may be kept as the elapsed time itself (weighted like the others),
+ * for averages of rates such as impulse per unit time.
+ */
+public class AveragingTotals {
+
+    private static final double LN_2 = Math.log(2.0);
+
+    private final double[] totals;
+    private final double[] blockTotals;
+    private final int timeIndex;
+
+    private AveragingMode mode = AveragingMode.CUMULATIVE;
+    private double halfLife = Double.POSITIVE_INFINITY;
+    private double decayRate = 0.0;
+
+    private double lastTime = Double.NaN;
+    private double blockStart = Double.NaN;
+    private boolean haveBlock = false;
+
+    public AveragingTotals(int count) {
+        this(count, -1);
+    }
+
+    /**
+     * @param timeIndex total that advanceTo() adds the elapsed time to, or -1
+     */
+    public AveragingTotals(int count, int timeIndex) {
+        if (timeIndex >= count) {
+            throw new IllegalArgumentException("Time total " + timeIndex + " out of range");
+        }
+        totals = new double[count];
+        blockTotals = new double[count];
+        this.timeIndex = timeIndex;
+    }
+
+    /**
+     * Changes how older contributions are weighted. Totals collected so far are
+     * kept; a BLOCK mode starts its first block now.
+     *
+     * @param halfLife half-life (EXPONENTIAL) or block length (BLOCK) in seconds
+     */
+    public void setAveraging(AveragingMode mode, double halfLife) {
+        if (mode != AveragingMode.CUMULATIVE && !(halfLife > 0.0)) {
+            throw new IllegalArgumentException("Half-life must be positive: " + halfLife);
+        }
+        this.mode = mode;
+        this.halfLife = halfLife;
+        decayRate = (mode == AveragingMode.EXPONENTIAL) ? LN_2 / halfLife : 0.0;
+        haveBlock = false;
+        blockStart = lastTime;
+    }
+
+    public AveragingMode getMode() {
+        return mode;
+    }
+
+    public double getHalfLife() {
+        return halfLife;
+    }
+
+    public void add(int index, double amount) {
+        totals[index] += amount;
+    }
+
+    /**
+     * Moves the totals forward to time (s). A time earlier than the last one
+     * means the simulation was restarted; the totals are left alone and time
+     * is taken up again from there.
+     */
+    public void advanceTo(double time) {
+        if (Double.isNaN(lastTime) || time < lastTime) {
+            lastTime = time;
+            blockStart = time;
+            return;
+        }
+        double elapsed = time - lastTime;
+        if (elapsed == 0.0) {
+            return;
+        }
+        lastTime = time;
+
+        switch (mode) {
+            case EXPONENTIAL:
+                double factor = Math.exp(-decayRate * elapsed);
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] *= factor;
+                }
+                if (timeIndex >= 0) {
+                    // Time since the last advance, weighted by its own decay
+                    totals[timeIndex] += (1.0 - factor) / decayRate;
+                }
+                break;
+            case BLOCK:
+                if (timeIndex >= 0) {
+                    totals[timeIndex] += elapsed;
+                }
+                if (time - blockStart >= halfLife) {
+                    System.arraycopy(totals, 0, blockTotals, 0, totals.length);
+                    Arrays.fill(totals, 0.0);
+                    haveBlock = true;
+                    blockStart = time;
+                }
+                break;
+            default:
+                if (timeIndex >= 0) {
+                    totals[timeIndex] += elapsed;
+                }
+        }
+    }
+
+    /**
+     * In BLOCK mode this is the total over the last complete block, or over the
+     * block so far if none has completed yet.
+     */
+    public double get(int index) {
+        return haveBlock ? blockTotals[index] : totals[index];
+    }
+
+    public void clear() {
+        Arrays.fill(totals, 0.0);
+        Arrays.fill(blockTotals, 0.0);
+        haveBlock = false;
+        blockStart = lastTime;
+    }
+}
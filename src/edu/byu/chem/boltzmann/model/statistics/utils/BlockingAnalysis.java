@@ -0,0 +1,188 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics.utils;
+
+import java.util.Arrays;
+
+/**
+ * Standard error of the mean of a correlated series of samples, found online
+ * by Flyvbjerg-Petersen blocking.
+ *
+ * Each level holds the running mean and sum of squared deviations of the
+ * samples averaged in blocks of 2^level, and at most one sample waiting for
+ * its partner, so memory grows with the log of the number of samples. The
+ * deviations are accumulated by Welford's method, which keeps its precision
+ * when the spread is small next to the mean. The standard error estimated at
+ * a level rises with the level until the blocks are longer than the
+ * correlation time, then levels off. The plateau is taken to start at the
+ * first level meeting the criterion of Lee, Kim and Shin (2011),
+ * B^3 > 2 n (error at B / error of single samples)^4 for blocks of B samples.
+ *
+ * The correlation time is defined so that the standard error is
+ * sqrt(2 tau / T) times the width of the samples, T being the time they span.
+ */
+public class BlockingAnalysis {
+
+    /** Fewest blocks at a level whose error is trusted as the plateau */
+    public static final int MIN_BLOCKS = 16;
+
+    private double[] means = new double[8];
+    private double[] deviations = new double[8];
+    private long[] counts = new long[8];
+    private double[] waiting = new double[8];
+    private boolean[] isWaiting = new boolean[8];
+    private int levels = 0;
+
+    private double totalDuration = 0.0;
+
+    private boolean estimateValid = false;
+    private double standardError = Double.NaN;
+    private double inefficiency = Double.NaN;
+    private boolean converged = false;
+
+    /**
+     * @param duration simulation time (s) the sample covers
+     */
+    public void addSample(double value, double duration) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return;
+        }
+        totalDuration += duration;
+        estimateValid = false;
+
+        for (int level = 0; ; level++) {
+            if (level == levels) {
+                addLevel();
+            }
+            counts[level]++;
+            double delta = value - means[level];
+            means[level] += delta / counts[level];
+            deviations[level] += delta * (value - means[level]);
+            if (!isWaiting[level]) {
+                waiting[level] = value;
+                isWaiting[level] = true;
+                return;
+            }
+            value = 0.5 * (waiting[level] + value);
+            isWaiting[level] = false;
+        }
+    }
+
+    private void addLevel() {
+        if (levels == means.length) {
+            int length = 2 * levels;
+            means = Arrays.copyOf(means, length);
+            deviations = Arrays.copyOf(deviations, length);
+            counts = Arrays.copyOf(counts, length);
+            waiting = Arrays.copyOf(waiting, length);
+            isWaiting = Arrays.copyOf(isWaiting, length);
+        }
+        levels++;
+    }
+
+    public long getSampleCount() {
+        return (levels == 0) ? 0 : counts[0];
+    }
+
+    public double getMean() {
+        return (levels == 0) ? Double.NaN : means[0];
+    }
+
+    /**
+     * @return Standard error of getMean(), or NaN for fewer than two samples.
+     * Before the plateau is reached this is the largest error seen at any level
+     * with MIN_BLOCKS blocks, which still underestimates the true error.
+     */
+    public double getStandardError() {
+        updateEstimate();
+        return standardError;
+    }
+
+    /**
+     * @return Correlation time of the samples in seconds, or NaN for fewer than
+     * two samples
+     */
+    public double getCorrelationTime() {
+        updateEstimate();
+        return 0.5 * inefficiency * totalDuration / getSampleCount();
+    }
+
+    /**
+     * @return True once blocking has reached its plateau and getStandardError()
+     * can be relied on
+     */
+    public boolean isConverged() {
+        updateEstimate();
+        return converged;
+    }
+
+    private double errorAt(int level) {
+        double n = counts[level];
+        return Math.sqrt(deviations[level] / n / (n - 1));
+    }
+
+    private void updateEstimate() {
+        if (estimateValid) {
+            return;
+        }
+        estimateValid = true;
+        converged = false;
+        if (getSampleCount() < 2) {
+            standardError = Double.NaN;
+            inefficiency = Double.NaN;
+            return;
+        }
+
+        double sampleError = errorAt(0);
+        if (sampleError == 0.0) {
+            standardError = 0.0;
+            inefficiency = 1.0;
+            converged = true;
+            return;
+        }
+
+        double samples = counts[0];
+        double largestError = sampleError;
+        for (int level = 0; level < levels && counts[level] >= MIN_BLOCKS; level++) {
+            double error = errorAt(level);
+            double ratio = error / sampleError;
+            double blockSize = Math.pow(2.0, level);
+            if (blockSize * blockSize * blockSize > 2.0 * samples * ratio * ratio * ratio * ratio) {
+                standardError = error;
+                converged = true;
+                break;
+            }
+            largestError = Math.max(largestError, error);
+        }
+        if (!converged) {
+            standardError = largestError;
+        }
+        double ratio = standardError / sampleError;
+        inefficiency = ratio * ratio;
+    }
+
+    public void clear() {
+        Arrays.fill(means, 0.0);
+        Arrays.fill(deviations, 0.0);
+        Arrays.fill(counts, 0);
+        Arrays.fill(isWaiting, false);
+        levels = 0;
+        totalDuration = 0.0;
+        estimateValid = false;
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics.utils;
+
+/**
+ * Decides when a quantity sampled from the simulation has stopped drifting.
+ *
+ * Samples are averaged over blocks of fixed simulation time. The means of the
+ * last few blocks are kept, and once the window is full its older and newer
+ * halves are compared: the quantity counts as equilibrated when they differ by
+ * no more than TOLERANCE standard errors, with the error estimated from the
+ * scatter of the block means within each half. Blocks of a collision lifetime
+ * or more are close to independent, which is what the error estimate assumes.
+ *
+ * Once equilibrated the detector stays that way until reset().
+ */
+public class EquilibrationDetector {
+
+    public static final int DEFAULT_WINDOW_BLOCKS = 8;
+
+    /** Allowed difference between the halves of the window, in standard errors */
+    public static final double TOLERANCE = 2.0;
+
+    private final double blockLength;
+    private final double[] blockMeans;
+    private int blocksInWindow = 0;
+    private int nextBlock = 0;
+
+    private double blockStart = Double.NaN;
+    private double blockValues = 0.0;
+    private double blockWeight = 0.0;
+
+    private boolean equilibrated = false;
+    private double equilibrationTime = Double.NaN;
+
+    public EquilibrationDetector(double blockLength) {
+        this(blockLength, DEFAULT_WINDOW_BLOCKS);
+    }
+
+    /**
+     * @param blockLength simulation time (s) averaged into each block
+     * @param windowBlocks blocks compared; an even number of at least 4
+     */
+    public EquilibrationDetector(double blockLength, int windowBlocks) {
+        if (!(blockLength > 0.0)) {
+            throw new IllegalArgumentException("Block length must be positive: " + blockLength);
+        }
+        if (windowBlocks < 4 || windowBlocks % 2 != 0) {
+            throw new IllegalArgumentException("Window must be an even number of at least 4 blocks");
+        }
+        this.blockLength = blockLength;
+        blockMeans = new double[windowBlocks];
+    }
+
+    /**
+     * @param value the quantity at time
+     * @param weight how much the sample counts, usually the time since the last one
+     * @param time simulation time of the sample (s)
+     */
+    public void addSample(double value, double weight, double time) {
+        if (equilibrated) {
+            return;
+        }
+        if (Double.isNaN(blockStart)) {
+            blockStart = time;
+        }
+        blockValues += value * weight;
+        blockWeight += weight;
+
+        if (time - blockStart >= blockLength && blockWeight > 0.0) {
+            blockMeans[nextBlock] = blockValues / blockWeight;
+            nextBlock = (nextBlock + 1) % blockMeans.length;
+            if (blocksInWindow < blockMeans.length) {
+                blocksInWindow++;
+            }
+            blockValues = 0.0;
+            blockWeight = 0.0;
+            blockStart = time;
+
+            if (blocksInWindow == blockMeans.length && halvesAgree()) {
+                equilibrated = true;
+                equilibrationTime = time;
+            }
+        }
+    }
+
+    private boolean halvesAgree() {
+        int half = blockMeans.length / 2;
+        // nextBlock is the oldest block once the window is full
+        double olderMean = 0.0, newerMean = 0.0;
+        for (int i = 0; i < half; i++) {
+            olderMean += blockMeans[(nextBlock + i) % blockMeans.length];
+            newerMean += blockMeans[(nextBlock + half + i) % blockMeans.length];
+        }
+        olderMean /= half;
+        newerMean /= half;
+
+        double scatter = 0.0;
+        for (int i = 0; i < half; i++) {
+            double older = blockMeans[(nextBlock + i) % blockMeans.length] - olderMean;
+            double newer = blockMeans[(nextBlock + half + i) % blockMeans.length] - newerMean;
+            scatter += older * older + newer * newer;
+        }
+        double blockVariance = scatter / (2 * (half - 1));
+        double standardError = Math.sqrt(2.0 * blockVariance / half);
+
+        return Math.abs(newerMean - olderMean) <= TOLERANCE * standardError;
+    }
+
+    public boolean isEquilibrated() {
+        return equilibrated;
+    }
+
+    /** Simulation time at which equilibration was detected, NaN before then */
+    public double getEquilibrationTime() {
+        return equilibrationTime;
+    }
+
+    public double getBlockLength() {
+        return blockLength;
+    }
+
+    public void reset() {
+        blocksInWindow = 0;
+        nextBlock = 0;
+        blockStart = Double.NaN;
+        blockValues = 0.0;
+        blockWeight = 0.0;
+        equilibrated = false;
+        equilibrationTime = Double.NaN;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics.utils;
+
+/**
+ * In-place radix-2 fast Fourier transform of complex data held as separate
+ * real and imaginary arrays. Twiddle factors for one length are worked out
+ * once, so transforms allocate nothing.
+ */
+public class FFT {
+
+    private final int length;
+    private final double[] cosines;
+    private final double[] sines;
+
+    /**
+     * @param length number of points transformed; must be a power of two
+     */
+    public FFT(int length) {
+        if (length < 1 || (length & (length - 1)) != 0) {
+            throw new IllegalArgumentException("FFT length " + length + " is not a power of two");
+        }
+        this.length = length;
+        cosines = new double[length / 2];
+        sines = new double[length / 2];
+        for (int i = 0; i < length / 2; i++) {
+            double angle = -2.0 * Math.PI * i / length;
+            cosines[i] = Math.cos(angle);
+            sines[i] = Math.sin(angle);
+        }
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /** Replaces re + i im with its discrete Fourier transform, sum of x(k) e^(-2 pi i j k / n) */
+    public void transform(double[] re, double[] im) {
+        transform(re, im, false);
+    }
+
+    /** Inverse of transform(), including the factor of 1/n */
+    public void inverseTransform(double[] re, double[] im) {
+        transform(re, im, true);
+        double scale = 1.0 / length;
+        for (int i = 0; i < length; i++) {
+            re[i] *= scale;
+            im[i] *= scale;
+        }
+    }
+
+    private void transform(double[] re, double[] im, boolean inverse) {
+        // Bit-reversal permutation
+        for (int i = 1, j = 0; i < length; i++) {
+            int bit = length >> 1;
+            for (; (j & bit) != 0; bit >>= 1) {
+                j ^= bit;
+            }
+            j ^= bit;
+            if (i < j) {
+                double temp = re[i];
+                re[i] = re[j];
+                re[j] = temp;
+                temp = im[i];
+                im[i] = im[j];
+                im[j] = temp;
+            }
+        }
+
+        double sign = inverse ? -1.0 : 1.0;
+        for (int size = 2; size <= length; size <<= 1) {
+            int half = size >> 1;
+            int step = length / size;
+            for (int start = 0; start < length; start += size) {
+                for (int k = 0; k < half; k++) {
+                    double wRe = cosines[k * step];
+                    double wIm = sign * sines[k * step];
+                    int even = start + k;
+                    int odd = even + half;
+                    double oddRe = re[odd] * wRe - im[odd] * wIm;
+                    double oddIm = re[odd] * wIm + im[odd] * wRe;
+                    re[odd] = re[even] - oddRe;
+                    im[odd] = im[even] - oddIm;
+                    re[even] += oddRe;
+                    im[even] += oddIm;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,422 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics.utils;
+
+import edu.byu.chem.boltzmann.model.physics.EventInfo;
+import edu.byu.chem.boltzmann.model.physics.FrameInfo;
+import edu.byu.chem.boltzmann.model.physics.Particle;
+import edu.byu.chem.boltzmann.model.physics.ParticleStates;
+import edu.byu.chem.boltzmann.model.statistics.Formulas;
+import edu.byu.chem.boltzmann.utils.Units;
+import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import java.util.Arrays;
+import java.util.Set;
+
+/**
+ * Time integrals of particle number, kinetic energy, mass, velocity and
+ * momentum in each cell of a grid laid over the arena. Between events every
+ * particle moves in a straight line, so each one's path since its last event
+ * is kept as a segment and only walked through the cells when the particle's
+ * next event ends it. An event costs the number of cells its particles
+ * crossed, whatever the number of particles.
+ *
+ * Segments still open are left out of the integrals until endOpenSegments()
+ * is called, which should be done before reading them; slow particles spend
+ * longer between events, so leaving their segments out biases the profiles.
+ * Densities and fluxes are worked out from the fraction of the particle time
+ * added up that was spent in each cell. Segments of every particle are
+ * counted in that total, so the number density of the watched particles is
+ * right even when reactions change which particles are watched.
+ *
+ * The first frame starts the segments of particles that haven't had an
+ * event. Segments are ended and started again at frames whose velocities
+ * the thermostat rescaled.
+ */
+public class FieldProfileTracker {
+    
+    private static final double KILOGRAMS_PER_AMU = Units.convert("amu", "kg", 1.0);
+    
+    private final int dimension;
+    private final boolean periodic;
+    private final boolean reactionMode;
+    private final Set<ParticleType> typesWatched;
+    private final SpeciesFilter speciesWatched;
+    
+    // Grid; axes past the dimension have one cell
+    private final int[] cellsPerAxis = new int[3];
+    private final double[] cellSizes = new double[3];
+    private final double cellVolume;
+    private final int numCells;
+    
+    // Integrals over time of the watched particles in each cell
+    private final double[] occupancy;
+    private final double[] energy;
+    private final double[] massTime;
+    private final double[] velocity;
+    private final double[] momentum;
+    private double coveredTime = 0.0;
+    
+    // Segment each particle has been on since its last event
+    private int numParticles = 0;
+    private double[] startTimes = new double[0];
+    private double[] startPositions = new double[0];
+    private double[] velocities = new double[0];
+    private double[] masses = new double[0];
+    private boolean[] watched = new boolean[0];
+    private int unstarted = 0;
+    
+    private double simulationTime = 0.0;
+    private double clearTime = 0.0;
+    
+    // Cell walk, reused
+    private final int[] cellIndex = new int[3];
+    private final int[] cellStep = new int[3];
+    private final double[] nextCrossing = new double[3];
+    private final double[] crossingInterval = new double[3];
+    
+    /**
+     * @param cells number of cells along x, y and z; only the first
+     * simInfo.dimension are used
+     */
+    public FieldProfileTracker(int[] cells, Set<ParticleType> types, SimulationInfo simInfo) {
+        dimension = simInfo.dimension;
+        periodic = simInfo.isPeriodic();
+        reactionMode = simInfo.reactionMode;
+        typesWatched = types;
+        speciesWatched = new SpeciesFilter(typesWatched, simInfo);
+        
+        double[] arenaSizes = {simInfo.arenaXSize, simInfo.arenaYSize, simInfo.arenaZSize};
+        double volume = 1.0;
+        int count = 1;
+        for (int axis = 0; axis < 3; axis++) {
+            cellsPerAxis[axis] = 1;
+            if (axis < dimension) {
+                if (cells[axis] < 1) {
+                    throw new IllegalArgumentException("Need at least one cell along axis " + axis);
+                }
+                cellsPerAxis[axis] = cells[axis];
+                cellSizes[axis] = arenaSizes[axis] / cells[axis];
+                volume *= cellSizes[axis];
+            }
+            count *= cellsPerAxis[axis];
+        }
+        cellVolume = volume;
+        numCells = count;
+        
+        occupancy = new double[numCells];
+        energy = new double[numCells];
+        massTime = new double[numCells];
+        velocity = new double[3 * numCells];
+        momentum = new double[3 * numCells];
+    }
+    
+    public void setSimulationTime(double simTime) {
+        simulationTime = simTime;
+    }
+    
+    /** Call with each event after it is performed */
+    public void afterEvent(EventInfo event) {
+        Particle[] particles = event.getInvolvedParticles();
+        for (int which = 0; which < 2; which++) {
+            Particle particle = particles[which];
+            int index = event.getInvolvedParticleIndex(which);
+            if (particle == null || index < 0 || index >= numParticles) {
+                continue;
+            }
+            endSegment(index, event.colTime);
+            startSegment(index, event.colTime, particle.getX(), particle.getY(), particle.getZ(),
+                    particle.getXVel(), particle.getYVel(), particle.getZVel(),
+                    particle.mass, isWatched(particle.particleType, particle.getSpecies()));
+        }
+    }
+    
+    /** Call at the end of every frame */
+    public void analyzeFrame(FrameInfo frame) {
+        ParticleStates states = frame.getParticleStates();
+        if (states.size() > numParticles) {
+            addParticles(states.size());
+        }
+        boolean restartAll = frame.areVelocitiesRescaled();
+        if (unstarted == 0 && !restartAll) {
+            return;
+        }
+        
+        double[] positions = states.getPositions();
+        double[] stateVelocities = states.getVelocities();
+        ParticleType[] types = states.getParticleTypes();
+        int[] species = states.getSpecies();
+        for (int index = 0; index < numParticles; index++) {
+            boolean started = !Double.isNaN(startTimes[index]);
+            if (started && !restartAll) {
+                continue;
+            }
+            if (started) {
+                endSegment(index, frame.endTime);
+            } else {
+                unstarted--;
+            }
+            int offset = 3 * index;
+            startSegment(index, frame.endTime, positions[offset], positions[offset + 1], positions[offset + 2],
+                    stateVelocities[offset], stateVelocities[offset + 1], stateVelocities[offset + 2],
+                    types[index].particleMass, isWatched(types[index], species[index]));
+        }
+    }
+    
+    private void addParticles(int total) {
+        startTimes = Arrays.copyOf(startTimes, total);
+        startPositions = Arrays.copyOf(startPositions, 3 * total);
+        velocities = Arrays.copyOf(velocities, 3 * total);
+        masses = Arrays.copyOf(masses, total);
+        watched = Arrays.copyOf(watched, total);
+        Arrays.fill(startTimes, numParticles, total, Double.NaN);
+        unstarted += total - numParticles;
+        numParticles = total;
+    }
+    
+    private void startSegment(int index, double time, double x, double y, double z,
+            double xVel, double yVel, double zVel, double mass, boolean isWatched) {
+        int offset = 3 * index;
+        startTimes[index] = time;
+        startPositions[offset] = x;
+        startPositions[offset + 1] = y;
+        startPositions[offset + 2] = z;
+        velocities[offset] = xVel;
+        velocities[offset + 1] = yVel;
+        velocities[offset + 2] = zVel;
+        masses[index] = mass;
+        watched[index] = isWatched;
+    }
+    
+    /**
+     * Adds every particle's segment up to the simulation time and starts it
+     * again from there. Costs a pass over the particles, so it is meant for
+     * when the integrals are read, not for every frame.
+     */
+    public void endOpenSegments() {
+        for (int index = 0; index < numParticles; index++) {
+            double startTime = startTimes[index];
+            if (Double.isNaN(startTime) || startTime >= simulationTime) {
+                continue;
+            }
+            endSegment(index, simulationTime);
+            int offset = 3 * index;
+            for (int axis = 0; axis < 3; axis++) {
+                startPositions[offset + axis] += velocities[offset + axis] * (simulationTime - startTime);
+            }
+            startTimes[index] = simulationTime;
+        }
+    }
+    
+    /** Adds the particle's segment up to time, or the part of it since the last clear */
+    private void endSegment(int index, double time) {
+        double startTime = startTimes[index];
+        if (Double.isNaN(startTime)) {
+            unstarted--;
+            return;
+        }
+        double from = Math.max(startTime, clearTime);
+        if (time <= from) {
+            return;
+        }
+        coveredTime += time - from;
+        if (watched[index]) {
+            walkCells(index, from - startTime, time - from);
+        }
+    }
+    
+    /** Adds the time a particle spends in each cell it crosses, starting delay after its segment starts */
+    private void walkCells(int index, double delay, double duration) {
+        int offset = 3 * index;
+        for (int axis = 0; axis < 3; axis++) {
+            if (axis >= dimension) {
+                cellIndex[axis] = 0;
+                nextCrossing[axis] = Double.POSITIVE_INFINITY;
+                continue;
+            }
+            double position = startPositions[offset + axis] + velocities[offset + axis] * delay;
+            double axisVelocity = velocities[offset + axis];
+            double size = cellSizes[axis];
+            int cell = (int) Math.floor(position / size);
+            cellIndex[axis] = cell;
+            if (axisVelocity > 0.0) {
+                cellStep[axis] = 1;
+                nextCrossing[axis] = ((cell + 1) * size - position) / axisVelocity;
+                crossingInterval[axis] = size / axisVelocity;
+            } else if (axisVelocity < 0.0) {
+                cellStep[axis] = -1;
+                nextCrossing[axis] = (cell * size - position) / axisVelocity;
+                crossingInterval[axis] = -size / axisVelocity;
+            } else {
+                nextCrossing[axis] = Double.POSITIVE_INFINITY;
+            }
+        }
+        
+        double mass = masses[index];
+        double xVel = velocities[offset], yVel = velocities[offset + 1], zVel = velocities[offset + 2];
+        double kineticEnergy = 0.5 * mass * (xVel * xVel + yVel * yVel + zVel * zVel);
+        double time = 0.0;
+        while (true) {
+            int axis = 0;
+            if (nextCrossing[1] < nextCrossing[axis]) {
+                axis = 1;
+            }
+            if (nextCrossing[2] < nextCrossing[axis]) {
+                axis = 2;
+            }
+            double exit = Math.min(nextCrossing[axis], duration);
+            double dt = exit - time;
+            if (dt > 0.0) {
+                int cell = cellNumber();
+                occupancy[cell] += dt;
+                energy[cell] += kineticEnergy * dt;
+                massTime[cell] += mass * dt;
+                velocity[3 * cell] += xVel * dt;
+                velocity[3 * cell + 1] += yVel * dt;
+                velocity[3 * cell + 2] += zVel * dt;
+                momentum[3 * cell] += mass * xVel * dt;
+                momentum[3 * cell + 1] += mass * yVel * dt;
+                momentum[3 * cell + 2] += mass * zVel * dt;
+            }
+            if (!(exit < duration)) {
+                break;
+            }
+            cellIndex[axis] += cellStep[axis];
+            nextCrossing[axis] += crossingInterval[axis];
+            time = exit;
+        }
+    }
+    
+    /** Cell the walk is in, wrapped with periodic boundaries and kept in the arena otherwise */
+    private int cellNumber() {
+        int number = 0;
+        for (int axis = 0; axis < 3; axis++) {
+            int cells = cellsPerAxis[axis];
+            int cell = cellIndex[axis];
+            if (periodic) {
+                cell %= cells;
+                if (cell < 0) {
+                    cell += cells;
+                }
+            } else if (cell < 0) {
+                cell = 0;
+            } else if (cell >= cells) {
+                cell = cells - 1;
+            }
+            number = number * cells + cell;
+        }
+        return number;
+    }
+    
+    private boolean isWatched(ParticleType type, int species) {
+        return (typesWatched.contains(type) || reactionMode) && speciesWatched.accepts(species);
+    }
+    
+    public int getNumberOfCells() {
+        return numCells;
+    }
+    
+    /** Number of cells along axis, 0 for x, 1 for y and 2 for z */
+    public int getCellsAlong(int axis) {
+        return cellsPerAxis[axis];
+    }
+    
+    /** Width of the cells along axis (m) */
+    public double getCellSize(int axis) {
+        return cellSizes[axis];
+    }
+    
+    /** Cell numbered by its position along x, y and z */
+    public int getCell(int xCell, int yCell, int zCell) {
+        return (xCell * cellsPerAxis[1] + yCell) * cellsPerAxis[2] + zCell;
+    }
+    
+    /** Length, area or volume of a cell in m, m^2 or m^3 */
+    public double getCellVolume() {
+        return cellVolume;
+    }
+    
+    /** Particle time since the last clear (s) that has been added up */
+    public double getCoveredTime() {
+        return coveredTime;
+    }
+    
+    /** Watched particles per unit length, area or volume (m^-d) in cell, or NaN with nothing added yet */
+    public double getDensity(int cell) {
+        if (coveredTime == 0.0) {
+            return Double.NaN;
+        }
+        return numParticles * occupancy[cell] / (coveredTime * cellVolume);
+    }
+    
+    /**
+     * Temperature (K) of the watched particles in cell from their kinetic
+     * energy relative to the cell's mass-weighted flow velocity, or NaN if
+     * none have been in it.
+     */
+    public double getTemperature(int cell) {
+        if (occupancy[cell] == 0.0) {
+            return Double.NaN;
+        }
+        double flowEnergy = 0.0;
+        for (int axis = 0; axis < 3; axis++) {
+            flowEnergy += momentum[3 * cell + axis] * momentum[3 * cell + axis];
+        }
+        flowEnergy /= 2.0 * massTime[cell];
+        double thermalEnergy = KILOGRAMS_PER_AMU * (energy[cell] - flowEnergy) / occupancy[cell];
+        return 2.0 * thermalEnergy / (dimension * Formulas.BOLTZMANN_CONST);
+    }
+    
+    /**
+     * Number flux of the watched particles in cell along axis, density times
+     * their average velocity, in m^(1-d)/s; NaN with nothing added yet.
+     */
+    public double getFlux(int cell, int axis) {
+        if (coveredTime == 0.0) {
+            return Double.NaN;
+        }
+        return numParticles * velocity[3 * cell + axis] / (coveredTime * cellVolume);
+    }
+    
+    /** Mass-weighted average velocity (m/s) along axis of the watched particles in cell, or NaN if none have been in it */
+    public double getFlowVelocity(int cell, int axis) {
+        if (massTime[cell] == 0.0) {
+            return Double.NaN;
+        }
+        return momentum[3 * cell + axis] / massTime[cell];
+    }
+    
+    /** Clears the integrals; segments are only counted from now on */
+    public void clear() {
+        Arrays.fill(occupancy, 0.0);
+        Arrays.fill(energy, 0.0);
+        Arrays.fill(massTime, 0.0);
+        Arrays.fill(velocity, 0.0);
+        Arrays.fill(momentum, 0.0);
+        coveredTime = 0.0;
+        clearTime = simulationTime;
+    }
+    
+    /** Clears the integrals and forgets the segments, for when the particles are put back */
+    public void reset() {
+        simulationTime = 0.0;
+        clear();
+        Arrays.fill(startTimes, Double.NaN);
+        unstarted = numParticles;
+    }
+}
@@ -0,0 +1,303 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics.utils;
+
+import edu.byu.chem.boltzmann.model.physics.Particle;
+import edu.byu.chem.boltzmann.model.physics.ParticleStates;
+import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Per-particle quantities of one frame, worked out in a single pass over its
+ * ParticleStates so that the statistics reading a frame don't each loop over
+ * the particles computing the same speeds and energies again.
+ *
+ * Columns are indexed by particle number like ParticleStates. Speeds are in
+ * m/s and kinetic energies in amu (m/s)^2, computed exactly as Particle and
+ * Formulas do, so statistics get the same values they used to compute
+ * themselves. Sums of the columns are kept for each particle type.
+ *
+ * Frames with at least PARALLEL_THRESHOLD particles are split into chunks
+ * analyzed on a shared pool of daemon threads, one per processor. Every column
+ * entry depends only on its own particle, so the columns are the same either
+ * way; sums are added up chunk by chunk in particle order.
+ *
+ * Only the columns asked for with setColumns() are worked out, along with
+ * their sums; by default that is all of them. Other columns keep whatever
+ * they last held, and their sums are zero.
+ *
+ * The arrays handed out are reused by the next analyze(), and must be treated
+ * as read-only.
+ */
+public class FrameAnalysis {
+
+    /** Per-particle columns that can be asked for */
+    public enum Column {
+        SPEED,
+        KINETIC_ENERGY
+    }
+
+    /** Fewest particles for which a frame is analyzed in parallel */
+    public static final int PARALLEL_THRESHOLD = 8192;
+
+    private static ExecutorService sharedExecutor = null;
+
+    private static synchronized ExecutorService getExecutor() {
+        if (sharedExecutor == null) {
+            sharedExecutor = Executors.newFixedThreadPool(
+                    Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                public Thread newThread(Runnable task) {
+                    Thread thread = new Thread(task, "Frame Analysis");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return sharedExecutor;
+    }
+
+    private boolean parallel = true;
+    private Set<Column> columns = EnumSet.allOf(Column.class);
+
+    private ParticleStates states = null;
+    private int size = 0;
+    private double[] speeds = new double[0];
+    private double[] kineticEnergies = new double[0];
+
+    // Sums by type, indexed as in types; chunk sums are laid out one type row after another
+    private final List<ParticleType> types = new ArrayList<ParticleType>();
+    private ParticleType[] typesSetUpFor = null;
+    private int[] typeIndices = new int[0];
+    private int[] typeCounts = new int[0];
+    private double[] typeSpeedSums = new double[0];
+    private double[] typeEnergySums = new double[0];
+    private double[] chunkSpeedSums = new double[0];
+    private double[] chunkEnergySums = new double[0];
+
+    /**
+     * Analyzes big frames on several threads if true, which is the default.
+     * Results don't depend on it.
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Chooses the columns analyze() works out. Kinetic energies are found
+     * from the speeds as Particle does, so they take a square root either way.
+     */
+    public void setColumns(Set<Column> columns) {
+        this.columns = EnumSet.noneOf(Column.class);
+        this.columns.addAll(columns);
+    }
+
+    /** Works out the columns asked for from states, replacing the last frame's */
+    public void analyze(ParticleStates states) {
+        if (!Arrays.equals(states.getParticleTypes(), typesSetUpFor)) {
+            setUp(states);
+        }
+        this.states = states;
+        if (columns.isEmpty()) {
+            return;
+        }
+
+        int numChunks = 1;
+        int processors = Runtime.getRuntime().availableProcessors();
+        if (parallel && processors > 1 && size >= PARALLEL_THRESHOLD) {
+            numChunks = Math.min(processors, size / (PARALLEL_THRESHOLD / 2));
+        }
+        int numTypes = types.size();
+        if (chunkSpeedSums.length < numChunks * numTypes) {
+            chunkSpeedSums = new double[numChunks * numTypes];
+            chunkEnergySums = new double[numChunks * numTypes];
+        }
+
+        if (numChunks == 1) {
+            analyzeChunk(0, 0, size);
+        } else {
+            analyzeInParallel(numChunks);
+        }
+
+        Arrays.fill(typeSpeedSums, 0.0);
+        Arrays.fill(typeEnergySums, 0.0);
+        for (int chunk = 0; chunk < numChunks; chunk++) {
+            for (int type = 0; type < numTypes; type++) {
+                int entry = chunk * numTypes + type;
+                typeSpeedSums[type] += chunkSpeedSums[entry];
+                typeEnergySums[type] += chunkEnergySums[entry];
+            }
+        }
+    }
+
+    private void setUp(ParticleStates states) {
+        typesSetUpFor = states.getParticleTypes();
+        size = states.size();
+        if (speeds.length < size) {
+            speeds = new double[size];
+            kineticEnergies = new double[size];
+            typeIndices = new int[size];
+        }
+
+        types.clear();
+        ParticleType[] particleTypes = states.getParticleTypes();
+        for (int particleIndex = 0; particleIndex < size; particleIndex++) {
+            int type = types.indexOf(particleTypes[particleIndex]);
+            if (type < 0) {
+                type = types.size();
+                types.add(particleTypes[particleIndex]);
+            }
+            typeIndices[particleIndex] = type;
+        }
+        typeCounts = new int[types.size()];
+        for (int particleIndex = 0; particleIndex < size; particleIndex++) {
+            typeCounts[typeIndices[particleIndex]]++;
+        }
+        typeSpeedSums = new double[types.size()];
+        typeEnergySums = new double[types.size()];
+        chunkSpeedSums = new double[0];
+    }
+
+    private void analyzeInParallel(int numChunks) {
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(numChunks);
+        for (int chunk = 0; chunk < numChunks; chunk++) {
+            final int chunkIndex = chunk;
+            final int start = (int) ((long) size * chunk / numChunks);
+            final int end = (int) ((long) size * (chunk + 1) / numChunks);
+            tasks.add(new Callable<Void>() {
+                public Void call() {
+                    analyzeChunk(chunkIndex, start, end);
+                    return null;
+                }
+            });
+        }
+        try {
+            for (Future<Void> result: getExecutor().invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not analyze frame", e.getCause());
+        }
+    }
+
+    private void analyzeChunk(int chunk, int start, int end) {
+        Particle[] particles = states.getParticles();
+        double[] velocities = states.getVelocities();
+        boolean findSpeeds = columns.contains(Column.SPEED);
+        boolean findEnergies = columns.contains(Column.KINETIC_ENERGY);
+        int numTypes = types.size();
+        int sumOffset = chunk * numTypes;
+        Arrays.fill(chunkSpeedSums, sumOffset, sumOffset + numTypes, 0.0);
+        Arrays.fill(chunkEnergySums, sumOffset, sumOffset + numTypes, 0.0);
+
+        for (int particleIndex = start; particleIndex < end; particleIndex++) {
+            int offset = 3 * particleIndex;
+            double xVel = velocities[offset];
+            double yVel = velocities[offset + 1];
+            double zVel = velocities[offset + 2];
+            double speed = Math.sqrt(xVel * xVel + yVel * yVel + zVel * zVel);
+            int entry = sumOffset + typeIndices[particleIndex];
+            if (findSpeeds) {
+                speeds[particleIndex] = speed;
+                chunkSpeedSums[entry] += speed;
+            }
+            if (findEnergies) {
+                double energy = 0.5 * particles[particleIndex].getMass() * speed * speed;
+                kineticEnergies[particleIndex] = energy;
+                chunkEnergySums[entry] += energy;
+            }
+        }
+    }
+
+    /** States last analyzed, null before the first analyze() */
+    public ParticleStates getParticleStates() {
+        return states;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Particle getParticle(int index) {
+        return states.getParticle(index);
+    }
+
+    /** Display colour of each particle; read-only */
+    public Color[] getColors() {
+        return states.getColors();
+    }
+
+    /** Species id of each particle, as in ParticleStates; read-only */
+    public int[] getSpecies() {
+        return states.getSpecies();
+    }
+
+    /** x, y, z velocity of each particle in m/s, as in ParticleStates; read-only */
+    public double[] getVelocities() {
+        return states.getVelocities();
+    }
+
+    /** Speed of each particle in m/s; read-only */
+    public double[] getSpeeds() {
+        return speeds;
+    }
+
+    /** Kinetic energy of each particle in amu (m/s)^2; read-only */
+    public double[] getKineticEnergies() {
+        return kineticEnergies;
+    }
+
+    /** Number of particles of type in the frame */
+    public int getCount(ParticleType type) {
+        int index = types.indexOf(type);
+        return (index < 0) ? 0 : typeCounts[index];
+    }
+
+    /** Sum of the speeds (m/s) of the particles of type */
+    public double getSpeedSum(ParticleType type) {
+        int index = types.indexOf(type);
+        return (index < 0) ? 0.0 : typeSpeedSums[index];
+    }
+
+    /** Sum of the kinetic energies, in amu (m/s)^2, of the particles of type */
+    public double getKineticEnergySum(ParticleType type) {
+        int index = types.indexOf(type);
+        return (index < 0) ? 0.0 : typeEnergySums[index];
+    }
+
+    /** Sum of the kinetic energies of all particles in amu (m/s)^2 */
+    public double getTotalKineticEnergy() {
+        double total = 0.0;
+        for (double sum : typeEnergySums) {
+            total += sum;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics.utils;
+
+import edu.byu.chem.boltzmann.model.physics.EventInfo;
+import edu.byu.chem.boltzmann.model.physics.FrameInfo;
+import edu.byu.chem.boltzmann.model.physics.Particle;
+import edu.byu.chem.boltzmann.model.physics.ParticleStates;
+import edu.byu.chem.boltzmann.model.statistics.Formulas;
+import edu.byu.chem.boltzmann.utils.Units;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import java.util.Arrays;
+
+/**
+ * Helfand moments of the whole system for transport coefficients, followed
+ * exactly from event to event. A moment is the time integral of a flux, the
+ * stress tensor's off-diagonal components or the heat flux. The integral has
+ * a kinetic part, the sum over particles of m v_a v_b or e v_a between
+ * events, and a collisional part, r_a dp_b or r_a de for each collision, r the
+ * separation of the colliding particles and dp and de what the second one
+ * gained. The summed kinetic flux is kept up to date from the velocities of
+ * the particles in each event before and after it, so each event costs O(1).
+ *
+ * Moments are sampled once a frame into a TimeCorrelator. The Einstein-Helfand
+ * relation then gives the coefficient from the slope of their mean squared
+ * change, divided by 2 V k T for viscosity or 2 V k T^2 for thermal
+ * conductivity.
+ *
+ * The kinetic flux is summed again from the particle states every frame, so
+ * velocity changes between events, like a thermostat being applied, only
+ * throw off the frame they happen in. Only meaningful with periodic
+ * boundaries, where no walls exert stress on the particles. The heat flux is
+ * the kinetic energy flux, which leaves out the energy of attractive wells
+ * and, with particles of different masses, doesn't separate out diffusion.
+ */
+public class HelfandMomentTracker {
+    
+    public enum Flux {
+        /** Off-diagonal stress, for shear viscosity */
+        MOMENTUM,
+        /** Kinetic energy, for thermal conductivity */
+        ENERGY
+    }
+    
+    /** First lag fitted for the coefficient, after the flux has decorrelated */
+    private static final int FIRST_FITTED_LAG = TimeCorrelator.LAGS / 4;
+    
+    private static final double KILOGRAMS_PER_AMU = Units.convert("amu", "kg", 1.0);
+    
+    private final Flux flux;
+    private final int dimension;
+    private final boolean periodic;
+    private final double[] arenaSizes;
+    private final double volume;
+    
+    // Axes a and b of each component; b is unused for energy
+    private final int[] firstAxes;
+    private final int[] secondAxes;
+    
+    // Kinetic flux and moments, in amu-based units
+    private final double[] kineticFlux;
+    private final double[] moments;
+    private double lastTime = 0.0;
+    private boolean synced = false;
+    
+    // Velocities of the event's particles before it, and scratch vectors
+    private final double[] previousVelocities = new double[6];
+    private final double[] velocity = new double[3];
+    private final double[] separation = new double[3];
+    
+    private final TimeCorrelator correlator;
+    private double sampleInterval = 0.0;
+    private double temperature = 0.0;
+    private double temperatureSum = 0.0;
+    private long temperatureSamples = 0;
+    
+    public HelfandMomentTracker(Flux flux, SimulationInfo simInfo) {
+        this.flux = flux;
+        dimension = simInfo.dimension;
+        periodic = simInfo.isPeriodic();
+        arenaSizes = new double[] {simInfo.arenaXSize, simInfo.arenaYSize, simInfo.arenaZSize};
+        double arenaVolume = 1.0;
+        for (int axis = 0; axis < dimension; axis++) {
+            arenaVolume *= arenaSizes[axis];
+        }
+        volume = arenaVolume;
+        
+        int numComponents = (flux == Flux.MOMENTUM) ? dimension * (dimension - 1) / 2 : dimension;
+        firstAxes = new int[numComponents];
+        secondAxes = new int[numComponents];
+        int component = 0;
+        for (int a = 0; a < dimension; a++) {
+            if (flux == Flux.ENERGY) {
+                firstAxes[component++] = a;
+                continue;
+            }
+            for (int b = a + 1; b < dimension; b++) {
+                firstAxes[component] = a;
+                secondAxes[component] = b;
+                component++;
+            }
+        }
+        kineticFlux = new double[numComponents];
+        moments = new double[numComponents];
+        correlator = new TimeCorrelator(TimeCorrelator.Kind.MEAN_SQUARED_DISPLACEMENT, numComponents);
+    }
+    
+    /** Call with each event before it is performed */
+    public void beforeEvent(EventInfo event) {
+        if (!synced) {
+            return;
+        }
+        advanceTo(event.colTime);
+        Particle[] particles = event.getInvolvedParticles();
+        for (int which = 0; which < 2; which++) {
+            Particle particle = particles[which];
+            if (particle != null) {
+                previousVelocities[3 * which] = particle.getXVel();
+                previousVelocities[3 * which + 1] = particle.getYVel();
+                previousVelocities[3 * which + 2] = particle.getZVel();
+            }
+        }
+    }
+    
+    /** Call with each event after it is performed */
+    public void afterEvent(EventInfo event) {
+        if (!synced) {
+            return;
+        }
+        Particle[] particles = event.getInvolvedParticles();
+        for (int which = 0; which < 2; which++) {
+            Particle particle = particles[which];
+            if (particle != null) {
+                int offset = 3 * which;
+                addKineticFlux(particle.getMass(), previousVelocities[offset], 
+                        previousVelocities[offset + 1], previousVelocities[offset + 2], -1.0);
+                addKineticFlux(particle.getMass(), particle.getXVel(), particle.getYVel(), particle.getZVel(), 1.0);
+            }
+        }
+        if (particles[0] != null && particles[1] != null) {
+            addCollisionalTransfer(particles[0], particles[1]);
+        }
+    }
+    
+    private void addKineticFlux(double mass, double xVel, double yVel, double zVel, double sign) {
+        velocity[0] = xVel;
+        velocity[1] = yVel;
+        velocity[2] = zVel;
+        double energy = 0.5 * mass * (xVel * xVel + yVel * yVel + zVel * zVel);
+        for (int component = 0; component < kineticFlux.length; component++) {
+            double a = velocity[firstAxes[component]];
+            if (flux == Flux.ENERGY) {
+                kineticFlux[component] += sign * energy * a;
+            } else {
+                kineticFlux[component] += sign * mass * a * velocity[secondAxes[component]];
+            }
+        }
+    }
+    
+    private void addCollisionalTransfer(Particle first, Particle second) {
+        separation[0] = second.getX() - first.getX();
+        separation[1] = second.getY() - first.getY();
+        separation[2] = second.getZ() - first.getZ();
+        if (periodic) {
+            for (int axis = 0; axis < dimension; axis++) {
+                separation[axis] -= arenaSizes[axis] * Math.rint(separation[axis] / arenaSizes[axis]);
+            }
+        }
+        
+        double mass = second.getMass();
+        velocity[0] = second.getXVel();
+        velocity[1] = second.getYVel();
+        velocity[2] = second.getZVel();
+        if (flux == Flux.ENERGY) {
+            double energyGained = 0.0;
+            for (int axis = 0; axis < 3; axis++) {
+                energyGained += 0.5 * mass * (velocity[axis] * velocity[axis]
+                        - previousVelocities[3 + axis] * previousVelocities[3 + axis]);
+            }
+            for (int component = 0; component < moments.length; component++) {
+                moments[component] += separation[firstAxes[component]] * energyGained;
+            }
+        } else {
+            for (int component = 0; component < moments.length; component++) {
+                int b = secondAxes[component];
+                double momentumGained = mass * (velocity[b] - previousVelocities[3 + b]);
+                moments[component] += separation[firstAxes[component]] * momentumGained;
+            }
+        }
+    }
+    
+    private void advanceTo(double time) {
+        double elapsed = time - lastTime;
+        for (int component = 0; component < moments.length; component++) {
+            moments[component] += kineticFlux[component] * elapsed;
+        }
+        lastTime = time;
+    }
+    
+    /** Call at the end of every frame, after its events */
+    public void sampleFrame(FrameInfo frame) {
+        double interval = frame.endTime - frame.startTime;
+        if (interval <= 0.0) {
+            return;
+        }
+        ParticleStates states = frame.getParticleStates();
+        boolean restart = !synced || Math.abs(interval - sampleInterval) > 1.0E-9 * sampleInterval;
+        if (!restart) {
+            advanceTo(frame.endTime);
+        }
+        
+        // Sum the kinetic flux afresh so changes outside events don't linger
+        Arrays.fill(kineticFlux, 0.0);
+        double twiceKineticEnergy = 0.0;
+        double[] velocities = states.getVelocities();
+        for (int index = 0; index < states.size(); index++) {
+            double mass = states.getParticle(index).getMass();
+            int offset = 3 * index;
+            addKineticFlux(mass, velocities[offset], velocities[offset + 1], velocities[offset + 2], 1.0);
+            twiceKineticEnergy += mass * (velocities[offset] * velocities[offset]
+                    + velocities[offset + 1] * velocities[offset + 1]
+                    + velocities[offset + 2] * velocities[offset + 2]);
+        }
+        temperature = KILOGRAMS_PER_AMU * twiceKineticEnergy / (dimension * states.size() * Formulas.BOLTZMANN_CONST);
+        
+        if (restart) {
+            Arrays.fill(moments, 0.0);
+            lastTime = frame.endTime;
+            sampleInterval = interval;
+            synced = true;
+            correlator.clear();
+            temperatureSum = 0.0;
+            temperatureSamples = 0;
+            return;
+        }
+        temperatureSum += temperature;
+        temperatureSamples++;
+        correlator.add(moments);
+    }
+    
+    /**
+     * Transport coefficient in SI units from the latest block of time origins
+     * if current, or from all since the last clear, NaN before there are any.
+     */
+    public double getCoefficient(boolean current) {
+        if (!correlator.hasData()) {
+            return Double.NaN;
+        }
+        double[] meanSquaredChange = new double[TimeCorrelator.LAGS];
+        for (int lag = 0; lag < meanSquaredChange.length; lag++) {
+            meanSquaredChange[lag] = current ? correlator.getCurrent(lag) : correlator.getCumulative(lag);
+        }
+        double slope = TimeCorrelator.fitSlope(meanSquaredChange, FIRST_FITTED_LAG, sampleInterval)
+                * KILOGRAMS_PER_AMU * KILOGRAMS_PER_AMU;
+        double meanTemperature = current ? temperature : temperatureSum / temperatureSamples;
+        double denominator = 2.0 * volume * Formulas.BOLTZMANN_CONST * meanTemperature;
+        if (flux == Flux.ENERGY) {
+            denominator *= meanTemperature;
+        }
+        return slope / denominator;
+    }
+    
+    /** Clears the moments' statistics; the moments themselves carry on */
+    public void clear() {
+        correlator.clear();
+        temperatureSum = 0.0;
+        temperatureSamples = 0;
+    }
+    
+    /** Starts over at the next frame */
+    public void reset() {
+        synced = false;
+        clear();
+    }
+}
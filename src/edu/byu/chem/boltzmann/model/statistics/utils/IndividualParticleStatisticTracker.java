@@ -22,6 +22,7 @@ import edu.byu.chem.boltzmann.model.physics.EventInfo;
 import edu.byu.chem.boltzmann.model.physics.Particle;
 import edu.byu.chem.boltzmann.utils.Units;
 import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
 import java.awt.Color;
 import java.util.*;
 
@@ -34,24 +35,30 @@ public abstract class IndividualParticleStatisticTracker {
     
     private final int numParticles;
     private final Set<ParticleType> typesWatched;
-    private final Set<Color> colorsWatched;
+    private final SpeciesFilter speciesWatched;
     private final boolean reactionMode;
     private final int eventTypeToTrack;
     
-    private Map<Particle, Double> sums, lastCollisionTimes;
-    private Map<Particle, Integer> collisionCounter;
+    // By particle index; tracked[i] is the particle once it has been seen in a collision
+    private final Particle[] tracked;
+    private final double[] sums, lastCollisionTimes;
+    private final int[] collisionCounter;
     
-    public IndividualParticleStatisticTracker(int totalNumParticles, Set<ParticleType> typesWatched, boolean reactionMode, int eventTypeToTrack) {
+    private double total = 0.0;
+    private double sampleTotal = 0.0;
+    private double sampleStart = Double.NaN;
+    private final BlockingAnalysis errorAnalysis = new BlockingAnalysis();
+    
+    public IndividualParticleStatisticTracker(int totalNumParticles, Set<ParticleType> typesWatched, SimulationInfo simInfo, int eventTypeToTrack) {
         numParticles = totalNumParticles;
-        sums = new HashMap<Particle, Double>(numParticles);
-        lastCollisionTimes = new HashMap<Particle, Double>(numParticles);
-        collisionCounter = new HashMap<Particle, Integer>(numParticles);
+        tracked = new Particle[numParticles];
+        sums = new double[numParticles];
+        lastCollisionTimes = new double[numParticles];
+        collisionCounter = new int[numParticles];
         
         this.typesWatched = typesWatched;
-        colorsWatched = new HashSet<Color>(typesWatched.size());
-        for (ParticleType type : typesWatched)
-            colorsWatched.add(type.defaultColor);
-        this.reactionMode = reactionMode;
+        speciesWatched = new SpeciesFilter(typesWatched, simInfo);
+        this.reactionMode = simInfo.reactionMode;
         this.eventTypeToTrack = eventTypeToTrack;
     }
     
@@ -60,50 +67,88 @@ public abstract class IndividualParticleStatisticTracker {
 
     public Map<Color, List<Double>> getBinData() {
         Map<Color, List<Double>> sumData = new HashMap<Color, List<Double>>();
-        for(Particle particle : sums.keySet()){
+        for(int i = 0; i < numParticles; i++){
+            Particle particle = tracked[i];
+            if(particle == null)
+                continue;
             if(!sumData.containsKey(particle.getDisplayColor()))
                 sumData.put(particle.getDisplayColor(), new ArrayList<Double>());
-            sumData.get(particle.getDisplayColor()).add(binFunction(sums.get(particle), collisionCounter.get(particle)));
+            sumData.get(particle.getDisplayColor()).add(binFunction(sums[i], collisionCounter[i]));
         }
         return sumData;
     }
     
     public void analyzeEvent(EventInfo event) {
-        if (event.colType == eventTypeToTrack)
-            for (Particle particle: event.getInvolvedParticles())
+        if (event.colType == eventTypeToTrack) {
+            Particle[] particles = event.getInvolvedParticles();
+            for (int i = 0; i < particles.length; i++) {
+                Particle particle = particles[i];
                 if (particle != null && shouldTrackCollisions(particle.particleType)) {
-                    if(!sums.containsKey(particle)){
-                        sums.put(particle, 0.0);
-                        lastCollisionTimes.put(particle, 0.0);
-                        collisionCounter.put(particle, 0);
-                    }
-                    //If we're in reaction mode, check the color
-                    if (shouldRecordStats(particle.getDisplayColor())) {
-                        double timeElapsed = event.colTime - lastCollisionTimes.get(particle);
-                        sums.put(particle, updatedValue(sums.get(particle), particle.getVel2(), timeElapsed, particle.getMass()));
+                    int index = event.getInvolvedParticleIndex(i);
+                    tracked[index] = particle;
+                    //If we're in reaction mode, check the species
+                    if (shouldRecordStats(particle.getSpecies())) {
+                        double timeElapsed = event.colTime - lastCollisionTimes[index];
+                        double previous = sums[index];
+                        double updated = updatedValue(previous, particle.getVel2(), timeElapsed, particle.getMass());
+                        total += updated - previous;
+                        sums[index] = updated;
                     }
-                    lastCollisionTimes.put(particle, event.colTime);
-                    collisionCounter.put(particle, collisionCounter.get(particle) + 1);
+                    lastCollisionTimes[index] = event.colTime;
+                    collisionCounter[index]++;
                 }
+            }
+        }
     }
     
     public boolean shouldTrackCollisions(ParticleType particleType) {
         return typesWatched.contains(particleType) || reactionMode;
     }
     
-    public boolean shouldRecordStats(Color particleColor) {
-        return colorsWatched.contains(particleColor);
+    public boolean shouldRecordStats(int species) {
+        return speciesWatched.accepts(species);
     }
 
     public double getAverage() {
         if (numParticles == 0)
             return 0.0;
         double totalValue = 0;
-        for(Particle particle : sums.keySet())
-            totalValue += binFunction(sums.get(particle), collisionCounter.get(particle));
+        for(int i = 0; i < numParticles; i++)
+            if(tracked[i] != null)
+                totalValue += binFunction(sums[i], collisionCounter[i]);
         return totalValue / numParticles;
     }
     
+    /**
+     * Ends an error sample at the given simulation time (s). Only meaningful for
+     * statistics whose binFunction divides a particle's sum by the time elapsed,
+     * so that each sample is the growth of the sums per particle per second.
+     */
+    public void advanceTo(double time) {
+        if (Double.isNaN(sampleStart) || time < sampleStart) {
+            sampleStart = time;
+            sampleTotal = total;
+        } else if (time > sampleStart) {
+            errorAnalysis.addSample((total - sampleTotal) / (numParticles * (time - sampleStart)),
+                    time - sampleStart);
+            sampleTotal = total;
+            sampleStart = time;
+        }
+    }
+
+    /** Standard error of getAverage() in the units of updatedValue, see advanceTo() */
+    public double getStandardError() {
+        return errorAnalysis.getStandardError();
+    }
+
+    public double getCorrelationTime() {
+        return errorAnalysis.getCorrelationTime();
+    }
+
+    public boolean hasConvergedErrorEstimate() {
+        return errorAnalysis.isConverged();
+    }
+    
     public double getWidth() {
         double average = getAverage();
         return Math.sqrt(getRMS() - average * average);
@@ -113,16 +158,22 @@ public abstract class IndividualParticleStatisticTracker {
         if (numParticles == 0)
             return 0.0;
         double totalValueSquares = 0;
-        for(Particle particle : sums.keySet()){
-            double value = binFunction(sums.get(particle), collisionCounter.get(particle));
+        for(int i = 0; i < numParticles; i++){
+            if(tracked[i] == null)
+                continue;
+            double value = binFunction(sums[i], collisionCounter[i]);
             totalValueSquares += value * value;
         }
         return totalValueSquares / numParticles;
     }
     
     public void reset() {
-        sums.clear();
-        lastCollisionTimes.clear();
-        collisionCounter.clear();
+        Arrays.fill(tracked, null);
+        Arrays.fill(sums, 0.0);
+        Arrays.fill(lastCollisionTimes, 0.0);
+        Arrays.fill(collisionCounter, 0);
+        total = 0.0;
+        sampleTotal = 0.0;
+        errorAnalysis.clear();
     }
 }
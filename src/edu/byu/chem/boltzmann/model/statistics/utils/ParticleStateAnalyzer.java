@@ -23,9 +23,9 @@ import edu.byu.chem.boltzmann.model.physics.FrameInfo;
 import edu.byu.chem.boltzmann.model.physics.PartState;
 import edu.byu.chem.boltzmann.model.physics.Particle;
 import edu.byu.chem.boltzmann.utils.data.ParticleType;
-import java.awt.Color;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import java.util.Arrays;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 
@@ -43,15 +43,12 @@ public class ParticleStateAnalyzer {
         
         private final Set<ParticleType> typesWatched;
         private final boolean reactionMode;
-        private final Set<Color> colorsWatched;
+        private final SpeciesFilter speciesWatched;
         
-        public ParticleStateWatcher(Set<ParticleType> typesWatched, boolean reactionMode) {
+        public ParticleStateWatcher(Set<ParticleType> typesWatched, SimulationInfo simInfo) {
             this.typesWatched = typesWatched;
-            this.reactionMode = reactionMode;
-            colorsWatched = new HashSet<Color>(typesWatched.size());
-            for (ParticleType type : typesWatched) {
-                colorsWatched.add(type.defaultColor);
-            }
+            this.reactionMode = simInfo.reactionMode;
+            speciesWatched = new SpeciesFilter(typesWatched, simInfo);
         }
         
 //        /**
@@ -70,7 +67,13 @@ public class ParticleStateAnalyzer {
 //         * @param particleState 
 //         */
 //        public abstract void update(PartState particleState);
-        public abstract void update(Particle particle);
+        
+        /**
+         * Notifies the watcher of the particle at index in a frame analyzed by
+         * the ParticleStateAnalyzer. Per-particle values should be read from
+         * the frame's columns rather than worked out again.
+         */
+        public abstract void update(FrameAnalysis frame, int index);
         
         /**
          * @param particleType
@@ -81,11 +84,11 @@ public class ParticleStateAnalyzer {
         }
         
         /**
-         * @param particleColor
-         * @return True if update should be called for this particle color
+         * @param species
+         * @return True if update should be called for particles of this species
          */
-        public boolean shouldRecordStats(Color particleColor) {
-            return (colorsWatched.contains(particleColor));
+        public boolean shouldRecordStats(int species) {
+            return speciesWatched.accepts(species);
         }
         
     }
@@ -94,7 +97,9 @@ public class ParticleStateAnalyzer {
     private final boolean trackAllEvents;
     private final int eventTypeToTrack;
     
-    private Map<Particle, Double> lastCollisionTimes = new HashMap<Particle, Double>();
+    /** By particle index, so recording a collision allocates nothing */
+    private double[] lastCollisionTimes = new double[0];
+    private final Map<Particle, Integer> particleIndices = new HashMap<Particle, Integer>();
     
     public ParticleStateAnalyzer(ParticleStateWatcher watcher) {
         this.watcher = watcher;
@@ -109,49 +114,56 @@ public class ParticleStateAnalyzer {
     }
     
     public double getLastCollisionTime(Particle particle) {
-        if (lastCollisionTimes.containsKey(particle)) {
-            return lastCollisionTimes.get(particle);
+        Integer index = particleIndices.get(particle);
+        if (index != null) {
+            return lastCollisionTimes[index];
         } else {
             return 0.0;
         }
     }
 
     public void reset() {
-        lastCollisionTimes.clear();
+        Arrays.fill(lastCollisionTimes, 0.0);
     }
     
 //    private final PartState workingState = new PartState(0, 0, 0, 0, null, 0);
     
     public void analyzeEvent(EventInfo event) {
         if (trackAllEvents || event.colType == eventTypeToTrack) {
-            for (Particle particle: event.getInvolvedParticles()) {
-                if (watcher.shouldTrackCollisions(particle.particleType)) {
-                    Double lastCollisionTime = getLastCollisionTime(particle);
-                    if (lastCollisionTime == null)
-                        lastCollisionTime = 0.0;
+            Particle[] particles = event.getInvolvedParticles();
+            for (int i = 0; i < particles.length; i++) {
+                Particle particle = particles[i];
+                if (particle != null && watcher.shouldTrackCollisions(particle.particleType)) {
+                    int index = event.getInvolvedParticleIndex(i);
+                    if (index >= lastCollisionTimes.length) {
+                        lastCollisionTimes = Arrays.copyOf(lastCollisionTimes, index + 1);
+                    }
+                    if (!particleIndices.containsKey(particle)) {
+                        particleIndices.put(particle, index);
+                    }
+                    double lastCollisionTime = lastCollisionTimes[index];
                     //PartState particleState = particle.getState(workingState);
                     
                     ////If we're in reaction mode, check the color
                     
                     //if (watcher.shouldRecordStats(particleState.color)) {
-                    if (watcher.shouldRecordStats(particle.getDisplayColor())) {
+                    if (watcher.shouldRecordStats(particle.getSpecies())) {
                         double timeElapsed = event.colTime - lastCollisionTime;
                         //watcher.update(particleState, timeElapsed);
                         watcher.update(particle, timeElapsed);
                     }
-                    lastCollisionTimes.put(particle, event.colTime);
+                    lastCollisionTimes[index] = event.colTime;
                 }
             }
         }
     }
 
     public void analyzeFrame(FrameInfo frame) {
-        for (Particle particle: frame.getParticles()) {
-            //PartState particleState = frame.getParticleState(particle);
-            //if (watcher.shouldRecordStats(particleState.color)) {
-            if (watcher.shouldRecordStats(particle.getDisplayColor())) {
-                //watcher.update(particleState);
-                watcher.update(particle);
+        FrameAnalysis analysis = frame.getAnalysis();
+        int[] species = analysis.getSpecies();
+        for (int particleIndex = 0; particleIndex < analysis.size(); particleIndex++) {
+            if (watcher.shouldRecordStats(species[particleIndex])) {
+                watcher.update(analysis, particleIndex);
             }
         }
     }
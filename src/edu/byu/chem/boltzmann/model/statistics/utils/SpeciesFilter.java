@@ -0,0 +1,52 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics.utils;
+
+import edu.byu.chem.boltzmann.model.physics.Particle;
+import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import java.util.Set;
+
+/**
+ * The species a statistic records: those of the particle types it was created
+ * for, looked up by the species id a particle carries (see
+ * Particle.getSpecies()). A particle always shows its species' colour, so this
+ * gives the answer statistics used to get by looking the particle's colour up
+ * in a Set of the types' colours, without hashing a Color on every event.
+ */
+public final class SpeciesFilter {
+
+    private final boolean[] recorded;
+
+    public SpeciesFilter(Set<ParticleType> types, SimulationInfo simInfo) {
+        recorded = new boolean[simInfo.getParticleTypes().size()];
+        for (ParticleType type: types) {
+            recorded[simInfo.getSpeciesId(type)] = true;
+        }
+    }
+
+    /** True if particles of species are recorded */
+    public boolean accepts(int species) {
+        return recorded[species];
+    }
+
+    /** True if particle, as the species it is now, is recorded */
+    public boolean accepts(Particle particle) {
+        return recorded[particle.getSpecies()];
+    }
+}
@@ -0,0 +1,195 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics.utils;
+
+import java.util.Arrays;
+
+/**
+ * Time correlation functions of a set of series sampled once a frame, averaged
+ * over many time origins. The newest WINDOW samples of each series are kept in
+ * a ring. Each time LAGS new samples have come in, the oldest LAGS samples in
+ * the ring are used as time origins for lags 0 through LAGS - 1, so every
+ * sample is an origin exactly once and memory doesn't grow with the run.
+ *
+ * A block of origins is worked out with one FFT of the window and one inverse
+ * FFT per series, O(WINDOW log WINDOW) instead of O(WINDOW^2). The window is
+ * twice the longest lag, so the cyclic correlation never wraps around.
+ *
+ * Results are averaged over series and origins. The current function is the
+ * last block's; the cumulative function is every block's since the last
+ * clear().
+ */
+public class TimeCorrelator {
+    
+    public enum Kind {
+        /** c(m) = &lt;x(k) x(k + m)&gt; */
+        AUTOCORRELATION,
+        /** c(m) = &lt;(x(k + m) - x(k))^2&gt; */
+        MEAN_SQUARED_DISPLACEMENT
+    }
+    
+    /** Samples kept of each series; a power of two */
+    public static final int WINDOW = 256;
+    
+    /** Number of lags correlated, starting from lag 0 */
+    public static final int LAGS = WINDOW / 2;
+    
+    private final Kind kind;
+    private final int numSeries;
+    
+    // Series-major ring of the last WINDOW samples, sample s in slot s % WINDOW
+    private final double[] ring;
+    private long samplesAdded = 0;
+    
+    private final FFT fft = new FFT(WINDOW);
+    private final double[] re = new double[WINDOW];
+    private final double[] im = new double[WINDOW];
+    private final double[] productRe = new double[WINDOW];
+    private final double[] productIm = new double[WINDOW];
+    private final double[] squareSums = new double[WINDOW + 1];
+    
+    private final double[] blockSums = new double[LAGS];
+    private final double[] cumulativeSums = new double[LAGS];
+    private final double[] current = new double[LAGS];
+    private long blocks = 0;
+    
+    public TimeCorrelator(Kind kind, int numSeries) {
+        this.kind = kind;
+        this.numSeries = numSeries;
+        ring = new double[numSeries * WINDOW];
+    }
+    
+    public int getNumSeries() {
+        return numSeries;
+    }
+    
+    /**
+     * Adds the next sample of every series. Processes a block of origins when
+     * enough samples have come in.
+     * @param sample value of each series, at least getNumSeries() long
+     */
+    public void add(double[] sample) {
+        int slot = (int) (samplesAdded % WINDOW);
+        for (int series = 0; series < numSeries; series++) {
+            ring[series * WINDOW + slot] = sample[series];
+        }
+        samplesAdded++;
+        if (samplesAdded >= WINDOW && (samplesAdded - WINDOW) % LAGS == 0) {
+            correlateWindow();
+        }
+    }
+    
+    private void correlateWindow() {
+        int firstSlot = (int) (samplesAdded % WINDOW);
+        Arrays.fill(blockSums, 0.0);
+        for (int series = 0; series < numSeries; series++) {
+            int offset = series * WINDOW;
+            
+            // Origins a(k), zero past the first LAGS samples, packed with the
+            // whole window x(k) so one transform gives both spectra.
+            // Displacements don't depend on where x is measured from, so
+            // they're taken from the window's first sample to keep x small.
+            double shift = (kind == Kind.MEAN_SQUARED_DISPLACEMENT) ? ring[offset + firstSlot] : 0.0;
+            squareSums[0] = 0.0;
+            for (int k = 0; k < WINDOW; k++) {
+                double x = ring[offset + (firstSlot + k) % WINDOW] - shift;
+                re[k] = (k < LAGS) ? x : 0.0;
+                im[k] = x;
+                squareSums[k + 1] = squareSums[k] + x * x;
+            }
+            fft.transform(re, im);
+            
+            // A(j) = (Z(j) + conj Z(-j)) / 2, X(j) = (Z(j) - conj Z(-j)) / 2i;
+            // conj(A) X transforms back to sum over k of a(k) x(k + m).
+            for (int j = 0; j < WINDOW; j++) {
+                int mirror = (WINDOW - j) % WINDOW;
+                double aRe = 0.5 * (re[j] + re[mirror]);
+                double aIm = 0.5 * (im[j] - im[mirror]);
+                double xRe = 0.5 * (im[j] + im[mirror]);
+                double xIm = -0.5 * (re[j] - re[mirror]);
+                productRe[j] = aRe * xRe + aIm * xIm;
+                productIm[j] = aRe * xIm - aIm * xRe;
+            }
+            fft.inverseTransform(productRe, productIm);
+            
+            for (int m = 0; m < LAGS; m++) {
+                double correlation = productRe[m];
+                if (kind == Kind.AUTOCORRELATION) {
+                    blockSums[m] += correlation;
+                } else {
+                    double laggedSquares = squareSums[m + LAGS] - squareSums[m];
+                    double originSquares = squareSums[LAGS];
+                    blockSums[m] += laggedSquares + originSquares - 2.0 * correlation;
+                }
+            }
+        }
+        
+        double count = (double) numSeries * LAGS;
+        for (int m = 0; m < LAGS; m++) {
+            current[m] = blockSums[m] / count;
+            cumulativeSums[m] += blockSums[m];
+        }
+        blocks++;
+    }
+    
+    /** True once a block of origins has been correlated since the last clear() */
+    public boolean hasData() {
+        return blocks > 0;
+    }
+    
+    /** Function from the last block of origins; zero before the first */
+    public double getCurrent(int lag) {
+        return current[lag];
+    }
+    
+    /** Function from every block of origins since the last clear(); zero before the first */
+    public double getCumulative(int lag) {
+        return (blocks == 0) ? 0.0 : cumulativeSums[lag] / ((double) blocks * numSeries * LAGS);
+    }
+    
+    /**
+     * Least squares slope of function against time over lags firstLag and up,
+     * for correlation functions that grow linearly at long times.
+     * @param lagTime time between lags
+     */
+    public static double fitSlope(double[] function, int firstLag, double lagTime) {
+        int points = function.length - firstLag;
+        double timeSum = 0.0, valueSum = 0.0;
+        for (int lag = firstLag; lag < function.length; lag++) {
+            timeSum += lag * lagTime;
+            valueSum += function[lag];
+        }
+        double meanTime = timeSum / points;
+        double meanValue = valueSum / points;
+        double covariance = 0.0, variance = 0.0;
+        for (int lag = firstLag; lag < function.length; lag++) {
+            double time = lag * lagTime - meanTime;
+            covariance += time * (function[lag] - meanValue);
+            variance += time * time;
+        }
+        return covariance / variance;
+    }
+    
+    /** Forgets every sample and result */
+    public void clear() {
+        samplesAdded = 0;
+        blocks = 0;
+        Arrays.fill(current, 0.0);
+        Arrays.fill(cumulativeSums, 0.0);
+    }
+}
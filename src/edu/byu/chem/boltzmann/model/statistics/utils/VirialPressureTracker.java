@@ -15,130 +15,312 @@
  * You should have received a copy of the GNU General Public License
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
-
 package edu.byu.chem.boltzmann.model.statistics.utils;
 
-import edu.byu.chem.boltzmann.model.physics.Collision;
 import edu.byu.chem.boltzmann.model.physics.EventInfo;
+import edu.byu.chem.boltzmann.model.physics.FrameInfo;
 import edu.byu.chem.boltzmann.model.physics.Particle;
+import edu.byu.chem.boltzmann.model.physics.ParticleStates;
+import edu.byu.chem.boltzmann.model.statistics.AveragingMode;
 import edu.byu.chem.boltzmann.model.statistics.Formulas;
 import edu.byu.chem.boltzmann.utils.Units;
 import edu.byu.chem.boltzmann.utils.Units.PressureUnit;
 import edu.byu.chem.boltzmann.utils.data.ParticleType;
 import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
-import java.awt.Color;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.Set;
 
 /**
+ * Pressure tensor of the watched particles from the virial theorem,
+ * P_ab V = &lt;sum of m v_a v_b&gt; + (sum over collisions of r_a dp_b) / t,
+ * with r the separation of the colliding particles at contact (the nearest
+ * image with periodic boundaries) and dp the reduced mass impulse the second
+ * one received. Each watched particle in a collision is credited with half.
+ * The scalar pressure is the trace over the dimension.
+ *
+ * Velocities are recorded in analyzeEvent() and the impulse worked out in
+ * analyzeEventOutcome(), once the collision has been performed. The kinetic
+ * tensor is kept up to date from the particles in each event and summed
+ * again every frame in analyzeFrame(). Forces from walls aren't included, so
+ * in closed arenas this is the pressure the gas exerts on itself, over the
+ * volume the particles' centres can reach. The volume has to stay fixed, so
+ * this can't be used with the movable piston.
  *
  * @author Joshua Olson
  * August 6, 2012
  */
 public class VirialPressureTracker {
     
+    private static final double KILOGRAMS_PER_AMU = Units.convert("amu", "kg", 1.0);
+    
+    // Totals: virial tensor, time integral of the kinetic tensor, elapsed time
+    private static final int VIRIAL = 0, KINETIC = 9, TIME = 18;
+    
     private double simulationTime;
-    private double virialSum, innerConstant, outerConstant;
-    private final double arenaX, arenaY, arenaZ;
+    private final double[] virialSums = new double[9];
+    private final double[] kineticIntegrals = new double[9];
+    private final double[] kineticTensor = new double[9];
+    private double lastKineticTime = 0.0;
+    private final AveragingTotals cumulative = new AveragingTotals(19, TIME);
+    private final BlockingAnalysis errorAnalysis = new BlockingAnalysis();
+    private double sampleTrace = 0.0;
+    private double sampleStart = Double.NaN;
+    private final double[] arenaSizes;
+    private final boolean periodic;
+    private final double volume;
     private final int dimension;
     private final boolean reactionMode;
     private final Set<ParticleType> typesWatched;
-    private final Set<Color> colorsWatched;
+    private final SpeciesFilter speciesWatched;
     private final PressureUnit baseUnit;
+    
+    // The event's particles before it was performed
+    private final double[] previousMasses = new double[2];
+    private final double[] previousVelocities = new double[6];
+    private final boolean[] previouslyWatched = new boolean[2];
+    private final double[] separation = new double[3];
+    private final double[] impulse = new double[3];
 
     public VirialPressureTracker(PressureUnit defaultUnit, Set<ParticleType> types, SimulationInfo simInfo){
         baseUnit = defaultUnit;
         simulationTime = 0;
         reactionMode = simInfo.reactionMode;
         typesWatched = types;
-        colorsWatched = new HashSet<Color>(typesWatched.size());
-        for(ParticleType type: typesWatched)
-            colorsWatched.add(type.defaultColor);
+        speciesWatched = new SpeciesFilter(typesWatched, simInfo);
         
         dimension = simInfo.dimension;
-        arenaX = simInfo.arenaXSize;
-        arenaY = simInfo.arenaYSize;
-        arenaZ = simInfo.arenaZSize;
-        
-        virialSum = 0;
-        //the inner and outer constants are used in calculating total pressure from the virial sum, inside and outside parentheses respectively
-        innerConstant = 2 * simInfo.totalInitialKE;
-        switch(dimension){
-            case 1:
-                outerConstant = 1. / arenaX;
-                break;
-            case 2:
-                outerConstant = 1. / (2 * arenaX * arenaY);
-                break;
-            default:
-                outerConstant = 1. / (3 * arenaX * arenaY * arenaZ);
+        periodic = simInfo.isPeriodic();
+        arenaSizes = new double[] {simInfo.arenaXSize, simInfo.arenaYSize, simInfo.arenaZSize};
+        double arenaVolume = 1.0;
+        for(int axis = 0; axis < dimension; axis++)
+            arenaVolume *= arenaSizes[axis];
+        //Walls keep centres away from the edges, so closed arenas use the volume each type can reach
+        if(!periodic){
+            int particleCount = 0;
+            double countPerVolume = 0.0;
+            for(ParticleType type: typesWatched){
+                particleCount += simInfo.getNumberOfParticles(type);
+                countPerVolume += simInfo.getNumberOfParticles(type) / Formulas.effectiveVolume(simInfo, type);
+            }
+            if(particleCount > 0)
+                arenaVolume = particleCount / countPerVolume;
         }
+        volume = arenaVolume;
+        
+        // Until the first frame is summed, start from the initial velocities
+        for(ParticleType type: typesWatched)
+            for(int particleIndex = 0; particleIndex < simInfo.getNumberOfParticles(type); particleIndex++){
+                double[] velocity = simInfo.getParticleVelocity(type, particleIndex);
+                addKineticTensor(type.particleMass, velocity[0], velocity[1], velocity[2], 1.0);
+            }
     }
     
     public void setSimulationTime(double simTime){
         simulationTime = simTime;
+        advanceTo(simTime);
+        if(Double.isNaN(sampleStart) || simTime < sampleStart){
+            sampleStart = simTime;
+            sampleTrace = 0.0;
+        }
+        else if(simTime > sampleStart){
+            double sampleTime = simTime - sampleStart;
+            errorAnalysis.addSample(scalarPressure(sampleTrace, sampleTime), sampleTime);
+            sampleTrace = 0.0;
+            sampleStart = simTime;
+        }
+    }
+    
+    public void setAveraging(AveragingMode mode, double halfLife){
+        cumulative.setAveraging(mode, halfLife);
     }
     
+    private void advanceTo(double time){
+        cumulative.advanceTo(time);
+        if(time < lastKineticTime){
+            lastKineticTime = time;
+            return;
+        }
+        double elapsed = time - lastKineticTime;
+        for(int component = 0; component < 9; component++){
+            double integral = kineticTensor[component] * elapsed;
+            kineticIntegrals[component] += integral;
+            cumulative.add(KINETIC + component, integral);
+        }
+        for(int axis = 0; axis < dimension; axis++)
+            sampleTrace += kineticTensor[4 * axis] * elapsed;
+        lastKineticTime = time;
+    }
+    
+    private void addKineticTensor(double mass, double xVel, double yVel, double zVel, double sign){
+        double[] t = kineticTensor;
+        double weight = sign * mass;
+        t[0] += weight * xVel * xVel;
+        t[1] += weight * xVel * yVel;
+        t[2] += weight * xVel * zVel;
+        t[4] += weight * yVel * yVel;
+        t[5] += weight * yVel * zVel;
+        t[8] += weight * zVel * zVel;
+        t[3] = t[1];
+        t[6] = t[2];
+        t[7] = t[5];
+    }
+    
+    /** Call with each event before it is performed */
     public void analyzeEvent(EventInfo event){
-        if(event.colType == Collision.PARTICLE){
-            Particle[] particles = event.getInvolvedParticles();
-            double reducedMass = Units.convert("amu", "kg", particles[0].mass * particles[1].mass / (particles[0].mass + particles[1].mass));
-            for(int partIndex: new int[]{0, 1})
-                if(shouldTrackCollisions(particles[partIndex].particleType) && shouldRecordStats(particles[partIndex].getDisplayColor()))
-                    virialSum += reducedMass * getVirial(particles[partIndex], particles[1 - partIndex]);
+        advanceTo(event.colTime);
+        Particle[] particles = event.getInvolvedParticles();
+        for(int partIndex = 0; partIndex < 2; partIndex++){
+            Particle particle = particles[partIndex];
+            previouslyWatched[partIndex] = particle != null && isWatched(particle);
+            if(particle != null){
+                previousMasses[partIndex] = particle.mass;
+                previousVelocities[3 * partIndex] = particle.getXVel();
+                previousVelocities[3 * partIndex + 1] = particle.getYVel();
+                previousVelocities[3 * partIndex + 2] = particle.getZVel();
+            }
         }
     }
     
+    /** Call with each event after it is performed */
+    public void analyzeEventOutcome(EventInfo event){
+        Particle[] particles = event.getInvolvedParticles();
+        for(int partIndex = 0; partIndex < 2; partIndex++){
+            Particle particle = particles[partIndex];
+            if(particle == null)
+                continue;
+            if(previouslyWatched[partIndex])
+                addKineticTensor(previousMasses[partIndex], previousVelocities[3 * partIndex], 
+                        previousVelocities[3 * partIndex + 1], previousVelocities[3 * partIndex + 2], -1.0);
+            if(isWatched(particle))
+                addKineticTensor(particle.mass, particle.getXVel(), particle.getYVel(), particle.getZVel(), 1.0);
+        }
+        
+        if(particles[0] != null && particles[1] != null && (previouslyWatched[0] || previouslyWatched[1])){
+            double credit = (previouslyWatched[0] ? 0.5 : 0.0) + (previouslyWatched[1] ? 0.5 : 0.0);
+            addVirial(particles[0], particles[1], credit);
+        }
+    }
+    
+    private void addVirial(Particle particle1, Particle particle2, double credit){
+        double reducedMass = particle1.mass * particle2.mass / (particle1.mass + particle2.mass);
+        separation[0] = particle2.getX() - particle1.getX();
+        separation[1] = particle2.getY() - particle1.getY();
+        separation[2] = particle2.getZ() - particle1.getZ();
+        impulse[0] = reducedMass * (particle2.getXVel() - particle1.getXVel() - previousVelocities[3] + previousVelocities[0]);
+        impulse[1] = reducedMass * (particle2.getYVel() - particle1.getYVel() - previousVelocities[4] + previousVelocities[1]);
+        impulse[2] = reducedMass * (particle2.getZVel() - particle1.getZVel() - previousVelocities[5] + previousVelocities[2]);
+        if(periodic)
+            for(int axis = 0; axis < dimension; axis++)
+                separation[axis] -= arenaSizes[axis] * Math.rint(separation[axis] / arenaSizes[axis]);
+        
+        for(int a = 0; a < dimension; a++)
+            for(int b = 0; b < dimension; b++){
+                double virial = credit * separation[a] * impulse[b];
+                virialSums[3 * a + b] += virial;
+                cumulative.add(VIRIAL + 3 * a + b, virial);
+                if(a == b)
+                    sampleTrace += virial;
+            }
+    }
+    
+    /** Call at the end of every frame to sum the kinetic tensor again */
+    public void analyzeFrame(FrameInfo frame){
+        ParticleStates states = frame.getParticleStates();
+        advanceTo(frame.endTime);
+        Arrays.fill(kineticTensor, 0.0);
+        double[] velocities = states.getVelocities();
+        ParticleType[] types = states.getParticleTypes();
+        int[] species = states.getSpecies();
+        for(int index = 0; index < states.size(); index++)
+            if(shouldTrackCollisions(types[index]) && shouldRecordStats(species[index]))
+                addKineticTensor(types[index].particleMass, velocities[3 * index], 
+                        velocities[3 * index + 1], velocities[3 * index + 2], 1.0);
+    }
+    
+    private boolean isWatched(Particle particle){
+        return shouldTrackCollisions(particle.particleType) && shouldRecordStats(particle.getSpecies());
+    }
+    
     public boolean shouldTrackCollisions(ParticleType particleType){
         return typesWatched.contains(particleType) || reactionMode;
     }
 
-    //If we're in reaction mode, check the color
-    public boolean shouldRecordStats(Color particleColor){
-        return colorsWatched.contains(particleColor);
+    //If we're in reaction mode, check the species
+    public boolean shouldRecordStats(int species){
+        return speciesWatched.accepts(species);
     }
     
-    private double getVirial(Particle particle1, Particle particle2){
-        double dX = particle2.getX() - particle1.getX();
-        
-        if(dX > arenaX - particle2.radius - particle1.radius)
-            dX -= arenaX;
-        if(dX < -arenaX + particle2.radius + particle1.radius)
-            dX += arenaX;
-        
-        double virial = dX * (particle2.getXVel() - particle1.getXVel());
-        
-        if(dimension > 1){
-            double dY = particle2.getY() - particle1.getY();
-            
-            if(dY > arenaY - particle2.radius - particle1.radius)
-                dY -= arenaY;
-            if(dY < -arenaY + particle2.radius + particle1.radius)
-                dY += arenaY;
-            
-            virial += dY * (particle2.getYVel() - particle1.getYVel());
-            
-            if(dimension == 3){
-                double dZ = particle2.getZ() - particle1.getZ();
-                
-                if(dZ > arenaZ - particle2.radius - particle1.radius)
-                    dZ -= arenaZ;
-                if(dZ < -arenaZ + particle2.radius + particle1.radius)
-                    dZ += arenaZ;
-                
-                virial += dZ * (particle2.getZVel() - particle1.getZVel());
-            }
-        }
-        
-        return virial;
+    /** Scalar pressure in the base unit from a kinetic plus virial trace (amu m^2/s) over time */
+    private double scalarPressure(double trace, double time){
+        return KILOGRAMS_PER_AMU * trace / (time * dimension * volume);
+    }
+    
+    private double componentPressure(double kineticIntegral, double virial, double time){
+        return KILOGRAMS_PER_AMU * (kineticIntegral + virial) / (time * volume);
     }
 
     public double getAverage(PressureUnit unit){
-        return Units.convert(baseUnit, unit, outerConstant * (innerConstant + virialSum / simulationTime));
+        double trace = 0.0;
+        for(int axis = 0; axis < dimension; axis++)
+            trace += kineticIntegrals[4 * axis] + virialSums[4 * axis];
+        return Units.convert(baseUnit, unit, scalarPressure(trace, simulationTime));
+    }
+    
+    /** Pressure from the virial weighted by the AveragingMode set with setAveraging() */
+    public double getCumulativeAverage(PressureUnit unit){
+        double time = cumulative.get(TIME);
+        if(time == 0.0)
+            return getAverage(unit);
+        double trace = 0.0;
+        for(int axis = 0; axis < dimension; axis++)
+            trace += cumulative.get(KINETIC + 4 * axis) + cumulative.get(VIRIAL + 4 * axis);
+        return Units.convert(baseUnit, unit, scalarPressure(trace, time));
+    }
+    
+    /**
+     * Component P_ab of the pressure tensor since the last reset, symmetrized;
+     * axes are 0 for x, 1 for y and 2 for z.
+     */
+    public double getComponent(int a, int b, PressureUnit unit){
+        double kinetic = kineticIntegrals[3 * a + b];
+        double virial = 0.5 * (virialSums[3 * a + b] + virialSums[3 * b + a]);
+        return Units.convert(baseUnit, unit, componentPressure(kinetic, virial, simulationTime));
+    }
+    
+    /** Component P_ab weighted by the AveragingMode set with setAveraging() */
+    public double getCumulativeComponent(int a, int b, PressureUnit unit){
+        double time = cumulative.get(TIME);
+        if(time == 0.0)
+            return getComponent(a, b, unit);
+        double kinetic = cumulative.get(KINETIC + 3 * a + b);
+        double virial = 0.5 * (cumulative.get(VIRIAL + 3 * a + b) + cumulative.get(VIRIAL + 3 * b + a));
+        return Units.convert(baseUnit, unit, componentPressure(kinetic, virial, time));
+    }
+    
+    /** Standard error of the pressure from blocking the virial of each interval between calls to setSimulationTime() */
+    public double getStandardError(PressureUnit unit){
+        return Units.convert(baseUnit, unit, errorAnalysis.getStandardError());
+    }
+    
+    public double getCorrelationTime(){
+        return errorAnalysis.getCorrelationTime();
+    }
+    
+    public boolean hasConvergedErrorEstimate(){
+        return errorAnalysis.isConverged();
+    }
+    
+    /** Clears the cumulative pressure */
+    public void clear(){
+        cumulative.clear();
+        errorAnalysis.clear();
+        sampleTrace = 0.0;
     }
     
     public void reset(){
         simulationTime = 0;
-        virialSum = 0;
+        Arrays.fill(virialSums, 0.0);
+        Arrays.fill(kineticIntegrals, 0.0);
+        clear();
     }
 }
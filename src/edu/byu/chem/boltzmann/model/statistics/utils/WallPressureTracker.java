@@ -22,81 +22,86 @@ import edu.byu.chem.boltzmann.model.physics.Collision;
 import edu.byu.chem.boltzmann.model.physics.EventInfo;
 import edu.byu.chem.boltzmann.model.physics.Particle;
 import edu.byu.chem.boltzmann.model.physics.Wall;
+import edu.byu.chem.boltzmann.model.statistics.AveragingMode;
 import edu.byu.chem.boltzmann.utils.Units;
 import edu.byu.chem.boltzmann.utils.Units.PressureUnit;
 import edu.byu.chem.boltzmann.utils.data.ParticleType;
 import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
-import java.awt.Color;
 import java.util.*;
 
 /**
+ * Pressure on the left and right walls from the momentum particles give them.
+ *
+ * The current pressure forgets collisions exponentially, with a time constant
+ * of half the averaging time; that weights collisions with the same mean age
+ * as a window of the whole averaging time, without keeping a list of them.
+ * The cumulative pressure is weighted by the statistic's AveragingMode. Its
+ * standard error comes from blocking the pressure of each interval between
+ * calls to setSimulationTime().
  *
  * @author Joshua Olson
  * July 19, 2012
  */
 public class WallPressureTracker {
     
-    private class CollisionEvent{
-        public final double momentum, time;
-        public CollisionEvent(double m, double t){
-            momentum = m;
-            time = t;
-        }
-    }
+    private static final int IMPULSE = 0, TIME = 1;
     
-    private List<Map<ParticleType, LinkedList<CollisionEvent>>> wallCollisions;//list has two maps, one for each wall (left or right)
-    private final int LEFT = 0, RIGHT = 1, SIDES[] = {0, 1};//for left and right wall collisions
+    private final AveragingTotals recent = new AveragingTotals(2, TIME);
+    private final AveragingTotals cumulative = new AveragingTotals(2, TIME);
+    private final BlockingAnalysis errorAnalysis = new BlockingAnalysis();
+    private double sampleImpulse = 0.0;
+    private double sampleStart = Double.NaN;
     
-    private double simulationTime, trackedTime, averagingTime;
     private final double wallHeight, wallDepth;
     private final boolean reactionMode;
     private final Set<ParticleType> typesWatched;
-    private final Set<Color> colorsWatched;
+    private final SpeciesFilter speciesWatched;
     private final PressureUnit baseUnit;
 
     public WallPressureTracker(PressureUnit defaultUnit, double avgTime, Set<ParticleType> types, SimulationInfo simInfo){
         baseUnit = defaultUnit;
-        simulationTime = 0;
-        trackedTime = 0;
-        averagingTime = Units.convert("ps", "s", avgTime);
+        setAveragingTime(Units.convert("ps", "s", avgTime));
         wallHeight = simInfo.arenaYSize;
         wallDepth = simInfo.arenaZSize;
         reactionMode = simInfo.reactionMode;
         typesWatched = types;
-        colorsWatched = new HashSet<Color>(typesWatched.size());
-        for(ParticleType type: typesWatched)
-            colorsWatched.add(type.defaultColor);
-        
-        wallCollisions = new ArrayList<Map<ParticleType, LinkedList<CollisionEvent>>>(2);
-        for(int side: SIDES){
-            wallCollisions.add(new HashMap<ParticleType, LinkedList<CollisionEvent>>(types.size()));
-            for(ParticleType type: types)
-                wallCollisions.get(side).put(type, new LinkedList<CollisionEvent>());
-        }
+        speciesWatched = new SpeciesFilter(typesWatched, simInfo);
     }
     
     public void setSimulationTime(double simTime){
-        //increase trackedTime by the increase in simulation time unless the cap at averagingTime is reached
-        trackedTime = Math.min(averagingTime, trackedTime + simTime - simulationTime);
-        simulationTime = simTime;
+        recent.advanceTo(simTime);
+        cumulative.advanceTo(simTime);
+        if(Double.isNaN(sampleStart) || simTime < sampleStart)
+            sampleStart = simTime;
+        else if(simTime > sampleStart){
+            errorAnalysis.addSample(0.5 * sampleImpulse / (simTime - sampleStart), simTime - sampleStart);
+            sampleImpulse = 0.0;
+            sampleStart = simTime;
+        }
     }
     
     public void setAveragingTime(double avgTime){
-        trackedTime = Math.min(avgTime, trackedTime);
-        averagingTime = avgTime;
+        recent.setAveraging(AveragingMode.EXPONENTIAL, 0.5 * avgTime * Math.log(2.0));
+    }
+    
+    public void setAveraging(AveragingMode mode, double halfLife){
+        cumulative.setAveraging(mode, halfLife);
     }
     
     public void analyzeEvent(EventInfo event){
         if(event.colType == Collision.WALL){
             Particle particle = event.getInvolvedParticles()[0];
-            if(shouldTrackCollisions(particle.particleType) && shouldRecordStats(particle.getDisplayColor()) && shouldTrackSide(event.side)){
+            if(shouldTrackCollisions(particle.particleType) && shouldRecordStats(particle.getSpecies()) && shouldTrackSide(event.side)){
                 double momentum = 2 * Units.convert("amu", "kg", particle.mass) * Math.abs(particle.getXVel());
                 if(wallDepth > 0)//three dimensions
                     momentum /= (wallHeight - 2 * particle.radius) * (wallDepth - 2 * particle.radius);
                 else if(wallHeight > 0)//two dimensions
                         momentum /= wallHeight - 2 * particle.radius;
-                CollisionEvent colEvent = new CollisionEvent(momentum, event.colTime);
-                wallCollisions.get(event.side == Wall.LEFT ? LEFT : RIGHT).get(particle.particleType).addLast(colEvent);
+                recent.advanceTo(event.colTime);
+                recent.add(IMPULSE, momentum);
+                cumulative.advanceTo(event.colTime);
+                cumulative.add(IMPULSE, momentum);
+                sampleImpulse += momentum;
             }
         }
     }
@@ -105,9 +110,9 @@ public class WallPressureTracker {
         return typesWatched.contains(particleType) || reactionMode;
     }
 
-    //If we're in reaction mode, check the color
-    public boolean shouldRecordStats(Color particleColor){
-        return colorsWatched.contains(particleColor);
+    //If we're in reaction mode, check the species
+    public boolean shouldRecordStats(int species){
+        return speciesWatched.accepts(species);
     }
     
     public boolean shouldTrackSide(int side){
@@ -115,32 +120,42 @@ public class WallPressureTracker {
     }
 
     public double getAverage(PressureUnit unit){
-        //double leftPressure = 0, rightPressure = 0;
-        double pressure = 0;
-        for(int side: SIDES)
-            for(ParticleType type: typesWatched){
-                LinkedList<CollisionEvent> collisions = wallCollisions.get(side).get(type);
-                while(!collisions.isEmpty() && collisions.getFirst().time < simulationTime - trackedTime)
-                    collisions.removeFirst();
-                double totalMomentum = 0;
-                for(CollisionEvent event: collisions)
-                    totalMomentum += event.momentum;
-//                double pressure = totalMomentum / trackedTime;
-//                if(side == LEFT)
-//                    leftPressure += pressure;
-//                else
-//                    rightPressure += pressure;
-                pressure += totalMomentum / trackedTime;
-            }
-        //return Units.convert(baseUnit, unit, (leftPressure + rightPressure) / 2);
-        return Units.convert(baseUnit, unit, 0.5 * pressure);
+        return Units.convert(baseUnit, unit, pressure(recent));
+    }
+    
+    public double getCumulativeAverage(PressureUnit unit){
+        return Units.convert(baseUnit, unit, pressure(cumulative));
+    }
+    
+    public double getStandardError(PressureUnit unit){
+        return Units.convert(baseUnit, unit, errorAnalysis.getStandardError());
+    }
+    
+    public double getCorrelationTime(){
+        return errorAnalysis.getCorrelationTime();
+    }
+    
+    public boolean hasConvergedErrorEstimate(){
+        return errorAnalysis.isConverged();
+    }
+    
+    private static double pressure(AveragingTotals totals){
+        double time = totals.get(TIME);
+        if(time == 0.0)
+            return 0.0;
+        //Both walls' impulses are summed, so halve them for the pressure on one wall
+        return 0.5 * totals.get(IMPULSE) / time;
+    }
+    
+    /** Clears the cumulative pressure */
+    public void clear(){
+        cumulative.clear();
+        errorAnalysis.clear();
+        sampleImpulse = 0.0;
     }
     
     public void reset(){
-        for(int side: SIDES)
-            for(ParticleType type: typesWatched)
-                wallCollisions.get(side).get(type).clear();
-        simulationTime = 0;
-        trackedTime = 0;
+        recent.clear();
+        clear();
     }
 }
@@ -18,19 +18,29 @@
 
 package edu.byu.chem.boltzmann.model.statistics.utils;
 
+import edu.byu.chem.boltzmann.model.statistics.AveragingMode;
 import edu.byu.chem.boltzmann.utils.Units;
 import edu.byu.chem.boltzmann.utils.Units.Unit;
 
 /**
+ * Weighted average and width of a value. By default everything added since the
+ * last clear() counts; setAveraging() makes older values count less, in which
+ * case the owner must move the tracker forward with advanceTo().
+ *
+ * Each advanceTo() also closes a sample of the values added since the last
+ * one, and the samples give the standard error of the average by blocking.
  *
  * @author Derek Manwaring
  * 21 May 2012
  */
 public class WeightedValueTracker<UnitType extends Unit<UnitType>> {
 
-    private double totalWeightedValueSquares = 0;
-    private double totalWeightedValues = 0;
-    private double totalWeight = 0;
+    private static final int VALUES = 0, SQUARES = 1, WEIGHT = 2;
+
+    private final AveragingTotals totals = new AveragingTotals(3);
+    private final BlockingAnalysis errorAnalysis = new BlockingAnalysis();
+    private double sampleValues = 0.0, sampleWeight = 0.0;
+    private double sampleStart = Double.NaN;
     
     private final UnitType baseUnit;
     boolean trackingRMSVelocity;
@@ -42,9 +52,50 @@ public class WeightedValueTracker<UnitType extends Unit<UnitType>> {
     
     public void addWeightedValue(double value, /*UnitType valueUnit,*/ double weight) {
         //value = Units.convert(valueUnit, baseUnit, value);
-        totalWeightedValueSquares += value * value * weight;
-        totalWeightedValues += value * weight;
-        totalWeight += weight;
+        totals.add(SQUARES, value * value * weight);
+        totals.add(VALUES, value * weight);
+        totals.add(WEIGHT, weight);
+        sampleValues += (trackingRMSVelocity ? value : 1.0) * value * weight;
+        sampleWeight += weight;
+    }
+
+    /** See AveragingTotals.setAveraging */
+    public void setAveraging(AveragingMode mode, double halfLife) {
+        totals.setAveraging(mode, halfLife);
+    }
+
+    /**
+     * Lets older values decay up to the given simulation time (s) and ends the
+     * current error sample. A sample with no values is carried on into the next.
+     */
+    public void advanceTo(double time) {
+        totals.advanceTo(time);
+        if (Double.isNaN(sampleStart) || time < sampleStart) {
+            sampleStart = time;
+        } else if (sampleWeight > 0.0 && time > sampleStart) {
+            errorAnalysis.addSample(sampleValues / sampleWeight, time - sampleStart);
+            sampleValues = 0.0;
+            sampleWeight = 0.0;
+            sampleStart = time;
+        }
+    }
+
+    /** Standard error of getAverage(), from the samples ended by advanceTo() */
+    public double getStandardError(UnitType unit) {
+        double error = errorAnalysis.getStandardError();
+        if (trackingRMSVelocity) {
+            // Samples are mean squares; carry their error through the square root
+            error /= 2.0 * Math.sqrt(errorAnalysis.getMean());
+        }
+        return Units.convert(baseUnit, unit, error);
+    }
+
+    public double getCorrelationTime() {
+        return errorAnalysis.getCorrelationTime();
+    }
+
+    public boolean hasConvergedErrorEstimate() {
+        return errorAnalysis.isConverged();
     }
 
     public double getWidth(UnitType unit) {
@@ -57,20 +108,23 @@ public class WeightedValueTracker<UnitType extends Unit<UnitType>> {
     }
     
     private double getRawAverage() {
+        double totalWeight = totals.get(WEIGHT);
         if (totalWeight == 0.0)
             return 0.0;
-        return totalWeightedValues / totalWeight;
+        return totals.get(VALUES) / totalWeight;
     }
     
     private double getRawRMS() {
+        double totalWeight = totals.get(WEIGHT);
         if (totalWeight == 0.0)
             return 0.0;
-        return totalWeightedValueSquares / totalWeight;
+        return totals.get(SQUARES) / totalWeight;
     }
     
     public void clear() {
-        totalWeightedValueSquares = 0.0;
-        totalWeightedValues = 0.0;
-        totalWeight = 0.0;
+        totals.clear();
+        errorAnalysis.clear();
+        sampleValues = 0.0;
+        sampleWeight = 0.0;
     }
 }
@@ -389,6 +389,140 @@ public class Units {
         }
     }
 
+    public enum Power implements Unit<Power> {
+        WATT("W", 1.0), //Base unit
+        NANOWATT("nW", 1.0E-9),
+        PICOWATT("pW", 1.0E-12);
+
+        public final String unitSymbol;
+        private final double wattEquivalent;
+
+        Power(String symbol, double inWatts) {
+            this.unitSymbol = symbol;
+            this.wattEquivalent = inWatts;
+        }
+
+        public String getSymbol() {
+            return unitSymbol;
+        }
+
+        public Power getBaseUnit() {
+            return WATT;
+        }
+
+        public double getBaseUnitEquivalent() {
+            return wattEquivalent;
+        }
+    }
+
+    public enum Diffusivity implements Unit<Diffusivity> {
+        METER2_PER_SECOND("m^2/s", 1.0), //Base unit
+        CENTIMETER2_PER_SECOND("cm^2/s", 1.0E-4),
+        NANOMETER2_PER_PICOSECOND("nm^2/ps", 1.0E-6);
+
+        public final String unitSymbol;
+        private final double meter2PerSecondEquivalent;
+
+        Diffusivity(String symbol, double inMeter2PerSecond) {
+            this.unitSymbol = symbol;
+            this.meter2PerSecondEquivalent = inMeter2PerSecond;
+        }
+
+        public String getSymbol() {
+            return unitSymbol;
+        }
+
+        public Diffusivity getBaseUnit() {
+            return METER2_PER_SECOND;
+        }
+
+        public double getBaseUnitEquivalent() {
+            return meter2PerSecondEquivalent;
+        }
+    }
+
+    public enum Viscosity implements Unit<Viscosity> {
+        NEWTON_SECOND_PER_METER("N s/m", 1.0, 2), //2D Base unit
+        PICONEWTON_SECOND_PER_METER("pN s/m", 1.0E-12, 2),
+        
+        PASCAL_SECOND("Pa s", 1.0, 3), //3D Base unit
+        MICROPASCAL_SECOND("µPa s", 1.0E-6, 3);
+
+        public final String unitSymbol;
+        private final double baseUnitEquivalent;
+        private final int dimension;
+
+        Viscosity(String symbol, double inBaseUnit, int dimension) {
+            this.unitSymbol = symbol;
+            this.baseUnitEquivalent = inBaseUnit;
+            this.dimension = dimension;
+        }
+
+        public String getSymbol() {
+            return unitSymbol;
+        }
+
+        public Viscosity getBaseUnit() {
+            return getBaseUnit(dimension);
+        }
+        
+        public static Viscosity getBaseUnit(int viscosityDimension) {
+            switch(viscosityDimension){
+                case 2:
+                    return NEWTON_SECOND_PER_METER;
+                case 3:
+                    return PASCAL_SECOND;
+                default:
+                    throw new RuntimeException("Invalid viscosity dimension.");
+            }
+        }
+
+        public double getBaseUnitEquivalent() {
+            return baseUnitEquivalent;
+        }
+    }
+
+    public enum ThermalConductivity implements Unit<ThermalConductivity> {
+        WATT_PER_KELVIN("W/K", 1.0, 2), //2D Base unit
+        PICOWATT_PER_KELVIN("pW/K", 1.0E-12, 2),
+        
+        WATT_PER_METER_KELVIN("W/(m K)", 1.0, 3), //3D Base unit
+        MILLIWATT_PER_METER_KELVIN("mW/(m K)", 1.0E-3, 3);
+
+        public final String unitSymbol;
+        private final double baseUnitEquivalent;
+        private final int dimension;
+
+        ThermalConductivity(String symbol, double inBaseUnit, int dimension) {
+            this.unitSymbol = symbol;
+            this.baseUnitEquivalent = inBaseUnit;
+            this.dimension = dimension;
+        }
+
+        public String getSymbol() {
+            return unitSymbol;
+        }
+
+        public ThermalConductivity getBaseUnit() {
+            return getBaseUnit(dimension);
+        }
+        
+        public static ThermalConductivity getBaseUnit(int conductivityDimension) {
+            switch(conductivityDimension){
+                case 2:
+                    return WATT_PER_KELVIN;
+                case 3:
+                    return WATT_PER_METER_KELVIN;
+                default:
+                    throw new RuntimeException("Invalid thermal conductivity dimension.");
+            }
+        }
+
+        public double getBaseUnitEquivalent() {
+            return baseUnitEquivalent;
+        }
+    }
+
     public interface Unit<UnitType extends Unit<UnitType>> {
         public String getSymbol();
         public UnitType getBaseUnit();
@@ -447,7 +581,8 @@ public class Units {
         //List of all the types of units defined by the enums above
         List<Class> unitEnums = Arrays.asList(new Class[] { Mass.class, Time.class,
             Length.class, Velocity.class, Energy.class, Temperature.class, Momentum.class,
-            PressureUnit.class, Frequency.class
+            PressureUnit.class, Frequency.class, Power.class, Diffusivity.class, Viscosity.class,
+            ThermalConductivity.class
         });
 
         //Loop through each type of unit
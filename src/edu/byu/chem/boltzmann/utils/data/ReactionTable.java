@@ -0,0 +1,237 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.utils.data;
+
+import edu.byu.chem.boltzmann.utils.Units;
+import edu.byu.chem.boltzmann.utils.Units.Energy;
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reactions that can happen when two particles collide, looked up by small
+ * integer species ids instead of particle types and colors.
+ *
+ * A species id is the index of a particle type in the simulation's list of
+ * particle types. A reaction channel turns an ordered pair of reactant species
+ * into a pair of product species, the first reactant becoming the first
+ * product. A channel between two different species also applies with the
+ * particles the other way round, so A + B -> C + D is found for a B colliding
+ * with an A as B + A -> D + C. Channels are stored in flat arrays and indexed
+ * by an N x N table of species pairs, so finding the reaction for a collision
+ * is a few array reads. When several channels apply to a pair, the first one
+ * (in the order the channels were given) whose activation energy is exceeded
+ * is used.
+ *
+ * The simulation settings describe reactions with ReactionRelationships, which
+ * only have same-species channels: each relationship between type1 and type2
+ * gives type1 + type1 -> type2 + type2 (forward) and type2 + type2 -> type1 +
+ * type1 (reverse), and a suppressed direction gives no channel. Other channels
+ * can be given to the table directly as Channels.
+ *
+ * Energies are kept in amu·m^2/s^2, the units collisions are computed in.
+ */
+public class ReactionTable {
+
+    public static final int NO_REACTION = -1;
+
+    /** Species id whose count the deltaBlue of a reaction refers to */
+    public static final int BLUE_SPECIES = 1;
+
+    /** One reaction, reactant1 + reactant2 -> product1 + product2 */
+    public static class Channel {
+        public final int reactant1;
+        public final int reactant2;
+        public final int product1;
+        public final int product2;
+        /** Kinetic energy of relative motion needed for the reaction, in kJ/mol */
+        public final double activationEnergy;
+        /** Energy the reaction takes from relative motion, in kJ/mol */
+        public final double energyChange;
+
+        public Channel(int reactant1, int reactant2, int product1, int product2,
+                double activationEnergy, double energyChange) {
+            this.reactant1 = reactant1;
+            this.reactant2 = reactant2;
+            this.product1 = product1;
+            this.product2 = product2;
+            this.activationEnergy = activationEnergy;
+            this.energyChange = energyChange;
+        }
+    }
+
+    private final int numberOfSpecies;
+    private final Color[] speciesColors;
+
+    /** First channel of each species pair, pairs indexed by species1 * N + species2 */
+    private final int[] firstChannel;
+    private final int[] channelCount;
+
+    private final double[] activationEnergy;
+    private final double[] energyChange;
+    private final int[] product1;
+    private final int[] product2;
+    private final int[] deltaBlue;
+
+    public ReactionTable(List<ParticleType> particleTypes, List<ReactionRelationship> relationships) {
+        this(particleTypes, channelsOf(particleTypes, relationships));
+    }
+
+    public ReactionTable(List<ParticleType> particleTypes, Channel[] channels) {
+        numberOfSpecies = particleTypes.size();
+        speciesColors = new Color[numberOfSpecies];
+        for (int species = 0; species < numberOfSpecies; species++) {
+            speciesColors[species] = particleTypes.get(species).defaultColor;
+        }
+
+        int numberOfPairs = numberOfSpecies * numberOfSpecies;
+        firstChannel = new int[numberOfPairs];
+        channelCount = new int[numberOfPairs];
+
+        // A channel between different species is also stored the other way round
+        Channel[] ordered = new Channel[2 * channels.length];
+        int entries = 0;
+        for (Channel channel : channels) {
+            checkSpecies(channel.reactant1, channel.reactant2, channel.product1, channel.product2);
+            ordered[entries++] = channel;
+            if (channel.reactant1 != channel.reactant2) {
+                ordered[entries++] = new Channel(channel.reactant2, channel.reactant1,
+                        channel.product2, channel.product1, channel.activationEnergy, channel.energyChange);
+            }
+        }
+
+        // Group the channels by pair, keeping their order within each pair
+        for (int entry = 0; entry < entries; entry++) {
+            channelCount[pairOf(ordered[entry])]++;
+        }
+        int start = 0;
+        for (int pair = 0; pair < numberOfPairs; pair++) {
+            firstChannel[pair] = start;
+            start += channelCount[pair];
+        }
+
+        activationEnergy = new double[entries];
+        energyChange = new double[entries];
+        product1 = new int[entries];
+        product2 = new int[entries];
+        deltaBlue = new int[entries];
+
+        int[] filled = new int[numberOfPairs];
+        for (int entry = 0; entry < entries; entry++) {
+            Channel channel = ordered[entry];
+            int pair = pairOf(channel);
+            int index = firstChannel[pair] + filled[pair]++;
+
+            activationEnergy[index] = toCollisionUnits(channel.activationEnergy);
+            energyChange[index] = toCollisionUnits(channel.energyChange);
+            product1[index] = channel.product1;
+            product2[index] = channel.product2;
+            deltaBlue[index] = countBlue(channel.product1, channel.product2)
+                    - countBlue(channel.reactant1, channel.reactant2);
+        }
+    }
+
+    /** The same-species channels given by relationships, in order */
+    private static Channel[] channelsOf(List<ParticleType> particleTypes, List<ReactionRelationship> relationships) {
+        List<Channel> channels = new ArrayList<Channel>(2 * relationships.size());
+        for (ReactionRelationship relationship : relationships) {
+            int species1 = particleTypes.indexOf(relationship.particleType1);
+            int species2 = particleTypes.indexOf(relationship.particleType2);
+            if (species1 < 0 || species2 < 0) {
+                throw new IllegalArgumentException("Reaction refers to a particle type not in the simulation");
+            }
+            double forward = relationship.forwardActivationEnergy;
+            double reverse = relationship.reverseActivationEnergy;
+
+            if (!relationship.suppressForwardReaction) {
+                channels.add(new Channel(species1, species1, species2, species2, forward, forward - reverse));
+            }
+            if (!relationship.suppressReverseReaction) {
+                channels.add(new Channel(species2, species2, species1, species1, reverse, reverse - forward));
+            }
+        }
+        return channels.toArray(new Channel[channels.size()]);
+    }
+
+    private void checkSpecies(int... species) {
+        for (int id : species) {
+            if (id < 0 || id >= numberOfSpecies) {
+                throw new IllegalArgumentException("No species " + id + " among " + numberOfSpecies);
+            }
+        }
+    }
+
+    private int pairOf(Channel channel) {
+        return channel.reactant1 * numberOfSpecies + channel.reactant2;
+    }
+
+    private static double toCollisionUnits(double kilojoulesPerMole) {
+        return Units.convert(Energy.KILOJOULE_PER_MOLE, Energy.AMU_JOULE, kilojoulesPerMole);
+    }
+
+    private static int countBlue(int species1, int species2) {
+        return (species1 == BLUE_SPECIES ? 1 : 0) + (species2 == BLUE_SPECIES ? 1 : 0);
+    }
+
+    public int getNumberOfSpecies() {
+        return numberOfSpecies;
+    }
+
+    public Color getSpeciesColor(int species) {
+        return speciesColors[species];
+    }
+
+    /**
+     * Finds the reaction that happens when particles of the given species
+     * collide with the given kinetic energy of relative motion.
+     *
+     * @param relativeEnergy in amu·m^2/s^2
+     * @return the reaction channel, or NO_REACTION
+     */
+    public int findReaction(int species1, int species2, double relativeEnergy) {
+        int pair = species1 * numberOfSpecies + species2;
+        int channel = firstChannel[pair];
+        int end = channel + channelCount[pair];
+        for (; channel < end; channel++) {
+            if (relativeEnergy > activationEnergy[channel]) {
+                return channel;
+            }
+        }
+        return NO_REACTION;
+    }
+
+    /** Energy taken from relative motion by the reaction, in amu·m^2/s^2 */
+    public double getEnergyChange(int reaction) {
+        return energyChange[reaction];
+    }
+
+    /** Species the first particle of the collision becomes */
+    public int getProduct1(int reaction) {
+        return product1[reaction];
+    }
+
+    /** Species the second particle of the collision becomes */
+    public int getProduct2(int reaction) {
+        return product2[reaction];
+    }
+
+    /** Change in the number of BLUE_SPECIES particles caused by the reaction */
+    public int getDeltaBlue(int reaction) {
+        return deltaBlue[reaction];
+    }
+}
@@ -122,6 +122,8 @@ public class SimulationInfo {
     public final boolean reactionMode;
     //Dataset mapping pairs of particle types to their reaction relationship data
     private final Map<Set<ParticleType>, ReactionRelationship> reactionRelationships;
+    //Reactions looked up by species id when particles collide, null if not in reaction mode
+    private final ReactionTable reactionTable;
 
     public final boolean attractiveParticleInteractions;
     //The multiplier to find the radius of interaction for a pair of particles.
@@ -147,7 +149,7 @@ public class SimulationInfo {
 
     public double maxPistonLevel;
     
-    private double heatReservoirTemperature;
+    private volatile double heatReservoirTemperature;
 
     public SimulationInfo(){
         arenaInfo = new ArenaInfo();
@@ -165,6 +167,7 @@ public class SimulationInfo {
         this.particleVelocities = null;
         this.reactionMode = false;
         this.reactionRelationships = null;
+        this.reactionTable = null;
         this.attractiveParticleInteractions = false;
         this.radiusOfInteractionMultiplier = 0.0;
         this.energyWellDepths = null;
@@ -216,8 +219,6 @@ public class SimulationInfo {
             this.arenaYSize = -1.0;
             this.arenaZSize = -1.0;
         }
-        
-        this.arenaInfo = new ArenaInfo(this);
 
         //Setup the maps for positions and velocities after finding out how many
         //types of particles there are
@@ -269,15 +270,21 @@ public class SimulationInfo {
             this.reactionRelationships = 
                     new HashMap<Set<ParticleType>, ReactionRelationship>(numberOfReactionRelationships);
 
+            List<ReactionRelationship> relationshipsInOrder = 
+                    new ArrayList<ReactionRelationship>(numberOfReactionRelationships);
+
             //Loop through provided reaction relationships and map them to their involved particle types
             for (int relationshipIndex = 0; relationshipIndex < numberOfReactionRelationships; relationshipIndex++) {
                 ReactionRelationship reactionRelationship = infoSource.getReactionRelationship(relationshipIndex);
                 ParticleType[] involvedTypes = new ParticleType[] { reactionRelationship.particleType1, reactionRelationship.particleType2 };
                 Set<ParticleType> invovledTypesSet = new HashSet<ParticleType>(Arrays.asList(involvedTypes));
                 reactionRelationships.put(invovledTypesSet, reactionRelationship);
+                relationshipsInOrder.add(reactionRelationship);
             }
+            this.reactionTable = new ReactionTable(Arrays.asList(particleTypes), relationshipsInOrder);
         } else { //No reactions
             this.reactionRelationships = null;
+            this.reactionTable = null;
         }
 
         //Establish conditions for particle interactions (well collisions)
@@ -337,6 +344,9 @@ public class SimulationInfo {
         }
         totalMassOfParticles = totalMass;
         minParticleMass = minMass;
+
+        //Built last since the arena's boundaries depend on the settings above
+        this.arenaInfo = new ArenaInfo(this);
     }
 
     public boolean isPeriodic() {
@@ -389,6 +399,26 @@ public class SimulationInfo {
         return reactionRelationships.get(reactingTypes);
     }
 
+    /**
+     * @return Reactions by species id (the index of a type in getParticleTypes()),
+     * or null if reaction mode is off
+     */
+    public ReactionTable getReactionTable() {
+        return reactionTable;
+    }
+
+    /**
+     * @return The species id of the given particle type, its index in getParticleTypes()
+     */
+    public int getSpeciesId(ParticleType particleType) {
+        for (int species = 0; species < particleTypes.length; species++) {
+            if (particleTypes[species] == particleType) {
+                return species;
+            }
+        }
+        throw new IllegalArgumentException("Particle type " + particleType + " is not in this simulation");
+    }
+
     /**
      * @return Statistics that should be recorded for this type
      */
@@ -411,11 +441,15 @@ public class SimulationInfo {
         return allStatistics;
     }
 
-    public synchronized double getHeatReservoirTemperature() {
+    /**
+     * Read by the physics thread on every heat reservoir collision, so the
+     * temperature is published through a volatile field rather than a lock.
+     */
+    public double getHeatReservoirTemperature() {
         return heatReservoirTemperature;
     }
 
-    public synchronized void setHeatReservoirTemperature(double heatReservoirTemperature) {
+    public void setHeatReservoirTemperature(double heatReservoirTemperature) {
         this.heatReservoirTemperature = heatReservoirTemperature;
     }
 }
@@ -17,6 +17,10 @@
  */
 package edu.byu.chem.boltzmann.utils.data;
 
+import edu.byu.chem.boltzmann.model.statistics.AveragingMode;
+import java.util.HashSet;
+import java.util.Set;
+
 /**
  *
  * @author joshuao2
@@ -32,6 +36,14 @@ public class StatSettingsInfo {
     public double pressureAveragingTime = 60.0;
     public double rdfUpdateFreq = 0.5;
     public boolean exhausiveRDFCalcs = false;
+    
+    public AveragingMode averagingMode = AveragingMode.CUMULATIVE;
+    public double averagingHalfLife = 20.0; //in collision lifetimes
+    public boolean detectEquilibration = false; //forget when equilibrated instead of after forgetTime
+    
+    //names of the StatisticProviders whose statistics Physics makes; none unless asked for,
+    //as with HeadlessRunner's -statistics option
+    public Set<String> providedStatistics = new HashSet<String>();
 
     public StatSettingsInfo(){
     }
@@ -46,4 +58,13 @@ public class StatSettingsInfo {
         rdfUpdateFreq = rdfFreq;
         exhausiveRDFCalcs = exhausiveRDF;
     }
+    
+    public StatSettingsInfo(double time, boolean corrections, boolean realGas,
+            double avgTime, double rdfFreq, boolean exhausiveRDF,
+            AveragingMode mode, double halfLife, boolean detectEquilibrium){
+        this(time, corrections, realGas, avgTime, rdfFreq, exhausiveRDF);
+        averagingMode = mode;
+        averagingHalfLife = halfLife;
+        detectEquilibration = detectEquilibrium;
+    }
 }
@@ -18,7 +18,10 @@
 package edu.byu.chem.boltzmann.view.maingui;
 
 import edu.byu.chem.boltzmann.controller.ErrorHandler;
+import edu.byu.chem.boltzmann.model.io.EventLog;
 import edu.byu.chem.boltzmann.model.physics.FrameInfo;
+import edu.byu.chem.boltzmann.model.physics.Thermostat;
+import edu.byu.chem.boltzmann.model.statistics.StatisticsSnapshot;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithDistribution;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticID;
@@ -28,6 +31,7 @@ import edu.byu.chem.boltzmann.utils.data.StatSettingsInfo;
 import edu.byu.chem.boltzmann.view.maingui.components.PlayPauseButton;
 import edu.byu.chem.boltzmann.view.maingui.components.speedspinner.SpeedSpinner;
 import java.awt.Desktop;
+import java.io.File;
 import java.io.IOException;
 import java.util.Set;
 import javax.swing.event.ChangeEvent;
@@ -89,8 +93,70 @@ public class MainGuiController {
         rootController.showReservoirControls();
     }
 
-    public void recordSimulation() {
-        new UnsupportedOperationException("Not yet implemented").printStackTrace(System.err);    
+    /**
+     * Records the simulation's frames to file.
+     * @param recordingInterval simulation time in seconds between recorded frames
+     * @param afterRestart wait for the next restart before recording
+     */
+    public void recordSimulation(File file, double recordingInterval, boolean afterRestart) {
+        if (afterRestart) {
+            rootController.startRecordingAfterRestart(file, recordingInterval);
+        } else {
+            rootController.startRecording(file, recordingInterval);
+        }
+    }
+
+    public void stopRecording() {
+        new Thread("Stop Recording") {
+            @Override
+            public void run() {
+                rootController.stopRecording();
+            }
+        }.start();
+    }
+
+    /**
+     * Exports particle states to file as extended XYZ or CSV, depending on
+     * the file's suffix.
+     */
+    public void exportFrames(File file, int frameStride) {
+        rootController.startExport(file, frameStride);
+    }
+
+    public void stopExporting() {
+        new Thread("Stop Exporting") {
+            @Override
+            public void run() {
+                rootController.stopExporting();
+            }
+        }.start();
+    }
+
+    /**
+     * Logs every collision to file, handling a backlog according to policy.
+     */
+    public void logEvents(File file, EventLog.OverflowPolicy policy) {
+        rootController.startEventLog(file, policy);
+    }
+
+    public void stopLoggingEvents() {
+        new Thread("Stop Event Log") {
+            @Override
+            public void run() {
+                rootController.stopEventLog();
+            }
+        }.start();
+    }
+
+    /**
+     * Shows the frames recorded in file instead of running the simulation.
+     */
+    public void replaySimulation(File file) {
+        rootController.startReplay(file);
+    }
+
+    public void stopReplay() {
+        rootController.stopReplay();
     }
 
     public void setSimulationInfo(SimulationInfo simInfo) {
@@ -118,6 +184,11 @@ public class MainGuiController {
         return rootController.getStatistic(types, statisticID);
     }
 
+    /** Newest copy of the statistics' values, null if none has been taken yet */
+    public StatisticsSnapshot getStatisticsSnapshot() {
+        return rootController.getStatisticsSnapshot();
+    }
+
     public void showPlotSettings() {
         rootController.showPlotSettings();
     }
@@ -147,6 +218,27 @@ public class MainGuiController {
         rootController.advanceOneFrame();
     }
 
+    public void setTurboMode(boolean turbo) {
+        rootController.setTurboMode(turbo);
+    }
+
+    /**
+     * Holds the gas at its initial temperature with the given thermostat (a
+     * ThermostatFactory mode), without using the piston.
+     */
+    public void startThermostat(int thermostatMode) {
+        rootController.setThermostatSettings(thermostatMode, Thermostat.DEFAULT_DAMP_FACTOR);
+        rootController.startThermostat(rootController.simulationInfo.initialTemperature);
+    }
+
+    public void stopThermostat() {
+        rootController.stopThermostat();
+    }
+
+    public void removeDrift() {
+        rootController.removeDrift();
+    }
+
     public void displayStatistics() {        
         view.displayStatistics();
     }
@@ -18,20 +18,17 @@
 package edu.byu.chem.boltzmann.view.maingui.components;
 
 import edu.byu.chem.boltzmann.model.physics.FrameInfo;
-import edu.byu.chem.boltzmann.model.physics.PartState;
-import edu.byu.chem.boltzmann.model.physics.Particle;
-import edu.byu.chem.boltzmann.model.physics.Wall;
 import edu.byu.chem.boltzmann.utils.Units;
 import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
 import edu.byu.chem.boltzmann.utils.data.SimulationInfo.ArenaType;
 import edu.byu.chem.boltzmann.view.maingui.MainGuiView;
+import edu.byu.chem.boltzmann.view.render.SphereRenderList;
 import java.awt.*;
 import java.awt.event.*;
 import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
 import java.text.DecimalFormat;
 import java.util.HashMap;
-import java.util.Map;
 import javax.swing.*;
 import javax.swing.border.BevelBorder;
 import org.lwjgl.BufferUtils;
@@ -56,12 +53,14 @@ public class GLPanel extends JPanel {
             COLOR_BY_KE
         }
     
-        public interface ParticleColorer {
-            public Color getParticleColor(PartState state);
+        public interface ParticleColorer extends SphereRenderList.ParticleColorer {
         }
         
         // Offers optional coloring by speed or other statistic. Null uses default colors.
         private ParticleColorer colorer = null;
+
+        // Spheres for the current frame, rebuilt each time it is drawn
+        private final SphereRenderList renderList = new SphereRenderList();
     
         private SimulationInfo simulationInfo = new SimulationInfo();
 	//For serialization (probably never used).
@@ -432,9 +431,10 @@ public class GLPanel extends JPanel {
 	 * @param y  Y position, in simulation units
 	 * @param z  Z position, in simulation units
 	 * @param rad  Radius, in simulation units
-	 * @param prec
+	 * @param slices  Divisions around the sphere, from the render list's level of detail
+	 * @param stacks  Divisions from pole to pole
 	 */
-	private void drawSphere (double x, double y, double z, double rad, Point prec)
+	private void drawSphere (double x, double y, double z, double rad, int slices, int stacks)
 	{		
 		if (traceMode) {
                     glDisable(GL_LIGHTING);
@@ -446,14 +446,14 @@ public class GLPanel extends JPanel {
 
                     glPushMatrix();
                         glTranslated(x, y, z);
-                        sphere.draw((float)rad, prec.x, prec.y);
+                        sphere.draw((float)rad, slices, stacks);
 
                         //Draw an inside-out sphere in 3D periodic mode so you can
                         //see inside the spheres that cross the wall boundary.
                         if(simulationInfo.dimension == 3 && (simulationInfo.arenaType == ArenaType.PERIODIC_BOUNDARIES))
                         {
                                 sphere.setOrientation(GLU.GLU_INSIDE);
-                                sphere.draw((float)rad, prec.x, prec.y);
+                                sphere.draw((float)rad, slices, stacks);
                                 sphere.setOrientation(GLU.GLU_OUTSIDE);
                         }
                     glPopMatrix();
@@ -463,62 +463,46 @@ public class GLPanel extends JPanel {
 	//Draws all the spheres from the current SimulationFrame
 	private void drawSpheres ()
 	{
-		// arena size (for drawing images)
-		double w = simulationInfo.arenaXSize, h = simulationInfo.arenaYSize, d = simulationInfo.arenaZSize;
-		//double w2 = w / 2;
                 if (simulationInfo.dimension == 1) {
                     glTranslated(0.0, canvas.getHeight() / 2.0 * (simulationInfo.arenaXSize / canvas.getWidth()), 0.0);
                 }
 		
 		if (currentFrame != null) {
-			// iterate through the particles
-                        Map<Particle, PartState> particleStates = currentFrame.getParticleStates();
-
-			for (Particle particle: currentFrame.getParticles()) {
-                            PartState particleState = particleStates.get(particle);
-
-                            // draw the sphere
-                            //Point prec=getPrecision(ps.rad);
-                            
-                            // set the color                            
-                            Color particleColor = particleState.color;
-                            if (colorer != null) {
-                                particleColor = colorer.getParticleColor(particleState);
-                            }
-                            colorComponents = particleColor.getComponents(null);
-                            glColor3f(colorComponents[0], colorComponents[1], colorComponents[2]);
-                            Point prec = getPrecision (particleState.rad);
-
-                            drawSphere (particleState.x, particleState.y, particleState.z, particle.radius, prec);
-
-                            // if periodic boundaries then draw "shadow" particle(s)
-                                    if ((simulationInfo.arenaType == ArenaType.PERIODIC_BOUNDARIES) && particleState.bFlag > 0) {
-                                        if ((particleState.bFlag & Wall.LEFT) == Wall.LEFT) {
-                                            drawSphere (particleState.x + w, particleState.y, particleState.z, particleState.rad, prec);
-                                        }
-                                        if ((particleState.bFlag & Wall.BOTTOM) == Wall.BOTTOM) {
-                                            drawSphere (particleState.x, particleState.y + h, particleState.z, particleState.rad, prec);
-                                        }
-                                        if ((particleState.bFlag & Wall.BACK) == Wall.BACK) {
-                                            drawSphere (particleState.x, particleState.y, particleState.z + d, particleState.rad, prec);
-                                        }
-                                        if ((particleState.bFlag & Wall.LEFT) == Wall.LEFT && (particleState.bFlag & Wall.BOTTOM) == Wall.BOTTOM) {
-                                            drawSphere (particleState.x + w, particleState.y + h, particleState.z, particleState.rad, prec);
-                                        }
-                                        if ((particleState.bFlag & Wall.BACK) == Wall.BACK && (particleState.bFlag & Wall.BOTTOM) == Wall.BOTTOM) {
-                                            drawSphere (particleState.x, particleState.y + h, particleState.z + d, particleState.rad, prec);
-                                        }
-                                        if ((particleState.bFlag & Wall.LEFT) == Wall.LEFT && (particleState.bFlag & Wall.BACK) == Wall.BACK) {
-                                            drawSphere (particleState.x + w, particleState.y, particleState.z + d, particleState.rad, prec);
-                                        }
-                                        if ((particleState.bFlag & Wall.LEFT) == Wall.LEFT && (particleState.bFlag & Wall.BACK) == Wall.BACK && (particleState.bFlag & Wall.BOTTOM) == Wall.BOTTOM) {
-                                            drawSphere (particleState.x + w, particleState.y + h, particleState.z + d, particleState.rad, prec);
-                                        }
-                                    }
-                            }
-			
+                        setUpRenderList();
+                        renderList.build(currentFrame, simulationInfo, colorer);
+
+			for (int i = 0; i < renderList.size(); i++) {
+                            glColor3f(renderList.getRed(i), renderList.getGreen(i), renderList.getBlue(i));
+                            drawSphere(renderList.getX(i), renderList.getY(i), renderList.getZ(i),
+                                    renderList.getRadius(i), renderList.getSlices(i), renderList.getStacks(i));
+                        }
 		}
 	}
+
+        /**
+         * Tells the render list what can be seen and how large spheres appear:
+         * the arena in 1D and 2D, and the arena out to the clipping planes in 3D.
+         */
+        private void setUpRenderList() {
+		double w = simulationInfo.arenaXSize, h = simulationInfo.arenaYSize, d = simulationInfo.arenaZSize;
+                double inf = Double.POSITIVE_INFINITY;
+                switch (simulationInfo.dimension) {
+                    case 1:
+                        renderList.setVisibleBounds(0.0, w, -inf, inf, -inf, inf);
+                        renderList.setPixelsPerUnit(canvas.getWidth() / w);
+                        break;
+                    case 2:
+                        renderList.setVisibleBounds(0.0, w, 0.0, h, -inf, inf);
+                        renderList.setPixelsPerUnit(canvas.getWidth() / w);
+                        break;
+                    default:
+                        renderList.setVisibleBounds(-clipDistance, w + clipDistance,
+                                -clipDistance, h + clipDistance, -clipDistance, d + clipDistance);
+                        // Scale at the middle of the box for the 30 degree perspective set in reshapeThis
+                        double distance = camz - d / 2.0;
+                        renderList.setPixelsPerUnit(canvas.getHeight() / (2.0 * Math.tan(Math.toRadians(15.0)) * distance));
+                }
+        }
 	
     private void drawPiston () {
         if (currentFrame != null) {
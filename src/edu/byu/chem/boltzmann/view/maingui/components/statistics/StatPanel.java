@@ -19,6 +19,8 @@ package edu.byu.chem.boltzmann.view.maingui.components.statistics;
 
 import edu.byu.chem.boltzmann.controller.ErrorHandler;
 import edu.byu.chem.boltzmann.model.statistics.StatUtils;
+import edu.byu.chem.boltzmann.model.statistics.StatisticSnapshot;
+import edu.byu.chem.boltzmann.model.statistics.StatisticsSnapshot;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.Range;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.SingleAverageStatistic;
@@ -41,7 +43,11 @@ import java.util.Set;
 // have done this in the Lennard-Jones simulator and plan on one day porting that
 // to Java to improve the performance.
 
-/** Class StatPanel - Shows the statistics display.  This uses standard Java 2D rendering. */
+/**
+ * Class StatPanel - Shows the statistics display.  This uses standard Java 2D rendering.
+ * Plots are drawn from StatisticSnapshots, so painting never reads a statistic
+ * while physics is updating it.
+ */
 public class StatPanel extends JPanel {
 	
     /** Left and right margin (in pixels) */
@@ -54,7 +60,7 @@ public class StatPanel extends JPanel {
     public static final int bottomBuffer = 15;
 
     private PlotType currentType = PlotType.HISTOGRAM;
-    private Statistic currentStatistic = null;
+    private StatisticSnapshot currentStatistic = null;
     private boolean cumulativeAverage = false; //Plotting instantaneous / cumulative data
     
     //used by redrawPredictionCurve() and reused to scale lines in drawHistogramAvgAndWidthLines()
@@ -78,18 +84,18 @@ public class StatPanel extends JPanel {
         if (currentStatistic != null && currentType != null) {
             switch (currentType) {
                 case HISTORY:
-                    if (!(currentStatistic instanceof SingleAverageStatistic)) {
+                    if (!currentStatistic.hasAverage()) {
                         throw new IllegalArgumentException("History plots cannot be drawn for " + 
-                                currentStatistic.getClass());
+                                currentStatistic.getStatistic().getClass());
                     }
-                    drawHistory(g, (SingleAverageStatistic) currentStatistic);
+                    drawHistory(g, currentStatistic.getStatistic());
                     break;
                 case HISTOGRAM:
-                    if (!(currentStatistic instanceof StatisticWithDistribution)) {
+                    if (!currentStatistic.hasDistribution()) {
                         throw new IllegalArgumentException("Histogram plots cannot be drawn for " + 
-                                currentStatistic.getClass());
+                                currentStatistic.getStatistic().getClass());
                     }
-                    drawHistogram(g, (StatisticWithDistribution) currentStatistic);
+                    drawHistogram(g, currentStatistic);
                     break;
                 default:
                     throw new IllegalArgumentException("Plot type " + currentType + " is not supported");                    
@@ -100,7 +106,7 @@ public class StatPanel extends JPanel {
 
     BufferedImage currentPredictionLine = null;
 
-    public void setPlotInfo(Statistic statistic, PlotType plotType, boolean cumulativeAverage) {
+    public void setPlotInfo(StatisticSnapshot statistic, PlotType plotType, boolean cumulativeAverage) {
         currentStatistic = statistic;
         currentType = plotType;
         this.cumulativeAverage = cumulativeAverage;
@@ -109,7 +115,7 @@ public class StatPanel extends JPanel {
     private final Map<SingleAverageStatistic, History> historiesOfCurrentAverages = new HashMap<SingleAverageStatistic, History>();
     private final Map<SingleAverageStatistic, History> historiesOfCumulativeAverages = new HashMap<SingleAverageStatistic, History>();
     
-    private void drawHistory(Graphics g, SingleAverageStatistic statistic) {
+    private void drawHistory(Graphics g, Statistic statistic) {
         History history;
         if (cumulativeAverage)
             history = historiesOfCumulativeAverages.get(statistic);
@@ -119,13 +125,15 @@ public class StatPanel extends JPanel {
             history.drawHistory(g, this);
     }
 
-    @SuppressWarnings("unchecked")
-    public void updateHistories() {
+    /** Adds the averages in snapshot to the histories of the statistics they belong to */
+    public void updateHistories(StatisticsSnapshot snapshot) {
         for (SingleAverageStatistic statistic : historiesOfCurrentAverages.keySet()) {
-            historiesOfCurrentAverages.get(statistic).addPoint(
-                    statistic.getCurrentAverage(statistic.getDefaultDisplayUnit()));
-            historiesOfCumulativeAverages.get(statistic).addPoint(
-                    statistic.getCumulativeAverage(statistic.getDefaultDisplayUnit()));
+            StatisticSnapshot statisticSnapshot = snapshot.get(statistic);
+            if (statisticSnapshot == null) {
+                continue;
+            }
+            historiesOfCurrentAverages.get(statistic).addPoint(statisticSnapshot.getCurrentAverage());
+            historiesOfCumulativeAverages.get(statistic).addPoint(statisticSnapshot.getCumulativeAverage());
         }
     }
 
@@ -161,12 +169,10 @@ public class StatPanel extends JPanel {
         }
     }
 
-    private final Map<StatisticWithDistribution, BufferedImage> predictionCurves = new HashMap<StatisticWithDistribution, BufferedImage>();
+    private final Map<Statistic, BufferedImage> predictionCurves = new HashMap<Statistic, BufferedImage>();
     
-    @SuppressWarnings("unchecked")
-    private void drawHistogram(Graphics g, StatisticWithDistribution statisticWithDistribution) {
-        Unit statisticUnit = statisticWithDistribution.getDefaultDisplayUnit();        
-        Range distributionRange = statisticWithDistribution.getDistributionRange(statisticUnit);        
+    private void drawHistogram(Graphics g, StatisticSnapshot statisticWithDistribution) {
+        Range distributionRange = statisticWithDistribution.getDistributionRange();        
         Dimension size = getSize();
 
         HistogramBins bins;
@@ -181,10 +187,10 @@ public class StatPanel extends JPanel {
 
         overlayPredictionCurve(g, statisticWithDistribution);
         
-        drawHistogramAvgAndWidthLines(g, statisticWithDistribution, distributionRange, statisticUnit);
+        drawHistogramAvgAndWidthLines(g, statisticWithDistribution, distributionRange);
     }
 
-    private void redrawPredictionCurve(StatisticWithDistribution statisticWithDistribution) {
+    private void redrawPredictionCurve(StatisticSnapshot statisticWithDistribution) {
         int width = getSize().width - (2 * StatPanel.edge);
         int bottomY = getSize().height - StatPanel.bottomBuffer - StatPanel.edge;
         int height = bottomY - StatPanel.topEdge;
@@ -192,7 +198,7 @@ public class StatPanel extends JPanel {
         BufferedImage predictionCurve = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
         Graphics g = predictionCurve.createGraphics();
 
-        double[] unscaledPoints = statisticWithDistribution.getPredictionCurve(width);
+        double[] unscaledPoints = PlotUtils.resamplePoints(statisticWithDistribution.getPredictionCurve(), width);
         predCurveYValues = PlotUtils.scalePoints(unscaledPoints, height);
 
         PlotUtils.reversePoints(predCurveYValues, height);
@@ -205,17 +211,16 @@ public class StatPanel extends JPanel {
         g.setColor(Color.BLACK);
         g.drawPolyline(xValues, predCurveYValues, xValues.length);
         
-        predictionCurves.put(statisticWithDistribution, predictionCurve);
+        predictionCurves.put(statisticWithDistribution.getStatistic(), predictionCurve);
     }
 
-    @SuppressWarnings("unchecked")
-    private void drawHistogramAvgAndWidthLines(Graphics g, StatisticWithDistribution statisticWithDistribution, Range range, Unit defaultUnit) {
-        double predictedAverage = statisticWithDistribution.getPredictionForAverage(defaultUnit);
-        double actualAverage = cumulativeAverage ? statisticWithDistribution.getCumulativeAverage(defaultUnit)
-                    : statisticWithDistribution.getCurrentAverage(defaultUnit);
-        double predictedWidth = statisticWithDistribution.getDistributionWidthPrediction(defaultUnit);
-        double actualWidth = cumulativeAverage ? statisticWithDistribution.getCumulativeDistributionWidth(defaultUnit)
-                    : statisticWithDistribution.getCurrentDistributionWidth(defaultUnit);
+    private void drawHistogramAvgAndWidthLines(Graphics g, StatisticSnapshot statisticWithDistribution, Range range) {
+        double predictedAverage = statisticWithDistribution.getPredictionForAverage();
+        double actualAverage = cumulativeAverage ? statisticWithDistribution.getCumulativeAverage()
+                    : statisticWithDistribution.getCurrentAverage();
+        double predictedWidth = statisticWithDistribution.getDistributionWidthPrediction();
+        double actualWidth = cumulativeAverage ? statisticWithDistribution.getCumulativeDistributionWidth()
+                    : statisticWithDistribution.getCurrentDistributionWidth();
         
         double rangeToPixelScaleFactor = predCurveYValues.length / range.getDistanceFromMinToMax();
         int bottomY = getSize().height - StatPanel.bottomBuffer - StatPanel.edge;
@@ -277,7 +282,7 @@ public class StatPanel extends JPanel {
         }
     }
 
-    private void overlayPredictionCurve(Graphics g, StatisticWithDistribution statisticWithDistribution) {        
+    private void overlayPredictionCurve(Graphics g, StatisticSnapshot statisticWithDistribution) {        
         if (statisticWithDistribution.hasNewPredictionCurve()) {
             redrawPredictionCurve(statisticWithDistribution);
         }
@@ -285,7 +290,7 @@ public class StatPanel extends JPanel {
         int topY = StatPanel.topEdge;
         int leftX = StatPanel.edge;
 
-        g.drawImage(predictionCurves.get(statisticWithDistribution), leftX, topY, null);
+        g.drawImage(predictionCurves.get(statisticWithDistribution.getStatistic()), leftX, topY, null);
     }
 
     public void clearPlot() {
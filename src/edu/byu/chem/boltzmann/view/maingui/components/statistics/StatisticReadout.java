@@ -18,7 +18,7 @@
 
 package edu.byu.chem.boltzmann.view.maingui.components.statistics;
 
-import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
+import edu.byu.chem.boltzmann.model.statistics.StatisticSnapshot;
 
 /**
  *
@@ -27,6 +27,6 @@ import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
  */
 public interface StatisticReadout {
 
-    public void update(Statistic statistic, boolean cumulative, boolean width);
+    public void update(StatisticSnapshot statistic, boolean cumulative, boolean width);
     
 }
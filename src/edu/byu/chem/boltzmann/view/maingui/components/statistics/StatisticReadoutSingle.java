@@ -17,10 +17,9 @@
  */
 package edu.byu.chem.boltzmann.view.maingui.components.statistics;
 
-import edu.byu.chem.boltzmann.model.statistics.interfaces.Statistic;
+import edu.byu.chem.boltzmann.model.statistics.StatisticSnapshot;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.SingleAverageStatistic;
 import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticID;
-import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticWithDistribution;
 import edu.byu.chem.boltzmann.utils.Units.Unit;
 import edu.byu.chem.boltzmann.view.maingui.components.textfields.UnitReadout;
 import java.awt.Dimension;
@@ -110,6 +109,10 @@ public final class StatisticReadoutSingle<UnitType extends Unit<UnitType>> exten
         txtFldValue.setPredictionValue(prediction, unit);
     }
     
+    private void setStandardError(double error, UnitType unit, double correlationTime, boolean converged) {
+        txtFldValue.setStandardError(error, unit, correlationTime, converged);
+    }
+    
     private void setValueName(String valueName) {
         lblValueLabel.setText(valueName);
     }
@@ -121,30 +124,37 @@ public final class StatisticReadoutSingle<UnitType extends Unit<UnitType>> exten
 
     @Override
     @SuppressWarnings("unchecked")
-    public void update(Statistic statistic, boolean cumulative, boolean width) {
-        if (!(statistic instanceof SingleAverageStatistic))
+    public void update(StatisticSnapshot statistic, boolean cumulative, boolean width) {
+        if (!statistic.hasAverage())
             throw new RuntimeException("Cannot display information for statistics "
                     + "that are not single average statistics");
         
-        SingleAverageStatistic singleAverageStatistic = (SingleAverageStatistic) statistic;
+        UnitType snapshotUnit = (UnitType) statistic.getUnit();
         
         double value, prediction;
-        if(width && statistic instanceof StatisticWithDistribution){
+        if(width && statistic.hasDistribution()){
             if(cumulative)
-                value = ((StatisticWithDistribution) singleAverageStatistic).getCumulativeDistributionWidth(statisticUnit);
+                value = statistic.getCumulativeDistributionWidth();
             else
-                value = ((StatisticWithDistribution) singleAverageStatistic).getCurrentDistributionWidth(statisticUnit);
-            prediction = ((StatisticWithDistribution) singleAverageStatistic).getDistributionWidthPrediction(statisticUnit);
+                value = statistic.getCurrentDistributionWidth();
+            prediction = statistic.getDistributionWidthPrediction();
         }
         else{
             if(cumulative)
-                value = singleAverageStatistic.getCumulativeAverage(statisticUnit);
+                value = statistic.getCumulativeAverage();
             else
-                value = singleAverageStatistic.getCurrentAverage(statisticUnit);
-            prediction = singleAverageStatistic.getPredictionForAverage(statisticUnit);
+                value = statistic.getCurrentAverage();
+            prediction = statistic.getPredictionForAverage();
         }
         
-        setValue(value, statisticUnit);
-        setPrediction(prediction, statisticUnit);
+        setValue(value, snapshotUnit);
+        setPrediction(prediction, snapshotUnit);
+        
+        if (!width && cumulative && statistic.hasErrorEstimate()) {
+            setStandardError(statistic.getStandardError(), snapshotUnit,
+                    statistic.getCorrelationTime(), statistic.hasConvergedErrorEstimate());
+        } else {
+            setStandardError(Double.NaN, statisticUnit, Double.NaN, false);
+        }
     }
 }
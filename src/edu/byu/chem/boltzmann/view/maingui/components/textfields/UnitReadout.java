@@ -47,6 +47,10 @@ public class UnitReadout<UnitType extends Unit<UnitType>> extends JTextField {
     private UnitType displayUnit = null;
     private UnitType predictionDisplayUnit = null;
     
+    private double errorBaseUnitValue = Double.NaN;
+    private double correlationTime = Double.NaN;
+    private boolean errorConverged = false;
+    
     @SuppressWarnings("unchecked")
     public UnitReadout(double initialValue, UnitType initialValueUnits, Set<UnitType> unitsToUseForDisplay) {
         setEditable(false);
@@ -90,6 +94,28 @@ public class UnitReadout<UnitType extends Unit<UnitType>> extends JTextField {
         setToolTipTextWithCurrentDisplayUnit();
     }
     
+    /**
+     * Adds the standard error of the value to the tooltip. NaN removes it.
+     * @param correlationTime in seconds
+     * @param converged false if the error is still an underestimate
+     */
+    public final void setStandardError(double error, UnitType errorUnits, double correlationTime, boolean converged) {
+        double newBaseUnitValue = Units.convert(errorUnits, baseUnit, error);
+        
+        if (newBaseUnitValue == errorBaseUnitValue && correlationTime == this.correlationTime
+                && converged == errorConverged) {
+            return;
+        }
+        
+        errorBaseUnitValue = newBaseUnitValue;
+        this.correlationTime = correlationTime;
+        errorConverged = converged;
+        
+        if (predictionDisplayUnit != null) {
+            setToolTipTextWithCurrentDisplayUnit();
+        }
+    }
+    
     private void setTextWithCurrentDisplayUnit() {
         double displayUnitValue = Units.convert(baseUnit, displayUnit, baseUnitValue);
         
@@ -113,7 +139,21 @@ public class UnitReadout<UnitType extends Unit<UnitType>> extends JTextField {
         } else {
             formattedDisplayValue = DEFAULT_FORMAT.format(displayUnitValue);
         }
-        setToolTipText("Prediction: " + formattedDisplayValue + " " + predictionDisplayUnit.getSymbol());
+        String toolTip = "Prediction: " + formattedDisplayValue + " " + predictionDisplayUnit.getSymbol();
+        
+        if (!Double.isNaN(errorBaseUnitValue)) {
+            double displayUnitError = Units.convert(baseUnit, predictionDisplayUnit, errorBaseUnitValue);
+            toolTip += ", standard error: " + SCIENTIFIC_FORMAT.format(displayUnitError)
+                    + " " + predictionDisplayUnit.getSymbol();
+            if (!errorConverged) {
+                toolTip += " (still estimating)";
+            } else if (!Double.isNaN(correlationTime)) {
+                toolTip += ", correlation time: " + SCIENTIFIC_FORMAT.format(
+                        Units.convert(Units.Time.SECOND, Units.Time.PICOSECOND, correlationTime))
+                        + " " + Units.Time.PICOSECOND.getSymbol();
+            }
+        }
+        setToolTipText(toolTip);
     }
 
     /**
@@ -44,6 +44,10 @@ public class PistonController {
         rootController.movePiston(newPosition, moveMode, moveSpeed);
     }
 
+    public void setThermostatSettings(int thermostatMode, double dampFactor) {
+        rootController.setThermostatSettings(thermostatMode, dampFactor);
+    }
+
     public  void setPistonMoveEnabled(boolean enabled) {
         view.setPistonMoveEnabled(enabled);
     }
@@ -0,0 +1,632 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.view.render;
+
+import edu.byu.chem.boltzmann.model.physics.FrameInfo;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo.ArenaType;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Draws frames into images without OpenGL, so runs can be turned into movies
+ * on machines with no graphics card or display.
+ *
+ * The scene is the one GLPanel draws: particles as shaded spheres, with the
+ * "shadow" images of particles that overlap a periodic boundary (both take
+ * their spheres from a SphereRenderList), plus the
+ * piston or divider. 1D and 2D arenas are seen face on; 3D arenas are drawn
+ * with an orthographic projection from the given viewing angles, with the
+ * edges of the box on top.
+ *
+ * Walls, piston and divider are drawn with Java2D. The spheres are splatted
+ * straight into the image's pixels with a depth buffer; the image is split
+ * into bands of rows and the bands are filled in parallel, each thread only
+ * touching its own rows.
+ *
+ * A renderer keeps per-frame working arrays, so render() must only be called
+ * from one thread at a time.
+ */
+public class FrameRenderer {
+
+    /** Rows of pixels filled by one task */
+    private static final int BAND_HEIGHT = 32;
+
+    /** Height of the image for 1D arenas as a fraction of its width */
+    private static final double STRIP_HEIGHT_FRACTION = 0.125;
+
+    /** Fraction of a 3D image left empty around the projected box */
+    private static final double MARGIN_3D = 0.05;
+
+    private static final double AMBIENT = 0.3;
+    private static final double DIFFUSE = 0.7;
+    private static final double SPECULAR = 0.35;
+    private static final int SHININESS = 24;
+
+    // Light from the upper left, in front of the screen (screen y points down)
+    private static final double LIGHT_X = -0.4;
+    private static final double LIGHT_Y = -0.5;
+    private static final double LIGHT_Z = 0.77;
+
+    private final SimulationInfo simulationInfo;
+    private final int width;
+    private final int height;
+    private final ExecutorService executor;
+    private final int numBands;
+
+    private Color background = Color.BLACK;
+    private Color dividerColor = Color.WHITE;
+    private Color pistonColor = Color.GRAY;
+    private Color edgeColor = Color.GRAY;
+    private boolean lighting = true;
+
+    private double angleX = 0.0;
+    private double angleY = 0.0;
+
+    // Projection from arena coordinates to pixels, worked out for each frame
+    private double scale;
+    private double xOffset;
+    private double yOffset;
+    private double cosX, sinX, cosY, sinY;
+
+    private final SphereRenderList sphereList = new SphereRenderList();
+    private SphereRenderList.ParticleColorer colorer = null;
+
+    // Spheres to draw this frame in pixels, including periodic images
+    private int numSplats = 0;
+    private double[] splatX = new double[0];
+    private double[] splatY = new double[0];
+    private double[] splatRadius = new double[0];
+    private double[] splatDepth = new double[0];
+    private int[] splatColor = new int[0];
+
+    // Splats overlapping each band, as ranges of bandSplats
+    private final int[] bandStart;
+    private int[] bandSplats = new int[0];
+
+    private final float[][] bandDepths;
+    private final double[] projected = new double[3];
+
+    /**
+     * @param width width of the images in pixels; the height follows from the
+     * shape of the arena
+     * @param threads number of threads used to fill the image
+     */
+    public FrameRenderer(SimulationInfo simulationInfo, int width, int threads) {
+        if (width < 1 || threads < 1) {
+            throw new IllegalArgumentException("Image width and number of threads must be at least 1");
+        }
+        this.simulationInfo = simulationInfo;
+        this.width = width;
+        switch (simulationInfo.dimension) {
+            case 1:
+                height = Math.max(1, (int) Math.round(width * STRIP_HEIGHT_FRACTION));
+                break;
+            default:
+                height = Math.max(1, (int) Math.round(width * simulationInfo.arenaYSize / simulationInfo.arenaXSize));
+        }
+
+        numBands = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+        bandStart = new int[numBands + 1];
+        bandDepths = new float[numBands][width * BAND_HEIGHT];
+
+        executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            public Thread newThread(Runnable task) {
+                Thread thread = new Thread(task, "Frame Renderer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /** Renderer using one thread per processor */
+    public FrameRenderer(SimulationInfo simulationInfo, int width) {
+        this(simulationInfo, width, Runtime.getRuntime().availableProcessors());
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** Creates an image of the right size and type for render() */
+    public BufferedImage createImage() {
+        return new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    public void setBackground(Color background) {
+        this.background = background;
+    }
+
+    public void setDividerColor(Color dividerColor) {
+        this.dividerColor = dividerColor;
+    }
+
+    public void setPistonColor(Color pistonColor) {
+        this.pistonColor = pistonColor;
+    }
+
+    public void setEdgeColor(Color edgeColor) {
+        this.edgeColor = edgeColor;
+    }
+
+    /** Colours particles with colorer instead of their own colours; null to go back */
+    public void setParticleColorer(SphereRenderList.ParticleColorer colorer) {
+        this.colorer = colorer;
+    }
+
+    /** Shades the spheres if true, otherwise draws them in flat colours */
+    public void setLighting(boolean lighting) {
+        this.lighting = lighting;
+    }
+
+    /**
+     * Sets the angles (degrees) the arena is turned through about the x and y
+     * axes in 3D, as the arrow keys do in the main window.
+     */
+    public void setViewingAngles(double angleX, double angleY) {
+        this.angleX = angleX;
+        this.angleY = angleY;
+    }
+
+    /** Stops the rendering threads */
+    public void close() {
+        executor.shutdown();
+    }
+
+    /**
+     * Draws frame into image, which must come from createImage().
+     */
+    public void render(FrameInfo frame, BufferedImage image) {
+        if (image.getWidth() != width || image.getHeight() != height
+                || image.getType() != BufferedImage.TYPE_INT_RGB) {
+            throw new IllegalArgumentException("Image was not made by this renderer");
+        }
+        setUpProjection();
+
+        Graphics2D g = image.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setColor(background);
+            g.fillRect(0, 0, width, height);
+            if (simulationInfo.dimension < 3) {
+                drawFlatFixtures(g, frame);
+            }
+
+            collectSplats(frame);
+            binSplats();
+            fillBands(((DataBufferInt) image.getRaster().getDataBuffer()).getData());
+
+            if (simulationInfo.dimension == 3) {
+                drawBoxFixtures(g, frame);
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    private void setUpProjection() {
+        double w = simulationInfo.arenaXSize;
+        double h = simulationInfo.arenaYSize;
+        double d = simulationInfo.arenaZSize;
+        cosX = Math.cos(Math.toRadians(angleX));
+        sinX = Math.sin(Math.toRadians(angleX));
+        cosY = Math.cos(Math.toRadians(angleY));
+        sinY = Math.sin(Math.toRadians(angleY));
+
+        switch (simulationInfo.dimension) {
+            case 1:
+                scale = width / w;
+                xOffset = 0.0;
+                yOffset = height / 2.0;
+                break;
+            case 2:
+                scale = width / w;
+                xOffset = 0.0;
+                yOffset = height;
+                break;
+            default:
+                // Fit the corners of the turned box into the image
+                double minX = Double.MAX_VALUE, maxX = -Double.MAX_VALUE;
+                double minY = Double.MAX_VALUE, maxY = -Double.MAX_VALUE;
+                scale = 1.0;
+                xOffset = 0.0;
+                yOffset = 0.0;
+                for (int corner = 0; corner < 8; corner++) {
+                    project((corner & 1) * w, ((corner >> 1) & 1) * h, ((corner >> 2) & 1) * d);
+                    minX = Math.min(minX, projected[0]);
+                    maxX = Math.max(maxX, projected[0]);
+                    minY = Math.min(minY, projected[1]);
+                    maxY = Math.max(maxY, projected[1]);
+                }
+                double usable = 1.0 - 2.0 * MARGIN_3D;
+                scale = Math.min(usable * width / (maxX - minX), usable * height / (maxY - minY));
+                xOffset = (width - scale * (maxX + minX)) / 2.0;
+                yOffset = (height - scale * (maxY + minY)) / 2.0;
+        }
+    }
+
+    /**
+     * Puts the pixel coordinates and depth of an arena point in projected.
+     * Larger depths are further from the viewer.
+     */
+    private void project(double x, double y, double z) {
+        if (simulationInfo.dimension < 3) {
+            projected[0] = xOffset + scale * x;
+            projected[1] = (simulationInfo.dimension == 1) ? yOffset : yOffset - scale * y;
+            projected[2] = 0.0;
+            return;
+        }
+        double cx = x - simulationInfo.arenaXSize / 2.0;
+        double cy = y - simulationInfo.arenaYSize / 2.0;
+        double cz = z - simulationInfo.arenaZSize / 2.0;
+
+        // Turn about y, then about x
+        double x1 = cosY * cx + sinY * cz;
+        double z1 = -sinY * cx + cosY * cz;
+        double y2 = cosX * cy - sinX * z1;
+        double z2 = sinX * cy + cosX * z1;
+
+        projected[0] = xOffset + scale * x1;
+        projected[1] = yOffset - scale * y2;
+        projected[2] = -scale * z2;
+    }
+
+    private void collectSplats(FrameInfo frame) {
+        numSplats = 0;
+        double w = simulationInfo.arenaXSize;
+        double h = simulationInfo.arenaYSize;
+        double d = simulationInfo.arenaZSize;
+        double inf = Double.POSITIVE_INFINITY;
+        switch (simulationInfo.dimension) {
+            case 1:
+                sphereList.setVisibleBounds(0.0, w, -inf, inf, -inf, inf);
+                break;
+            case 2:
+                sphereList.setVisibleBounds(0.0, w, 0.0, h, -inf, inf);
+                break;
+            default:
+                sphereList.setVisibleBounds(0.0, w, 0.0, h, 0.0, d);
+        }
+        sphereList.build(frame, simulationInfo, colorer);
+
+        for (int sphere = 0; sphere < sphereList.size(); sphere++) {
+            addSplat(sphereList.getX(sphere), sphereList.getY(sphere), sphereList.getZ(sphere),
+                    sphereList.getRadius(sphere), sphereList.getRGB(sphere));
+        }
+    }
+
+    private void addSplat(double x, double y, double z, double radius, int rgb) {
+        if (numSplats == splatX.length) {
+            int capacity = Math.max(64, 2 * numSplats);
+            splatX = copyOf(splatX, capacity);
+            splatY = copyOf(splatY, capacity);
+            splatRadius = copyOf(splatRadius, capacity);
+            splatDepth = copyOf(splatDepth, capacity);
+            int[] colors = new int[capacity];
+            System.arraycopy(splatColor, 0, colors, 0, numSplats);
+            splatColor = colors;
+        }
+        project(x, y, z);
+        splatX[numSplats] = projected[0];
+        splatY[numSplats] = projected[1];
+        splatDepth[numSplats] = projected[2];
+        splatRadius[numSplats] = radius * scale;
+        splatColor[numSplats] = rgb;
+        numSplats++;
+    }
+
+    private static double[] copyOf(double[] array, int length) {
+        double[] copy = new double[length];
+        System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+        return copy;
+    }
+
+    /** Sorts the splats into the bands they overlap with a counting pass */
+    private void binSplats() {
+        int[] counts = bandStart;
+        Arrays.fill(counts, 0);
+        int total = 0;
+        for (int splat = 0; splat < numSplats; splat++) {
+            int first = firstBand(splat);
+            int last = lastBand(splat);
+            for (int band = first; band <= last; band++) {
+                counts[band + 1]++;
+                total++;
+            }
+        }
+        for (int band = 0; band < numBands; band++) {
+            counts[band + 1] += counts[band];
+        }
+        if (bandSplats.length < total) {
+            bandSplats = new int[Math.max(total, 2 * bandSplats.length)];
+        }
+
+        int[] next = new int[numBands];
+        System.arraycopy(bandStart, 0, next, 0, numBands);
+        for (int splat = 0; splat < numSplats; splat++) {
+            int first = firstBand(splat);
+            int last = lastBand(splat);
+            for (int band = first; band <= last; band++) {
+                bandSplats[next[band]++] = splat;
+            }
+        }
+    }
+
+    private int firstBand(int splat) {
+        int top = (int) Math.floor(splatY[splat] - splatRadius[splat]);
+        return Math.max(0, top / BAND_HEIGHT);
+    }
+
+    /** Returns a band before firstBand if the splat is entirely off the image */
+    private int lastBand(int splat) {
+        int bottom = (int) Math.ceil(splatY[splat] + splatRadius[splat]);
+        if (bottom < 0 || splatX[splat] + splatRadius[splat] < 0
+                || splatX[splat] - splatRadius[splat] > width) {
+            return -1;
+        }
+        return Math.min(numBands - 1, bottom / BAND_HEIGHT);
+    }
+
+    private void fillBands(final int[] pixels) {
+        List<Callable<Void>> tasks = new ArrayList<Callable<Void>>(numBands);
+        for (int band = 0; band < numBands; band++) {
+            final int bandIndex = band;
+            tasks.add(new Callable<Void>() {
+                public Void call() {
+                    fillBand(bandIndex, pixels);
+                    return null;
+                }
+            });
+        }
+        try {
+            for (Future<Void> result: executor.invokeAll(tasks)) {
+                result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Could not render frame", e.getCause());
+        }
+    }
+
+    private void fillBand(int band, int[] pixels) {
+        int rowStart = band * BAND_HEIGHT;
+        int rowEnd = Math.min(height, rowStart + BAND_HEIGHT);
+        float[] depths = bandDepths[band];
+        Arrays.fill(depths, Float.POSITIVE_INFINITY);
+
+        for (int entry = bandStart[band]; entry < bandStart[band + 1]; entry++) {
+            int splat = bandSplats[entry];
+            double cx = splatX[splat];
+            double cy = splatY[splat];
+            double r = splatRadius[splat];
+            double depth = splatDepth[splat];
+            int rgb = splatColor[splat];
+            int red = (rgb >> 16) & 0xFF;
+            int green = (rgb >> 8) & 0xFF;
+            int blue = rgb & 0xFF;
+
+            int top = Math.max(rowStart, (int) Math.floor(cy - r));
+            int bottom = Math.min(rowEnd - 1, (int) Math.ceil(cy + r));
+            int left = Math.max(0, (int) Math.floor(cx - r));
+            int right = Math.min(width - 1, (int) Math.ceil(cx + r));
+            // Very small particles still get one pixel
+            double radius = Math.max(r, 0.5);
+            double inverseRadius = 1.0 / radius;
+
+            for (int row = top; row <= bottom; row++) {
+                double ny = (row + 0.5 - cy) * inverseRadius;
+                for (int column = left; column <= right; column++) {
+                    double nx = (column + 0.5 - cx) * inverseRadius;
+                    double distanceSquared = nx * nx + ny * ny;
+                    if (distanceSquared > 1.0) {
+                        continue;
+                    }
+                    double nz = Math.sqrt(1.0 - distanceSquared);
+                    float pixelDepth = (float) (depth - nz * radius);
+                    int depthIndex = (row - rowStart) * width + column;
+                    if (pixelDepth >= depths[depthIndex]) {
+                        continue;
+                    }
+                    depths[depthIndex] = pixelDepth;
+
+                    int pixel;
+                    if (lighting) {
+                        double diffuse = Math.max(0.0, nx * LIGHT_X + ny * LIGHT_Y + nz * LIGHT_Z);
+                        double shade = AMBIENT + DIFFUSE * diffuse;
+                        // Viewer is along +z, so the reflection term only needs the z component
+                        double reflected = 2.0 * diffuse * nz - LIGHT_Z;
+                        double highlight = (reflected > 0.0) ? SPECULAR * pow(reflected, SHININESS) : 0.0;
+                        pixel = (shadeChannel(red, shade, highlight) << 16)
+                                | (shadeChannel(green, shade, highlight) << 8)
+                                | shadeChannel(blue, shade, highlight);
+                    } else {
+                        pixel = rgb & 0xFFFFFF;
+                    }
+                    pixels[row * width + column] = pixel;
+                }
+            }
+        }
+    }
+
+    private static int shadeChannel(int channel, double shade, double highlight) {
+        int value = (int) (channel * shade + 255.0 * highlight);
+        return (value > 255) ? 255 : value;
+    }
+
+    private static double pow(double base, int exponent) {
+        double result = 1.0;
+        while (exponent > 0) {
+            if ((exponent & 1) != 0) {
+                result *= base;
+            }
+            base *= base;
+            exponent >>= 1;
+        }
+        return result;
+    }
+
+    /** Piston and divider for 1D and 2D arenas, drawn under the particles */
+    private void drawFlatFixtures(Graphics2D g, FrameInfo frame) {
+        double w = simulationInfo.arenaXSize;
+        double h = (simulationInfo.dimension == 1) ? height / scale : simulationInfo.arenaYSize;
+        double dividerRadius = SimulationInfo.ARENA_DIVIDER_RADIUS;
+        boolean holeOpen = frame == null || frame.isArenaHoleOpen();
+
+        if (simulationInfo.arenaType == ArenaType.MOVABLE_PISTON) {
+            if (frame == null) {
+                return;
+            }
+            double pistonPos = frame.getPistonPosition(frame.endTime);
+            double valve = 2.0 * SimulationInfo.PISTON_VALVE_RADIUS;
+            double shaft = 2.0 * SimulationInfo.PISTON_SHAFT_RADIUS;
+            g.setColor(pistonColor);
+            if (simulationInfo.dimension == 1) {
+                fillArenaRect(g, pistonPos, 0.0, valve, h);
+                fillArenaRect(g, pistonPos + valve, (h - shaft) / 2.0, w - pistonPos - valve, shaft);
+            } else {
+                fillArenaRect(g, 0.0, pistonPos, w, valve);
+                fillArenaRect(g, (w - shaft) / 2.0, pistonPos + valve, shaft, h - pistonPos - valve);
+            }
+        } else if (simulationInfo.arenaType == ArenaType.DIVIDED_ARENA
+                || (simulationInfo.maxwellDemonMode && !holeOpen)) {
+            g.setColor(dividerColor);
+            fillArenaRect(g, w / 2.0 - dividerRadius, 0.0, 2.0 * dividerRadius, h);
+        } else if (simulationInfo.arenaType == ArenaType.DIVIDED_ARENA_WITH_HOLE
+                && simulationInfo.dimension > 1) {
+            double holeDiameter = simulationInfo.holeDiameter;
+            double barLength = (h - holeDiameter) / 2.0;
+            g.setColor(dividerColor);
+            fillArenaRoundRect(g, w / 2.0 - dividerRadius, 0.0, 2.0 * dividerRadius, barLength);
+            fillArenaRoundRect(g, w / 2.0 - dividerRadius, h - barLength, 2.0 * dividerRadius, barLength);
+        }
+    }
+
+    private void fillArenaRect(Graphics2D g, double x, double y, double rectWidth, double rectHeight) {
+        g.fill(new Rectangle2D.Double(xOffset + scale * x, toPixelY(y + rectHeight),
+                scale * rectWidth, scale * rectHeight));
+    }
+
+    private void fillArenaRoundRect(Graphics2D g, double x, double y, double rectWidth, double rectHeight) {
+        double arc = scale * rectWidth;
+        g.fill(new RoundRectangle2D.Double(xOffset + scale * x, toPixelY(y + rectHeight),
+                scale * rectWidth, scale * rectHeight, arc, arc));
+    }
+
+    /** Pixel row of arena height y in 1D and 2D */
+    private double toPixelY(double y) {
+        return (simulationInfo.dimension == 1) ? height - scale * y : yOffset - scale * y;
+    }
+
+    /** Box edges, piston and divider outlines for 3D arenas, drawn over the particles */
+    private void drawBoxFixtures(Graphics2D g, FrameInfo frame) {
+        double w = simulationInfo.arenaXSize;
+        double h = simulationInfo.arenaYSize;
+        double d = simulationInfo.arenaZSize;
+        g.setStroke(new BasicStroke(1.0f));
+
+        g.setColor(edgeColor);
+        for (int corner = 0; corner < 8; corner++) {
+            for (int axis = 0; axis < 3; axis++) {
+                int bit = 1 << axis;
+                if ((corner & bit) == 0) {
+                    drawArenaLine(g, corner, corner | bit, w, h, d);
+                }
+            }
+        }
+
+        boolean holeOpen = frame == null || frame.isArenaHoleOpen();
+        if (simulationInfo.arenaType == ArenaType.MOVABLE_PISTON && frame != null) {
+            double pistonY = frame.getPistonPosition(frame.endTime) + SimulationInfo.PISTON_VALVE_RADIUS;
+            g.setColor(pistonColor);
+            drawQuad(g, 0.0, pistonY, 0.0, w, pistonY, 0.0, w, pistonY, d, 0.0, pistonY, d);
+            project(w / 2.0, pistonY, d / 2.0);
+            double shaftX = projected[0], shaftY = projected[1];
+            project(w / 2.0, h, d / 2.0);
+            g.draw(new Line2D.Double(shaftX, shaftY, projected[0], projected[1]));
+        } else if (simulationInfo.arenaType == ArenaType.DIVIDED_ARENA
+                || simulationInfo.arenaType == ArenaType.DIVIDED_ARENA_WITH_HOLE
+                || (simulationInfo.maxwellDemonMode && !holeOpen)) {
+            double x = w / 2.0;
+            g.setColor(dividerColor);
+            drawQuad(g, x, 0.0, 0.0, x, h, 0.0, x, h, d, x, 0.0, d);
+            if (simulationInfo.arenaType == ArenaType.DIVIDED_ARENA_WITH_HOLE
+                    && !(simulationInfo.maxwellDemonMode && !holeOpen)) {
+                drawHole(g, x, h / 2.0, d / 2.0, simulationInfo.holeDiameter / 2.0);
+            }
+        }
+    }
+
+    private void drawArenaLine(Graphics2D g, int from, int to, double w, double h, double d) {
+        project((from & 1) * w, ((from >> 1) & 1) * h, ((from >> 2) & 1) * d);
+        double x1 = projected[0], y1 = projected[1];
+        project((to & 1) * w, ((to >> 1) & 1) * h, ((to >> 2) & 1) * d);
+        g.draw(new Line2D.Double(x1, y1, projected[0], projected[1]));
+    }
+
+    private void drawQuad(Graphics2D g, double... corners) {
+        Path2D.Double outline = new Path2D.Double();
+        for (int corner = 0; corner < corners.length; corner += 3) {
+            project(corners[corner], corners[corner + 1], corners[corner + 2]);
+            if (corner == 0) {
+                outline.moveTo(projected[0], projected[1]);
+            } else {
+                outline.lineTo(projected[0], projected[1]);
+            }
+        }
+        outline.closePath();
+        g.draw(outline);
+    }
+
+    /** Outline of the hole in the divider, a circle in the x = centreX plane */
+    private void drawHole(Graphics2D g, double centreX, double centreY, double centreZ, double radius) {
+        final int segments = 48;
+        Path2D.Double outline = new Path2D.Double();
+        for (int segment = 0; segment <= segments; segment++) {
+            double angle = 2.0 * Math.PI * segment / segments;
+            project(centreX, centreY + radius * Math.cos(angle), centreZ + radius * Math.sin(angle));
+            if (segment == 0) {
+                outline.moveTo(projected[0], projected[1]);
+            } else {
+                outline.lineTo(projected[0], projected[1]);
+            }
+        }
+        g.draw(outline);
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.view.render;
+
+import edu.byu.chem.boltzmann.model.physics.FrameInfo;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import javax.imageio.ImageIO;
+
+/**
+ * Writes frames as a numbered sequence of PNG images (frame00000.png,
+ * frame00001.png, ...) that can be turned into a movie with an outside tool.
+ *
+ * write() draws the frame with a FrameRenderer on the caller's thread and
+ * hands the image to a writer thread for PNG encoding, which is the slow part.
+ * Unlike FrameExporter this never drops frames: when every image is waiting
+ * to be encoded write() waits for one to come free, since a movie with
+ * missing frames is not much use.
+ */
+public class PngSequenceWriter {
+
+    private static final int BUFFERED_IMAGES = 3;
+
+    private static class RenderedFrame {
+        final BufferedImage image;
+        int index;
+
+        RenderedFrame(BufferedImage image) {
+            this.image = image;
+        }
+    }
+
+    private static final RenderedFrame END_OF_SEQUENCE = new RenderedFrame(null);
+
+    private final FrameRenderer renderer;
+    private final File directory;
+    private final String prefix;
+
+    private final BlockingQueue<RenderedFrame> freeFrames;
+    private final BlockingQueue<RenderedFrame> filledFrames;
+    private final Thread writerThread;
+
+    private volatile IOException writeError = null;
+    private boolean closed = false;
+    private int framesWritten = 0;
+
+    /**
+     * @param directory directory for the images, created if needed
+     * @param prefix start of each file name, before the frame number
+     */
+    public PngSequenceWriter(FrameRenderer renderer, File directory, String prefix) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        this.renderer = renderer;
+        this.directory = directory;
+        this.prefix = prefix;
+
+        freeFrames = new ArrayBlockingQueue<RenderedFrame>(BUFFERED_IMAGES);
+        filledFrames = new ArrayBlockingQueue<RenderedFrame>(BUFFERED_IMAGES + 1);
+        for (int i = 0; i < BUFFERED_IMAGES; i++) {
+            freeFrames.add(new RenderedFrame(renderer.createImage()));
+        }
+
+        writerThread = new Thread("PNG Sequence Writer") {
+            @Override
+            public void run() {
+                writeFrames();
+            }
+        };
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Renders frame and queues it to be written as the next image in the
+     * sequence. Waits if the writer thread has fallen behind.
+     *
+     * @throws IOException if an earlier image could not be written
+     */
+    public void write(FrameInfo frame) throws IOException, InterruptedException {
+        if (closed) {
+            throw new IOException("PNG sequence is closed");
+        }
+        checkWriteError();
+        RenderedFrame rendered = freeFrames.take();
+        renderer.render(frame, rendered.image);
+        rendered.index = framesWritten++;
+        filledFrames.add(rendered);
+    }
+
+    /** Number of images handed to the writer so far */
+    public int getFramesWritten() {
+        return framesWritten;
+    }
+
+    /** File the image for the given frame number is written to */
+    public File getFile(int index) {
+        return new File(directory, String.format("%s%05d.png", prefix, index));
+    }
+
+    /**
+     * Waits for the queued images to be written. Does not close the renderer.
+     */
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            filledFrames.put(END_OF_SEQUENCE);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            writerThread.interrupt();
+            Thread.currentThread().interrupt();
+        }
+        checkWriteError();
+    }
+
+    private void checkWriteError() throws IOException {
+        if (writeError != null) {
+            throw writeError;
+        }
+    }
+
+    private void writeFrames() {
+        try {
+            while (true) {
+                RenderedFrame rendered = filledFrames.take();
+                if (rendered == END_OF_SEQUENCE) {
+                    break;
+                }
+                // After a failure keep draining, so write() and close() never wait forever
+                if (writeError == null) {
+                    try {
+                        if (!ImageIO.write(rendered.image, "png", getFile(rendered.index))) {
+                            throw new IOException("No PNG writer available");
+                        }
+                    } catch (IOException e) {
+                        writeError = e;
+                    }
+                }
+                freeFrames.add(rendered);
+            }
+        } catch (InterruptedException e) {
+            // Writing was abandoned by close()
+        }
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.view.render;
+
+import edu.byu.chem.boltzmann.model.physics.FrameInfo;
+import edu.byu.chem.boltzmann.model.physics.PartState;
+import edu.byu.chem.boltzmann.model.physics.ParticleStates;
+import edu.byu.chem.boltzmann.model.physics.Wall;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo.ArenaType;
+import java.awt.Color;
+
+/**
+ * The spheres to draw for one frame, worked out without reference to any
+ * particular renderer so GLPanel and FrameRenderer draw the same thing.
+ *
+ * build() goes through the particle states once and fills primitive arrays
+ * with each sphere's position, radius and colour (as floats ready for
+ * glColor3f), adding the "shadow" images of particles that overlap a periodic
+ * boundary. Spheres entirely outside the visible bounds are left out, which
+ * mostly drops shadow images beyond the clipping planes, and each sphere is
+ * given a tessellation level from its size on screen so small spheres are
+ * not drawn with more triangles than pixels.
+ *
+ * The arrays are reused from frame to frame, so building a list allocates
+ * nothing once it has grown to the number of particles.
+ */
+public class SphereRenderList {
+
+    /** Gives the colour to draw a particle in, in place of the colour in its state */
+    public interface ParticleColorer {
+        public Color getParticleColor(PartState state);
+    }
+
+    /** Slices (around) and stacks (pole to pole) for each level of detail, coarsest first */
+    private static final int[] LEVEL_SLICES = { 6, 8, 12, 16, 24, 32 };
+    private static final int[] LEVEL_STACKS = { 4, 6, 8, 10, 14, 18 };
+
+    /**
+     * Largest on-screen radius (pixels) drawn at each level; anything larger
+     * gets the finest level. About one slice per three pixels of circumference.
+     */
+    private static final double[] LEVEL_MAX_PIXELS = { 2.0, 4.0, 6.0, 8.0, 12.0 };
+
+    private int size = 0;
+    private double[] x = new double[0];
+    private double[] y = new double[0];
+    private double[] z = new double[0];
+    private double[] radius = new double[0];
+    private float[] color = new float[0];
+    private byte[] level = new byte[0];
+
+    private double minX = Double.NEGATIVE_INFINITY, maxX = Double.POSITIVE_INFINITY;
+    private double minY = Double.NEGATIVE_INFINITY, maxY = Double.POSITIVE_INFINITY;
+    private double minZ = Double.NEGATIVE_INFINITY, maxZ = Double.POSITIVE_INFINITY;
+    private double pixelsPerUnit = 0.0;
+
+    // Last colour converted, since most particles share a few colours
+    private Color lastColor = null;
+    private float lastRed, lastGreen, lastBlue;
+
+    private int culled = 0;
+
+    /** State handed to a ParticleColorer, refilled for each particle */
+    private final PartState colorerState = new PartState(0, 0, 0, 0, null, 0);
+
+    /**
+     * Sets the region of the arena (in arena units) that can be seen. Spheres
+     * lying entirely outside it are left out of the list.
+     */
+    public void setVisibleBounds(double minX, double maxX, double minY, double maxY,
+            double minZ, double maxZ) {
+        this.minX = minX;
+        this.maxX = maxX;
+        this.minY = minY;
+        this.maxY = maxY;
+        this.minZ = minZ;
+        this.maxZ = maxZ;
+    }
+
+    /** Makes everything visible */
+    public void clearVisibleBounds() {
+        setVisibleBounds(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Sets how many pixels one arena unit covers on screen, which picks the
+     * level of detail. Zero or less gives every sphere the finest level.
+     */
+    public void setPixelsPerUnit(double pixelsPerUnit) {
+        this.pixelsPerUnit = pixelsPerUnit;
+    }
+
+    /**
+     * Fills the list from frame's particle states.
+     *
+     * @param colorer colours to use instead of the states' own; may be null
+     */
+    public void build(FrameInfo frame, SimulationInfo simulationInfo, ParticleColorer colorer) {
+        size = 0;
+        culled = 0;
+        lastColor = null;
+        if (frame == null || frame.getParticleStates() == null) {
+            return;
+        }
+
+        double w = simulationInfo.arenaXSize;
+        double h = simulationInfo.arenaYSize;
+        double d = simulationInfo.arenaZSize;
+        boolean periodic = simulationInfo.arenaType == ArenaType.PERIODIC_BOUNDARIES;
+
+        ParticleStates states = frame.getParticleStates();
+        double[] positions = states.getPositions();
+        double[] radii = states.getRadii();
+        Color[] colors = states.getColors();
+        int[] bFlags = states.getBoundaryFlags();
+
+        for (int particleIndex = 0; particleIndex < states.size(); particleIndex++) {
+            int offset = 3 * particleIndex;
+            double px = positions[offset];
+            double py = positions[offset + 1];
+            double pz = positions[offset + 2];
+            double rad = radii[particleIndex];
+            int bFlag = bFlags[particleIndex];
+            Color particleColor = (colorer != null)
+                    ? colorer.getParticleColor(states.getState(particleIndex, colorerState))
+                    : colors[particleIndex];
+            add(px, py, pz, rad, particleColor);
+
+            if (periodic && bFlag > 0) {
+                boolean left = (bFlag & Wall.LEFT) == Wall.LEFT;
+                boolean bottom = (bFlag & Wall.BOTTOM) == Wall.BOTTOM;
+                boolean back = (bFlag & Wall.BACK) == Wall.BACK;
+                if (left) {
+                    add(px + w, py, pz, rad, particleColor);
+                }
+                if (bottom) {
+                    add(px, py + h, pz, rad, particleColor);
+                }
+                if (back) {
+                    add(px, py, pz + d, rad, particleColor);
+                }
+                if (left && bottom) {
+                    add(px + w, py + h, pz, rad, particleColor);
+                }
+                if (back && bottom) {
+                    add(px, py + h, pz + d, rad, particleColor);
+                }
+                if (left && back) {
+                    add(px + w, py, pz + d, rad, particleColor);
+                }
+                if (left && back && bottom) {
+                    add(px + w, py + h, pz + d, rad, particleColor);
+                }
+            }
+        }
+    }
+
+    private void add(double sphereX, double sphereY, double sphereZ, double sphereRadius, Color sphereColor) {
+        if (sphereX + sphereRadius < minX || sphereX - sphereRadius > maxX
+                || sphereY + sphereRadius < minY || sphereY - sphereRadius > maxY
+                || sphereZ + sphereRadius < minZ || sphereZ - sphereRadius > maxZ) {
+            culled++;
+            return;
+        }
+        if (size == x.length) {
+            grow(Math.max(64, 2 * size));
+        }
+        if (sphereColor != lastColor) {
+            int rgb = sphereColor.getRGB();
+            lastRed = ((rgb >> 16) & 0xFF) / 255.0f;
+            lastGreen = ((rgb >> 8) & 0xFF) / 255.0f;
+            lastBlue = (rgb & 0xFF) / 255.0f;
+            lastColor = sphereColor;
+        }
+
+        x[size] = sphereX;
+        y[size] = sphereY;
+        z[size] = sphereZ;
+        radius[size] = sphereRadius;
+        color[3 * size] = lastRed;
+        color[3 * size + 1] = lastGreen;
+        color[3 * size + 2] = lastBlue;
+        level[size] = (byte) levelOfDetail(sphereRadius * pixelsPerUnit);
+        size++;
+    }
+
+    private int levelOfDetail(double radiusInPixels) {
+        if (pixelsPerUnit <= 0.0) {
+            return LEVEL_SLICES.length - 1;
+        }
+        for (int lod = 0; lod < LEVEL_MAX_PIXELS.length; lod++) {
+            if (radiusInPixels <= LEVEL_MAX_PIXELS[lod]) {
+                return lod;
+            }
+        }
+        return LEVEL_SLICES.length - 1;
+    }
+
+    private void grow(int capacity) {
+        x = copyOf(x, capacity);
+        y = copyOf(y, capacity);
+        z = copyOf(z, capacity);
+        radius = copyOf(radius, capacity);
+        float[] newColor = new float[3 * capacity];
+        System.arraycopy(color, 0, newColor, 0, color.length);
+        color = newColor;
+        byte[] newLevel = new byte[capacity];
+        System.arraycopy(level, 0, newLevel, 0, level.length);
+        level = newLevel;
+    }
+
+    private static double[] copyOf(double[] array, int length) {
+        double[] copy = new double[length];
+        System.arraycopy(array, 0, copy, 0, array.length);
+        return copy;
+    }
+
+    /** Number of spheres in the list */
+    public int size() {
+        return size;
+    }
+
+    /** Number of spheres left out of the last build as not visible */
+    public int getCulledCount() {
+        return culled;
+    }
+
+    public double getX(int index) {
+        return x[index];
+    }
+
+    public double getY(int index) {
+        return y[index];
+    }
+
+    public double getZ(int index) {
+        return z[index];
+    }
+
+    public double getRadius(int index) {
+        return radius[index];
+    }
+
+    /** Colour components are between 0 and 1 */
+    public float getRed(int index) {
+        return color[3 * index];
+    }
+
+    public float getGreen(int index) {
+        return color[3 * index + 1];
+    }
+
+    public float getBlue(int index) {
+        return color[3 * index + 2];
+    }
+
+    /** Colour as a packed 0xRRGGBB value */
+    public int getRGB(int index) {
+        return (Math.round(color[3 * index] * 255.0f) << 16)
+                | (Math.round(color[3 * index + 1] * 255.0f) << 8)
+                | Math.round(color[3 * index + 2] * 255.0f);
+    }
+
+    /** Number of slices (divisions around the axis) to draw the sphere with */
+    public int getSlices(int index) {
+        return LEVEL_SLICES[level[index]];
+    }
+
+    /** Number of stacks (divisions from pole to pole) to draw the sphere with */
+    public int getStacks(int index) {
+        return LEVEL_STACKS[level[index]];
+    }
+}
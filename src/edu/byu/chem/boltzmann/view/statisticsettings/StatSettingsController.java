@@ -17,6 +17,7 @@
  */
 package edu.byu.chem.boltzmann.view.statisticsettings;
 
+import edu.byu.chem.boltzmann.model.statistics.AveragingMode;
 import edu.byu.chem.boltzmann.utils.data.StatSettingsInfo;
 
 /**
@@ -46,6 +47,14 @@ public class StatSettingsController {
         rootController.setForgetMultiplier(forgetMult);
     }
     
+    public void setAveraging(AveragingMode mode, double halfLife) {
+        rootController.setAveraging(mode, halfLife);
+    }
+    
+    public void setDetectEquilibration(boolean detect) {
+        rootController.setDetectEquilibration(detect);
+    }
+    
     public void setFiniteSysCorrections(boolean finSysC) {
         rootController.setFiniteSysCorrections(finSysC);
     }
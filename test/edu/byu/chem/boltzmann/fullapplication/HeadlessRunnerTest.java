@@ -0,0 +1,72 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.fullapplication;
+
+import edu.byu.chem.boltzmann.model.physics.Physics;
+import edu.byu.chem.boltzmann.model.statistics.HoleFlux;
+import edu.byu.chem.boltzmann.model.statistics.PressureTensor;
+import edu.byu.chem.boltzmann.model.statistics.StatisticProviders;
+import edu.byu.chem.boltzmann.model.statistics.interfaces.StatisticProvider;
+import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo.ArenaType;
+import edu.byu.chem.boltzmann.utils.data.StatSettingsInfo;
+import edu.byu.chem.boltzmann.utils.data.TestSimulations;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class HeadlessRunnerTest {
+
+    @Test
+    public void allNamesEveryProvider() {
+        Set<String> names = HeadlessRunner.parseStatistics("all");
+        assertEquals(StatisticProviders.getProviders().size(), names.size());
+        for (StatisticProvider provider: StatisticProviders.getProviders()) {
+            assertTrue(names.contains(provider.getName()));
+        }
+    }
+
+    @Test
+    public void listedStatisticsAreTurnedOn() {
+        Set<String> names = HeadlessRunner.parseStatistics(HoleFlux.NAME + ", " + PressureTensor.NAME);
+        assertEquals(2, names.size());
+
+        SimulationInfo simInfo = TestSimulations.gas(ArenaType.DIVIDED_ARENA_WITH_HOLE, 3, 6.0, 8, 0, 400.0, 1);
+        StatSettingsInfo settings = new StatSettingsInfo();
+        settings.providedStatistics.addAll(names);
+        Physics physics = new Physics(simInfo, settings);
+        Set<ParticleType> types = new HashSet<ParticleType>(simInfo.getParticleTypes());
+        assertTrue(physics.getStatistic(types, HoleFlux.NAME) instanceof HoleFlux);
+        assertTrue(physics.getStatistic(types, PressureTensor.NAME) instanceof PressureTensor);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownNameIsRejected() {
+        HeadlessRunner.parseStatistics(HoleFlux.NAME + ",No Such Statistic");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void physicsRejectsUnknownProviders() {
+        SimulationInfo simInfo = TestSimulations.gas(ArenaType.PERIODIC_BOUNDARIES, 3, 6.0, 8, 0, 400.0, 1);
+        StatSettingsInfo settings = new StatSettingsInfo();
+        settings.providedStatistics.add("No Such Statistic");
+        new Physics(simInfo, settings);
+    }
+}
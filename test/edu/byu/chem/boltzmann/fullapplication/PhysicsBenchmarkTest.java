@@ -0,0 +1,55 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.fullapplication;
+
+import edu.byu.chem.boltzmann.model.physics.Physics;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo.ArenaType;
+import edu.byu.chem.boltzmann.utils.data.StatSettingsInfo;
+import edu.byu.chem.boltzmann.utils.data.TestSimulations;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+public class PhysicsBenchmarkTest {
+
+    private static void assertNoAllocationPerEvent(ArenaType arenaType, int dimension, int particlesPerType) {
+        SimulationInfo simInfo = TestSimulations.gas(arenaType, dimension, 10.0, particlesPerType, particlesPerType, 400.0, 1);
+        PhysicsBenchmark.Measurement result =
+                PhysicsBenchmark.measure(new Physics(simInfo, new StatSettingsInfo()), PhysicsBenchmark.DEFAULT_FRAMES);
+        assumeTrue(result.isAllocationCounted());
+        assertTrue(result.events > PhysicsBenchmark.DEFAULT_FRAMES);
+        assertTrue(result.getBytesPerEvent() + " bytes allocated per event",
+                result.getBytesPerEvent() <= PhysicsBenchmark.DEFAULT_MAX_BYTES_PER_EVENT);
+    }
+
+    @Test
+    public void periodic3DGasAllocatesNothingPerEvent() {
+        assertNoAllocationPerEvent(ArenaType.PERIODIC_BOUNDARIES, 3, 100);
+    }
+
+    @Test
+    public void holeArena2DAllocatesNothingPerEvent() {
+        assertNoAllocationPerEvent(ArenaType.DIVIDED_ARENA_WITH_HOLE, 2, 100);
+    }
+
+    @Test
+    public void reflecting1DGasAllocatesNothingPerEvent() {
+        assertNoAllocationPerEvent(ArenaType.REFLECTING_BOUNDARIES, 1, 10);
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.io;
+
+import edu.byu.chem.boltzmann.controller.ErrorHandler;
+import edu.byu.chem.boltzmann.model.physics.Physics;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo.ArenaType;
+import edu.byu.chem.boltzmann.utils.data.StatSettingsInfo;
+import edu.byu.chem.boltzmann.utils.data.TestSimulations;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class SaveTest {
+
+    private static final String DEFAULT_SETTINGS = "/edu/byu/chem/boltzmann/resources/simsettingsfiles/default.set";
+
+    private static Save saver(final SimulationInfo simInfo) {
+        final Physics physics = new Physics(simInfo, new StatSettingsInfo());
+        ErrorHandler main = new ErrorHandler() {
+            @Override
+            public Physics getPhysics() {
+                return physics;
+            }
+        };
+        main.simulationInfo = simInfo;
+        return new Save(main);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            for (int count; (count = in.read(buffer)) > 0; ) {
+                bytes.write(buffer, 0, count);
+            }
+            return bytes.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    private static File tempFile(String suffix) throws IOException {
+        File file = File.createTempFile("save", suffix);
+        file.deleteOnExit();
+        return file;
+    }
+
+    @Test
+    public void compressedSaveHoldsTheSameRecords() throws IOException {
+        SimulationInfo simInfo = TestSimulations.gas(ArenaType.DIVIDED_ARENA_WITH_HOLE, 3, 6.0, 20, 10, 400.0, 1);
+        Save save = saver(simInfo);
+        File plain = tempFile(".set");
+        File compressed = tempFile(".set.gz");
+        save.saveSetFile(plain, false);
+        save.saveSetFile(compressed, false, true);
+
+        String text = new String(readAll(new FileInputStream(plain)), "US-ASCII");
+        assertArrayEquals(text.getBytes("US-ASCII"), readAll(new GZIPInputStream(new FileInputStream(compressed))));
+        assertTrue(text.contains("\n0, 0, 0, 3, 0, \n"));
+        assertTrue(text.contains("\n20, "));
+        assertTrue(text.contains("\n10, 0.0000000001, 4, "));
+    }
+
+    @Test
+    public void compressedSettingsLoadLikePlain() throws Exception {
+        File compressed = tempFile(".set.gz");
+        OutputStream out = new GZIPOutputStream(new FileOutputStream(compressed));
+        try {
+            out.write(readAll(SaveTest.class.getResourceAsStream(DEFAULT_SETTINGS)));
+        } finally {
+            out.close();
+        }
+
+        SimulationInfo plain = new Load(null).loadFile(SaveTest.class.getResource(DEFAULT_SETTINGS));
+        SimulationInfo loaded = new Load(null).loadFile(compressed);
+        assertNotNull(loaded);
+        assertEquals(plain.arenaType, loaded.arenaType);
+        assertEquals(plain.dimension, loaded.dimension);
+        assertEquals(plain.arenaXSize, loaded.arenaXSize, 0.0);
+        assertEquals(plain.arenaYSize, loaded.arenaYSize, 0.0);
+        assertEquals(plain.getParticleTypes().size(), loaded.getParticleTypes().size());
+    }
+}
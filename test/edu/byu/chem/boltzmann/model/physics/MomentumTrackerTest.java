@@ -0,0 +1,110 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.physics;
+
+import edu.byu.chem.boltzmann.utils.Units;
+import edu.byu.chem.boltzmann.utils.Units.Energy;
+import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo.ArenaType;
+import edu.byu.chem.boltzmann.utils.data.TestSimulations;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class MomentumTrackerTest {
+
+    private static final double TOLERANCE = 1.0e-9;
+
+    private List<Particle> particles;
+    private MomentumTracker momentum;
+
+    @Before
+    public void makeParticles() {
+        SimulationInfo simInfo = TestSimulations.gas(ArenaType.REFLECTING_BOUNDARIES, 3, 10.0, 40, 24, 500.0, 7);
+        particles = new ArrayList<Particle>();
+        for (ParticleType type: simInfo.getParticleTypes()) {
+            for (int index = 0; index < simInfo.getNumberOfParticles(type); index++) {
+                particles.add(new Particle3D(simInfo.getParticlePosition(type, index),
+                        simInfo.getParticleVelocity(type, index), 0.0, type, simInfo));
+            }
+        }
+        momentum = new MomentumTracker();
+        momentum.recompute(particles);
+    }
+
+    /** Asserts the totals match sums over the particles' current velocities */
+    private void assertMatchesParticles() {
+        double mass = 0.0, xMom = 0.0, yMom = 0.0, zMom = 0.0, energy = 0.0;
+        for (Particle particle: particles) {
+            mass += particle.mass;
+            xMom += particle.mass * particle.getXVel();
+            yMom += particle.mass * particle.getYVel();
+            zMom += particle.mass * particle.getZVel();
+            energy += 0.5 * particle.mass * particle.getVel2();
+        }
+        double scale = mass * 1000.0;
+        assertEquals(mass, momentum.getTotalMass(), TOLERANCE * mass);
+        assertEquals(xMom, momentum.getXMom(), TOLERANCE * scale);
+        assertEquals(yMom, momentum.getYMom(), TOLERANCE * scale);
+        assertEquals(zMom, momentum.getZMom(), TOLERANCE * scale);
+        double joules = Units.convert(Energy.AMU_JOULE, Energy.JOULE, energy);
+        assertEquals(joules, momentum.getKineticEnergy(), TOLERANCE * joules);
+    }
+
+    @Test
+    public void recomputeSumsEveryParticle() {
+        assertMatchesParticles();
+    }
+
+    @Test
+    public void removeAndAddFollowVelocityChanges() {
+        Random random = new Random(8);
+        for (int event = 0; event < 100000; event++) {
+            Particle particle = particles.get(random.nextInt(particles.size()));
+            momentum.remove(particle);
+            particle.setVelocity(500.0 * random.nextGaussian(), 500.0 * random.nextGaussian(),
+                    500.0 * random.nextGaussian());
+            momentum.add(particle);
+        }
+        assertMatchesParticles();
+    }
+
+    @Test
+    public void shiftMovesEveryVelocity() {
+        double dvx = 120.0, dvy = -35.0, dvz = 7.5;
+        for (Particle particle: particles) {
+            particle.setVelocity(particle.getXVel() + dvx, particle.getYVel() + dvy, particle.getZVel() + dvz);
+        }
+        momentum.shift(dvx, dvy, dvz);
+        assertMatchesParticles();
+    }
+
+    @Test
+    public void shiftToZeroMomentum() {
+        double totalMass = momentum.getTotalMass();
+        momentum.shift(-momentum.getXMom() / totalMass, -momentum.getYMom() / totalMass,
+                -momentum.getZMom() / totalMass);
+        assertEquals(0.0, momentum.getXMom(), TOLERANCE * totalMass);
+        assertEquals(0.0, momentum.getYMom(), TOLERANCE * totalMass);
+        assertEquals(0.0, momentum.getZMom(), TOLERANCE * totalMass);
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics;
+
+import edu.byu.chem.boltzmann.model.physics.Physics;
+import edu.byu.chem.boltzmann.utils.Units.Frequency;
+import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo.ArenaType;
+import edu.byu.chem.boltzmann.utils.data.StatSettingsInfo;
+import edu.byu.chem.boltzmann.utils.data.TestSimulations;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class HoleFluxTest {
+
+    private static final Frequency UNIT = Frequency.HERTZ;
+    private static final int FRAMES = 8000;
+
+    private static HoleFlux flux2D;
+    private static HoleFlux flux3D;
+
+    /** A dilute gas in a 6 nm divided arena with a 3 nm hole */
+    private static HoleFlux runEffusion(int dimension) {
+        SimulationInfo simInfo = TestSimulations.gas(ArenaType.DIVIDED_ARENA_WITH_HOLE, dimension, 6.0, 64, 0, 400.0, 1);
+        StatSettingsInfo settings = new StatSettingsInfo();
+        settings.providedStatistics.add(HoleFlux.NAME);
+        Physics physics = new Physics(simInfo, settings);
+        for (int frame = 0; frame < FRAMES; frame++) {
+            physics.advanceToNextFrame();
+        }
+        Set<ParticleType> types = new HashSet<ParticleType>(simInfo.getParticleTypes());
+        return (HoleFlux) physics.getStatistic(types, HoleFlux.NAME);
+    }
+
+    @BeforeClass
+    public static void runGases() {
+        flux2D = runEffusion(2);
+        flux3D = runEffusion(3);
+    }
+
+    private static void assertMatchesPrediction(HoleFlux flux) {
+        double predicted = flux.getPredictionForAverage(UNIT);
+        assertEquals(predicted, 2.0 * flux.getPredictionForRate(UNIT), 1.0e-12 * predicted);
+        assertEquals(predicted, flux.getCurrentAverage(UNIT), 0.08 * predicted);
+        for (int direction = HoleFlux.LEFT_TO_RIGHT; direction <= HoleFlux.RIGHT_TO_LEFT; direction++) {
+            assertEquals(0.5 * predicted, flux.getRate(direction, UNIT), 0.1 * predicted);
+        }
+    }
+
+    @Test
+    public void rateMatchesPredictionIn2D() {
+        assertMatchesPrediction(flux2D);
+    }
+
+    @Test
+    public void rateMatchesPredictionIn3D() {
+        assertMatchesPrediction(flux3D);
+    }
+
+    @Test
+    public void crossingsBalanceInEquilibrium() {
+        for (HoleFlux flux: new HoleFlux[] {flux2D, flux3D}) {
+            long right = flux.getCrossings(HoleFlux.LEFT_TO_RIGHT);
+            long left = flux.getCrossings(HoleFlux.RIGHT_TO_LEFT);
+            assertTrue(right > 0);
+            // Each particle that leaves a side has to come back before it can leave again
+            assertEquals(right, left, 64);
+        }
+    }
+
+    @Test
+    public void timeSeriesCoversLastFrames() {
+        double[] times = flux3D.getSeriesTimes();
+        assertEquals(HoleFlux.SERIES_FRAMES, times.length);
+        double crossings = 0.0;
+        for (int direction = HoleFlux.LEFT_TO_RIGHT; direction <= HoleFlux.RIGHT_TO_LEFT; direction++) {
+            double[] series = flux3D.getTimeSeries(direction, UNIT);
+            assertEquals(times.length, series.length);
+            for (int i = 1; i < times.length; i++) {
+                assertTrue(times[i] > times[i - 1]);
+                crossings += series[i] * (times[i] - times[i - 1]);
+            }
+        }
+        double rate = crossings / (times[times.length - 1] - times[0]);
+        double predicted = flux3D.getPredictionForAverage(UNIT);
+        assertEquals(predicted, rate, 0.3 * predicted);
+    }
+
+    @Test
+    public void crossingsOnlyPredictedWhileCounted() {
+        SimulationInfo simInfo = TestSimulations.gas(ArenaType.DIVIDED_ARENA_WITH_HOLE, 3, 6.0, 64, 0, 400.0, 1);
+        StatSettingsInfo settings = new StatSettingsInfo();
+        settings.providedStatistics.add(HoleFlux.NAME);
+        Physics counted = new Physics(simInfo, settings);
+        Physics uncounted = new Physics(simInfo, new StatSettingsInfo());
+        for (int frame = 0; frame < 100; frame++) {
+            counted.advanceToNextFrame();
+            uncounted.advanceToNextFrame();
+        }
+        Set<ParticleType> types = new HashSet<ParticleType>(simInfo.getParticleTypes());
+        HoleFlux flux = (HoleFlux) counted.getStatistic(types, HoleFlux.NAME);
+        long crossings = flux.getCrossings(HoleFlux.LEFT_TO_RIGHT) + flux.getCrossings(HoleFlux.RIGHT_TO_LEFT);
+        assertTrue(crossings > 0);
+        // Crossings leave the trajectories alone, so they are the only extra events
+        assertEquals(uncounted.getEventsPerformed(), counted.getEventsPerformed() - crossings);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics.utils;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class BlockingAnalysisTest {
+
+    private static final int SAMPLES = 1 << 18;
+
+    @Test
+    public void noSamplesHaveNoError() {
+        BlockingAnalysis blocking = new BlockingAnalysis();
+        assertEquals(0, blocking.getSampleCount());
+        assertTrue(Double.isNaN(blocking.getMean()));
+        assertTrue(Double.isNaN(blocking.getStandardError()));
+
+        blocking.addSample(1.0, 1.0);
+        assertEquals(1.0, blocking.getMean(), 0.0);
+        assertTrue(Double.isNaN(blocking.getStandardError()));
+        assertFalse(blocking.isConverged());
+    }
+
+    @Test
+    public void constantSamplesHaveZeroError() {
+        BlockingAnalysis blocking = new BlockingAnalysis();
+        for (int i = 0; i < 100; i++) {
+            blocking.addSample(3.0, 1.0);
+        }
+        assertEquals(3.0, blocking.getMean(), 0.0);
+        assertEquals(0.0, blocking.getStandardError(), 0.0);
+        assertTrue(blocking.isConverged());
+    }
+
+    @Test
+    public void skipsNaNAndInfiniteSamples() {
+        BlockingAnalysis blocking = new BlockingAnalysis();
+        blocking.addSample(1.0, 1.0);
+        blocking.addSample(Double.NaN, 1.0);
+        blocking.addSample(Double.POSITIVE_INFINITY, 1.0);
+        blocking.addSample(3.0, 1.0);
+        assertEquals(2, blocking.getSampleCount());
+        assertEquals(2.0, blocking.getMean(), 0.0);
+    }
+
+    @Test
+    public void independentSamplesOnLargeOffset() {
+        // With the spread 1e-9 of the mean, a sum of squares loses every digit of the variance
+        double offset = 1.0e9;
+        Random random = new Random(1);
+        BlockingAnalysis blocking = new BlockingAnalysis();
+        for (int i = 0; i < SAMPLES; i++) {
+            blocking.addSample(offset + random.nextGaussian(), 1.0);
+        }
+        double expected = 1.0 / Math.sqrt(SAMPLES);
+        assertEquals(offset, blocking.getMean(), 5.0 * expected);
+        assertEquals(expected, blocking.getStandardError(), 0.2 * expected);
+        assertTrue(blocking.isConverged());
+        assertEquals(0.5, blocking.getCorrelationTime(), 0.2);
+    }
+
+    @Test
+    public void correlatedSamples() {
+        // AR(1): the error of the mean grows by sqrt((1 + phi) / (1 - phi))
+        double phi = 0.9;
+        double duration = 0.01;
+        Random random = new Random(2);
+        BlockingAnalysis blocking = new BlockingAnalysis();
+        double value = 0.0;
+        for (int i = 0; i < SAMPLES; i++) {
+            value = phi * value + Math.sqrt(1.0 - phi * phi) * random.nextGaussian();
+            blocking.addSample(value, duration);
+        }
+        double inefficiency = (1.0 + phi) / (1.0 - phi);
+        double expected = Math.sqrt(inefficiency / SAMPLES);
+        assertEquals(expected, blocking.getStandardError(), 0.25 * expected);
+        assertTrue(blocking.isConverged());
+        double correlationTime = 0.5 * inefficiency * duration;
+        assertEquals(correlationTime, blocking.getCorrelationTime(), 0.5 * correlationTime);
+    }
+
+    @Test
+    public void clearForgetsSamples() {
+        BlockingAnalysis blocking = new BlockingAnalysis();
+        for (int i = 0; i < 100; i++) {
+            blocking.addSample(i, 1.0);
+        }
+        blocking.clear();
+        assertEquals(0, blocking.getSampleCount());
+        blocking.addSample(5.0, 1.0);
+        blocking.addSample(7.0, 1.0);
+        assertEquals(6.0, blocking.getMean(), 0.0);
+        assertEquals(1.0, blocking.getStandardError(), 1e-12);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics.utils;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FFTTest {
+
+    private static final double TOLERANCE = 1.0e-9;
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsLengthThatIsNotAPowerOfTwo() {
+        new FFT(12);
+    }
+
+    @Test
+    public void lengthOneIsUnchanged() {
+        double[] re = {2.5};
+        double[] im = {-1.0};
+        new FFT(1).transform(re, im);
+        assertEquals(2.5, re[0], 0.0);
+        assertEquals(-1.0, im[0], 0.0);
+    }
+
+    @Test
+    public void matchesDirectTransform() {
+        int length = 64;
+        Random random = new Random(3);
+        double[] re = new double[length];
+        double[] im = new double[length];
+        for (int i = 0; i < length; i++) {
+            re[i] = random.nextGaussian();
+            im[i] = random.nextGaussian();
+        }
+        double[] expectedRe = new double[length];
+        double[] expectedIm = new double[length];
+        for (int j = 0; j < length; j++) {
+            for (int k = 0; k < length; k++) {
+                double angle = -2.0 * Math.PI * j * k / length;
+                expectedRe[j] += re[k] * Math.cos(angle) - im[k] * Math.sin(angle);
+                expectedIm[j] += re[k] * Math.sin(angle) + im[k] * Math.cos(angle);
+            }
+        }
+
+        new FFT(length).transform(re, im);
+        assertArrayEquals(expectedRe, re, TOLERANCE);
+        assertArrayEquals(expectedIm, im, TOLERANCE);
+    }
+
+    @Test
+    public void inverseUndoesTransform() {
+        int length = 256;
+        Random random = new Random(4);
+        double[] re = new double[length];
+        double[] im = new double[length];
+        for (int i = 0; i < length; i++) {
+            re[i] = random.nextGaussian();
+            im[i] = random.nextGaussian();
+        }
+        double[] originalRe = re.clone();
+        double[] originalIm = im.clone();
+
+        FFT fft = new FFT(length);
+        fft.transform(re, im);
+        fft.inverseTransform(re, im);
+        assertArrayEquals(originalRe, re, TOLERANCE);
+        assertArrayEquals(originalIm, im, TOLERANCE);
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics.utils;
+
+import edu.byu.chem.boltzmann.model.physics.Collision;
+import edu.byu.chem.boltzmann.model.physics.EventInfo;
+import edu.byu.chem.boltzmann.model.physics.FrameInfo;
+import edu.byu.chem.boltzmann.model.physics.Particle;
+import edu.byu.chem.boltzmann.model.physics.Particle2D;
+import edu.byu.chem.boltzmann.model.physics.Particle3D;
+import edu.byu.chem.boltzmann.model.physics.ParticleStates;
+import edu.byu.chem.boltzmann.model.statistics.Formulas;
+import edu.byu.chem.boltzmann.utils.Units;
+import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo.ArenaType;
+import edu.byu.chem.boltzmann.utils.data.TestSimulations;
+import java.awt.Color;
+import java.util.Collections;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FieldProfileTrackerTest {
+
+    private static final double NM = 1.0e-9;
+    private static final double PS = 1.0e-12;
+    private static final int SAMPLES = 200000;
+    private static final double TOLERANCE = 1.0e-4;
+
+    private static final Set<ParticleType> RED = Collections.singleton(TestSimulations.RED);
+
+    private static Particle particle(SimulationInfo simInfo, ParticleType type, double[] position, double[] velocity) {
+        if (simInfo.dimension == 2) {
+            return new Particle2D(position, velocity, 0.0, type, simInfo);
+        }
+        return new Particle3D(position, velocity, 0.0, type, simInfo);
+    }
+
+    /** Starts the segments of particles from a frame ending at time */
+    private static void startFrame(FieldProfileTracker tracker, double time, Particle... particles) {
+        int count = particles.length;
+        double[] positions = new double[3 * count];
+        double[] velocities = new double[3 * count];
+        for (int index = 0; index < count; index++) {
+            Particle particle = particles[index];
+            positions[3 * index] = particle.getX();
+            positions[3 * index + 1] = particle.getY();
+            positions[3 * index + 2] = particle.getZ();
+            velocities[3 * index] = particle.getXVel();
+            velocities[3 * index + 1] = particle.getYVel();
+            velocities[3 * index + 2] = particle.getZVel();
+        }
+        ParticleStates states = new ParticleStates(particles);
+        states.setAll(positions, velocities, new Color[count], new int[count]);
+        FrameInfo frame = new FrameInfo(time, time);
+        frame.setEndingStates(states);
+        tracker.setSimulationTime(time);
+        tracker.analyzeFrame(frame);
+    }
+
+    /**
+     * Adds the time a particle moving at velocity from position spends in each
+     * cell between from and to to fractions, by sampling the path finely.
+     */
+    private static void samplePath(FieldProfileTracker tracker, SimulationInfo simInfo, double[] fractions,
+            double[] position, double[] velocity, double from, double to, double totalTime) {
+        double[] arenaSizes = {simInfo.arenaXSize, simInfo.arenaYSize, simInfo.arenaZSize};
+        int[] cell = new int[3];
+        double dt = (to - from) / SAMPLES;
+        for (int sample = 0; sample < SAMPLES; sample++) {
+            double time = (sample + 0.5) * dt;
+            for (int axis = 0; axis < 3; axis++) {
+                cell[axis] = 0;
+                if (axis < simInfo.dimension) {
+                    double x = position[axis] + velocity[axis] * time;
+                    if (simInfo.isPeriodic()) {
+                        x -= arenaSizes[axis] * Math.floor(x / arenaSizes[axis]);
+                    }
+                    cell[axis] = (int) Math.floor(x / tracker.getCellSize(axis));
+                    assertTrue(cell[axis] >= 0 && cell[axis] < tracker.getCellsAlong(axis));
+                }
+            }
+            fractions[tracker.getCell(cell[0], cell[1], cell[2])] += dt / totalTime;
+        }
+    }
+
+    private static void assertFractions(FieldProfileTracker tracker, double[] expected, int numParticles) {
+        double total = 0.0;
+        for (int cell = 0; cell < tracker.getNumberOfCells(); cell++) {
+            double fraction = tracker.getDensity(cell) * tracker.getCellVolume() / numParticles;
+            assertEquals("cell " + cell, expected[cell], fraction, TOLERANCE);
+            total += fraction;
+        }
+        assertEquals(1.0, total * numParticles, 1.0e-9);
+    }
+
+    @Test
+    public void periodicWalkWrapsAround() {
+        SimulationInfo simInfo = TestSimulations.gas(ArenaType.PERIODIC_BOUNDARIES, 2, 10.0, 1, 0, 100.0, 1);
+        FieldProfileTracker tracker = new FieldProfileTracker(new int[] {5, 4, 1}, RED, simInfo);
+        double[] position = {1.3 * NM, 0.7 * NM, 0.0};
+        double[] velocity = {230.0, -170.0, 0.0};
+        double duration = 200.0 * PS;
+
+        startFrame(tracker, 0.0, particle(simInfo, TestSimulations.RED, position, velocity));
+        tracker.setSimulationTime(duration);
+        tracker.endOpenSegments();
+
+        assertEquals(duration, tracker.getCoveredTime(), 1.0e-9 * duration);
+        double[] expected = new double[tracker.getNumberOfCells()];
+        samplePath(tracker, simInfo, expected, position, velocity, 0.0, duration, duration);
+        assertFractions(tracker, expected, 1);
+
+        double thermalScale = Units.convert("amu", "kg", TestSimulations.RED.particleMass)
+                * (230.0 * 230.0 + 170.0 * 170.0) / Formulas.BOLTZMANN_CONST;
+        for (int cell = 0; cell < tracker.getNumberOfCells(); cell++) {
+            if (expected[cell] > 0.0) {
+                assertEquals(230.0, tracker.getFlowVelocity(cell, 0), 1.0e-9);
+                assertEquals(-170.0, tracker.getFlowVelocity(cell, 1), 1.0e-9);
+                assertEquals(0.0, tracker.getTemperature(cell), 1.0e-9 * thermalScale);
+                assertEquals(tracker.getDensity(cell) * 230.0, tracker.getFlux(cell, 0),
+                        1.0e-9 * Math.abs(tracker.getFlux(cell, 0)));
+            }
+        }
+    }
+
+    @Test
+    public void walkThroughCellCorners() {
+        SimulationInfo simInfo = TestSimulations.gas(ArenaType.REFLECTING_BOUNDARIES, 3, 10.0, 1, 0, 100.0, 1);
+        FieldProfileTracker tracker = new FieldProfileTracker(new int[] {4, 4, 4}, RED, simInfo);
+        // Along the diagonal, crossing every axis at once at each cell corner
+        double[] position = {1.25 * NM, 1.25 * NM, 1.25 * NM};
+        double[] velocity = {100.0, 100.0, 100.0};
+        double duration = 75.0 * PS;
+
+        startFrame(tracker, 0.0, particle(simInfo, TestSimulations.RED, position, velocity));
+        tracker.setSimulationTime(duration);
+        tracker.endOpenSegments();
+
+        for (int cell = 0; cell < tracker.getNumberOfCells(); cell++) {
+            double fraction = tracker.getDensity(cell) * tracker.getCellVolume();
+            boolean diagonal = cell == tracker.getCell(0, 0, 0) || cell == tracker.getCell(1, 1, 1)
+                    || cell == tracker.getCell(2, 2, 2) || cell == tracker.getCell(3, 3, 3);
+            double expected = (cell == tracker.getCell(0, 0, 0) || cell == tracker.getCell(3, 3, 3)) ? 1.0 / 6.0
+                    : diagonal ? 1.0 / 3.0 : 0.0;
+            assertEquals("cell " + cell, expected, fraction, 1.0e-9);
+        }
+    }
+
+    @Test
+    public void eventsSplitSegments() {
+        SimulationInfo simInfo = TestSimulations.gas(ArenaType.PERIODIC_BOUNDARIES, 2, 10.0, 1, 0, 100.0, 1);
+        FieldProfileTracker tracker = new FieldProfileTracker(new int[] {3, 3, 1}, RED, simInfo);
+        double[] start = {2.0 * NM, 5.0 * NM, 0.0};
+        double[] firstVelocity = {150.0, 40.0, 0.0};
+        double[] secondVelocity = {-90.0, 210.0, 0.0};
+        double eventTime = 30.0 * PS;
+        double endTime = 100.0 * PS;
+        double[] turn = {start[0] + firstVelocity[0] * eventTime, start[1] + firstVelocity[1] * eventTime, 0.0};
+
+        startFrame(tracker, 0.0, particle(simInfo, TestSimulations.RED, start, firstVelocity));
+        EventInfo event = new EventInfo(Collision.WALL, eventTime, 0, -1, 0);
+        event.setInvolvedParticles(particle(simInfo, TestSimulations.RED, turn, secondVelocity), null);
+        tracker.afterEvent(event);
+        tracker.setSimulationTime(endTime);
+        tracker.endOpenSegments();
+
+        double[] expected = new double[tracker.getNumberOfCells()];
+        samplePath(tracker, simInfo, expected, start, firstVelocity, 0.0, eventTime, endTime);
+        samplePath(tracker, simInfo, expected, turn, secondVelocity, 0.0, endTime - eventTime, endTime);
+        assertFractions(tracker, expected, 1);
+    }
+
+    @Test
+    public void clearCountsOnlyLaterTime() {
+        SimulationInfo simInfo = TestSimulations.gas(ArenaType.PERIODIC_BOUNDARIES, 2, 10.0, 1, 0, 100.0, 1);
+        FieldProfileTracker tracker = new FieldProfileTracker(new int[] {4, 4, 1}, RED, simInfo);
+        double[] position = {1.0 * NM, 1.0 * NM, 0.0};
+        double[] velocity = {120.0, 75.0, 0.0};
+        double clearTime = 40.0 * PS;
+        double endTime = 90.0 * PS;
+
+        startFrame(tracker, 0.0, particle(simInfo, TestSimulations.RED, position, velocity));
+        tracker.setSimulationTime(clearTime);
+        tracker.clear();
+        tracker.setSimulationTime(endTime);
+        tracker.endOpenSegments();
+
+        assertEquals(endTime - clearTime, tracker.getCoveredTime(), 1.0e-9 * endTime);
+        double[] later = {position[0] + velocity[0] * clearTime, position[1] + velocity[1] * clearTime, 0.0};
+        double[] expected = new double[tracker.getNumberOfCells()];
+        samplePath(tracker, simInfo, expected, later, velocity, 0.0, endTime - clearTime, endTime - clearTime);
+        assertFractions(tracker, expected, 1);
+    }
+
+    @Test
+    public void unwatchedParticlesOnlyCountTowardsTime() {
+        SimulationInfo simInfo = TestSimulations.gas(ArenaType.PERIODIC_BOUNDARIES, 2, 10.0, 1, 1, 100.0, 1);
+        FieldProfileTracker tracker = new FieldProfileTracker(new int[] {2, 2, 1}, RED, simInfo);
+        double[] redPosition = {2.0 * NM, 2.0 * NM, 0.0};
+        double[] bluePosition = {7.0 * NM, 7.0 * NM, 0.0};
+        double[] still = {0.0, 0.0, 0.0};
+        double duration = 10.0 * PS;
+
+        startFrame(tracker, 0.0, particle(simInfo, TestSimulations.RED, redPosition, still),
+                particle(simInfo, TestSimulations.BLUE, bluePosition, still));
+        tracker.setSimulationTime(duration);
+        tracker.endOpenSegments();
+
+        assertEquals(2.0 * duration, tracker.getCoveredTime(), 1.0e-9 * duration);
+        // Two particles, half the particle time spent by the watched one in cell (0, 0)
+        assertEquals(1.0, tracker.getDensity(tracker.getCell(0, 0, 0)) * tracker.getCellVolume(), 1.0e-9);
+        assertEquals(0.0, tracker.getDensity(tracker.getCell(1, 1, 0)), 0.0);
+        assertTrue(Double.isNaN(tracker.getTemperature(tracker.getCell(1, 1, 0))));
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics.utils;
+
+import edu.byu.chem.boltzmann.model.statistics.utils.TimeCorrelator.Kind;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TimeCorrelatorTest {
+
+    private static final int WINDOW = TimeCorrelator.WINDOW;
+    private static final int LAGS = TimeCorrelator.LAGS;
+    private static final double TOLERANCE = 1.0e-9;
+
+    /** Samples of numSeries random walks, sample-major */
+    private static double[][] randomWalks(int samples, int numSeries, long seed) {
+        Random random = new Random(seed);
+        double[][] walks = new double[samples][numSeries];
+        for (int s = 1; s < samples; s++) {
+            for (int series = 0; series < numSeries; series++) {
+                walks[s][series] = walks[s - 1][series] + random.nextGaussian();
+            }
+        }
+        return walks;
+    }
+
+    /** Function worked out directly over origins first to first + LAGS - 1 */
+    private static double directBlock(double[][] samples, int first, int lag, Kind kind) {
+        int numSeries = samples[0].length;
+        double sum = 0.0;
+        for (int series = 0; series < numSeries; series++) {
+            for (int k = first; k < first + LAGS; k++) {
+                double origin = samples[k][series];
+                double lagged = samples[k + lag][series];
+                if (kind == Kind.AUTOCORRELATION) {
+                    sum += origin * lagged;
+                } else {
+                    sum += (lagged - origin) * (lagged - origin);
+                }
+            }
+        }
+        return sum / (numSeries * LAGS);
+    }
+
+    private static TimeCorrelator correlate(Kind kind, double[][] samples, int count) {
+        TimeCorrelator correlator = new TimeCorrelator(kind, samples[0].length);
+        for (int s = 0; s < count; s++) {
+            correlator.add(samples[s]);
+        }
+        return correlator;
+    }
+
+    @Test
+    public void noDataBeforeWindowFills() {
+        TimeCorrelator correlator = correlate(Kind.AUTOCORRELATION, randomWalks(WINDOW, 2, 1), WINDOW - 1);
+        assertFalse(correlator.hasData());
+        assertEquals(0.0, correlator.getCurrent(0), 0.0);
+        assertEquals(0.0, correlator.getCumulative(0), 0.0);
+    }
+
+    @Test
+    public void autocorrelationMatchesDirectSum() {
+        double[][] samples = randomWalks(WINDOW, 3, 2);
+        TimeCorrelator correlator = correlate(Kind.AUTOCORRELATION, samples, WINDOW);
+        assertTrue(correlator.hasData());
+        for (int lag = 0; lag < LAGS; lag++) {
+            double expected = directBlock(samples, 0, lag, Kind.AUTOCORRELATION);
+            assertEquals(expected, correlator.getCurrent(lag), TOLERANCE * Math.abs(expected) + TOLERANCE);
+            assertEquals(expected, correlator.getCumulative(lag), TOLERANCE * Math.abs(expected) + TOLERANCE);
+        }
+    }
+
+    @Test
+    public void meanSquaredDisplacementMatchesDirectSum() {
+        double[][] samples = randomWalks(WINDOW, 3, 3);
+        // Far from the origin, so the window's shift is what keeps the sums accurate
+        for (double[] sample: samples) {
+            for (int series = 0; series < sample.length; series++) {
+                sample[series] += 1.0e6;
+            }
+        }
+        TimeCorrelator correlator = correlate(Kind.MEAN_SQUARED_DISPLACEMENT, samples, WINDOW);
+        assertEquals(0.0, correlator.getCurrent(0), 1.0e-6);
+        for (int lag = 1; lag < LAGS; lag++) {
+            double expected = directBlock(samples, 0, lag, Kind.MEAN_SQUARED_DISPLACEMENT);
+            assertEquals(expected, correlator.getCurrent(lag), 1.0e-6 * expected);
+        }
+    }
+
+    @Test
+    public void laterBlocksUseNextOrigins() {
+        double[][] samples = randomWalks(WINDOW + 2 * LAGS, 2, 4);
+        TimeCorrelator correlator = correlate(Kind.MEAN_SQUARED_DISPLACEMENT, samples, WINDOW + LAGS - 1);
+        double firstBlock = directBlock(samples, 0, 10, Kind.MEAN_SQUARED_DISPLACEMENT);
+        assertEquals(firstBlock, correlator.getCurrent(10), TOLERANCE * firstBlock);
+
+        correlator.add(samples[WINDOW + LAGS - 1]);
+        double secondBlock = directBlock(samples, LAGS, 10, Kind.MEAN_SQUARED_DISPLACEMENT);
+        assertEquals(secondBlock, correlator.getCurrent(10), TOLERANCE * secondBlock);
+        double cumulative = 0.5 * (firstBlock + secondBlock);
+        assertEquals(cumulative, correlator.getCumulative(10), TOLERANCE * cumulative);
+    }
+
+    @Test
+    public void clearForgetsSamples() {
+        double[][] samples = randomWalks(2 * WINDOW, 1, 5);
+        TimeCorrelator correlator = correlate(Kind.AUTOCORRELATION, samples, WINDOW);
+        correlator.clear();
+        assertFalse(correlator.hasData());
+        for (int s = WINDOW; s < 2 * WINDOW; s++) {
+            correlator.add(samples[s]);
+        }
+        double expected = directBlock(samples, WINDOW, 5, Kind.AUTOCORRELATION);
+        assertEquals(expected, correlator.getCumulative(5), TOLERANCE * Math.abs(expected));
+    }
+
+    @Test
+    public void fitSlopeOfLine() {
+        double[] function = new double[LAGS];
+        for (int lag = 0; lag < LAGS; lag++) {
+            function[lag] = (lag < 10) ? 0.0 : 3.0 + 2.5 * lag * 0.1;
+        }
+        assertEquals(2.5, TimeCorrelator.fitSlope(function, 10, 0.1), TOLERANCE);
+    }
+}
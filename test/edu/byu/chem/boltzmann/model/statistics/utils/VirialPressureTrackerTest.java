@@ -0,0 +1,89 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.model.statistics.utils;
+
+import edu.byu.chem.boltzmann.model.physics.Physics;
+import edu.byu.chem.boltzmann.model.statistics.Formulas;
+import edu.byu.chem.boltzmann.model.statistics.PressureTensor;
+import edu.byu.chem.boltzmann.utils.Units.PressureUnit;
+import edu.byu.chem.boltzmann.utils.data.ParticleType;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo.ArenaType;
+import edu.byu.chem.boltzmann.utils.data.StatSettingsInfo;
+import edu.byu.chem.boltzmann.utils.data.TestSimulations;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class VirialPressureTrackerTest {
+
+    private static final PressureUnit UNIT = PressureUnit.PASCAL;
+
+    private static SimulationInfo simInfo;
+    private static PressureTensor tensor;
+
+    /** A dense hard-sphere gas, a fifth of the arena filled, with periodic boundaries */
+    @BeforeClass
+    public static void runDenseGas() {
+        simInfo = TestSimulations.gas(ArenaType.PERIODIC_BOUNDARIES, 3, 2.1, 125, 0, 400.0, 1);
+        StatSettingsInfo settings = new StatSettingsInfo();
+        settings.providedStatistics.add(PressureTensor.NAME);
+        settings.useRealGasCorrections = true;
+        Physics physics = new Physics(simInfo, settings);
+        for (int frame = 0; frame < 500; frame++) {
+            physics.advanceToNextFrame();
+        }
+        Set<ParticleType> types = new HashSet<ParticleType>(simInfo.getParticleTypes());
+        tensor = (PressureTensor) physics.getStatistic(types, PressureTensor.NAME);
+    }
+
+    @Test
+    public void virialRaisesPressureAboveIdealGas() {
+        double volume = simInfo.arenaXSize * simInfo.arenaYSize * simInfo.arenaZSize;
+        double ideal = simInfo.totalNumParticles * Formulas.BOLTZMANN_CONST * simInfo.initialTemperature / volume;
+        assertTrue(tensor.getCumulativeAverage(UNIT) > 2.0 * ideal);
+    }
+
+    @Test
+    public void pressureMatchesRealGasPrediction() {
+        double predicted = tensor.getPredictionForAverage(UNIT);
+        assertEquals(predicted, tensor.getCumulativeAverage(UNIT), 0.02 * predicted);
+        assertEquals(tensor.getCumulativeAverage(UNIT), tensor.getCurrentAverage(UNIT), 0.02 * predicted);
+    }
+
+    @Test
+    public void tensorIsIsotropic() {
+        double pressure = tensor.getCumulativeAverage(UNIT);
+        double trace = 0.0;
+        for (int a = 0; a < 3; a++) {
+            double diagonal = tensor.getComponent(a, a).getCumulativeAverage(UNIT);
+            assertEquals(pressure, diagonal, 0.03 * pressure);
+            trace += diagonal;
+            for (int b = 0; b < 3; b++) {
+                if (a != b) {
+                    double offDiagonal = tensor.getComponent(a, b).getCumulativeAverage(UNIT);
+                    assertEquals(0.0, offDiagonal, 0.02 * pressure);
+                    assertEquals(offDiagonal, tensor.getComponent(b, a).getCumulativeAverage(UNIT), 0.0);
+                }
+            }
+        }
+        assertEquals(pressure, trace / 3.0, 1.0e-9 * pressure);
+    }
+}
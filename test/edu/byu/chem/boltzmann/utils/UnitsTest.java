@@ -0,0 +1,50 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.utils;
+
+import edu.byu.chem.boltzmann.utils.Units.Power;
+import edu.byu.chem.boltzmann.utils.Units.Unit;
+import java.util.EnumSet;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+@SuppressWarnings({"unchecked"})
+public class UnitsTest {
+
+    private static final double TOLERANCE = 1.0e-12;
+
+    @Test
+    public void powerConvertsBySymbol() {
+        assertEquals(2.5e9, Units.convert("W", "nW", 2.5), 2.5e9 * TOLERANCE);
+        assertEquals(3.0e-3, Units.convert("pW", "nW", 3.0), 3.0e-3 * TOLERANCE);
+        assertEquals(4.0e-12, Units.convert("pW", Power.WATT, 4.0), 4.0e-12 * TOLERANCE);
+        assertSame(Power.NANOWATT, Units.getUnitWithSymbol("nW"));
+    }
+
+    @Test
+    public void everyUnitEnumIsListed() {
+        for (Class<?> nested: Units.class.getClasses()) {
+            if (!nested.isEnum() || !Unit.class.isAssignableFrom(nested)) {
+                continue;
+            }
+            for (Object unit: EnumSet.allOf((Class<Enum>) nested)) {
+                assertSame(unit, Units.getUnitWithSymbol(((Unit) unit).getSymbol()));
+            }
+        }
+    }
+}
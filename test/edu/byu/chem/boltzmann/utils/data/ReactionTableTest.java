@@ -0,0 +1,96 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.utils.data;
+
+import edu.byu.chem.boltzmann.utils.Units;
+import edu.byu.chem.boltzmann.utils.Units.Energy;
+import edu.byu.chem.boltzmann.utils.data.ReactionTable.Channel;
+import java.awt.Color;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ReactionTableTest {
+
+    private static final ParticleType GREEN = new ParticleType(20.0, 0.12e-9, Color.GREEN, "Green");
+    private static final List<ParticleType> TYPES = Arrays.asList(TestSimulations.RED, TestSimulations.BLUE, GREEN);
+    private static final int RED = 0;
+    private static final int BLUE = ReactionTable.BLUE_SPECIES;
+    private static final int GREEN_SPECIES = 2;
+
+    /** Relative energy just above kilojoulesPerMole, in the units collisions use */
+    private static double above(double kilojoulesPerMole) {
+        return Units.convert(Energy.KILOJOULE_PER_MOLE, Energy.AMU_JOULE, kilojoulesPerMole) * 1.001;
+    }
+
+    @Test
+    public void relationshipsGiveSameSpeciesChannels() {
+        ReactionRelationship relationship = new ReactionRelationship(TestSimulations.RED, TestSimulations.BLUE,
+                10.0, 4.0, false, false);
+        ReactionTable table = new ReactionTable(TYPES, Arrays.asList(relationship));
+
+        int forward = table.findReaction(RED, RED, above(10.0));
+        assertEquals(BLUE, table.getProduct1(forward));
+        assertEquals(BLUE, table.getProduct2(forward));
+        assertEquals(2, table.getDeltaBlue(forward));
+        assertEquals(ReactionTable.NO_REACTION, table.findReaction(RED, RED, above(9.0)));
+
+        int reverse = table.findReaction(BLUE, BLUE, above(4.0));
+        assertEquals(RED, table.getProduct1(reverse));
+        assertEquals(-2, table.getDeltaBlue(reverse));
+        assertEquals(-table.getEnergyChange(forward), table.getEnergyChange(reverse), 1.0e-9 * table.getEnergyChange(forward));
+
+        assertEquals(ReactionTable.NO_REACTION, table.findReaction(RED, BLUE, above(100.0)));
+    }
+
+    @Test
+    public void mixedChannelAppliesInEitherOrder() {
+        ReactionTable table = new ReactionTable(TYPES, new Channel[] {
+            new Channel(RED, BLUE, GREEN_SPECIES, RED, 5.0, 1.0)
+        });
+
+        int reaction = table.findReaction(RED, BLUE, above(5.0));
+        assertEquals(GREEN_SPECIES, table.getProduct1(reaction));
+        assertEquals(RED, table.getProduct2(reaction));
+        assertEquals(-1, table.getDeltaBlue(reaction));
+
+        int mirrored = table.findReaction(BLUE, RED, above(5.0));
+        assertEquals(RED, table.getProduct1(mirrored));
+        assertEquals(GREEN_SPECIES, table.getProduct2(mirrored));
+        assertEquals(table.getEnergyChange(reaction), table.getEnergyChange(mirrored), 0.0);
+
+        assertEquals(ReactionTable.NO_REACTION, table.findReaction(RED, RED, above(100.0)));
+    }
+
+    @Test
+    public void firstExceededChannelIsUsed() {
+        ReactionTable table = new ReactionTable(TYPES, new Channel[] {
+            new Channel(GREEN_SPECIES, GREEN_SPECIES, RED, RED, 20.0, 0.0),
+            new Channel(GREEN_SPECIES, GREEN_SPECIES, BLUE, BLUE, 5.0, 0.0)
+        });
+
+        assertEquals(RED, table.getProduct1(table.findReaction(GREEN_SPECIES, GREEN_SPECIES, above(20.0))));
+        assertEquals(BLUE, table.getProduct1(table.findReaction(GREEN_SPECIES, GREEN_SPECIES, above(5.0))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownSpeciesIsRejected() {
+        new ReactionTable(TYPES, new Channel[] { new Channel(RED, 3, RED, RED, 1.0, 0.0) });
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Boltzmann 3D, a kinetic theory demonstrator
+ * Copyright (C) 2013 Dr. Randall B. Shirts
+ * 
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package edu.byu.chem.boltzmann.utils.data;
+
+import edu.byu.chem.boltzmann.model.io.DummyMain;
+import edu.byu.chem.boltzmann.utils.data.SimulationInfo.ArenaType;
+import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Small simulations built in code for tests. Particles are put on a lattice
+ * filling the arena, an even number of sites along each axis so none sits on
+ * a divider, and given one speed in random directions.
+ */
+public final class TestSimulations {
+
+    /** Argon-like particles, 40 amu with a radius of 0.15 nm */
+    public static final ParticleType RED = new ParticleType(40.0, 0.15e-9, Color.RED, "Red");
+    /** Lighter particles, 4 amu with a radius of 0.1 nm */
+    public static final ParticleType BLUE = new ParticleType(4.0, 0.1e-9, Color.BLUE, "Blue");
+
+    private TestSimulations() {
+    }
+
+    /**
+     * @param size length of each side of the arena in nm
+     * @param speed speed of every particle in m/s
+     */
+    public static SimulationInfo gas(ArenaType arenaType, int dimension, double size,
+            int reds, int blues, double speed, long seed) {
+        DummyMain supplier = new DummyMain();
+        supplier.arenaType = arenaType;
+        supplier.dimension = dimension;
+        supplier.xSize = size;
+        supplier.ySize = size;
+        supplier.zSize = size;
+        supplier.holeSize = (int) (size / 2);
+        supplier.redParticle = RED;
+        supplier.blueParticle = BLUE;
+        supplier.redPositions = new ArrayList<double[]>();
+        supplier.bluePositions = new ArrayList<double[]>();
+        supplier.redVelocities = new ArrayList<double[]>();
+        supplier.blueVelocities = new ArrayList<double[]>();
+
+        int total = reds + blues;
+        int sitesPerAxis = (int) Math.ceil(Math.pow(total, 1.0 / dimension));
+        sitesPerAxis += sitesPerAxis % 2;
+        double spacing = size * 1.0e-9 / sitesPerAxis;
+        if (spacing < 2.0 * RED.particleRadius) {
+            throw new IllegalArgumentException(total + " particles don't fit in a " + size + " nm arena");
+        }
+        Random random = new Random(seed);
+        for (int index = 0; index < total; index++) {
+            double[] position = new double[3];
+            int site = index;
+            for (int axis = 0; axis < dimension; axis++) {
+                position[axis] = (site % sitesPerAxis + 0.5) * spacing;
+                site /= sitesPerAxis;
+            }
+            boolean red = index < reds;
+            (red ? supplier.redPositions : supplier.bluePositions).add(position);
+            (red ? supplier.redVelocities : supplier.blueVelocities).add(randomVelocity(random, dimension, speed));
+        }
+        return new SimulationInfo(supplier);
+    }
+
+    private static double[] randomVelocity(Random random, int dimension, double speed) {
+        double[] velocity = new double[3];
+        double length;
+        do {
+            length = 0.0;
+            for (int axis = 0; axis < dimension; axis++) {
+                velocity[axis] = random.nextGaussian();
+                length += velocity[axis] * velocity[axis];
+            }
+        } while (length == 0.0);
+        length = Math.sqrt(length);
+        for (int axis = 0; axis < dimension; axis++) {
+            velocity[axis] *= speed / length;
+        }
+        return velocity;
+    }
+}